@@ -10,15 +10,30 @@ import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator.FreeTypeFont
 import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
 import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
+import x3.model.game.AutoSave;
+import x3.model.game.SaveGame;
 import x3.model.game.objects.Explosion;
-import x3.model.map.GameMap;
 import x3.model.map.Map1;
 import x3.model.map.Map2;
 import x3.model.map.Map3;
+import x3.model.map.MapDescriptor;
+import x3.model.net.MatchServer;
+import x3.model.net.ReplayFile;
+import x3.model.net.ReplayWriter;
 import x3.view.controlsmenu.ControlsMenuScreen;
+import x3.view.game.GameScreen;
+import x3.view.game.RemoteGameScreen;
+import x3.view.game.ReplayScreen;
 import x3.view.gamesetup.GameSetupScreen;
 import x3.view.mainmenu.MainMenuScreen;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -35,6 +50,10 @@ import java.util.Map;
  * the screen through the internal SpriteBatch instance.
  */
 public class DetonatorCircle extends Game {
+    /**
+     * The name of a replay, the time its game started.
+     */
+    private static final DateTimeFormatter REPLAY_NAME = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss-SSS");
     /**
      * The horizontal size of the window as specified in DesktopLauncher.
      */
@@ -44,9 +63,9 @@ public class DetonatorCircle extends Game {
      */
     public final int initialWindowHeight;
     /**
-     * A general list containing all instances of playable maps in the game.
+     * A general list describing all playable maps in the game. A map is built when it's first played.
      */
-    public final List<GameMap> maps;
+    public final List<MapDescriptor<?>> maps;
     /**
      * An array containing the names of each player.
      * <br>
@@ -56,6 +75,15 @@ public class DetonatorCircle extends Game {
      * Default values are: Player1, Player2, Player3
      */
     public final String[] playerNames = { "Player1", "Player2", "Player3" };
+    /**
+     * An array containing whether each player is controlled by a bot.
+     * <br>
+     * This array has a size of 3 at all times. Depending on player count,
+     * the last element (index of 2) may be ignored.
+     * <br>
+     * By default, every player is controlled by the keyboard.
+     */
+    public final boolean[] botPlayers = { false, false, false };
     private final List<SimpleEntry<FileHandle, FileHandle>> explosionParticles;
     /**
      * Font of pixel size 24.
@@ -91,12 +119,16 @@ public class DetonatorCircle extends Game {
     private MainMenuScreen mainMenuScreen;
     private ControlsMenuScreen controlsMenuScreen;
     private GameSetupScreen gameSetupScreen;
+    private InetSocketAddress serverAddress;
+    private Path replayFile;
+    private Path replayDirectory;
+    private ReplayWriter recording;
 
     /**
      * Only constructor.
      * <br>
      * Stores the provided window dimensions for rendering the UIs of the game,
-     * and prepares the GameMap instances.
+     * and registers the maps, which are built when they're first played.
      *
      * @param windowWidth  the initial width of the window.
      * @param windowHeight the initial height of the window.
@@ -105,7 +137,81 @@ public class DetonatorCircle extends Game {
         initialWindowWidth = windowWidth;
         initialWindowHeight = windowHeight;
         explosionParticles = new ArrayList<>();
-        maps = List.of(new Map1(), new Map2(), new Map3());
+        maps = List.of(Map1.DESCRIPTOR, Map2.DESCRIPTOR, Map3.DESCRIPTOR);
+    }
+
+    /**
+     * Makes the game join the {@link MatchServer match server} at the given address when it starts,
+     * instead of showing the main menu.
+     * <br>
+     * Must be called before the game is {@link #create() created}.
+     *
+     * @param address the address of the server.
+     */
+    public void setServerAddress(InetSocketAddress address) {
+        serverAddress = address;
+    }
+
+    /**
+     * Makes the game play back the given {@link ReplayFile replay} when it starts, instead of showing the main menu.
+     * <br>
+     * Must be called before the game is {@link #create() created}.
+     *
+     * @param file the replay file.
+     */
+    public void setReplayFile(Path file) {
+        replayFile = file;
+    }
+
+    /**
+     * Makes the game record every game started from the map select screen, each to a new replay in the given
+     * directory, named after the time it started. Games aren't recorded unless this is called.
+     * <br>
+     * Must be called before the game is {@link #create() created}.
+     *
+     * @param directory the directory of the replays.
+     */
+    public void setReplayDirectory(Path directory) {
+        replayDirectory = directory;
+    }
+
+    /**
+     * Starts recording the rounds of a new game to a new replay in the {@link #setReplayDirectory(Path) replay
+     * directory}, finishing the previous recording. Does nothing if games aren't recorded.
+     *
+     * @throws IOException if the replay can't be created, in which case the game isn't recorded.
+     */
+    public void startRecording() throws IOException {
+        stopRecording();
+        if (replayDirectory == null) {
+            return;
+        }
+        Files.createDirectories(replayDirectory);
+        Path file = replayDirectory.resolve(LocalDateTime.now().format(REPLAY_NAME) + ReplayFile.EXTENSION);
+        recording = new ReplayWriter(file, GameScreen.PPM);
+    }
+
+    /**
+     * Returns the recording of the running game.
+     * @return the recording, or null if the game isn't recorded.
+     */
+    public ReplayWriter getRecording() {
+        return recording;
+    }
+
+    /**
+     * Finishes the recording of the running game, if any, writing its index.
+     */
+    public void stopRecording() {
+        if (recording == null) {
+            return;
+        }
+        try {
+            recording.close();
+        } catch (IOException e) {
+            // the replay is left without its index, and can't be played back
+        }
+        recording = null;
     }
 
     /**
@@ -134,11 +240,17 @@ public class DetonatorCircle extends Game {
      * <br>
      * Textures are stored in an internal mapping where <code>name</code> is the key, and the returned value
      * is the associated Texture. Textures are cached when first requested.
+     * <br>
+     * If the game was never {@link #create() created} (e.g. when engines run headless), no textures exist,
+     * and null is returned.
      *
      * @param name the key associated with the desired Texture object in the internal mapping.
-     * @return the requested Texture.
+     * @return the requested Texture, or null if the game runs headless.
      */
     public Texture getTexture(String name) {
+        if (textureAtlas == null) {
+            return null;
+        }
         if (!textureCache.containsKey(name)) {
             textureCache.put(name, textureAtlas.createSprite(name).getTexture());
         }
@@ -278,6 +390,8 @@ public class DetonatorCircle extends Game {
      * <br>
      * This method runs when all LibGDX contexts are initialized properly.
      * Initializes the internal SpriteBatch instance, the fonts, the TextureAtlas and the texture cache.
+     * Then shows the main menu, or joins the {@link #setServerAddress(InetSocketAddress) server} or plays the
+     * {@link #setReplayFile(Path) replay} if one was given.
      */
     @Override
     public void create() {
@@ -330,9 +444,6 @@ public class DetonatorCircle extends Game {
             e("3", "gamesetup/3.png"),
             e("4", "gamesetup/4.png"),
             e("5", "gamesetup/5.png"),
-            e("map1", "mapselect/map1.png"),
-            e("map2", "mapselect/map2.png"),
-            e("map3", "mapselect/map3.png"),
             e("player1", "game/p1.png"),
             e("player2", "game/p2.png"),
             e("player3", "game/p3.png"),
@@ -358,11 +469,51 @@ public class DetonatorCircle extends Game {
         mainMenuScreen = new MainMenuScreen(this);
         controlsMenuScreen = new ControlsMenuScreen(this);
         gameSetupScreen = new GameSetupScreen(this);
-        toMainMenu();
+        if (serverAddress != null) {
+            setScreen(new RemoteGameScreen(this, serverAddress));
+        } else if (replayFile != null) {
+            setScreen(new ReplayScreen(this, replayFile));
+        } else {
+            toMainMenu();
+            offerAutoSave();
+        }
+    }
+
+    /**
+     * Offers to resume the game that was {@link GameScreen#AUTOSAVE saved} when the game was last closed or crashed,
+     * if any. An autosave that is discarded, or can't be loaded, is deleted.
+     */
+    private void offerAutoSave() {
+        if (!Files.exists(GameScreen.AUTOSAVE)) {
+            return;
+        }
+        ByteBuffer save;
+        try {
+            save = AutoSave.read(GameScreen.AUTOSAVE);
+        } catch (IOException e) {
+            deleteAutoSave();
+            return;
+        }
+        mainMenuScreen.askToResume(() -> {
+            try {
+                setScreen(new GameScreen(this, SaveGame.prepare(this, save), save));
+            } catch (IllegalArgumentException e) {
+                deleteAutoSave();
+            }
+        }, this::deleteAutoSave);
+    }
+
+    private void deleteAutoSave() {
+        try {
+            Files.deleteIfExists(GameScreen.AUTOSAVE);
+        } catch (IOException ignored) {
+            // it is offered again next time
+        }
     }
 
     @Override
     public void dispose() {
+        stopRecording();
         batch.dispose();
         textureAtlas.dispose();
         textureCache.forEach((name, texture) -> texture.dispose());
@@ -5,6 +5,7 @@ import com.badlogic.gdx.graphics.g2d.Sprite;
 import x3.model.game.GameEngine;
 import x3.model.game.objects.Box;
 import x3.model.game.objects.Player;
+import x3.model.util.GameClock;
 
 /**
  * A <code>TimedEffect</code> is a supplementary object that contains additional information about a temporary effect
@@ -17,13 +18,14 @@ import x3.model.game.objects.Player;
 public abstract class TimedEffect extends Effect {
     /**
      * The timestamp recorded when the effect was applied.
-     * @see System#currentTimeMillis()
+     * @see #now()
      */
     public long startTime;
     /**
      * The duration of this <code>TimedEffect</code> measured in milliseconds.
      */
     public final long duration;
+    private GameClock clock = GameClock.SYSTEM;
 
     /**
      * Only constructor.
@@ -38,6 +40,22 @@ public abstract class TimedEffect extends Effect {
         this.duration = duration;
     }
 
+    /**
+     * Sets the clock used for measuring the duration of this effect. Defaults to {@link GameClock#SYSTEM}.
+     * @param clock the clock of the game.
+     */
+    public void setClock(GameClock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the current time of this effect's clock, in milliseconds.
+     * @return the current time.
+     */
+    protected long now() {
+        return clock.millis();
+    }
+
     /**
      * Removes this <code>TimedEffect</code> from the given {@link Player}.
      * @param p the {@link Player} that needs this effect removed.
@@ -49,6 +67,6 @@ public abstract class TimedEffect extends Effect {
      * @return true if the duration has passed.
      */
     public boolean hasExpired() {
-        return startTime + duration <= System.currentTimeMillis();
+        return startTime + duration <= now();
     }
 }
@@ -27,12 +27,12 @@ public final class ForcedBombsEffect extends TimedEffect {
     }
 
     /**
-     * Records the {@link System#currentTimeMillis() time} into {@link TimedEffect#startTime}.
+     * Records the {@link #now() time} into {@link TimedEffect#startTime}.
      * @param p the {@link Player} that receives this effect.
      */
     @Override
     public void apply(Player p) {
-        startTime = System.currentTimeMillis();
+        startTime = now();
     }
 
     /**
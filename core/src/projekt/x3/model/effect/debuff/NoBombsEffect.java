@@ -24,13 +24,13 @@ public final class NoBombsEffect extends TimedEffect {
     }
 
     /**
-     * Records the {@link System#currentTimeMillis() time} into {@link TimedEffect#startTime},
+     * Records the {@link #now() time} into {@link TimedEffect#startTime},
      * and changes the maximum number of bombs the given {@link Player Player} can have placed to 0.
      * @param p the {@link Player} that receives this effect.
      */
     @Override
     public void apply(Player p) {
-        startTime = System.currentTimeMillis();
+        startTime = now();
         p.bombsMax = 0;
     }
 
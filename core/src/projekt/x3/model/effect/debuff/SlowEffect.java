@@ -30,14 +30,14 @@ public final class SlowEffect extends TimedEffect {
     }
 
     /**
-     * Records the {@link System#currentTimeMillis() time} into {@link TimedEffect#startTime},
+     * Records the {@link #now() time} into {@link TimedEffect#startTime},
      * and sets the movement speed of the given {@link Player Player}
      * to the {@link SlowEffect#newMoveSpeed temporary value}.
      * @param p the {@link Player} that receives this effect.
      */
     @Override
     public void apply(Player p) {
-        startTime = System.currentTimeMillis();
+        startTime = now();
         p.moveSpeed = newMoveSpeed;
     }
 
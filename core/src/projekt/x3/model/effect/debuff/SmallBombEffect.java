@@ -24,13 +24,13 @@ public final class SmallBombEffect extends TimedEffect {
     }
 
     /**
-     * Records the {@link System#currentTimeMillis() time} into {@link TimedEffect#startTime},
+     * Records the {@link #now() time} into {@link TimedEffect#startTime},
      * and sets radius of the given {@link Player Player's} bombs to 1.
      * @param p the {@link Player} that receives this effect.
      */
     @Override
     public void apply(Player p) {
-        startTime = System.currentTimeMillis();
+        startTime = now();
         p.bombRadius = 1;
     }
 
@@ -0,0 +1,219 @@
+package x3.model.game;
+
+import com.badlogic.gdx.utils.Disposable;
+import x3.model.util.TickClock;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An <code>AutoSave</code> saves a running game to a file every few seconds, so that the game can be resumed after
+ * it was closed or crashed.
+ * <br>
+ * A save is split in two: the state of the engine is encoded by a {@link SaveGame} on the game's thread, which only
+ * takes microseconds, and the bytes are written to the file on a thread of their own. The file is first written
+ * next to its destination and then moved over it, so a crash while writing leaves the previous save intact.
+ * <br>
+ * While a write is still running, the next save is skipped rather than waited for, so saving never holds up a
+ * frame. The same object can also save to other files, e.g. for a quick-save.
+ */
+public class AutoSave implements Disposable {
+    /**
+     * The default number of ticks between saves.
+     */
+    public static final int DEFAULT_INTERVAL = 5 * TickClock.TICKS_PER_SECOND;
+
+    private final GameEngine engine;
+    private final SaveGame saveGame;
+    private final Path file;
+    private final int interval;
+    private final ExecutorService writer;
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private byte[] pending = new byte[0];
+    private int pendingSize;
+    private Path pendingFile;
+    private int lastTick;
+    private long lastSaveNanos;
+    private int saves;
+    private int skipped;
+    private volatile IOException failure;
+
+    /**
+     * Only constructor.
+     *
+     * @param engine   the engine of the running game.
+     * @param file     the file the game is saved to.
+     * @param interval the number of ticks between saves made by {@link #update()}, or 0 to only save when
+     *                 {@link #save()} is called.
+     */
+    public AutoSave(final GameEngine engine, final Path file, int interval) {
+        this.engine = engine;
+        this.file = file;
+        this.interval = interval;
+        lastTick = engine.getTick() - interval;
+        saveGame = new SaveGame(engine);
+        writer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "auto-save");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Saves the game if the interval has passed since the last save. Called on the game's thread after every step.
+     */
+    public void update() {
+        if (interval > 0 && engine.getTick() - lastTick >= interval) {
+            save();
+        }
+    }
+
+    /**
+     * Saves the game to the file of this object.
+     *
+     * @return false if the previous save was still being written, and this one was skipped.
+     * @see #save(Path)
+     */
+    public boolean save() {
+        return save(file);
+    }
+
+    /**
+     * Encodes the state of the game on the calling thread, and writes it to the given file in the background.
+     *
+     * @param target the file to save to.
+     * @return false if the previous save was still being written, and this one was skipped.
+     */
+    public boolean save(final Path target) {
+        if (!writing.compareAndSet(false, true)) {
+            ++skipped;
+            return false;
+        }
+        long start = System.nanoTime();
+        ByteBuffer bytes = saveGame.save();
+        if (pending.length < bytes.remaining()) {
+            pending = new byte[bytes.capacity()];
+        }
+        pendingSize = bytes.remaining();
+        bytes.get(pending, 0, pendingSize);
+        pendingFile = target;
+        lastTick = engine.getTick();
+        lastSaveNanos = System.nanoTime() - start;
+        ++saves;
+        writer.execute(this::write);
+        return true;
+    }
+
+    private void write() {
+        Path temp = pendingFile.resolveSibling(pendingFile.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer bytes = ByteBuffer.wrap(pending, 0, pendingSize);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+            Files.move(temp, pendingFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            failure = null;
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            writing.set(false);
+        }
+    }
+
+    /**
+     * Waits for the save being written, if any.
+     *
+     * @throws IOException if the last write failed.
+     * @throws InterruptedException if the thread was interrupted while waiting.
+     */
+    public void flush() throws IOException, InterruptedException {
+        try {
+            writer.submit(() -> { }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Deletes the file of this object, e.g. once the game it saved has ended. Waits for the save being written.
+     *
+     * @throws IOException if the file couldn't be deleted.
+     * @throws InterruptedException if the thread was interrupted while waiting.
+     */
+    public void delete() throws IOException, InterruptedException {
+        flush();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Reads a saved game from a file.
+     *
+     * @param file the file of the save.
+     * @return the saved game, to be {@link SaveGame#load(java.nio.ByteBuffer) loaded}.
+     * @throws IOException if the file couldn't be read.
+     */
+    public static ByteBuffer read(final Path file) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(file));
+    }
+
+    /**
+     * Returns the time the last save took on the game's thread, not counting the write.
+     * @return the duration of the last encoding, in nanoseconds.
+     */
+    public long getLastSaveNanos() {
+        return lastSaveNanos;
+    }
+
+    /**
+     * Returns the number of saves made.
+     * @return the number of saves.
+     */
+    public int getSaveCount() {
+        return saves;
+    }
+
+    /**
+     * Returns the number of saves skipped because the previous one was still being written.
+     * @return the number of skipped saves.
+     */
+    public int getSkippedCount() {
+        return skipped;
+    }
+
+    /**
+     * Returns the error of the last write, if it failed.
+     * @return the exception, or null if the last write succeeded.
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Waits for the save being written, and stops the writing thread.
+     */
+    @Override
+    public void dispose() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
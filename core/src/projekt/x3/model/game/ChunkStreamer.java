@@ -0,0 +1,254 @@
+package x3.model.game;
+
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.IntArray;
+import x3.model.game.grid.CellGrid;
+import x3.model.game.grid.WallBlocks;
+import x3.model.game.objects.Box;
+import x3.model.game.objects.Wall;
+import x3.model.game.suppliers.BodyFactory;
+import x3.model.util.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A <code>ChunkStreamer</code> keeps the static bodies of a large map only where they're needed.
+ * <br>
+ * The map is split into square chunks. The bodies of the walls and boxes of a chunk are built when a player, a
+ * monster, a bomb or an explosion comes within {@link #ACTIVATE_DISTANCE a chunk} of it, and destroyed when none is
+ * within {@link #RELEASE_DISTANCE two}, so that moving back and forth at a border doesn't rebuild it every tick. The
+ * cost of building the world, its memory and the broadphase of its steps thus grow with the area around the moving
+ * bodies, not with the map. The walls of a chunk are {@link WallBlocks merged} on their own, so its bodies never
+ * depend on its neighbours.
+ * <br>
+ * The {@link CellGrid grid} stays authoritative: the boxes keep their sprites and effects while their chunk has no
+ * bodies, and whether a box is still standing is read from the grid whenever its body is built.
+ */
+final class ChunkStreamer {
+    /**
+     * The distance, in chunks, within which a chunk gets its bodies.
+     */
+    static final int ACTIVATE_DISTANCE = 1;
+    /**
+     * The distance, in chunks, beyond which a chunk loses its bodies.
+     */
+    static final int RELEASE_DISTANCE = 2;
+
+    private final World world;
+    private final BodyFactory bodyFactory;
+    private final CellGrid grid;
+    private final float PPM;
+    private final int chunkSize;
+    private final int chunkCols;
+    private final int chunkRows;
+    private final List<Box> boxes = new ArrayList<>();
+    private final IntArray boxCells = new IntArray();
+    private final int[] boxAt;
+    private final IntArray[] chunkBoxes;
+    private final List<List<Body>> chunkBodies;
+    private final boolean[] active;
+    private final byte[] demand;
+    private final IntArray activeChunks = new IntArray();
+    private final IntArray touched = new IntArray();
+    private final Wall wall;
+    private Body[] boxBodies = new Body[0];
+    private int bodyCount;
+
+    /**
+     * Only constructor.
+     *
+     * @param world       the world of the bodies.
+     * @param bodyFactory the factory building the bodies.
+     * @param grid        the grid of the map.
+     * @param PPM         Pixels Per Meter.
+     * @param chunkSize   the width and height of a chunk, in cells.
+     */
+    ChunkStreamer(final World world, final BodyFactory bodyFactory, final CellGrid grid, float PPM, int chunkSize) {
+        this.world = world;
+        this.bodyFactory = bodyFactory;
+        this.grid = grid;
+        this.PPM = PPM;
+        this.chunkSize = chunkSize;
+        chunkCols = (grid.getWidth() + chunkSize - 1) / chunkSize;
+        chunkRows = (grid.getHeight() + chunkSize - 1) / chunkSize;
+        int chunks = chunkCols * chunkRows;
+        boxAt = new int[grid.size()];
+        Arrays.fill(boxAt, -1);
+        chunkBoxes = new IntArray[chunks];
+        chunkBodies = new ArrayList<>(chunks);
+        for (int chunk = 0; chunk < chunks; ++chunk) {
+            chunkBoxes[chunk] = new IntArray(false, 4);
+            chunkBodies.add(null);
+        }
+        active = new boolean[chunks];
+        demand = new byte[chunks];
+        wall = bodyFactory.newWall(Pair.of(0, 0));
+    }
+
+    /**
+     * Adds a box of the map. Its body is built with the bodies of its chunk.
+     *
+     * @param box  the sprite of the box, holding its effect.
+     * @param cell the cell of the box.
+     */
+    void addBox(final Box box, int cell) {
+        int index = boxes.size();
+        boxes.add(box);
+        boxCells.add(cell);
+        boxAt[cell] = index;
+        chunkBoxes[chunkOf(grid.col(cell), grid.row(cell))].add(index);
+        if (boxBodies.length == index) {
+            boxBodies = Arrays.copyOf(boxBodies, Math.max(16, index * 2));
+        }
+    }
+
+    private int chunkOf(int col, int row) {
+        return row / chunkSize * chunkCols + col / chunkSize;
+    }
+
+    /**
+     * Marks the chunks around the given position as needed until the next {@link #update() update}.
+     *
+     * @param x the horizontal position of a body.
+     * @param y the vertical position of a body.
+     */
+    void require(float x, float y) {
+        int col = Math.min(Math.max(0, Math.round(x / PPM)), grid.getWidth() - 1) / chunkSize;
+        int row = Math.min(Math.max(0, Math.round(y / PPM)), grid.getHeight() - 1) / chunkSize;
+        for (int r = Math.max(0, row - RELEASE_DISTANCE); r <= Math.min(chunkRows - 1, row + RELEASE_DISTANCE); ++r) {
+            for (int c = Math.max(0, col - RELEASE_DISTANCE); c <= Math.min(chunkCols - 1, col + RELEASE_DISTANCE); ++c) {
+                int chunk = r * chunkCols + c;
+                if (demand[chunk] == 0) {
+                    touched.add(chunk);
+                }
+                boolean near = Math.abs(r - row) <= ACTIVATE_DISTANCE && Math.abs(c - col) <= ACTIVATE_DISTANCE;
+                demand[chunk] = (byte) Math.max(demand[chunk], near ? 2 : 1);
+            }
+        }
+    }
+
+    /**
+     * Builds the bodies of the chunks that were {@link #require(float, float) required} nearby, and destroys the
+     * bodies of the chunks that weren't required at all.
+     */
+    void update() {
+        for (int i = 0; i < touched.size; ++i) {
+            int chunk = touched.get(i);
+            if (demand[chunk] == 2 && !active[chunk]) {
+                activate(chunk);
+            }
+        }
+        for (int i = activeChunks.size - 1; i >= 0; --i) {
+            int chunk = activeChunks.get(i);
+            if (demand[chunk] == 0) {
+                release(chunk);
+                activeChunks.removeIndex(i);
+            }
+        }
+        for (int i = 0; i < touched.size; ++i) {
+            demand[touched.get(i)] = 0;
+        }
+        touched.clear();
+    }
+
+    private void activate(int chunk) {
+        List<Body> bodies = new ArrayList<>();
+        int colMin = chunk % chunkCols * chunkSize;
+        int rowMin = chunk / chunkCols * chunkSize;
+        List<int[]> blocks = WallBlocks.merge(grid, colMin, rowMin,
+            Math.min(colMin + chunkSize, grid.getWidth()), Math.min(rowMin + chunkSize, grid.getHeight()));
+        for (int i = 0; i < blocks.size(); ++i) {
+            bodies.add(bodyFactory.buildWalls(blocks.get(i)));
+        }
+        IntArray indices = chunkBoxes[chunk];
+        for (int i = 0; i < indices.size; ++i) {
+            int box = indices.get(i);
+            Body body = bodyFactory.buildBox(boxes.get(box));
+            body.setActive(grid.isBox(boxCells.get(box)));
+            boxBodies[box] = body;
+            bodies.add(body);
+        }
+        chunkBodies.set(chunk, bodies);
+        active[chunk] = true;
+        activeChunks.add(chunk);
+        bodyCount += bodies.size();
+    }
+
+    private void release(int chunk) {
+        List<Body> bodies = chunkBodies.get(chunk);
+        for (int i = 0; i < bodies.size(); ++i) {
+            world.destroyBody(bodies.get(i));
+        }
+        IntArray indices = chunkBoxes[chunk];
+        for (int i = 0; i < indices.size; ++i) {
+            boxBodies[indices.get(i)] = null;
+        }
+        chunkBodies.set(chunk, null);
+        active[chunk] = false;
+        bodyCount -= bodies.size();
+    }
+
+    /**
+     * Activates the bodies of the standing boxes, and deactivates the others, after the grid was restored.
+     */
+    void syncBoxes() {
+        for (int i = 0; i < activeChunks.size; ++i) {
+            IntArray indices = chunkBoxes[activeChunks.get(i)];
+            for (int b = 0; b < indices.size; ++b) {
+                int box = indices.get(b);
+                boolean standing = grid.isBox(boxCells.get(box));
+                if (boxBodies[box].isActive() != standing) {
+                    boxBodies[box].setActive(standing);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the sprite of the wall or box of a cell, to be drawn.
+     * <br>
+     * Walls share a single sprite, which is moved to the cell: it's only valid until the next call.
+     *
+     * @param cell the cell of a wall or a box.
+     * @return the sprite.
+     */
+    Sprite getSprite(int cell) {
+        if (boxAt[cell] != -1) {
+            return boxes.get(boxAt[cell]);
+        }
+        wall.setPosition(grid.col(cell) * PPM, grid.row(cell) * PPM);
+        return wall;
+    }
+
+    int getBoxCount() {
+        return boxes.size();
+    }
+
+    int getBoxCell(int box) {
+        return boxCells.get(box);
+    }
+
+    Box getBox(int box) {
+        return boxes.get(box);
+    }
+
+    boolean isActive(int chunk) {
+        return active[chunk];
+    }
+
+    int getChunkCount() {
+        return active.length;
+    }
+
+    int getActiveChunkCount() {
+        return activeChunks.size;
+    }
+
+    int getBodyCount() {
+        return bodyCount;
+    }
+}
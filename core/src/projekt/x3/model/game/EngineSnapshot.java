@@ -0,0 +1,147 @@
+package x3.model.game;
+
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BooleanArray;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import x3.model.effect.TimedEffect;
+import x3.model.effect.debuff.ForcedBombsEffect;
+import x3.model.effect.debuff.NoBombsEffect;
+import x3.model.effect.debuff.SlowEffect;
+import x3.model.effect.debuff.SmallBombEffect;
+import x3.model.game.ai.MonsterAI;
+import x3.model.game.ai.MonsterAISnapshot;
+import x3.model.game.grid.CellGrid;
+import x3.model.game.grid.DangerMap;
+import x3.model.game.grid.FlowField;
+import x3.model.game.objects.Bomb;
+import x3.model.game.objects.Explosion;
+import x3.model.util.BattleRoyaleManager;
+import x3.model.util.GameRandom;
+import x3.model.util.TickClock;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * An <code>EngineSnapshot</code> holds the complete state of a {@link GameEngine} at the end of a tick, so that the
+ * engine can be {@link GameEngine#restore(EngineSnapshot) restored} to it later.
+ * <br>
+ * A snapshot is built for a single engine, with room for all of its players, monsters and boxes, and is meant to be
+ * reused: {@link GameEngine#save(EngineSnapshot) saving} into it overwrites the previous state without allocating,
+ * unless the number of bombs, explosions, effects or flames exceeds every earlier state.
+ * <br>
+ * The snapshot contains:
+ * <ul>
+ *     <li>the {@link TickClock tick}, the round's result and the {@link BattleRoyaleManager shrinking};</li>
+ *     <li>the position, angle and velocities of the bodies of the players and monsters, and the boundaries;</li>
+ *     <li>the bomb counts, radius, speed and {@link TimedEffect timed effects} of every player;</li>
+ *     <li>the direction of every monster, and the decisions of its brain in the {@link MonsterAI};</li>
+ *     <li>the state of the game's {@link GameRandom random number generator};</li>
+ *     <li>the boxes still standing, and the {@link CellGrid grid}, {@link FlowField flow field} and
+ *     {@link DangerMap danger map} built from them;</li>
+ *     <li>the effects lying on the map, the bombs with their fuses, and the pending explosions.</li>
+ * </ul>
+ * Objects that can't change while they exist (bombs, explosions, effects, particle effects) are kept by reference,
+ * along with the few fields of theirs that do change.
+ */
+public class EngineSnapshot {
+    /**
+     * The timed effects a player can be under, in the order they are stored.
+     */
+    static final List<Class<? extends TimedEffect>> TIMED_EFFECTS =
+        List.of(NoBombsEffect.class, SmallBombEffect.class, SlowEffect.class, ForcedBombsEffect.class);
+    /**
+     * The number of values stored per body: position, angle, linear velocity and angular velocity.
+     */
+    static final int BODY_VALUES = 6;
+    /**
+     * The number of values stored per player: maximum bombs, bombs placed, bomb radius and movement speed.
+     */
+    static final int PLAYER_VALUES = 4;
+
+    final CellGrid grid;
+    final FlowField flowField;
+    final DangerMap dangerMap;
+    final IntArray blastCells = new IntArray();
+    final int[] wonRounds = new int[3];
+    final float[] boundaries;
+
+    final boolean[] playerAlive;
+    final boolean[] playerDead;
+    final float[] playerBodies;
+    final int[] playerValues;
+    final Optional<TimedEffect>[] playerEffects;
+    final long[] playerEffectStarts;
+
+    final boolean[] monsterAlive;
+    final boolean[] monsterDead;
+    final boolean[] monsterAwake;
+    final float[] monsterBodies;
+    final float[] monsterDirections;
+
+    final boolean[] boxAlive;
+    final Array<Body> effects = new Array<>(false, 16);
+    final BooleanArray effectDead = new BooleanArray(false, 16);
+    final Array<Bomb> bombs = new Array<>(false, 16);
+    final FloatArray bombPositions = new FloatArray(false, 32);
+    final IntArray bombValues = new IntArray(false, 32);
+    final Array<Explosion> explosions = new Array<>(false, 64);
+    final FloatArray explosionPositions = new FloatArray(false, 128);
+    final Array<ParticleEffect> flames = new Array<>(false, 64);
+    final MonsterAISnapshot ai;
+
+    int tick = -1;
+    boolean gameEnded;
+    boolean startedShrinking;
+    int shrunk;
+    long random;
+
+    /**
+     * Only constructor.
+     * <br>
+     * Allocates room for every object of the given engine.
+     *
+     * @param engine the engine whose state the snapshot will hold.
+     */
+    public EngineSnapshot(final GameEngine engine) {
+        CellGrid engineGrid = engine.getGrid();
+        grid = new CellGrid(engineGrid.getWidth(), engineGrid.getHeight());
+        flowField = new FlowField(grid, 3);
+        dangerMap = new DangerMap(grid, new TickClock());
+        boundaries = new float[engine.getBoundaryBodyCount() * 2];
+
+        int players = engine.getPlayerBodyCount();
+        playerAlive = new boolean[players];
+        playerDead = new boolean[players];
+        playerBodies = new float[players * BODY_VALUES];
+        playerValues = new int[players * PLAYER_VALUES];
+        playerEffects = newEffectArray(players * TIMED_EFFECTS.size());
+        playerEffectStarts = new long[players * TIMED_EFFECTS.size()];
+
+        int monsters = engine.getMonsterBodyCount();
+        monsterAlive = new boolean[monsters];
+        monsterDead = new boolean[monsters];
+        monsterAwake = new boolean[monsters];
+        monsterBodies = new float[monsters * BODY_VALUES];
+        monsterDirections = new float[monsters * 2];
+
+        boxAlive = new boolean[engine.getBoxBodyCount()];
+        ai = new MonsterAISnapshot(engine.getMonsterAI());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Optional<TimedEffect>[] newEffectArray(int size) {
+        return (Optional<TimedEffect>[]) new Optional<?>[size];
+    }
+
+    /**
+     * Returns the tick of the saved state.
+     * @return the tick, or -1 if nothing was saved yet.
+     */
+    public int getTick() {
+        return tick;
+    }
+}
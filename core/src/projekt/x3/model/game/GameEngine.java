@@ -1,17 +1,27 @@
 package x3.model.game;
 
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g2d.ParticleEffect;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.*;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
 import x3.DetonatorCircle;
 import x3.model.effect.Effect;
+import x3.model.effect.TimedEffect;
 import x3.model.effect.debuff.ForcedBombsEffect;
+import x3.model.game.ai.MonsterAI;
+import x3.model.game.control.BotController;
+import x3.model.game.control.KeyboardController;
+import x3.model.game.control.PlayerController;
+import x3.model.game.grid.CellGrid;
+import x3.model.game.grid.DangerMap;
+import x3.model.game.grid.FlowField;
+import x3.model.game.grid.WallBlocks;
 import x3.model.game.objects.*;
 import x3.model.game.suppliers.BodyFactory;
+import x3.model.game.suppliers.BodyFactory.EffectType;
 import x3.model.game.suppliers.BombPool;
 import x3.model.game.suppliers.ExplosionPool;
 import x3.model.map.GameMap;
@@ -19,7 +29,6 @@ import x3.model.util.*;
 
 import java.util.AbstractMap.SimpleEntry;
 import java.util.*;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
@@ -31,51 +40,141 @@ import static x3.model.util.CollisionFilters.*;
  * <br>
  * A GameEngine keepstrack of all players, monsters, walls, boxes, effects, bombs, explosions, particle effects
  * and the boundaries. This object maintains the physics simulation of the game and updates the involved members.
+ * <br>
+ * The state of the game can be {@link #save(EngineSnapshot) saved} and {@link #restore(EngineSnapshot) restored}.
+ * To make restoring cheap, bodies are never destroyed during a round: dead players and monsters, destroyed boxes and
+ * picked up effects are only deactivated, and bombs and explosions go back to their pools.
+ * <br>
+ * On maps of at least {@link #STREAMING_AREA} cells, the walls and boxes only get their bodies near the players,
+ * monsters, bombs and explosions, a {@link #CHUNK_SIZE chunk} of cells at a time, so that building the world and
+ * stepping it cost as much as on a small map.
+ * <br>
+ * Walls never change during a round, so they are {@link WallBlocks merged} into rectangular blocks with a body each,
+ * instead of a body per wall.
  */
 public class GameEngine implements Disposable {
-    private static final Random RANDOM = new Random();
+    /**
+     * The size of players and monsters, relative to a cell.
+     */
+    public static final float MOVING_SIZE = 3f / 4;
+    /**
+     * The number of cells from which the static bodies of a map are streamed in chunks.
+     */
+    public static final int STREAMING_AREA = 64 * 64;
+    /**
+     * The width and height of the chunks of streamed maps, in cells.
+     */
+    public static final int CHUNK_SIZE = 16;
+    private static final short[] PLAYER_CATEGORIES = { PLAYER_1, PLAYER_2, PLAYER_3 };
+    private static final short[] BOMB_CATEGORIES = { BOMB_TO_P1, BOMB_TO_P2, BOMB_TO_P3 };
 
     private final World world = new World(new Vector2(0, 0), true);
     private final BattleRoyaleManager brManager;
     private final List<Body> players = new ArrayList<>();
     private final List<Body> monsters = new ArrayList<>();
+    private final List<Sprite> walls = new ArrayList<>();
     private final List<Body> fObjects = new ArrayList<>();
     private final List<Body> effects = new ArrayList<>();
     private final List<Body> bombs = new ArrayList<>();
     private final List<Body> explosions = new ArrayList<>();
     private final List<ParticleEffect> flames = new ArrayList<>();
     private final List<Body> boundaries = new ArrayList<>();
+    private final List<Body> allPlayers = new ArrayList<>();
+    private final List<Body> allMonsters = new ArrayList<>();
+    private final List<Body> allBoxes = new ArrayList<>();
+    private final Map<Effect, Body> effectBodies = new IdentityHashMap<>();
+    private final Map<Body, Integer> monsterIds = new IdentityHashMap<>();
+    private final CollisionListener collisionListener = new CollisionListener();
     private final DetonatorCircle game;
     private final BodyFactory bodyFactory;
     private final BombPool bombPool;
     private final ExplosionPool explosionPool;
     private final float PPM;
     private final GameMap map;
+    private final CellGrid grid;
+    private final FlowField flowField;
+    private final DangerMap dangerMap;
+    private final MonsterAI monsterAI;
+    private final GameRandom random;
+    private final ChunkStreamer streamer;
+    private final TickClock clock = new TickClock();
+    private final PlayerController[] controllers = new PlayerController[3];
+    private final Filter bombFilter = new Filter();
+    private final IntArray blastCells = new IntArray();
+    private final Vector2 restorePosition = new Vector2();
+    private final CircleShape contactTrigger = new CircleShape();
+    private LagCompensation lagCompensation;
     private boolean gameEnded;
 
     /**
-     * Only constructor.
+     * Secondary constructor.
      * <br>
-     * This constructor initializes the required properties and initializes the {@link GameMap map} that the
-     * game will be played on.
+     * The random decisions of the game are seeded from the system's clock.
      *
      * @param game the object responsible for providing the engine with assets and round information.
      * @param map  the object describing how a map should be built by the <code>GameEngine</code>.
      * @param PPM  Pixels Per Meter - required by {@link World} so physics units remain small.
      */
     public GameEngine(final DetonatorCircle game, final GameMap map, final float PPM) {
+        this(game, map, PPM, new GameRandom());
+    }
+
+    /**
+     * Secondary constructor.
+     * <br>
+     * The static bodies of maps of at least {@link #STREAMING_AREA} cells are streamed in chunks of
+     * {@link #CHUNK_SIZE} cells.
+     *
+     * @param game   the object responsible for providing the engine with assets and round information.
+     * @param map    the object describing how a map should be built by the <code>GameEngine</code>.
+     * @param PPM    Pixels Per Meter - required by {@link World} so physics units remain small.
+     * @param random the random number generator of the game, which decides the effects hidden in boxes and the
+     *               wandering of the monsters. Games running side by side should each have their own.
+     */
+    public GameEngine(final DetonatorCircle game, final GameMap map, final float PPM, final Random random) {
+        this(game, map, PPM, random,
+            (long) map.getMapWidth() * map.getMapHeight() >= STREAMING_AREA ? CHUNK_SIZE : 0);
+    }
+
+    /**
+     * Primary constructor.
+     * <br>
+     * This constructor initializes the required properties and initializes the {@link GameMap map} that the
+     * game will be played on.
+     *
+     * @param game      the object responsible for providing the engine with assets and round information.
+     * @param map       the object describing how a map should be built by the <code>GameEngine</code>.
+     * @param PPM       Pixels Per Meter - required by {@link World} so physics units remain small.
+     * @param random    the random number generator of the game, which decides the effects hidden in boxes and the
+     *                  wandering of the monsters. Games running side by side should each have their own. Unless it
+     *                  is a {@link GameRandom}, whose state is part of the {@link EngineSnapshot snapshots}, the
+     *                  engine uses a {@link GameRandom} seeded from it.
+     * @param chunkSize the width and height of the chunks whose static bodies are streamed, in cells, or 0 to build
+     *                  all of them up front.
+     */
+    public GameEngine(final DetonatorCircle game, final GameMap map, final float PPM, final Random random,
+                      int chunkSize) {
         this.PPM = PPM;
         this.game = game;
         this.map = map;
-        brManager = new BattleRoyaleManager(map.getMaxShrinks());
-        bodyFactory = new BodyFactory(game, world, PPM, PPM * 3 / 4, PPM * 1 / 2);
+        grid = new CellGrid(map);
+        flowField = new FlowField(grid, 3);
+        dangerMap = new DangerMap(grid, clock);
+        this.random = random instanceof GameRandom gameRandom ? gameRandom : new GameRandom(random.nextLong());
+        monsterAI = new MonsterAI(grid, flowField, dangerMap, PPM, MonsterAI.DEFAULT_BUDGET, this.random);
+        brManager = new BattleRoyaleManager(map.getMaxShrinks(), clock);
+        bodyFactory = new BodyFactory(game, world, PPM, PPM * MOVING_SIZE, PPM * 1 / 2, clock, this.random);
         bombPool = new BombPool(world, PPM, PPM * 1 / 2,
-            game.getTexture("bomb"), game.getTexture("bomb2"), game.getTexture("bomb3"));
-        explosionPool = new ExplosionPool(world, PPM, game.getExplosionParticles());
+            game.getTexture("bomb"), game.getTexture("bomb2"), game.getTexture("bomb3"), clock);
+        explosionPool = new ExplosionPool(world, PPM, game.getExplosionParticles(), clock);
+        streamer = chunkSize > 0 ? new ChunkStreamer(world, bodyFactory, grid, PPM, chunkSize) : null;
+        for (int i = 0; i < controllers.length; ++i) {
+            controllers[i] = game.botPlayers[i] ? new BotController() : new KeyboardController();
+        }
 
         buildMap();
 
-        world.setContactListener(new CollisionListener());
+        world.setContactListener(collisionListener);
     }
 
     private void buildMap() {
@@ -84,18 +183,20 @@ public class GameEngine implements Disposable {
         buildPlayers();
         buildMonsters();
         buildBoundaries();
+        streamChunks();
     }
 
     /**
      * Updates the state of the game based on the time elapsed since the previously rendered frame.
      * <br>
+     * Every call advances the game's {@link TickClock clock} by one tick.
      * Order of objects getting updated:
      * <ol>
      *     <li>Every bomb's detonation and {@link Bomb#hasBlown status};</li>
      *     <li>Every effect's {@link Effect#bodyDead status};</li>
      *     <li>Every monster's position, velocity, direction and {@link Monster#isDead status};</li>
      *     <li>
-     *         Every player's position, response to movement commands, velocty, bomb placement,
+     *         Every player's position, response to the input of its {@link PlayerController controller}, velocty, bomb placement,
      *         its {@link Player#manageEffects effects} and {@link Player#isDead status};
      *     </li>
      *     <li>Every explosion's collisions and {@link Explosion#ready status};</li>
@@ -103,24 +204,60 @@ public class GameEngine implements Disposable {
      *     <li>The {@link BattleRoyaleManager Battle Royale} add-on's status and the game's borders;</li>
      *     <li>The {@link World world}'s internal physics;</li>
      *     <li>Every bomb's collision filtering;</li>
+     *     <li>With {@link #enableLagCompensation(int) lag compensation}, the players' footprints and the monsters'
+     *     hits;</li>
      * </ol>
      * Finally, the method checks for round-end conditions.
      *
      * @param delta time elapsed since the previously rendered frame.
      */
     public void step(float delta) {
+        clock.advance();
+        blastCells.clear();
         updateBombs();
         updateEffects();
         updateMonsters();
         updatePlayers();
+        streamChunks();
         updateExplosions();
         updateFlames(delta);
         updateBattleRoyale();
+        releaseBombs();
         world.step(1 / 60f, 6, 2);
         updateBombCollisions();
+        if (lagCompensation != null) {
+            recordFootprints();
+            updateMonsterHits();
+        }
         updateGameState();
     }
 
+    /**
+     * Makes the hits on players depend on where they were as many ticks ago as their {@link LagCompensation#setRewind
+     * rewind}, rather than where they are now.
+     * <br>
+     * From then on, the cells covered by every player are recorded at the end of every tick. An explosion kills a
+     * player whose rewound footprint covers the explosion's cell, and a monster kills a player whose rewound footprint
+     * shares a cell with the monster's. Monsters are still hit where they are. Hits are thus resolved a cell at a
+     * time, instead of by the overlap of the bodies.
+     *
+     * @param maxRewind the largest number of ticks a player can be rewound, below {@link LagCompensation#HISTORY}.
+     */
+    public void enableLagCompensation(int maxRewind) {
+        lagCompensation = new LagCompensation(grid.getWidth(), allPlayers.size(), maxRewind);
+        collisionListener.setMonstersKillOnContact(false);
+        recordFootprints();
+    }
+
+    /**
+     * Returns the history of the players' footprints.
+     * @return the {@link LagCompensation} of this game, or null if it wasn't {@link #enableLagCompensation(int)
+     * enabled}.
+     */
+    public LagCompensation getLagCompensation() {
+        return lagCompensation;
+    }
+
     /**
      * Returns the {@link World} that handles physics simulations and collision inside the game.
      * @return the {@link World} of this game.
@@ -129,6 +266,79 @@ public class GameEngine implements Disposable {
         return world;
     }
 
+    /**
+     * Returns the number of pixels per meter of the {@link World}, which is also the size of a map cell.
+     * @return the size of a cell.
+     */
+    public float getPPM() {
+        return PPM;
+    }
+
+    /**
+     * Replaces the {@link PlayerController controller} of the player with the given index.
+     * The previous controller is disposed.
+     *
+     * @param ind        the {@link Player#ind index} of the player.
+     * @param controller the new controller.
+     */
+    public void setController(int ind, final PlayerController controller) {
+        controllers[ind].dispose();
+        controllers[ind] = controller;
+    }
+
+    /**
+     * Returns the index of the grid cell that contains the middle of a moving sprite (player or monster).
+     *
+     * @param sprite the sprite, positioned by the engine.
+     * @return the cell index, or -1 if the sprite is outside the map.
+     */
+    public int getCell(final Sprite sprite) {
+        return grid.index(
+            (int) Math.floor((sprite.getX() + sprite.getWidth() / 2) / PPM),
+            (int) Math.floor((sprite.getY() + sprite.getHeight() / 2) / PPM)
+        );
+    }
+
+    /**
+     * Returns the grid describing the current layout of walls and boxes.
+     * @return the {@link CellGrid} of this game.
+     */
+    public CellGrid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Returns the flow field leading towards the living players.
+     * @return the {@link FlowField} of this game.
+     */
+    public FlowField getFlowField() {
+        return flowField;
+    }
+
+    /**
+     * Returns the map of upcoming blasts.
+     * @return the {@link DangerMap} of this game.
+     */
+    public DangerMap getDangerMap() {
+        return dangerMap;
+    }
+
+    /**
+     * Returns the AI controlling the monsters.
+     * @return the {@link MonsterAI} of this game.
+     */
+    public MonsterAI getMonsterAI() {
+        return monsterAI;
+    }
+
+    /**
+     * Returns the number of ticks simulated since the start of the round.
+     * @return the current tick.
+     */
+    public int getTick() {
+        return clock.getTick();
+    }
+
     /**
      * Returns a stream of the players' sprites.
      * @return a stream of the players' sprites.
@@ -137,6 +347,67 @@ public class GameEngine implements Disposable {
         return players.stream().map(p -> (Player) p.getUserData());
     }
 
+    /**
+     * Returns the sprite of the player with the given index, if it is still alive.
+     * <br>
+     * Unlike {@link #getPlayers()}, this method doesn't create objects.
+     *
+     * @param ind the {@link Player#ind index} of the player.
+     * @return the player's sprite, or null if the player is dead.
+     */
+    public Player getPlayer(int ind) {
+        for (int i = 0; i < players.size(); ++i) {
+            Player player = (Player) players.get(i).getUserData();
+            if (player.ind == ind) {
+                return player;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of living monsters.
+     * @return the number of monsters.
+     */
+    public int getMonsterCount() {
+        return monsters.size();
+    }
+
+    /**
+     * Returns the sprite of a living monster. Unlike {@link #getMonsters()}, this method doesn't create objects.
+     * @param i the index of the monster, less than {@link #getMonsterCount()}.
+     * @return the monster's sprite.
+     */
+    public Monster getMonster(int i) {
+        return (Monster) monsters.get(i).getUserData();
+    }
+
+    /**
+     * Returns the id of a living monster, which stays the same for the whole round.
+     * @param i the index of the monster, less than {@link #getMonsterCount()}.
+     * @return the index of the monster's spawn in the {@link GameMap#getMonsterSpawns() map}.
+     */
+    public int getMonsterId(int i) {
+        return monsterIds.get(monsters.get(i));
+    }
+
+    /**
+     * Returns the number of effects lying on the map.
+     * @return the number of effects.
+     */
+    public int getEffectCount() {
+        return effects.size();
+    }
+
+    /**
+     * Returns the sprite of an effect lying on the map. Unlike {@link #getEffects()}, this method doesn't create objects.
+     * @param i the index of the effect, less than {@link #getEffectCount()}.
+     * @return the effect's sprite.
+     */
+    public Effect getEffect(int i) {
+        return (Effect) effects.get(i).getUserData();
+    }
+
     /**
      * Returns a stream of the monsters' sprites.
      * @return a stream of the monsters' sprites.
@@ -150,7 +421,21 @@ public class GameEngine implements Disposable {
      * @return a stream of the sprites of all walls and boxes;
      */
     public Stream<Sprite> getFieldObjects() {
-        return fObjects.stream().map(f -> (Sprite) f.getUserData());
+        if (streamer != null) {
+            return IntStream.range(0, grid.size())
+                .filter(cell -> grid.get(cell) != CellGrid.EMPTY)
+                .mapToObj(streamer::getSprite);
+        }
+        return Stream.concat(walls.stream(), fObjects.stream().map(f -> (Sprite) f.getUserData()));
+    }
+
+    /**
+     * Returns the number of chunks whose walls and boxes have bodies, on a map whose static bodies are streamed.
+     *
+     * @return the number of chunks with bodies, or -1 if all bodies are built up front.
+     */
+    public int getActiveChunkCount() {
+        return streamer == null ? -1 : streamer.getActiveChunkCount();
     }
 
     /**
@@ -202,47 +487,431 @@ public class GameEngine implements Disposable {
         return brManager.isAtMax();
     }
 
+    /**
+     * Returns the number of layers the map has shrunk by.
+     * @return the number of shrinks performed, or -1 if the {@link BattleRoyaleManager shrinking} hasn't started yet.
+     * @see #getBoundaryAffectedCells()
+     */
+    public int getBoundaryShrinks() {
+        return brManager.getStartedShrinking() ? brManager.getShrunk() : -1;
+    }
+
+    /**
+     * Returns the number of cells an explosion burned in during the last step.
+     * @return the number of blasts.
+     */
+    public int getBlastCount() {
+        return blastCells.size;
+    }
+
+    /**
+     * Returns a cell an explosion burned in during the last step. These are the cells where flames appeared.
+     * @param i the index of the blast, less than {@link #getBlastCount()}.
+     * @return the cell index of the blast.
+     */
+    public int getBlastCell(int i) {
+        return blastCells.get(i);
+    }
+
+    /**
+     * Saves the state of the game at the end of the current tick.
+     * <br>
+     * Saving doesn't change the game, and doesn't allocate once the snapshot has grown to the size of the game.
+     *
+     * @param snapshot a snapshot {@link EngineSnapshot#EngineSnapshot(GameEngine) built} for this engine,
+     *                 whose previous content is overwritten.
+     * @see #restore(EngineSnapshot)
+     */
+    public void save(final EngineSnapshot snapshot) {
+        snapshot.tick = clock.getTick();
+        snapshot.gameEnded = gameEnded;
+        System.arraycopy(game.wonRounds, 0, snapshot.wonRounds, 0, snapshot.wonRounds.length);
+        snapshot.startedShrinking = brManager.getStartedShrinking();
+        snapshot.shrunk = brManager.getShrunk();
+        snapshot.random = random.getState();
+        for (int i = 0; i < boundaries.size(); ++i) {
+            Vector2 pos = boundaries.get(i).getPosition();
+            snapshot.boundaries[i * 2] = pos.x;
+            snapshot.boundaries[i * 2 + 1] = pos.y;
+        }
+        snapshot.grid.copyFrom(grid);
+        snapshot.flowField.copyFrom(flowField);
+        snapshot.dangerMap.copyFrom(dangerMap);
+        snapshot.blastCells.clear();
+        snapshot.blastCells.addAll(blastCells);
+
+        for (int i = 0; i < allPlayers.size(); ++i) {
+            Body body = allPlayers.get(i);
+            Player player = (Player) body.getUserData();
+            snapshot.playerAlive[i] = body.isActive();
+            snapshot.playerDead[i] = player.isDead();
+            saveBody(body, snapshot.playerBodies, i * EngineSnapshot.BODY_VALUES);
+            int values = i * EngineSnapshot.PLAYER_VALUES;
+            snapshot.playerValues[values] = player.bombsMax;
+            snapshot.playerValues[values + 1] = player.bombsPlaced;
+            snapshot.playerValues[values + 2] = player.bombRadius;
+            snapshot.playerValues[values + 3] = player.moveSpeed;
+            for (int e = 0; e < EngineSnapshot.TIMED_EFFECTS.size(); ++e) {
+                int slot = i * EngineSnapshot.TIMED_EFFECTS.size() + e;
+                Optional<TimedEffect> effect = player.effectMap.get(EngineSnapshot.TIMED_EFFECTS.get(e));
+                snapshot.playerEffects[slot] = effect;
+                snapshot.playerEffectStarts[slot] = effect.isPresent() ? effect.get().startTime : 0;
+            }
+        }
+
+        for (int i = 0; i < allMonsters.size(); ++i) {
+            Body body = allMonsters.get(i);
+            Monster monster = (Monster) body.getUserData();
+            snapshot.monsterAlive[i] = body.isActive();
+            snapshot.monsterDead[i] = monster.isDead();
+            snapshot.monsterAwake[i] = body.isAwake();
+            saveBody(body, snapshot.monsterBodies, i * EngineSnapshot.BODY_VALUES);
+            snapshot.monsterDirections[i * 2] = monster.direction.x;
+            snapshot.monsterDirections[i * 2 + 1] = monster.direction.y;
+        }
+
+        for (int i = 0; i < snapshot.boxAlive.length; ++i) {
+            snapshot.boxAlive[i] = streamer == null ? allBoxes.get(i).isActive() : grid.isBox(streamer.getBoxCell(i));
+        }
+        snapshot.effects.clear();
+        snapshot.effectDead.clear();
+        for (int i = 0; i < effects.size(); ++i) {
+            snapshot.effects.add(effects.get(i));
+            snapshot.effectDead.add(((Effect) effects.get(i).getUserData()).bodyDead);
+        }
+
+        snapshot.bombs.clear();
+        snapshot.bombPositions.clear();
+        snapshot.bombValues.clear();
+        for (int i = 0; i < bombs.size(); ++i) {
+            Body body = bombs.get(i);
+            Bomb bomb = (Bomb) body.getUserData();
+            int flags = (bomb.hasBlown ? 1 : 0) | (bomb.forceBlow ? 2 : 0) | (bomb.hasSetPlayers ? 4 : 0);
+            for (int p = 0; p < allPlayers.size(); ++p) {
+                if (bomb.playersAllowedThrough.contains((Player) allPlayers.get(p).getUserData())) {
+                    flags |= 8 << p;
+                }
+            }
+            snapshot.bombs.add(bomb);
+            snapshot.bombPositions.add(body.getPosition().x, body.getPosition().y);
+            snapshot.bombValues.add(bomb.getAge(), flags);
+        }
+
+        snapshot.explosions.clear();
+        snapshot.explosionPositions.clear();
+        for (int i = 0; i < explosions.size(); ++i) {
+            Body body = explosions.get(i);
+            snapshot.explosions.add((Explosion) body.getUserData());
+            snapshot.explosionPositions.add(body.getPosition().x, body.getPosition().y);
+        }
+
+        snapshot.flames.clear();
+        for (int i = 0; i < flames.size(); ++i) {
+            snapshot.flames.add(flames.get(i));
+        }
+        monsterAI.save(snapshot.ai);
+    }
+
+    /**
+     * Puts the game back in a saved state.
+     * <br>
+     * Bodies that were alive in the saved state are reactivated, bombs and explosions are taken from their pools
+     * again, and everything else is overwritten with the saved values. The contacts of the moving bodies are reset,
+     * so that the next step detects their overlaps as if they had just begun. Contact listener callbacks are
+     * suppressed while restoring.
+     * <br>
+     * The {@link MonsterAI monster AI} and the random number generator are restored as well, so that the game
+     * continues exactly as it did after the snapshot was saved.
+     *
+     * @param snapshot a snapshot {@link #save(EngineSnapshot) saved} by this engine.
+     * @throws IllegalArgumentException if nothing was saved in the snapshot.
+     */
+    public void restore(final EngineSnapshot snapshot) {
+        if (snapshot.tick < 0) {
+            throw new IllegalArgumentException("Empty snapshot");
+        }
+        world.setContactListener(null);
+
+        clock.setTick(snapshot.tick);
+        gameEnded = snapshot.gameEnded;
+        System.arraycopy(snapshot.wonRounds, 0, game.wonRounds, 0, snapshot.wonRounds.length);
+        brManager.restore(snapshot.startedShrinking, snapshot.shrunk);
+        random.setState(snapshot.random);
+        for (int i = 0; i < boundaries.size(); ++i) {
+            boundaries.get(i).setTransform(snapshot.boundaries[i * 2], snapshot.boundaries[i * 2 + 1], 0);
+        }
+        grid.copyFrom(snapshot.grid);
+        flowField.copyFrom(snapshot.flowField);
+        dangerMap.copyFrom(snapshot.dangerMap);
+        blastCells.clear();
+        blastCells.addAll(snapshot.blastCells);
+
+        for (int i = 0; i < allBoxes.size(); ++i) {
+            Body body = allBoxes.get(i);
+            if (body.isActive() != snapshot.boxAlive[i]) {
+                body.setActive(snapshot.boxAlive[i]);
+                if (snapshot.boxAlive[i]) {
+                    fObjects.add(body);
+                } else {
+                    fObjects.remove(body);
+                }
+            }
+        }
+        for (int i = 0; i < effects.size(); ++i) {
+            effects.get(i).setActive(false);
+        }
+        effects.clear();
+        for (int i = 0; i < snapshot.effects.size; ++i) {
+            Body body = snapshot.effects.get(i);
+            body.setActive(true);
+            ((Effect) body.getUserData()).bodyDead = snapshot.effectDead.get(i);
+            effects.add(body);
+        }
+
+        for (int i = 0; i < bombs.size(); ++i) {
+            bombPool.returnBomb(bombs.get(i));
+        }
+        bombs.clear();
+        for (int i = 0; i < snapshot.bombs.size; ++i) {
+            Bomb bomb = snapshot.bombs.get(i);
+            int flags = snapshot.bombValues.get(i * 2 + 1);
+            bomb.setAge(snapshot.bombValues.get(i * 2));
+            bomb.hasBlown = (flags & 1) != 0;
+            bomb.forceBlow = (flags & 2) != 0;
+            bomb.hasSetPlayers = (flags & 4) != 0;
+            bomb.playersAllowedThrough.clear();
+            for (int p = 0; p < allPlayers.size(); ++p) {
+                if ((flags & 8 << p) != 0) {
+                    bomb.playersAllowedThrough.add((Player) allPlayers.get(p).getUserData());
+                }
+            }
+            restorePosition.set(snapshot.bombPositions.get(i * 2), snapshot.bombPositions.get(i * 2 + 1));
+            bombs.add(bombPool.getBomb(restorePosition, bomb));
+        }
+
+        for (int i = 0; i < explosions.size(); ++i) {
+            explosionPool.returnExplosion(explosions.get(i));
+        }
+        explosions.clear();
+        for (int i = 0; i < snapshot.explosions.size; ++i) {
+            restorePosition.set(snapshot.explosionPositions.get(i * 2), snapshot.explosionPositions.get(i * 2 + 1));
+            explosions.add(explosionPool.getExplosion(restorePosition, snapshot.explosions.get(i)));
+        }
+
+        flames.clear();
+        for (int i = 0; i < snapshot.flames.size; ++i) {
+            flames.add(snapshot.flames.get(i));
+        }
+
+        players.clear();
+        for (int i = 0; i < allPlayers.size(); ++i) {
+            Body body = allPlayers.get(i);
+            Player player = (Player) body.getUserData();
+            if (snapshot.playerDead[i]) {
+                player.markDead();
+            } else {
+                player.revive();
+            }
+            int values = i * EngineSnapshot.PLAYER_VALUES;
+            player.bombsMax = snapshot.playerValues[values];
+            player.bombsPlaced = snapshot.playerValues[values + 1];
+            player.bombRadius = snapshot.playerValues[values + 2];
+            player.moveSpeed = snapshot.playerValues[values + 3];
+            for (int e = 0; e < EngineSnapshot.TIMED_EFFECTS.size(); ++e) {
+                int slot = i * EngineSnapshot.TIMED_EFFECTS.size() + e;
+                Optional<TimedEffect> effect = snapshot.playerEffects[slot];
+                player.effectMap.replace(EngineSnapshot.TIMED_EFFECTS.get(e), effect);
+                if (effect.isPresent()) {
+                    effect.get().startTime = snapshot.playerEffectStarts[slot];
+                }
+            }
+            restoreBody(body, snapshot.playerAlive[i], true, snapshot.playerBodies, i * EngineSnapshot.BODY_VALUES);
+            if (snapshot.playerAlive[i]) {
+                players.add(body);
+            }
+        }
+
+        monsters.clear();
+        for (int i = 0; i < allMonsters.size(); ++i) {
+            Body body = allMonsters.get(i);
+            Monster monster = (Monster) body.getUserData();
+            if (snapshot.monsterDead[i]) {
+                monster.markDead();
+            } else {
+                monster.revive();
+            }
+            monster.direction.set(snapshot.monsterDirections[i * 2], snapshot.monsterDirections[i * 2 + 1]);
+            restoreBody(body, snapshot.monsterAlive[i], snapshot.monsterAwake[i],
+                snapshot.monsterBodies, i * EngineSnapshot.BODY_VALUES);
+            if (snapshot.monsterAlive[i]) {
+                monsters.add(body);
+                monsterAI.revive(monster);
+            } else {
+                monsterAI.remove(monster);
+            }
+        }
+        monsterAI.restore(snapshot.ai);
+
+        if (streamer != null) {
+            streamer.syncBoxes();
+            streamChunks();
+        }
+        updateBombCollisions();
+        findContactsOnNextStep();
+        world.setContactListener(collisionListener);
+        if (lagCompensation != null) {
+            recordFootprints();
+        }
+    }
+
+    /**
+     * Makes the next step look for the contacts of the bodies reactivated by a restore.
+     * <br>
+     * Box2D looks for new contacts at the end of a step, and at its beginning only if a fixture was created since the
+     * last step. Without this, the first step after a restore would let bodies sink into the walls and boxes they
+     * touch. Creating a fixture is the only way to request it, so a small one is added to a boundary and removed
+     * at once.
+     */
+    private void findContactsOnNextStep() {
+        Body boundary = boundaries.get(0);
+        boundary.destroyFixture(boundary.createFixture(contactTrigger, 0));
+    }
+
+    private static void saveBody(final Body body, final float[] values, int offset) {
+        Vector2 pos = body.getPosition();
+        Vector2 vel = body.getLinearVelocity();
+        values[offset] = pos.x;
+        values[offset + 1] = pos.y;
+        values[offset + 2] = body.getAngle();
+        values[offset + 3] = vel.x;
+        values[offset + 4] = vel.y;
+        values[offset + 5] = body.getAngularVelocity();
+    }
+
+    /**
+     * Moves a body back to its saved state. Living bodies are deactivated and activated again, which drops their
+     * contacts.
+     */
+    private static void restoreBody(final Body body, boolean alive, boolean awake, final float[] values, int offset) {
+        body.setActive(false);
+        if (!alive) {
+            return;
+        }
+        body.setTransform(values[offset], values[offset + 1], values[offset + 2]);
+        body.setLinearVelocity(values[offset + 3], values[offset + 4]);
+        body.setAngularVelocity(values[offset + 5]);
+        body.setActive(true);
+        body.setAwake(awake);
+        ((Sprite) body.getUserData()).setPosition(values[offset], values[offset + 1]);
+    }
+
+    int getPlayerBodyCount() {
+        return allPlayers.size();
+    }
+
+    int getMonsterBodyCount() {
+        return allMonsters.size();
+    }
+
+    int getBoxBodyCount() {
+        return streamer == null ? allBoxes.size() : streamer.getBoxCount();
+    }
+
+    int getBoundaryBodyCount() {
+        return boundaries.size();
+    }
+
+    DetonatorCircle getGame() {
+        return game;
+    }
+
+    GameMap getMap() {
+        return map;
+    }
+
+    int getBoxCell(int box) {
+        return streamer == null ? getStaticCell(allBoxes.get(box).getPosition()) : streamer.getBoxCell(box);
+    }
+
+    Box getBox(int box) {
+        return streamer == null ? (Box) allBoxes.get(box).getUserData() : streamer.getBox(box);
+    }
+
+    /**
+     * Returns the body of the effect held by a box, as if the box had just been destroyed.
+     */
+    Body dropBoxEffect(int box) {
+        return dropEffect(getBoxCell(box), getBox(box).getEffect().orElseThrow());
+    }
+
+    Effect newEffect(int kind) {
+        return bodyFactory.newEffect(kind);
+    }
+
+    Bomb newBomb(int player, int radius, long placeTime) {
+        return bombPool.newBomb((Player) allPlayers.get(player).getUserData(), radius, placeTime);
+    }
+
+    Explosion newExplosion(final Vector2 position, long readyTime) {
+        return explosionPool.newExplosion(position, readyTime);
+    }
+
     private void buildWalls() {
-        map.getWalls().forEach(pair -> fObjects.add(bodyFactory.buildWall(pair)));
+        if (streamer == null) {
+            WallBlocks.merge(grid).forEach(bodyFactory::buildWalls);
+            map.getWalls().forEach(pair -> walls.add(bodyFactory.newWall(pair)));
+        }
     }
 
     private void buildBoxes() {
         final int[] total = { map.getBuffCount() + map.getDebuffCount() };
         map.getBoxes()
             .forEach(pair -> {
+                EffectType type;
                 if (total[0] > 0) {
                     if (total[0] > map.getDebuffCount()) {
-                        fObjects.add(bodyFactory.buildBox(pair, BUFF));
+                        type = BUFF;
                     } else {
-                        fObjects.add(bodyFactory.buildBox(pair, DEBUFF));
+                        type = DEBUFF;
                     }
                     --total[0];
                 } else {
-                    fObjects.add(bodyFactory.buildBox(pair, NONE));
+                    type = NONE;
+                }
+                if (streamer != null) {
+                    streamer.addBox(bodyFactory.newBox(pair, type), grid.index(pair.col, pair.row));
+                    return;
                 }
+                Body box = bodyFactory.buildBox(pair, type);
+                fObjects.add(box);
+                allBoxes.add(box);
             });
     }
 
     private void buildPlayers() {
-        final short[] playerCategories = { PLAYER_1, PLAYER_2, PLAYER_3 };
-        final short[] bombCategories = { BOMB_TO_P1, BOMB_TO_P2, BOMB_TO_P3 };
         final int[] i = { 0 };
         map.getPlayerSpawns(game.getPlayerCount())
             .forEach(pair -> {
-                players.add(
-                    bodyFactory.buildPlayer(
-                        pair,
-                        i[0],
-                        playerCategories[i[0]],
-                        (short) (bombCategories[i[0]] | ALL_PLAYERS | WALL | BOX | EFFECT | MONSTER | BOUNDARY)
-                    )
+                Body body = bodyFactory.buildPlayer(
+                    pair,
+                    i[0],
+                    PLAYER_CATEGORIES[i[0]],
+                    (short) (BOMB_CATEGORIES[i[0]] | ALL_PLAYERS | WALL | BOX | EFFECT | MONSTER | BOUNDARY)
                 );
+                players.add(body);
+                allPlayers.add(body);
                 i[0]++;
             });
     }
 
     private void buildMonsters() {
-        map.getMonsterSpawns().forEach(pair -> monsters.add(bodyFactory.buildMonster(pair)));
+        map.getMonsterSpawns().forEach(pair -> {
+            Body body = bodyFactory.buildMonster(pair);
+            monsters.add(body);
+            monsterIds.put(body, allMonsters.size());
+            allMonsters.add(body);
+            monsterAI.add((Monster) body.getUserData());
+        });
     }
 
     private void buildBoundaries() {
@@ -320,35 +989,43 @@ public class GameEngine implements Disposable {
             Body body = it.next();
             Player player = (Player) body.getUserData();
             player.setPosition(body.getPosition().x, body.getPosition().y);
-            Map<Integer, Pair> offsetMap = Map.of(
-                player.leftKey, Pair.of(-player.moveSpeed, 0),
-                player.rightKey, Pair.of(player.moveSpeed, 0),
-                player.upKey, Pair.of(0, player.moveSpeed),
-                player.downKey, Pair.of(0, -player.moveSpeed)
-            );
+            flowField.setSource(player.ind, getCell(body.getPosition(), player.getWidth()));
+            int input = controllers[player.ind].poll(player, this);
             Vector2 vel = body.getLinearVelocity();
             Vector2 pos = body.getPosition();
-            offsetMap.forEach((key, value) -> {
-                if (Gdx.input.isKeyPressed(key)
-                    && Math.abs(vel.x) < player.moveSpeed
-                    && Math.abs(vel.y) < player.moveSpeed) {
-                    body.applyLinearImpulse(value.col, value.row, pos.x, pos.y, true);
+            if (Math.abs(vel.x) < player.moveSpeed && Math.abs(vel.y) < player.moveSpeed) {
+                if ((input & PlayerController.LEFT) != 0) {
+                    body.applyLinearImpulse(-player.moveSpeed, 0, pos.x, pos.y, true);
                 }
-            });
-            if ((Gdx.input.isKeyJustPressed(player.bombKey) || player.hasEffect(ForcedBombsEffect.class)) && player.canPlace()) {
+                if ((input & PlayerController.RIGHT) != 0) {
+                    body.applyLinearImpulse(player.moveSpeed, 0, pos.x, pos.y, true);
+                }
+                if ((input & PlayerController.UP) != 0) {
+                    body.applyLinearImpulse(0, player.moveSpeed, pos.x, pos.y, true);
+                }
+                if ((input & PlayerController.DOWN) != 0) {
+                    body.applyLinearImpulse(0, -player.moveSpeed, pos.x, pos.y, true);
+                }
+            }
+            if (((input & PlayerController.BOMB) != 0 || player.hasEffect(ForcedBombsEffect.class)) && player.canPlace()) {
                 Vector2 targetCell = new Vector2(
                     Math.round(body.getPosition().x / PPM) * PPM,
                     Math.round(body.getPosition().y / PPM) * PPM
                 );
                 if (!getStaticQuery(targetCell).isBombFound()) {
                     player.bombPlace();
-                    bombs.add(bombPool.getBomb(targetCell, body));
+                    Body bombBody = bombPool.getBomb(targetCell, body);
+                    Bomb bomb = (Bomb) bombBody.getUserData();
+                    bombs.add(bombBody);
+                    dangerMap.addBomb(getStaticCell(targetCell), bomb.radius,
+                        clock.getTick() + TickClock.toTicks(bomb.getWaitTime()));
                 }
             }
             player.manageEffects();
             if (player.isDead()) {
                 it.remove();
-                world.destroyBody(body);
+                body.setActive(false);
+                flowField.removeSource(player.ind);
             }
             if (!it.hasNext()) {
                 break;
@@ -356,28 +1033,62 @@ public class GameEngine implements Disposable {
         }
     }
 
+    /**
+     * Stops letting players through the bombs they have left.
+     * <br>
+     * Box2D would report this as the end of the contact between the player and the sensor of the bomb, but it drops
+     * the contacts when a state is {@link #restore(EngineSnapshot) restored}, so the end of a contact that began
+     * before was never reported, and the player could walk through the bomb for good. The overlap is tested here
+     * instead, on the positions that the physics step starts from, as Box2D does.
+     */
+    private void releaseBombs() {
+        float playerSize = PPM * MOVING_SIZE;
+        float bombSize = PPM / 2;
+        float bombOffset = (PPM - bombSize) / 2;
+        for (int b = 0; b < bombs.size(); ++b) {
+            Body body = bombs.get(b);
+            Bomb bomb = (Bomb) body.getUserData();
+            if (!bomb.hasSetPlayers) {
+                continue;
+            }
+            float left = body.getPosition().x + bombOffset;
+            float bottom = body.getPosition().y + bombOffset;
+            for (Iterator<Player> it = bomb.playersAllowedThrough.iterator(); it.hasNext(); ) {
+                Player player = it.next();
+                if (player.getX() >= left + bombSize || player.getX() + playerSize <= left
+                    || player.getY() >= bottom + bombSize || player.getY() + playerSize <= bottom) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Lets every bomb collide with the players that have left it, and with monsters.
+     * <br>
+     * A single {@link Filter} is reused for every bomb, since fixtures copy its values.
+     */
     private void updateBombCollisions() {
-        bombs.forEach(body -> {
+        for (int b = 0; b < bombs.size(); ++b) {
+            Body body = bombs.get(b);
             Bomb bomb = (Bomb) body.getUserData();
-            Fixture mainFixture = body.getFixtureList().get(0);
-            Filter filter = new Filter();
-
-            Set<Integer> notAllowedIndexes = getPlayers()
-                .filter(p -> !bomb.playersAllowedThrough.contains(p))
-                .map(p -> p.ind)
-                .collect(Collectors.toSet());
-            filter.categoryBits = (short) ((notAllowedIndexes.contains(0) ? BOMB_TO_P1 : 0)
-                | (notAllowedIndexes.contains(1) ? BOMB_TO_P2 : 0)
-                | (notAllowedIndexes.contains(2) ? BOMB_TO_P3 : 0));
-            filter.maskBits = (short) ((notAllowedIndexes.contains(0) ? PLAYER_1 : 0)
-                | (notAllowedIndexes.contains(1) ? PLAYER_2 : 0)
-                | (notAllowedIndexes.contains(2) ? PLAYER_3 : 0)
-                | MONSTER);
-            mainFixture.setFilterData(filter);
-        });
+            short category = 0;
+            short mask = MONSTER;
+            for (int p = 0; p < players.size(); ++p) {
+                Player player = (Player) players.get(p).getUserData();
+                if (!bomb.playersAllowedThrough.contains(player)) {
+                    category |= BOMB_CATEGORIES[player.ind];
+                    mask |= PLAYER_CATEGORIES[player.ind];
+                }
+            }
+            bombFilter.categoryBits = category;
+            bombFilter.maskBits = mask;
+            body.getFixtureList().get(0).setFilterData(bombFilter);
+        }
     }
 
     private void updateMonsters() {
+        monsterAI.think();
         for (Iterator<Body> it = monsters.iterator(); it.hasNext(); ) {
             Body body = it.next();
             Monster monster = (Monster) body.getUserData();
@@ -385,21 +1096,16 @@ public class GameEngine implements Disposable {
             Vector2 pos = body.getPosition();
             monster.setPosition(pos.x, pos.y);
 
+            monsterAI.steer(monster, pos, vel);
+
             if (Math.abs(vel.x) < monster.moveSpeed && Math.abs(vel.y) < monster.moveSpeed) {
                 body.applyLinearImpulse(monster.direction.x, monster.direction.y, pos.x, pos.y, true);
             }
 
-            if (Math.abs(vel.x) <= 1f && Math.abs(vel.y) <= 1f) {
-                monster.setRandomDir();
-            }
-
-            if (RANDOM.nextInt(0, 100) == 1) {
-                monster.setRandomDir();
-            }
-
             if (monster.isDead()) {
                 it.remove();
-                world.destroyBody(body);
+                body.setActive(false);
+                monsterAI.remove(monster);
             }
 
             if (!it.hasNext()) {
@@ -408,6 +1114,73 @@ public class GameEngine implements Disposable {
         }
     }
 
+    /**
+     * Returns the index of the grid cell of a static body (wall, box, bomb).
+     *
+     * @param pos the position (bottom left corner) of the body.
+     * @return the cell index, or -1 if the body is outside the map.
+     */
+    int getStaticCell(final Vector2 pos) {
+        return grid.index(Math.round(pos.x / PPM), Math.round(pos.y / PPM));
+    }
+
+    /**
+     * Returns the index of the grid cell that contains the middle of a moving body.
+     *
+     * @param pos  the position (bottom left corner) of the body.
+     * @param size the size of the body.
+     * @return the cell index, or -1 if the body is outside the map.
+     */
+    private int getCell(final Vector2 pos, float size) {
+        return grid.index((int) Math.floor((pos.x + size / 2) / PPM), (int) Math.floor((pos.y + size / 2) / PPM));
+    }
+
+    /**
+     * Records the footprint of every player at the current tick. Players that are dead have none.
+     */
+    private void recordFootprints() {
+        for (int i = 0; i < allPlayers.size(); ++i) {
+            Body body = allPlayers.get(i);
+            boolean alive = body.isActive() && !((Player) body.getUserData()).isDead();
+            lagCompensation.record(clock.getTick(), i, alive ? getFootprint(body.getPosition()) : LagCompensation.NONE);
+        }
+    }
+
+    /**
+     * Returns the {@link LagCompensation footprint} of a moving body.
+     *
+     * @param pos the position (bottom left corner) of the body.
+     * @return the footprint, or {@link LagCompensation#NONE} if the body is outside the map.
+     */
+    private int getFootprint(final Vector2 pos) {
+        float size = PPM * MOVING_SIZE;
+        int col = (int) Math.floor(pos.x / PPM);
+        int row = (int) Math.floor(pos.y / PPM);
+        if (grid.index(col, row) == -1) {
+            return LagCompensation.NONE;
+        }
+        return lagCompensation.footprint(col, row,
+            (int) Math.floor((pos.x + size) / PPM) > col, (int) Math.floor((pos.y + size) / PPM) > row);
+    }
+
+    /**
+     * Kills the players whose rewound footprint shares a cell with the footprint of a living monster.
+     */
+    private void updateMonsterHits() {
+        for (int p = 0; p < players.size(); ++p) {
+            Player player = (Player) players.get(p).getUserData();
+            int footprint = lagCompensation.getRewoundFootprint(player.ind);
+            for (int m = 0; m < monsters.size() && footprint != LagCompensation.NONE; ++m) {
+                Body body = monsters.get(m);
+                if (!((Monster) body.getUserData()).isDead()
+                    && lagCompensation.overlaps(footprint, getFootprint(body.getPosition()))) {
+                    player.markDead();
+                    break;
+                }
+            }
+        }
+    }
+
     private void updateBombs() {
         for (Iterator<Body> it = bombs.iterator(); it.hasNext(); ) {
             Body body = it.next();
@@ -421,6 +1194,7 @@ public class GameEngine implements Disposable {
             bomb.checkBombState();
             if (bomb.hasBlown) {
                 it.remove();
+                dangerMap.removeBomb(getStaticCell(body.getPosition()));
                 bomb.owner.bombBlew();
                 bombPool.returnBomb(body);
             } else if (bomb.canBlow()) {
@@ -438,7 +1212,7 @@ public class GameEngine implements Disposable {
             Effect effect = (Effect) body.getUserData();
             if (effect.bodyDead) {
                 it.remove();
-                world.destroyBody(body);
+                body.setActive(false);
             }
             if (!it.hasNext()) {
                 break;
@@ -459,6 +1233,28 @@ public class GameEngine implements Disposable {
         }
     }
 
+    /**
+     * Builds the static bodies of the chunks near the players, monsters, bombs and explosions, and destroys the ones
+     * far from all of them, on a map whose static bodies are streamed.
+     */
+    private void streamChunks() {
+        if (streamer == null) {
+            return;
+        }
+        requireChunks(players);
+        requireChunks(monsters);
+        requireChunks(bombs);
+        requireChunks(explosions);
+        streamer.update();
+    }
+
+    private void requireChunks(final List<Body> bodies) {
+        for (int i = 0; i < bodies.size(); ++i) {
+            Vector2 pos = bodies.get(i).getPosition();
+            streamer.require(pos.x, pos.y);
+        }
+    }
+
     private void updateBattleRoyale() {
         if (brManager.canStartShrinking()) {
             brManager.startShrinking();
@@ -495,11 +1291,11 @@ public class GameEngine implements Disposable {
     }
 
     private MovingQuery getMovingExplosionQuery(final Vector2 explosionPos) {
-        MovingQuery callback = new MovingQuery();
         float lowerX = explosionPos.x; //  - playerWidth / 16;
         float lowerY = explosionPos.y; //  - playerHeight / 16;
         float upperX = explosionPos.x + PPM; //  + playerWidth / 16;
         float upperY = explosionPos.y + PPM; //  + playerHeight / 16;
+        MovingQuery callback = new MovingQuery(lowerX, lowerY, upperX, upperY, PPM * MOVING_SIZE);
 
         world.QueryAABB(callback, lowerX, lowerY, upperX, upperY);
         return callback;
@@ -518,28 +1314,40 @@ public class GameEngine implements Disposable {
             }
 
             flames.addAll(explosion.getParticleEffects());
+            blastCells.add(getStaticCell(body.getPosition()));
             MovingQuery movingQuery = getMovingExplosionQuery(body.getPosition());
-            movingQuery.getPlayers().forEach(Player::markDead);
+            if (lagCompensation == null) {
+                movingQuery.getPlayers().forEach(Player::markDead);
+            } else {
+                int cell = getStaticCell(body.getPosition());
+                for (int p = 0; p < players.size(); ++p) {
+                    Player player = (Player) players.get(p).getUserData();
+                    if (lagCompensation.covers(lagCompensation.getRewoundFootprint(player.ind), cell)) {
+                        player.markDead();
+                    }
+                }
+            }
             movingQuery.getMonsters().forEach(Monster::markDead);
             StaticQuery query = getStaticQuery(body.getPosition());
             if (query.isBoxFound()) {
                 Body boxBody = query.getResult();
                 Box box = (Box) boxBody.getUserData();
+                int cell = getStaticCell(boxBody.getPosition());
                 if (box.getEffect().isPresent()) {
-                    effects.add(bodyFactory.buildEffect(
-                        Pair.of(
-                            Math.round(boxBody.getPosition().x / PPM),
-                            Math.round(boxBody.getPosition().y / PPM)
-                        ), box.getEffect().get()));
+                    effects.add(dropEffect(cell, box.getEffect().get()));
                 }
+                grid.clearBox(cell);
+                flowField.openCell(cell);
+                dangerMap.openCell(cell);
                 fObjects.remove(boxBody);
-                world.destroyBody(boxBody);
+                boxBody.setActive(false);
             } else if (query.isEffectFound()) {
                 Body effectBody = query.getResult();
                 effects.remove(effectBody);
-                world.destroyBody(effectBody);
+                effectBody.setActive(false);
             } else if (query.isBombFound()) {
                 ((Bomb) query.getResult().getUserData()).forceBlow = true;
+                dangerMap.forceBlow(getStaticCell(query.getResult().getPosition()), clock.getTick() + 1);
             }
             it.remove();
             explosionPool.returnExplosion(body);
@@ -550,15 +1358,33 @@ public class GameEngine implements Disposable {
         }
     }
 
+    /**
+     * Returns the body of the effect held by a destroyed box.
+     * <br>
+     * The body is built the first time the box is destroyed. If the box is destroyed again after an earlier state
+     * was {@link #restore(EngineSnapshot) restored}, the same body is activated again.
+     */
+    private Body dropEffect(int cell, final Effect effect) {
+        Body body = effectBodies.get(effect);
+        if (body == null) {
+            body = bodyFactory.buildEffect(Pair.of(grid.col(cell), grid.row(cell)), effect);
+            effectBodies.put(effect, body);
+        } else {
+            body.setActive(true);
+        }
+        effect.bodyDead = false;
+        return body;
+    }
+
     private List<SimpleEntry<Vector2, Integer>> findBombAffectedCells(final Body bomb) {
         Bomb b = (Bomb) bomb.getUserData();
         Vector2 center = bomb.getPosition();
         List<SimpleEntry<Vector2, Integer>> affectedCells = new ArrayList<>(List.of(new SimpleEntry<>(center, 0)));
 
-        affectedCells.addAll(exploreExplosionPath(center, new Vector2(0, PPM), b.owner.bombRadius));
-        affectedCells.addAll(exploreExplosionPath(center, new Vector2(PPM, 0), b.owner.bombRadius));
-        affectedCells.addAll(exploreExplosionPath(center, new Vector2(0, -PPM), b.owner.bombRadius));
-        affectedCells.addAll(exploreExplosionPath(center, new Vector2(-PPM, 0), b.owner.bombRadius));
+        affectedCells.addAll(exploreExplosionPath(center, new Vector2(0, PPM), b.radius));
+        affectedCells.addAll(exploreExplosionPath(center, new Vector2(PPM, 0), b.radius));
+        affectedCells.addAll(exploreExplosionPath(center, new Vector2(0, -PPM), b.radius));
+        affectedCells.addAll(exploreExplosionPath(center, new Vector2(-PPM, 0), b.radius));
         return affectedCells;
     }
 
@@ -566,24 +1392,19 @@ public class GameEngine implements Disposable {
      * Goes over map grid points and returns a list of all positions and their distance from the origin,
      * where an explosion is supposed to occur.
      * <br>
-     * This method tracks how many steps it has taken, and while that value is below the maximum range,
-     * it checks the next position for walls and boxes.
-     * <br>
-     * At the next position,
+     * The length of the path is looked up in the {@link CellGrid grid}
+     * (the same way the {@link DangerMap danger map} predicts it):
      * <ol>
      *     <li>
-     *         If a wall is found, the path can no longer be explored and the method return
+     *         If a wall is found, the path can no longer be explored,
      *         since walls cannot be blown up and the explosions can't spread over them.
      *     </li>
      *     <li>
-     *         The position is simply added to the list.
-     *     </li>
-     *     <li>
-     *         If a box is found, the method returns,
+     *         If a box is found, the position is added, but the path ends,
      *         since boxes are allowed to blow up, but the explosions can't spread over them.
      *     </li>
      *     <li>
-     *         Otherwise,  and the number of steps taken is incremented.
+     *         Otherwise, the position is simply added to the list, until the maximum range is reached.
      *     </li>
      * </ol>
      *
@@ -594,19 +1415,11 @@ public class GameEngine implements Disposable {
      */
     private List<SimpleEntry<Vector2, Integer>> exploreExplosionPath(final Vector2 center, final Vector2 direction, int maxRange) {
         List<SimpleEntry<Vector2, Integer>> path = new ArrayList<>();
+        int length = grid.rayLength(getStaticCell(center), Math.round(direction.x / PPM), Math.round(direction.y / PPM), maxRange);
         Vector2 next = center.cpy().add(direction);
-        int stepsTaken = 0;
-        while (stepsTaken < maxRange) {
-            StaticQuery query = getStaticQuery(next);
-            if (query.isWallFound()) {
-                break;
-            }
-            path.add(new SimpleEntry<>(next.cpy(), stepsTaken + 1));
-            if (query.isBoxFound()) {
-                break;
-            }
+        for (int steps = 1; steps <= length; ++steps) {
+            path.add(new SimpleEntry<>(next.cpy(), steps));
             next.add(direction);
-            stepsTaken++;
         }
         return path;
     }
@@ -627,7 +1440,11 @@ public class GameEngine implements Disposable {
 
     @Override
     public void dispose() {
+        for (PlayerController controller : controllers) {
+            controller.dispose();
+        }
         world.dispose();
+        contactTrigger.dispose();
         bodyFactory.dispose();
         bombPool.dispose();
     }
@@ -0,0 +1,195 @@
+package x3.model.game;
+
+import java.util.Arrays;
+
+/**
+ * A <code>LagCompensation</code> keeps the recent history of the cells covered by every player, so that a server
+ * can decide whether a player was hit where the player's client last saw itself rather than where the player is now.
+ * <br>
+ * The history is a ring of {@link #HISTORY} ticks. For every tick and player, it holds a single <code>int</code>
+ * footprint: the bottom left cell the player overlaps, and whether the player also overlaps the cells to the right
+ * and above. Recording and looking up a footprint index the ring directly, so they take constant time and never
+ * allocate.
+ * <br>
+ * Every player is given a rewind, the number of ticks the player's client lags behind the server, which is clamped
+ * to the maximum rewind of the history. Hits are then tested against the footprint the player had that many ticks
+ * ago.
+ */
+public class LagCompensation {
+    /**
+     * The number of ticks kept in the history.
+     */
+    public static final int HISTORY = 64;
+    /**
+     * The footprint of a player that is dead or outside the map.
+     */
+    public static final int NONE = -1;
+    private static final int CELL_MASK = (1 << 27) - 1;
+    private static final int SPAN_RIGHT = 1 << 27;
+    private static final int SPAN_UP = 1 << 28;
+
+    private final int width;
+    private final int players;
+    private final int maxRewind;
+    private final int[] ticks = new int[HISTORY];
+    private final int[] footprints;
+    private final int[] rewinds;
+    private int latestTick = -1;
+
+    /**
+     * Only constructor.
+     *
+     * @param width     the width of the map, in cells.
+     * @param players   the number of players.
+     * @param maxRewind the largest number of ticks a player can be rewound, below {@link #HISTORY}.
+     * @throws IllegalArgumentException if the maximum rewind is negative or doesn't fit in the history.
+     */
+    public LagCompensation(int width, int players, int maxRewind) {
+        if (maxRewind < 0 || maxRewind >= HISTORY) {
+            throw new IllegalArgumentException("The rewind limit must be between 0 and " + (HISTORY - 1));
+        }
+        this.width = width;
+        this.players = players;
+        this.maxRewind = maxRewind;
+        footprints = new int[HISTORY * players];
+        rewinds = new int[players];
+        Arrays.fill(ticks, -1);
+        Arrays.fill(footprints, NONE);
+    }
+
+    /**
+     * Packs the cells covered by a body smaller than a cell into a footprint.
+     *
+     * @param col       the column of the bottom left cell the body overlaps.
+     * @param row       the row of the bottom left cell the body overlaps.
+     * @param spanRight whether the body also overlaps the column to the right.
+     * @param spanUp    whether the body also overlaps the row above.
+     * @return the footprint.
+     */
+    public int footprint(int col, int row, boolean spanRight, boolean spanUp) {
+        return row * width + col | (spanRight ? SPAN_RIGHT : 0) | (spanUp ? SPAN_UP : 0);
+    }
+
+    /**
+     * Records the footprint of a player at a tick, replacing the oldest tick of the history.
+     * <br>
+     * Every player should be recorded at every tick; the players not recorded at a tick have no footprint then.
+     * After a rollback, recording an earlier tick again replaces it and forgets the later ones.
+     *
+     * @param tick      the tick.
+     * @param player    the index of the player.
+     * @param footprint the footprint of the player, or {@link #NONE}.
+     */
+    public void record(int tick, int player, int footprint) {
+        int slot = tick & HISTORY - 1;
+        if (ticks[slot] != tick || tick < latestTick) {
+            ticks[slot] = tick;
+            Arrays.fill(footprints, slot * players, (slot + 1) * players, NONE);
+        }
+        footprints[slot * players + player] = footprint;
+        latestTick = tick;
+    }
+
+    /**
+     * Returns the footprint a player had at a tick.
+     *
+     * @param player the index of the player.
+     * @param tick   the tick, between the latest recorded tick and the maximum rewind before it.
+     * @return the footprint, or {@link #NONE} if the tick isn't in the history or the player had none.
+     */
+    public int getFootprint(int player, int tick) {
+        int slot = tick & HISTORY - 1;
+        if (tick < 0 || tick > latestTick || tick < latestTick - maxRewind || ticks[slot] != tick) {
+            return NONE;
+        }
+        return footprints[slot * players + player];
+    }
+
+    /**
+     * Returns the footprint a player had as many ticks ago as its rewind.
+     * <br>
+     * If that tick isn't in the history, as at the start of a round, the latest footprint is returned instead.
+     *
+     * @param player the index of the player.
+     * @return the footprint, or {@link #NONE} if the player had none.
+     */
+    public int getRewoundFootprint(int player) {
+        int tick = latestTick - rewinds[player];
+        if (tick < 0 || ticks[tick & HISTORY - 1] != tick) {
+            tick = latestTick;
+        }
+        return getFootprint(player, tick);
+    }
+
+    /**
+     * Returns whether a footprint covers a cell.
+     *
+     * @param footprint the footprint.
+     * @param cell      the index of the cell.
+     * @return true if the player overlaps the cell.
+     */
+    public boolean covers(int footprint, int cell) {
+        if (footprint == NONE) {
+            return false;
+        }
+        int base = footprint & CELL_MASK;
+        int cols = cell % width - base % width;
+        int rows = cell / width - base / width;
+        return (cols == 0 || cols == 1 && (footprint & SPAN_RIGHT) != 0)
+            && (rows == 0 || rows == 1 && (footprint & SPAN_UP) != 0);
+    }
+
+    /**
+     * Returns whether two footprints cover a common cell.
+     *
+     * @param a the first footprint.
+     * @param b the second footprint.
+     * @return true if both bodies overlap a cell.
+     */
+    public boolean overlaps(int a, int b) {
+        if (a == NONE || b == NONE) {
+            return false;
+        }
+        int baseA = a & CELL_MASK;
+        int baseB = b & CELL_MASK;
+        int cols = baseB % width - baseA % width;
+        int rows = baseB / width - baseA / width;
+        return (cols == 0 || cols == 1 && (a & SPAN_RIGHT) != 0 || cols == -1 && (b & SPAN_RIGHT) != 0)
+            && (rows == 0 || rows == 1 && (a & SPAN_UP) != 0 || rows == -1 && (b & SPAN_UP) != 0);
+    }
+
+    /**
+     * Sets the number of ticks a player's hits are rewound.
+     *
+     * @param player the index of the player.
+     * @param ticks  the number of ticks the player's client lags behind, clamped to the maximum rewind.
+     */
+    public void setRewind(int player, int ticks) {
+        rewinds[player] = Math.max(0, Math.min(maxRewind, ticks));
+    }
+
+    /**
+     * Returns the number of ticks a player's hits are rewound.
+     * @param player the index of the player.
+     * @return the rewind, in ticks.
+     */
+    public int getRewind(int player) {
+        return rewinds[player];
+    }
+
+    /**
+     * Returns the largest rewind.
+     * @return the maximum rewind, in ticks.
+     */
+    public int getMaxRewind() {
+        return maxRewind;
+    }
+
+    /**
+     * Returns the last tick recorded.
+     * @return the latest tick, or -1 if nothing was recorded.
+     */
+    public int getLatestTick() {
+        return latestTick;
+    }
+}
@@ -0,0 +1,241 @@
+package x3.model.game;
+
+import x3.model.game.control.ExternalController;
+import x3.model.game.control.PlayerController;
+import x3.model.util.TickClock;
+
+import java.util.Arrays;
+
+/**
+ * A <code>RollbackEngine</code> runs a {@link GameEngine} ahead of the inputs it has received, and corrects it when
+ * the inputs turn out to be different.
+ * <br>
+ * Every player is controlled through an {@link ExternalController}. Inputs are {@link #confirmInput(int, int, int)
+ * confirmed} per tick, e.g. the local player's right away and the others' when they arrive from the network.
+ * When a tick is {@link #advance() simulated} before the input of a player is known, the player is predicted to keep
+ * doing what it did in the previous tick. If a confirmed input differs from the one the engine was run with, the engine
+ * is rolled back: the state before that tick is {@link GameEngine#restore(EngineSnapshot) restored}, and every tick
+ * since is simulated again with the corrected inputs.
+ * <br>
+ * The state after every tick is {@link GameEngine#save(EngineSnapshot) saved} in a preallocated ring of
+ * {@link EngineSnapshot snapshots}, so the engine can roll back at most <code>window - 1</code> ticks.
+ */
+public class RollbackEngine {
+    /**
+     * The default number of snapshots kept, which is enough to correct inputs arriving a quarter second late.
+     */
+    public static final int DEFAULT_WINDOW = 16;
+    private static final float DELTA = 1f / TickClock.TICKS_PER_SECOND;
+    private static final int NO_ROLLBACK = Integer.MAX_VALUE;
+
+    private final GameEngine engine;
+    private final int playerCount;
+    private final int window;
+    private final ExternalController[] controllers;
+    private final EngineSnapshot[] snapshots;
+    private final int[] inputTicks;
+    private final int[] inputs;
+    private final boolean[] confirmed;
+    private final int firstTick;
+    private int rollbackTick = NO_ROLLBACK;
+    private int rollbacks;
+    private long resimulatedTicks;
+    private long lastRollbackNanos;
+    private long maxRollbackNanos;
+
+    /**
+     * Secondary constructor.
+     * <br>
+     * Keeps {@link #DEFAULT_WINDOW} snapshots.
+     *
+     * @param engine      the engine to run.
+     * @param playerCount the number of players of the game.
+     */
+    public RollbackEngine(final GameEngine engine, int playerCount) {
+        this(engine, playerCount, DEFAULT_WINDOW);
+    }
+
+    /**
+     * Primary constructor.
+     * <br>
+     * Replaces the controllers of the players with external controllers, allocates the snapshots and saves the
+     * current state of the engine.
+     *
+     * @param engine      the engine to run.
+     * @param playerCount the number of players of the game.
+     * @param window      the number of snapshots kept, at least 2.
+     * @throws IllegalArgumentException if the window is smaller than 2.
+     */
+    public RollbackEngine(final GameEngine engine, int playerCount, int window) {
+        if (window < 2) {
+            throw new IllegalArgumentException("The rollback window must be at least 2 ticks");
+        }
+        this.engine = engine;
+        this.playerCount = playerCount;
+        this.window = window;
+        controllers = new ExternalController[playerCount];
+        for (int i = 0; i < playerCount; ++i) {
+            controllers[i] = new ExternalController();
+            engine.setController(i, controllers[i]);
+        }
+        snapshots = new EngineSnapshot[window];
+        for (int i = 0; i < window; ++i) {
+            snapshots[i] = new EngineSnapshot(engine);
+        }
+        // inputs are kept for the past window and as far into the future
+        inputTicks = new int[window * 2];
+        inputs = new int[window * 2 * playerCount];
+        confirmed = new boolean[window * 2 * playerCount];
+        Arrays.fill(inputTicks, -1);
+        firstTick = engine.getTick();
+        engine.save(snapshots[firstTick % window]);
+    }
+
+    /**
+     * Records the input of a player for a tick.
+     * <br>
+     * If the tick was already simulated with a different input, the engine rolls back on the next
+     * {@link #advance()}. The input also becomes the prediction of the following ticks that have no confirmed input.
+     *
+     * @param player the index of the player.
+     * @param tick   the tick the input applies to; the next tick to simulate is <code>{@link #getTick()} + 1</code>.
+     * @param input  a bitmask of the action constants of {@link PlayerController}.
+     * @throws IllegalArgumentException if the tick is too old to roll back to, or too far in the future.
+     */
+    public void confirmInput(int player, int tick, int input) {
+        int current = engine.getTick();
+        if (tick <= Math.max(current - window + 1, firstTick) || tick > current + window) {
+            throw new IllegalArgumentException("Tick " + tick + " is outside the rollback window of tick " + current);
+        }
+        int slot = slot(tick);
+        if (tick <= current) {
+            if (inputs[slot + player] != input) {
+                rollbackTick = Math.min(rollbackTick, tick);
+            }
+            // re-predict the following ticks with the new input
+            for (int t = tick + 1; t <= current && !confirmed[slot(t) + player]; ++t) {
+                if (inputs[slot(t) + player] != input) {
+                    rollbackTick = Math.min(rollbackTick, t);
+                }
+                inputs[slot(t) + player] = input;
+            }
+        }
+        inputs[slot + player] = input;
+        confirmed[slot + player] = true;
+    }
+
+    /**
+     * Records the input of a player for the next tick to simulate, e.g. the input of the local player.
+     *
+     * @param player the index of the player.
+     * @param input  a bitmask of the action constants of {@link PlayerController}.
+     */
+    public void setInput(int player, int input) {
+        confirmInput(player, engine.getTick() + 1, input);
+    }
+
+    /**
+     * Rolls back and resimulates if a confirmed input contradicted a prediction, then simulates the next tick.
+     */
+    public void advance() {
+        int current = engine.getTick();
+        if (rollbackTick != NO_ROLLBACK) {
+            long start = System.nanoTime();
+            engine.restore(snapshots[(rollbackTick - 1) % window]);
+            for (int tick = rollbackTick; tick <= current; ++tick) {
+                simulate(tick);
+            }
+            lastRollbackNanos = System.nanoTime() - start;
+            maxRollbackNanos = Math.max(maxRollbackNanos, lastRollbackNanos);
+            resimulatedTicks += current - rollbackTick + 1;
+            ++rollbacks;
+            rollbackTick = NO_ROLLBACK;
+        }
+        simulate(current + 1);
+    }
+
+    private void simulate(int tick) {
+        int slot = slot(tick);
+        int previous = slot(tick - 1);
+        for (int p = 0; p < playerCount; ++p) {
+            if (!confirmed[slot + p]) {
+                inputs[slot + p] = inputs[previous + p];
+            }
+            controllers[p].setInput(inputs[slot + p]);
+        }
+        engine.step(DELTA);
+        engine.save(snapshots[tick % window]);
+    }
+
+    /**
+     * Returns the first input of the slot of the given tick, claiming the slot for the tick if it held an older one.
+     */
+    private int slot(int tick) {
+        int index = Math.floorMod(tick, inputTicks.length);
+        int slot = index * playerCount;
+        if (inputTicks[index] != tick) {
+            inputTicks[index] = tick;
+            for (int p = 0; p < playerCount; ++p) {
+                confirmed[slot + p] = false;
+                inputs[slot + p] = 0;
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Returns the engine run by this object.
+     * @return the engine.
+     */
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Returns the last simulated tick.
+     * @return the current tick of the engine.
+     */
+    public int getTick() {
+        return engine.getTick();
+    }
+
+    /**
+     * Returns the number of snapshots kept.
+     * @return the size of the rollback window.
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * Returns the number of rollbacks performed.
+     * @return the number of rollbacks.
+     */
+    public int getRollbacks() {
+        return rollbacks;
+    }
+
+    /**
+     * Returns the number of ticks simulated again by rollbacks.
+     * @return the number of resimulated ticks.
+     */
+    public long getResimulatedTicks() {
+        return resimulatedTicks;
+    }
+
+    /**
+     * Returns the duration of the last rollback, restoring and resimulating included.
+     * @return the duration in nanoseconds, or 0 if there was no rollback yet.
+     */
+    public long getLastRollbackNanos() {
+        return lastRollbackNanos;
+    }
+
+    /**
+     * Returns the duration of the longest rollback.
+     * @return the duration in nanoseconds, or 0 if there was no rollback yet.
+     */
+    public long getMaxRollbackNanos() {
+        return maxRollbackNanos;
+    }
+}
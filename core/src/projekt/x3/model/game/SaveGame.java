@@ -0,0 +1,416 @@
+package x3.model.game;
+
+import com.badlogic.gdx.math.Vector2;
+import x3.DetonatorCircle;
+import x3.model.effect.Effect;
+import x3.model.effect.TimedEffect;
+import x3.model.game.objects.Bomb;
+import x3.model.game.suppliers.BodyFactory;
+import x3.model.map.GameMap;
+import x3.model.map.MapDescriptor;
+import x3.model.util.TickClock;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * A <code>SaveGame</code> turns the state of a {@link GameEngine} into a compact array of bytes, and back.
+ * <br>
+ * Saving {@link GameEngine#save(EngineSnapshot) saves} the engine into a snapshot, and writes the snapshot by value:
+ * the bombs, explosions and effects it refers to are written as the few numbers that describe them. Loading reads
+ * those numbers into a snapshot, building the bombs, explosions and effects again with the engine's pools and
+ * factories, and {@link GameEngine#restore(EngineSnapshot) restores} the engine from it. A game can thus be loaded
+ * into any engine built for the same map and player count, e.g. after the game was closed.
+ * <br>
+ * The format is made of:
+ * <ul>
+ *     <li>a header: the {@link #MAGIC magic number}, the {@link #VERSION version}, the map's class, the size of the
+ *     map, the number of players, monsters, boxes and boundaries, and the rounds of the game;</li>
+ *     <li>the tick, the round's result, the shrinking and the boundaries;</li>
+ *     <li>the {@link x3.model.game.grid.CellGrid grid}, {@link x3.model.game.grid.FlowField flow field} and
+ *     {@link x3.model.game.grid.DangerMap danger map}, cell by cell;</li>
+ *     <li>the bodies of the living players and monsters, with their velocities, and the players' values and
+ *     {@link TimedEffect timed effects};</li>
+ *     <li>the boxes in cell order, with the {@link BodyFactory#EFFECTS kind} of the effect they hold;</li>
+ *     <li>the effects lying on the map, the bombs and the pending explosions.</li>
+ * </ul>
+ * Times are written relative to the tick of the save: the remaining time of the effects, the remaining fuse of
+ * the bombs and the remaining delay of the explosions. Flames are only shown, and aren't saved.
+ * <br>
+ * Saving writes into a buffer owned by this object, and only allocates when the state outgrows every earlier one,
+ * so the game can save itself every few seconds without hitching.
+ */
+public class SaveGame {
+    /**
+     * The first bytes of every saved game.
+     */
+    public static final int MAGIC = 0x44435356;
+    /**
+     * The version of the format.
+     */
+    public static final short VERSION = 1;
+    private static final int EFFECT_COUNT = EngineSnapshot.TIMED_EFFECTS.size();
+    private static final int NO_EFFECT = -1;
+
+    private final GameEngine engine;
+    private final EngineSnapshot snapshot;
+    private final byte[] mapName;
+    private final int width;
+    private final int height;
+    private final int[] boxAt;
+    private final int[] timedKinds = new int[EFFECT_COUNT];
+    private final TickClock savedClock = new TickClock();
+    private final Vector2 position = new Vector2();
+    private ByteBuffer buffer;
+
+    /**
+     * Only constructor.
+     * <br>
+     * Allocates room for the state of the given engine.
+     *
+     * @param engine the engine to save and load.
+     */
+    public SaveGame(final GameEngine engine) {
+        this.engine = engine;
+        snapshot = new EngineSnapshot(engine);
+        mapName = engine.getMap().getClass().getName().getBytes(StandardCharsets.UTF_8);
+        width = engine.getGrid().getWidth();
+        height = engine.getGrid().getHeight();
+        boxAt = new int[width * height];
+        Arrays.fill(boxAt, -1);
+        for (int i = 0; i < engine.getBoxBodyCount(); ++i) {
+            boxAt[engine.getBoxCell(i)] = i;
+        }
+        for (int e = 0; e < EFFECT_COUNT; ++e) {
+            timedKinds[e] = BodyFactory.EFFECTS.indexOf(EngineSnapshot.TIMED_EFFECTS.get(e));
+        }
+        buffer = ByteBuffer.allocate(1024 + width * height * 24);
+    }
+
+    /**
+     * Saves the state of the engine at the end of the current tick.
+     * <br>
+     * The returned buffer belongs to this object, and holds the save until the next call.
+     *
+     * @return the saved game, from the buffer's position to its limit.
+     */
+    public ByteBuffer save() {
+        engine.save(snapshot);
+        while (true) {
+            try {
+                buffer.clear();
+                write();
+                buffer.flip();
+                return buffer;
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+    }
+
+    private void write() {
+        writeHeader();
+        savedClock.setTick(snapshot.tick);
+        long now = savedClock.millis();
+
+        buffer.putInt(snapshot.tick);
+        buffer.put((byte) ((snapshot.gameEnded ? 1 : 0) | (snapshot.startedShrinking ? 2 : 0)));
+        buffer.put((byte) snapshot.shrunk);
+        for (float value : snapshot.boundaries) {
+            buffer.putFloat(value);
+        }
+        snapshot.grid.write(buffer);
+        snapshot.flowField.write(buffer);
+        snapshot.dangerMap.write(buffer);
+        buffer.putShort((short) snapshot.blastCells.size);
+        for (int i = 0; i < snapshot.blastCells.size; ++i) {
+            buffer.putShort((short) snapshot.blastCells.get(i));
+        }
+
+        for (int i = 0; i < snapshot.playerAlive.length; ++i) {
+            int present = 0;
+            for (int e = 0; e < EFFECT_COUNT; ++e) {
+                if (snapshot.playerEffects[i * EFFECT_COUNT + e].isPresent()) {
+                    present |= 4 << e;
+                }
+            }
+            buffer.put((byte) ((snapshot.playerAlive[i] ? 1 : 0) | (snapshot.playerDead[i] ? 2 : 0) | present));
+            if (snapshot.playerAlive[i]) {
+                writeFloats(snapshot.playerBodies, i * EngineSnapshot.BODY_VALUES, EngineSnapshot.BODY_VALUES);
+            }
+            for (int v = 0; v < EngineSnapshot.PLAYER_VALUES; ++v) {
+                buffer.put((byte) snapshot.playerValues[i * EngineSnapshot.PLAYER_VALUES + v]);
+            }
+            for (int e = 0; e < EFFECT_COUNT; ++e) {
+                Optional<TimedEffect> effect = snapshot.playerEffects[i * EFFECT_COUNT + e];
+                if (effect.isPresent()) {
+                    long end = snapshot.playerEffectStarts[i * EFFECT_COUNT + e] + effect.get().duration;
+                    buffer.putInt((int) (end - now));
+                }
+            }
+        }
+
+        for (int i = 0; i < snapshot.monsterAlive.length; ++i) {
+            buffer.put((byte) ((snapshot.monsterAlive[i] ? 1 : 0) | (snapshot.monsterDead[i] ? 2 : 0)
+                | (snapshot.monsterAwake[i] ? 4 : 0)));
+            if (snapshot.monsterAlive[i]) {
+                writeFloats(snapshot.monsterBodies, i * EngineSnapshot.BODY_VALUES, EngineSnapshot.BODY_VALUES);
+                writeFloats(snapshot.monsterDirections, i * 2, 2);
+            }
+        }
+
+        for (int cell = 0; cell < boxAt.length; ++cell) {
+            int box = boxAt[cell];
+            if (box != -1) {
+                Optional<Effect> effect = engine.getBox(box).getEffect();
+                int kind = effect.isPresent() ? BodyFactory.EFFECTS.indexOf(effect.get().getClass()) : NO_EFFECT;
+                buffer.put((byte) ((snapshot.boxAlive[box] ? 1 : 0) | (kind + 1) << 1));
+            }
+        }
+
+        buffer.putShort((short) snapshot.effects.size);
+        for (int i = 0; i < snapshot.effects.size; ++i) {
+            buffer.putShort((short) engine.getStaticCell(snapshot.effects.get(i).getPosition()));
+            buffer.put((byte) (snapshot.effectDead.get(i) ? 1 : 0));
+        }
+
+        buffer.putShort((short) snapshot.bombs.size);
+        for (int i = 0; i < snapshot.bombs.size; ++i) {
+            Bomb bomb = snapshot.bombs.get(i);
+            buffer.put((byte) bomb.owner.ind);
+            buffer.put((byte) bomb.radius);
+            buffer.putInt((int) (bomb.getPlaceTime() + bomb.getWaitTime() - now));
+            buffer.putInt(snapshot.bombValues.get(i * 2));
+            buffer.putShort((short) snapshot.bombValues.get(i * 2 + 1));
+            buffer.putFloat(snapshot.bombPositions.get(i * 2));
+            buffer.putFloat(snapshot.bombPositions.get(i * 2 + 1));
+        }
+
+        buffer.putShort((short) snapshot.explosions.size);
+        for (int i = 0; i < snapshot.explosions.size; ++i) {
+            buffer.putInt((int) (snapshot.explosions.get(i).getReadyTime() - now));
+            buffer.putFloat(snapshot.explosionPositions.get(i * 2));
+            buffer.putFloat(snapshot.explosionPositions.get(i * 2 + 1));
+        }
+    }
+
+    /**
+     * Puts the engine in the state of a saved game, along with the rounds of the game.
+     * <br>
+     * The bombs, explosions and effects of the saved game are built by the engine's pools and factories, and the
+     * engine is then {@link GameEngine#restore(EngineSnapshot) restored}.
+     *
+     * @param in the saved game, read from its position, which is moved past the save.
+     * @throws IllegalArgumentException if the bytes aren't a saved game of this engine's map and player count. The
+     *                                  engine may then have been partly changed, and should be disposed of.
+     */
+    public void load(final ByteBuffer in) {
+        try {
+            readHeader(in);
+            read(in);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("The saved game is truncated", e);
+        }
+        engine.restore(snapshot);
+    }
+
+    private void read(final ByteBuffer in) {
+        snapshot.tick = in.getInt();
+        savedClock.setTick(snapshot.tick);
+        long now = savedClock.millis();
+        byte flags = in.get();
+        snapshot.gameEnded = (flags & 1) != 0;
+        snapshot.startedShrinking = (flags & 2) != 0;
+        snapshot.shrunk = in.get();
+        for (int i = 0; i < snapshot.boundaries.length; ++i) {
+            snapshot.boundaries[i] = in.getFloat();
+        }
+        snapshot.grid.read(in);
+        snapshot.flowField.read(in);
+        snapshot.dangerMap.read(in);
+        snapshot.blastCells.clear();
+        for (int i = in.getShort(); i > 0; --i) {
+            snapshot.blastCells.add(in.getShort());
+        }
+
+        for (int i = 0; i < snapshot.playerAlive.length; ++i) {
+            flags = in.get();
+            snapshot.playerAlive[i] = (flags & 1) != 0;
+            snapshot.playerDead[i] = (flags & 2) != 0;
+            if (snapshot.playerAlive[i]) {
+                readFloats(in, snapshot.playerBodies, i * EngineSnapshot.BODY_VALUES, EngineSnapshot.BODY_VALUES);
+            }
+            for (int v = 0; v < EngineSnapshot.PLAYER_VALUES; ++v) {
+                snapshot.playerValues[i * EngineSnapshot.PLAYER_VALUES + v] = in.get();
+            }
+            for (int e = 0; e < EFFECT_COUNT; ++e) {
+                int slot = i * EFFECT_COUNT + e;
+                if ((flags & 4 << e) != 0) {
+                    TimedEffect effect = (TimedEffect) engine.newEffect(timedKinds[e]);
+                    snapshot.playerEffects[slot] = Optional.of(effect);
+                    snapshot.playerEffectStarts[slot] = now + in.getInt() - effect.duration;
+                } else {
+                    snapshot.playerEffects[slot] = Optional.empty();
+                    snapshot.playerEffectStarts[slot] = 0;
+                }
+            }
+        }
+
+        for (int i = 0; i < snapshot.monsterAlive.length; ++i) {
+            flags = in.get();
+            snapshot.monsterAlive[i] = (flags & 1) != 0;
+            snapshot.monsterDead[i] = (flags & 2) != 0;
+            snapshot.monsterAwake[i] = (flags & 4) != 0;
+            if (snapshot.monsterAlive[i]) {
+                readFloats(in, snapshot.monsterBodies, i * EngineSnapshot.BODY_VALUES, EngineSnapshot.BODY_VALUES);
+                readFloats(in, snapshot.monsterDirections, i * 2, 2);
+            }
+        }
+
+        for (int cell = 0; cell < boxAt.length; ++cell) {
+            int box = boxAt[cell];
+            if (box != -1) {
+                flags = in.get();
+                int kind = (flags >> 1) - 1;
+                snapshot.boxAlive[box] = (flags & 1) != 0;
+                engine.getBox(box).setEffect(kind == NO_EFFECT ? Optional.empty() : Optional.of(engine.newEffect(kind)));
+            }
+        }
+
+        snapshot.effects.clear();
+        snapshot.effectDead.clear();
+        for (int i = in.getShort(); i > 0; --i) {
+            int cell = in.getShort();
+            if (cell < 0 || cell >= boxAt.length || boxAt[cell] == -1
+                || engine.getBox(boxAt[cell]).getEffect().isEmpty()) {
+                throw new IllegalArgumentException("No effect was held in cell " + cell);
+            }
+            snapshot.effects.add(engine.dropBoxEffect(boxAt[cell]));
+            snapshot.effectDead.add(in.get() != 0);
+        }
+
+        snapshot.bombs.clear();
+        snapshot.bombPositions.clear();
+        snapshot.bombValues.clear();
+        for (int i = in.getShort(); i > 0; --i) {
+            int owner = in.get();
+            int radius = in.get();
+            long placeTime = now + in.getInt() - Bomb.WAIT_TIME;
+            snapshot.bombs.add(engine.newBomb(owner, radius, placeTime));
+            snapshot.bombValues.add(in.getInt(), in.getShort());
+            snapshot.bombPositions.add(in.getFloat(), in.getFloat());
+        }
+
+        snapshot.explosions.clear();
+        snapshot.explosionPositions.clear();
+        for (int i = in.getShort(); i > 0; --i) {
+            long readyTime = now + in.getInt();
+            position.set(in.getFloat(), in.getFloat());
+            snapshot.explosions.add(engine.newExplosion(position, readyTime));
+            snapshot.explosionPositions.add(position.x, position.y);
+        }
+        snapshot.flames.clear();
+    }
+
+    private void writeHeader() {
+        DetonatorCircle game = engine.getGame();
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) mapName.length);
+        buffer.put(mapName);
+        buffer.putShort((short) width);
+        buffer.putShort((short) height);
+        buffer.put((byte) snapshot.playerAlive.length);
+        buffer.putShort((short) snapshot.monsterAlive.length);
+        buffer.putShort((short) snapshot.boxAlive.length);
+        buffer.putShort((short) (snapshot.boundaries.length / 2));
+        buffer.put((byte) game.roundCount);
+        buffer.put((byte) game.remainingRounds);
+        for (int won : snapshot.wonRounds) {
+            buffer.put((byte) won);
+        }
+    }
+
+    private void readHeader(final ByteBuffer in) {
+        String map = readMapName(in);
+        if (!map.equals(engine.getMap().getClass().getName())) {
+            throw new IllegalArgumentException("The game was saved on " + map);
+        }
+        if (in.getShort() != width || in.getShort() != height || in.get() != snapshot.playerAlive.length
+            || in.getShort() != snapshot.monsterAlive.length || in.getShort() != snapshot.boxAlive.length
+            || in.getShort() != snapshot.boundaries.length / 2) {
+            throw new IllegalArgumentException("The saved game doesn't fit the engine");
+        }
+        DetonatorCircle game = engine.getGame();
+        game.roundCount = in.get();
+        game.remainingRounds = in.get();
+        for (int i = 0; i < snapshot.wonRounds.length; ++i) {
+            snapshot.wonRounds[i] = in.get();
+        }
+    }
+
+    /**
+     * Reads the magic number, the version and the map's class from the start of a saved game.
+     */
+    private static String readMapName(final ByteBuffer in) {
+        if (in.remaining() < 8 || in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a saved game");
+        }
+        short version = in.getShort();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported version: " + version);
+        }
+        byte[] name = new byte[in.getShort()];
+        in.get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Prepares a game to {@link #load(ByteBuffer) load} a saved game: sets its player count, resets its score, which
+     * is loaded with the rest of the game, and finds the map the
+     * game was saved on, among the {@link DetonatorCircle#maps maps of the game}, and creates it.
+     * <br>
+     * The buffer's position isn't moved, so the engine built on the map can load the same buffer.
+     *
+     * @param game the game that will run the saved game.
+     * @param in   the saved game.
+     * @return the map of the saved game.
+     * @throws IllegalArgumentException if the bytes aren't a saved game, or the game has no such map.
+     */
+    public static GameMap prepare(final DetonatorCircle game, final ByteBuffer in) {
+        ByteBuffer header = in.duplicate();
+        try {
+            String name = readMapName(header);
+            header.position(header.position() + 4);
+            if (header.get() == 3) {
+                game.setPlayerCount3();
+            } else {
+                game.setPlayerCount2();
+            }
+            game.wonRounds = new int[3];
+            return game.maps.stream()
+                .filter(map -> map.getType().getName().equals(name))
+                .findFirst()
+                .<GameMap>map(MapDescriptor::create)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown map: " + name));
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("The saved game is truncated", e);
+        }
+    }
+
+    private void writeFloats(final float[] values, int offset, int count) {
+        for (int i = offset; i < offset + count; ++i) {
+            buffer.putFloat(values[i]);
+        }
+    }
+
+    private static void readFloats(final ByteBuffer in, final float[] values, int offset, int count) {
+        for (int i = offset; i < offset + count; ++i) {
+            values[i] = in.getFloat();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package x3.model.game.ai;
+
+import com.badlogic.gdx.ai.sched.LoadBalancingScheduler;
+import com.badlogic.gdx.ai.sched.Schedulable;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * A <code>BrainScheduler</code> is a {@link LoadBalancingScheduler} whose frame counter can be read and set, so that
+ * a {@link MonsterAI} {@link MonsterAI#restore(MonsterAISnapshot) restored} to an earlier tick runs the same brains
+ * in the same ticks again.
+ * <br>
+ * Unlike its parent, it can also remove tasks, so that the brains of dead monsters stop taking up the ticks.
+ */
+class BrainScheduler extends LoadBalancingScheduler {
+    // the tasks in the order of their records, whose fields can't be read from here
+    private final Array<Schedulable> schedulables = new Array<>();
+
+    /**
+     * Only constructor.
+     *
+     * @param dryRunFrames the number of frames simulated to find the best phase of a task.
+     */
+    BrainScheduler(int dryRunFrames) {
+        super(dryRunFrames);
+    }
+
+    @Override
+    public void add(final Schedulable schedulable, int frequency, int phase) {
+        super.add(schedulable, frequency, phase);
+        schedulables.add(schedulable);
+    }
+
+    /**
+     * Adds a task in the phase that spreads the tasks most evenly over the frames.
+     *
+     * @return the phase of the task.
+     */
+    int addWithPhase(final Schedulable schedulable, int frequency) {
+        int phase = calculatePhase(frequency);
+        add(schedulable, frequency, phase);
+        return phase;
+    }
+
+    void remove(final Schedulable schedulable) {
+        int index = schedulables.indexOf(schedulable, true);
+        if (index != -1) {
+            schedulables.removeIndex(index);
+            schedulableRecords.removeIndex(index);
+        }
+    }
+
+    void clear() {
+        schedulables.clear();
+        schedulableRecords.clear();
+    }
+
+    int getFrame() {
+        return frame;
+    }
+
+    void setFrame(int frame) {
+        this.frame = frame;
+    }
+}
@@ -0,0 +1,55 @@
+package x3.model.game.ai;
+
+import com.badlogic.gdx.ai.btree.LeafTask;
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.ai.btree.annotation.TaskAttribute;
+
+/**
+ * An <code>EnterStateTask</code> is a leaf of a monster's behaviour tree that switches the monster's state machine
+ * into a {@link MonsterState}.
+ * <br>
+ * The task succeeds if the state {@link MonsterState#applies applies} to the monster (and enters it if it isn't
+ * active yet), and fails otherwise, so a selector of these tasks picks the first applicable state.
+ */
+public class EnterStateTask extends LeafTask<MonsterBrain> {
+    /**
+     * The state entered by this task.
+     */
+    @TaskAttribute(required = true)
+    public MonsterState state;
+
+    /**
+     * Secondary constructor.
+     * <br>
+     * Required by gdx-ai for cloning tasks.
+     */
+    public EnterStateTask() {
+    }
+
+    /**
+     * Primary constructor.
+     *
+     * @param state the state entered by this task.
+     */
+    public EnterStateTask(final MonsterState state) {
+        this.state = state;
+    }
+
+    @Override
+    public Status execute() {
+        MonsterBrain brain = getObject();
+        if (!state.applies(brain)) {
+            return Status.FAILED;
+        }
+        if (!brain.getStateMachine().isInState(state)) {
+            brain.getStateMachine().changeState(state);
+        }
+        return Status.SUCCEEDED;
+    }
+
+    @Override
+    protected Task<MonsterBrain> copyTo(final Task<MonsterBrain> task) {
+        ((EnterStateTask) task).state = state;
+        return task;
+    }
+}
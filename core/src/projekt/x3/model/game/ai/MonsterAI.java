@@ -0,0 +1,250 @@
+package x3.model.game.ai;
+
+import com.badlogic.gdx.ai.msg.MessageDispatcher;
+import com.badlogic.gdx.ai.msg.MessageManager;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.badlogic.gdx.ai.sched.LoadBalancingScheduler;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import x3.model.game.GameEngine;
+import x3.model.game.grid.CellGraph;
+import x3.model.game.grid.CellGrid;
+import x3.model.game.grid.CellNode;
+import x3.model.game.grid.DangerMap;
+import x3.model.game.grid.FlowField;
+import x3.model.game.objects.Monster;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A <code>MonsterAI</code> runs the {@link MonsterBrain brains} of every {@link Monster} of a game
+ * under a fixed budget per tick.
+ * <br>
+ * On every tick, {@link #think()} first runs the brains that are due in the current tick through a
+ * {@link LoadBalancingScheduler} (every brain runs once every few ticks, spread evenly over the ticks),
+ * then searches a fixed number of the queued path requests. Requests that don't fit in the budget wait for the next
+ * tick. The cost of thinking therefore doesn't grow with the number of monsters: more monsters only make individual
+ * monsters react a bit later.
+ * <br>
+ * The budget counts searches rather than time, so the decisions don't depend on the speed of the machine, and the
+ * state of the AI can be {@link #save(MonsterAISnapshot) saved} and {@link #restore(MonsterAISnapshot) restored}
+ * along with the rest of the game.
+ * <br>
+ * Every game has its own {@link MessageDispatcher}, instead of the global {@link MessageManager},
+ * so that engines can run on different threads.
+ */
+public class MonsterAI {
+    /**
+     * The default budget of the AI per tick, in path searches.
+     */
+    public static final int DEFAULT_BUDGET = 4;
+    /**
+     * Message code of path requests, sent by brains to the path finder queue.
+     */
+    public static final int PATH_REQUEST = 1;
+    /**
+     * Message code of path results, sent by the path finder queue to brains.
+     */
+    public static final int PATH_FOUND = 2;
+    /**
+     * The number of ticks between two runs of the behaviour tree of a monster.
+     */
+    public static final int THINK_FREQUENCY = 6;
+
+    final CellGrid grid;
+    final FlowField flowField;
+    final DangerMap dangerMap;
+    final float PPM;
+    final CellGraph graph;
+    final MessageDispatcher dispatcher = new MessageDispatcher();
+    final PathQueue pathQueue;
+    final Random random;
+
+    private final BrainScheduler scheduler = new BrainScheduler(THINK_FREQUENCY);
+    private final Array<MonsterBrain> allBrains = new Array<>();
+    private final IntArray phases = new IntArray();
+    private final Map<Monster, MonsterBrain> brains = new IdentityHashMap<>();
+    private final Map<Monster, MonsterBrain> retired = new IdentityHashMap<>();
+    private final int searchBudget;
+
+    /**
+     * Secondary constructor.
+     * <br>
+     * The monsters make their random decisions with a generator of their own.
+     *
+     * @param grid         the layout of the map.
+     * @param flowField    the flow field leading towards the players.
+     * @param dangerMap    the map of upcoming blasts.
+     * @param PPM          the size of a cell in {@link GameEngine game engine} units.
+     * @param searchBudget the number of path searches per tick.
+     */
+    public MonsterAI(final CellGrid grid, final FlowField flowField, final DangerMap dangerMap, float PPM, int searchBudget) {
+        this(grid, flowField, dangerMap, PPM, searchBudget, new Random());
+    }
+
+    /**
+     * Primary constructor.
+     *
+     * @param grid         the layout of the map.
+     * @param flowField    the flow field leading towards the players.
+     * @param dangerMap    the map of upcoming blasts.
+     * @param PPM          the size of a cell in {@link GameEngine game engine} units.
+     * @param searchBudget the number of path searches per tick.
+     * @param random       the random number generator of the game, used for the random decisions of the monsters.
+     */
+    public MonsterAI(final CellGrid grid, final FlowField flowField, final DangerMap dangerMap, float PPM, int searchBudget,
+                     final Random random) {
+        this.random = random;
+        this.grid = grid;
+        this.flowField = flowField;
+        this.dangerMap = dangerMap;
+        this.PPM = PPM;
+        this.searchBudget = searchBudget;
+        graph = new CellGraph(grid);
+        pathQueue = new PathQueue(new IndexedAStarPathFinder<>(graph));
+    }
+
+    /**
+     * Creates a brain for the given monster and schedules its behaviour tree.
+     *
+     * @param monster the new monster.
+     */
+    public void add(final Monster monster) {
+        MonsterBrain brain = new MonsterBrain(this, monster);
+        allBrains.add(brain);
+        brains.put(monster, brain);
+        phases.add(scheduler.addWithPhase(brain, THINK_FREQUENCY));
+    }
+
+    /**
+     * Stops steering the given monster after it died.
+     * <br>
+     * The brain is taken off the scheduler, and its queued path request is dropped. The brain is kept, in case the
+     * monster is {@link #revive(Monster) revived}.
+     *
+     * @param monster the removed monster.
+     */
+    public void remove(final Monster monster) {
+        MonsterBrain brain = brains.remove(monster);
+        if (brain != null) {
+            retired.put(monster, brain);
+            scheduler.remove(brain);
+            pathQueue.remove(brain);
+        }
+    }
+
+    /**
+     * Steers a {@link #remove(Monster) removed} monster again, when the engine restores a state from before
+     * its death.
+     * <br>
+     * The brain is scheduled again in its old phase, and among the other brains in the order they were added, so the
+     * brains due in a tick run in the same order as before the monster died.
+     *
+     * @param monster the revived monster.
+     */
+    public void revive(final Monster monster) {
+        MonsterBrain brain = retired.remove(monster);
+        if (brain != null) {
+            brains.put(monster, brain);
+            scheduler.clear();
+            for (int i = 0; i < allBrains.size; ++i) {
+                MonsterBrain scheduled = allBrains.get(i);
+                if (brains.get(scheduled.getMonster()) == scheduled) {
+                    scheduler.add(scheduled, THINK_FREQUENCY, phases.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the brains due in this tick and the oldest queued path searches, within the budget.
+     */
+    public void think() {
+        // every brain due in the tick runs, whatever the time given to the scheduler
+        scheduler.run(Long.MAX_VALUE);
+        pathQueue.run(searchBudget);
+    }
+
+    /**
+     * Saves the decision making state of every brain, and the order of the queued path requests.
+     *
+     * @param snapshot a snapshot {@link MonsterAISnapshot#MonsterAISnapshot(MonsterAI) built} for this AI,
+     *                 whose previous content is overwritten.
+     */
+    public void save(final MonsterAISnapshot snapshot) {
+        snapshot.frame = scheduler.getFrame();
+        snapshot.paths.clear();
+        for (int i = 0; i < allBrains.size; ++i) {
+            allBrains.get(i).save(snapshot, i);
+        }
+        snapshot.queue.clear();
+        for (int i = 0; i < pathQueue.size(); ++i) {
+            snapshot.queue.add(allBrains.indexOf(pathQueue.get(i), true));
+        }
+    }
+
+    /**
+     * Puts every brain back in a saved state, and queues the saved path requests again.
+     * <br>
+     * Which monsters are steered is not part of the snapshot: the engine {@link #remove(Monster) removes} and
+     * {@link #revive(Monster) revives} them along with their bodies.
+     *
+     * @param snapshot a snapshot {@link #save(MonsterAISnapshot) saved} by this AI.
+     */
+    public void restore(final MonsterAISnapshot snapshot) {
+        scheduler.setFrame(snapshot.frame);
+        int path = 0;
+        for (int i = 0; i < allBrains.size; ++i) {
+            path = allBrains.get(i).restore(snapshot, i, path);
+        }
+        pathQueue.clear();
+        for (int i = 0; i < snapshot.queue.size; ++i) {
+            pathQueue.add(allBrains.get(snapshot.queue.get(i)));
+        }
+    }
+
+    /**
+     * Lets the active state of the given monster steer it.
+     *
+     * @param monster  the monster.
+     * @param position the position of the monster's body.
+     * @param velocity the velocity of the monster's body.
+     */
+    public void steer(final Monster monster, final Vector2 position, final Vector2 velocity) {
+        MonsterBrain brain = brains.get(monster);
+        if (brain != null) {
+            brain.steer(position, velocity);
+        }
+    }
+
+    /**
+     * Returns the state the given monster is currently in.
+     *
+     * @param monster the monster.
+     * @return the active state, or null if the monster has no brain.
+     */
+    public MonsterState getState(final Monster monster) {
+        MonsterBrain brain = brains.get(monster);
+        return brain == null ? null : brain.getStateMachine().getCurrentState();
+    }
+
+    /**
+     * Returns the number of path requests waiting to be searched.
+     *
+     * @return the number of queued requests.
+     */
+    public int getQueuedPaths() {
+        return pathQueue.size();
+    }
+
+    int getBrainCount() {
+        return allBrains.size;
+    }
+
+    int getCell(final Vector2 pos, float size) {
+        return grid.index((int) Math.floor((pos.x + size / 2) / PPM), (int) Math.floor((pos.y + size / 2) / PPM));
+    }
+}
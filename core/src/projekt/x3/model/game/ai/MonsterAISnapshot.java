@@ -0,0 +1,49 @@
+package x3.model.game.ai;
+
+import com.badlogic.gdx.utils.IntArray;
+import x3.model.game.EngineSnapshot;
+
+/**
+ * A <code>MonsterAISnapshot</code> holds the decision making state of a {@link MonsterAI}, as part of an
+ * {@link EngineSnapshot}.
+ * <br>
+ * The snapshot contains:
+ * <ul>
+ *     <li>the frame of the scheduler, which decides the brains due in the next tick;</li>
+ *     <li>the {@link MonsterState state}, last seen cell, position and velocity of every brain;</li>
+ *     <li>the patrol path of every brain, with the progress along it and the pending request;</li>
+ *     <li>the order of the queued path requests.</li>
+ * </ul>
+ * Like the engine snapshot, it is built once and reused, and only allocates when paths grow longer than in every
+ * earlier state.
+ */
+public class MonsterAISnapshot {
+    /**
+     * The number of values stored per brain: cell, path index, pending flag, stuck ticks, start and end of the request.
+     */
+    static final int BRAIN_VALUES = 6;
+    static final MonsterState[] STATES = MonsterState.values();
+
+    final int[] states;
+    final int[] values;
+    final float[] motion;
+    final int[] pathLengths;
+    final IntArray paths = new IntArray();
+    final IntArray queue = new IntArray();
+    int frame;
+
+    /**
+     * Only constructor.
+     * <br>
+     * Allocates room for every brain of the given AI.
+     *
+     * @param ai the AI whose state the snapshot will hold.
+     */
+    public MonsterAISnapshot(final MonsterAI ai) {
+        int brains = ai.getBrainCount();
+        states = new int[brains];
+        values = new int[brains * BRAIN_VALUES];
+        motion = new float[brains * 4];
+        pathLengths = new int[brains];
+    }
+}
@@ -0,0 +1,294 @@
+package x3.model.game.ai;
+
+import com.badlogic.gdx.ai.btree.BehaviorTree;
+import com.badlogic.gdx.ai.btree.branch.Selector;
+import com.badlogic.gdx.ai.fsm.DefaultStateMachine;
+import com.badlogic.gdx.ai.fsm.StateMachine;
+import com.badlogic.gdx.ai.msg.Telegram;
+import com.badlogic.gdx.ai.msg.Telegraph;
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.PathFinderRequest;
+import com.badlogic.gdx.ai.sched.Schedulable;
+import com.badlogic.gdx.math.Vector2;
+import x3.model.game.grid.CellGrid;
+import x3.model.game.grid.CellNode;
+import x3.model.game.grid.DangerMap;
+import x3.model.game.objects.Monster;
+
+/**
+ * A <code>MonsterBrain</code> holds the decision making state of a single {@link Monster}.
+ * <br>
+ * Decisions are split in two parts:
+ * <ul>
+ *     <li>
+ *         The behaviour tree (flee if in danger, otherwise chase if a player is near, otherwise patrol) is
+ *         {@link Schedulable scheduled} by the {@link MonsterAI}, so it only runs every few ticks,
+ *         within the AI's time budget.
+ *     </li>
+ *     <li>
+ *         The {@link MonsterState state} chosen by the tree steers the monster on every tick.
+ *     </li>
+ * </ul>
+ * Patrol paths are requested from the path queue of the {@link MonsterAI}, and arrive as messages.
+ */
+public class MonsterBrain implements Schedulable, Telegraph {
+    private static final int FLEE_TICKS = 30;
+    private static final int PATROL_RANGE = 6;
+    private static final int STUCK_TICKS = 30;
+
+    private final MonsterAI ai;
+    private final Monster monster;
+    private final StateMachine<MonsterBrain, MonsterState> stateMachine;
+    private final BehaviorTree<MonsterBrain> tree;
+    private final PathFinderRequest<CellNode> request = new PathFinderRequest<>();
+    private final DefaultGraphPath<CellNode> path = new DefaultGraphPath<>();
+    private final Vector2 pos = new Vector2();
+    private final Vector2 vel = new Vector2();
+    private int cell = -1;
+    private int pathIndex = -1;
+    private boolean pathPending;
+    private int stuckTicks;
+
+    /**
+     * Only constructor.
+     * <br>
+     * Builds the behaviour tree and starts the state machine in {@link MonsterState#PATROL patrol}.
+     *
+     * @param ai      the AI the monster belongs to.
+     * @param monster the monster controlled by this brain.
+     */
+    public MonsterBrain(final MonsterAI ai, final Monster monster) {
+        this.ai = ai;
+        this.monster = monster;
+        stateMachine = new DefaultStateMachine<>(this, MonsterState.PATROL);
+        Selector<MonsterBrain> selector = new Selector<>();
+        selector.addChild(new EnterStateTask(MonsterState.FLEE));
+        selector.addChild(new EnterStateTask(MonsterState.CHASE));
+        selector.addChild(new EnterStateTask(MonsterState.PATROL));
+        tree = new BehaviorTree<>(selector, this);
+        request.heuristic = ai.graph.heuristic;
+        request.resultPath = path;
+        request.dispatcher = ai.dispatcher;
+        request.responseMessageCode = MonsterAI.PATH_FOUND;
+    }
+
+    /**
+     * Returns the state machine of the monster.
+     *
+     * @return the state machine.
+     */
+    public StateMachine<MonsterBrain, MonsterState> getStateMachine() {
+        return stateMachine;
+    }
+
+    /**
+     * Returns the monster controlled by this brain.
+     *
+     * @return the monster.
+     */
+    public Monster getMonster() {
+        return monster;
+    }
+
+    /**
+     * Steps the behaviour tree. Called by the scheduler of the {@link MonsterAI}.
+     *
+     * @param nanoTimeToRun the time available to this brain, which is always enough for a single step.
+     */
+    @Override
+    public void run(long nanoTimeToRun) {
+        if (!monster.isDead()) {
+            tree.step();
+        }
+    }
+
+    /**
+     * Records the current state of the monster's body and lets the active state steer the monster.
+     *
+     * @param position the position of the monster's body.
+     * @param velocity the velocity of the monster's body.
+     */
+    public void steer(final Vector2 position, final Vector2 velocity) {
+        pos.set(position);
+        vel.set(velocity);
+        cell = ai.getCell(pos, monster.getWidth());
+        stateMachine.update();
+    }
+
+    /**
+     * Receives the result of a path request.
+     *
+     * @param msg the message.
+     * @return true if the message was a path result.
+     */
+    @Override
+    public boolean handleMessage(final Telegram msg) {
+        if (msg.message != MonsterAI.PATH_FOUND) {
+            return false;
+        }
+        pathPending = false;
+        if (request.pathFound && path.getCount() > 1 && stateMachine.isInState(MonsterState.PATROL)) {
+            pathIndex = 1;
+            stuckTicks = 0;
+        } else {
+            clearPath();
+        }
+        return true;
+    }
+
+    /**
+     * Saves the decisions of the brain in the given slot of the snapshot, and appends its path to the saved paths.
+     */
+    void save(final MonsterAISnapshot snapshot, int i) {
+        snapshot.states[i] = stateMachine.getCurrentState().ordinal();
+        int values = i * MonsterAISnapshot.BRAIN_VALUES;
+        snapshot.values[values] = cell;
+        snapshot.values[values + 1] = pathIndex;
+        snapshot.values[values + 2] = pathPending ? 1 : 0;
+        snapshot.values[values + 3] = stuckTicks;
+        snapshot.values[values + 4] = request.startNode == null ? -1 : request.startNode.cell;
+        snapshot.values[values + 5] = request.endNode == null ? -1 : request.endNode.cell;
+        snapshot.motion[i * 4] = pos.x;
+        snapshot.motion[i * 4 + 1] = pos.y;
+        snapshot.motion[i * 4 + 2] = vel.x;
+        snapshot.motion[i * 4 + 3] = vel.y;
+        snapshot.pathLengths[i] = path.getCount();
+        for (int node = 0; node < path.getCount(); ++node) {
+            snapshot.paths.add(path.get(node).cell);
+        }
+    }
+
+    /**
+     * Restores the decisions of the brain from the given slot of the snapshot.
+     * <br>
+     * The state is set without entering it, as it was already entered before the snapshot was saved.
+     *
+     * @return the offset of the path of the next brain in the saved paths.
+     */
+    int restore(final MonsterAISnapshot snapshot, int i, int pathOffset) {
+        stateMachine.setInitialState(MonsterAISnapshot.STATES[snapshot.states[i]]);
+        int values = i * MonsterAISnapshot.BRAIN_VALUES;
+        cell = snapshot.values[values];
+        pathIndex = snapshot.values[values + 1];
+        pathPending = snapshot.values[values + 2] != 0;
+        stuckTicks = snapshot.values[values + 3];
+        int start = snapshot.values[values + 4];
+        int end = snapshot.values[values + 5];
+        request.startNode = start == -1 ? null : ai.graph.getNode(start);
+        request.endNode = end == -1 ? null : ai.graph.getNode(end);
+        pos.set(snapshot.motion[i * 4], snapshot.motion[i * 4 + 1]);
+        vel.set(snapshot.motion[i * 4 + 2], snapshot.motion[i * 4 + 3]);
+        path.clear();
+        for (int node = 0; node < snapshot.pathLengths[i]; ++node) {
+            path.add(ai.graph.getNode(snapshot.paths.get(pathOffset + node)));
+        }
+        return pathOffset + snapshot.pathLengths[i];
+    }
+
+    PathFinderRequest<CellNode> getRequest() {
+        return request;
+    }
+
+    boolean isInDanger() {
+        return cell != -1 && ai.dangerMap.isDangerous(cell, FLEE_TICKS);
+    }
+
+    boolean isPlayerNear() {
+        return cell != -1 && ai.flowField.getDistance(cell) <= monster.chaseRange;
+    }
+
+    void clearPath() {
+        pathIndex = -1;
+        if (!pathPending) {
+            path.clear();
+        }
+    }
+
+    /**
+     * Follows the flow field towards the nearest player.
+     */
+    void chase() {
+        if (cell == -1) {
+            return;
+        }
+        int next = ai.flowField.nextCell(cell);
+        aimAt(next == -1 ? cell : next);
+    }
+
+    /**
+     * Moves to the neighbouring cell (or stays in the cell) that a blast reaches the latest, avoiding bombs.
+     */
+    void flee() {
+        if (cell == -1) {
+            return;
+        }
+        CellGrid grid = ai.grid;
+        int best = cell;
+        int col = grid.col(cell);
+        int row = grid.row(cell);
+        best = safer(grid.index(col + 1, row), best);
+        best = safer(grid.index(col - 1, row), best);
+        best = safer(grid.index(col, row + 1), best);
+        best = safer(grid.index(col, row - 1), best);
+        aimAt(best);
+    }
+
+    private int safer(int next, int best) {
+        if (next == -1 || !ai.grid.isPassable(next) || ai.dangerMap.getBombTick(next) != DangerMap.SAFE) {
+            return best;
+        }
+        return ai.dangerMap.getBlastTick(next) > ai.dangerMap.getBlastTick(best) ? next : best;
+    }
+
+    /**
+     * Follows the current patrol path, or wanders randomly while a new path is being searched.
+     */
+    void patrol() {
+        if (pathIndex != -1 && cell != -1) {
+            if (cell == path.get(pathIndex).cell) {
+                ++pathIndex;
+            }
+            stuckTicks = vel.len2() <= 1 ? stuckTicks + 1 : 0;
+            if (pathIndex >= path.getCount() || stuckTicks > STUCK_TICKS) {
+                clearPath();
+            } else {
+                aimAt(path.get(pathIndex).cell);
+                return;
+            }
+        }
+
+        if (Math.abs(vel.x) <= 1f && Math.abs(vel.y) <= 1f) {
+            monster.setRandomDir(ai.random);
+        }
+        if (ai.random.nextInt(0, 100) == 1) {
+            monster.setRandomDir(ai.random);
+        }
+        if (!pathPending && cell != -1) {
+            requestPath();
+        }
+    }
+
+    private void requestPath() {
+        CellGrid grid = ai.grid;
+        int target = grid.index(
+            grid.col(cell) + ai.random.nextInt(-PATROL_RANGE, PATROL_RANGE + 1),
+            grid.row(cell) + ai.random.nextInt(-PATROL_RANGE, PATROL_RANGE + 1)
+        );
+        if (target == -1 || target == cell || !grid.isPassable(target)) {
+            return;
+        }
+        path.clear();
+        request.startNode = ai.graph.getNode(cell);
+        request.endNode = ai.graph.getNode(target);
+        pathPending = true;
+        ai.dispatcher.dispatchMessage(this, ai.pathQueue, MonsterAI.PATH_REQUEST, request);
+    }
+
+    /**
+     * Points the monster at the middle of the given cell, so that it stays aligned with the corridors of the map.
+     */
+    private void aimAt(int target) {
+        float offset = (ai.PPM - monster.getWidth()) / 2;
+        monster.setDir(ai.grid.col(target) * ai.PPM + offset - pos.x, ai.grid.row(target) * ai.PPM + offset - pos.y);
+    }
+}
@@ -0,0 +1,84 @@
+package x3.model.game.ai;
+
+import com.badlogic.gdx.ai.fsm.State;
+import com.badlogic.gdx.ai.fsm.StateMachine;
+import com.badlogic.gdx.ai.msg.Telegram;
+import x3.model.game.objects.Monster;
+
+/**
+ * A <code>MonsterState</code> is a state of the {@link StateMachine} of a {@link Monster}.
+ * <br>
+ * States are entered by the monster's behaviour tree (see {@link EnterStateTask}), which only runs every few ticks.
+ * While a state is active, its {@link #update} steers the monster on every tick, which is cheap since it only
+ * looks at the neighbouring cells.
+ */
+public enum MonsterState implements State<MonsterBrain> {
+    /**
+     * The monster walks along paths towards random cells near it.
+     */
+    PATROL {
+        @Override
+        public boolean applies(final MonsterBrain brain) {
+            return true;
+        }
+
+        @Override
+        public void enter(final MonsterBrain brain) {
+            brain.clearPath();
+        }
+
+        @Override
+        public void update(final MonsterBrain brain) {
+            brain.patrol();
+        }
+    },
+    /**
+     * The monster follows the flow field towards the nearest player.
+     */
+    CHASE {
+        @Override
+        public boolean applies(final MonsterBrain brain) {
+            return brain.isPlayerNear();
+        }
+
+        @Override
+        public void update(final MonsterBrain brain) {
+            brain.chase();
+        }
+    },
+    /**
+     * The monster moves away from a blast that is about to reach its cell.
+     */
+    FLEE {
+        @Override
+        public boolean applies(final MonsterBrain brain) {
+            return brain.isInDanger();
+        }
+
+        @Override
+        public void update(final MonsterBrain brain) {
+            brain.flee();
+        }
+    };
+
+    /**
+     * Returns whether the state can be entered by the monster of the given brain.
+     *
+     * @param brain the brain of the monster.
+     * @return true if the state is applicable.
+     */
+    public abstract boolean applies(MonsterBrain brain);
+
+    @Override
+    public void enter(final MonsterBrain brain) {
+    }
+
+    @Override
+    public void exit(final MonsterBrain brain) {
+    }
+
+    @Override
+    public boolean onMessage(final MonsterBrain brain, final Telegram telegram) {
+        return false;
+    }
+}
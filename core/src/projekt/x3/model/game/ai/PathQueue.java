@@ -0,0 +1,80 @@
+package x3.model.game.ai;
+
+import com.badlogic.gdx.ai.msg.Telegram;
+import com.badlogic.gdx.ai.msg.Telegraph;
+import com.badlogic.gdx.ai.pfa.PathFinder;
+import com.badlogic.gdx.ai.pfa.PathFinderQueue;
+import com.badlogic.gdx.ai.pfa.PathFinderRequest;
+import com.badlogic.gdx.utils.Queue;
+import x3.model.game.grid.CellNode;
+
+/**
+ * A <code>PathQueue</code> searches the paths requested by the {@link MonsterBrain brains} of a {@link MonsterAI},
+ * in the order they were requested, a fixed number of searches per tick.
+ * <br>
+ * Unlike a time-sliced {@link PathFinderQueue}, the searches done in a tick don't depend on the speed of the machine,
+ * so a game replays the same way after it was {@link MonsterAI#restore(MonsterAISnapshot) restored}.
+ */
+class PathQueue implements Telegraph {
+    private final PathFinder<CellNode> pathFinder;
+    private final Queue<MonsterBrain> requests = new Queue<>();
+
+    /**
+     * Only constructor.
+     *
+     * @param pathFinder the path finder searching the requests.
+     */
+    PathQueue(final PathFinder<CellNode> pathFinder) {
+        this.pathFinder = pathFinder;
+    }
+
+    /**
+     * Searches the oldest requests and sends their results to the brains that requested them.
+     *
+     * @param searches the maximum number of requests searched.
+     */
+    void run(int searches) {
+        for (int i = 0; i < searches && requests.notEmpty(); ++i) {
+            MonsterBrain brain = requests.removeFirst();
+            PathFinderRequest<CellNode> request = brain.getRequest();
+            request.pathFound = pathFinder.searchNodePath(request.startNode, request.endNode, request.heuristic,
+                request.resultPath);
+            request.dispatcher.dispatchMessage(this, brain, request.responseMessageCode, request);
+        }
+    }
+
+    /**
+     * Queues the request of the brain that sent the message.
+     *
+     * @param msg the message.
+     * @return true if the message was a path request.
+     */
+    @Override
+    public boolean handleMessage(final Telegram msg) {
+        if (msg.message != MonsterAI.PATH_REQUEST) {
+            return false;
+        }
+        requests.addLast((MonsterBrain) msg.sender);
+        return true;
+    }
+
+    void add(final MonsterBrain brain) {
+        requests.addLast(brain);
+    }
+
+    MonsterBrain get(int i) {
+        return requests.get(i);
+    }
+
+    void remove(final MonsterBrain brain) {
+        requests.removeValue(brain, true);
+    }
+
+    void clear() {
+        requests.clear();
+    }
+
+    int size() {
+        return requests.size;
+    }
+}
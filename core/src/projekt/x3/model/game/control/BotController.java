@@ -0,0 +1,150 @@
+package x3.model.game.control;
+
+import x3.model.game.GameEngine;
+import x3.model.game.grid.CellGrid;
+import x3.model.game.objects.Player;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A <code>BotController</code> lets a {@link BotPlanner} play in place of a human {@link Player}.
+ * <br>
+ * On every tick the controller {@link BotView#capture captures} the state of the game and hands it to a
+ * shared pool of worker threads, where the planner searches it for at most the time budget of the bot.
+ * The render thread never waits for the search: {@link #poll} steers the player towards the cell
+ * of the latest finished plan, so a slow search only makes the bot react later.
+ * <br>
+ * Views are double buffered: the engine writes one while the worker reads the other, and they are only
+ * swapped when the worker starts a new search.
+ */
+public class BotController implements PlayerController {
+    /**
+     * The default time budget of a search in milliseconds.
+     */
+    public static final long DEFAULT_BUDGET = 4;
+
+    private static final ExecutorService WORKERS = Executors.newFixedThreadPool(
+        Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+        task -> {
+            Thread thread = new Thread(task, "bot-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    private static final int NONE = -1;
+
+    private final BotPlanner planner;
+    private final long budgetNanos;
+    private final Runnable search = this::search;
+    private final AtomicBoolean searching = new AtomicBoolean();
+    private final AtomicInteger decision = new AtomicInteger(NONE);
+    private final Object lock = new Object();
+    private BotView captured;
+    private BotView searched;
+    private boolean fresh;
+    private volatile boolean disposed;
+
+    /**
+     * Secondary constructor.
+     * <br>
+     * Creates a bot with the {@link #DEFAULT_BUDGET default time budget} and a random seed.
+     */
+    public BotController() {
+        this(DEFAULT_BUDGET, System.nanoTime());
+    }
+
+    /**
+     * Primary constructor.
+     *
+     * @param budgetMillis the time budget of a search in milliseconds.
+     * @param seed         the seed of the bot's {@link BotPlanner planner}.
+     */
+    public BotController(long budgetMillis, long seed) {
+        planner = new BotPlanner(seed);
+        budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    }
+
+    @Override
+    public int poll(final Player player, final GameEngine engine) {
+        CellGrid grid = engine.getGrid();
+        synchronized (lock) {
+            if (captured == null) {
+                captured = new BotView(grid.getWidth(), grid.getHeight());
+                searched = new BotView(grid.getWidth(), grid.getHeight());
+            }
+            captured.capture(engine, player);
+            fresh = true;
+        }
+        if (!disposed && searching.compareAndSet(false, true)) {
+            WORKERS.execute(search);
+        }
+
+        int current = decision.get();
+        if (current == NONE) {
+            return 0;
+        }
+        int target = current >> 1;
+        int input = steer(player, grid, target, engine.getPPM());
+        // the bomb is only consumed once it's placed, unless a new plan replaced it meanwhile
+        if ((current & 1) == 1 && engine.getCell(player) == target) {
+            input |= BOMB;
+            decision.compareAndSet(current, current & ~1);
+        }
+        return input;
+    }
+
+    /**
+     * Returns the movement bits that bring the middle of the player closer to the middle of the target cell.
+     */
+    private int steer(final Player player, final CellGrid grid, int target, float PPM) {
+        float dx = (grid.col(target) + 0.5f) * PPM - (player.getX() + player.getWidth() / 2);
+        float dy = (grid.row(target) + 0.5f) * PPM - (player.getY() + player.getHeight() / 2);
+        float tolerance = PPM / 10;
+        int input = 0;
+        if (dx > tolerance) {
+            input |= RIGHT;
+        } else if (dx < -tolerance) {
+            input |= LEFT;
+        }
+        if (dy > tolerance) {
+            input |= UP;
+        } else if (dy < -tolerance) {
+            input |= DOWN;
+        }
+        return input;
+    }
+
+    /**
+     * Runs on a worker thread: searches the latest captured view, then publishes the chosen cell
+     * (and whether to place a bomb in it).
+     */
+    private void search() {
+        try {
+            BotView view;
+            synchronized (lock) {
+                if (!fresh || disposed) {
+                    return;
+                }
+                view = captured;
+                captured = searched;
+                searched = view;
+                fresh = false;
+            }
+            int option = planner.plan(view, budgetNanos, Integer.MAX_VALUE);
+            int target = BotPlanner.target(view, option);
+            if (target != -1) {
+                decision.set(target << 1 | (option == BotPlanner.PLACE_BOMB ? 1 : 0));
+            }
+        } finally {
+            searching.set(false);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+    }
+}
@@ -0,0 +1,309 @@
+package x3.model.game.control;
+
+import x3.model.game.grid.CellGrid;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A <code>BotPlanner</code> chooses the next action of a bot by running rollouts over a {@link BotView}.
+ * <br>
+ * Every option (staying, moving to a neighbouring cell, or placing a bomb) is followed by simulated walks
+ * over the grid, until every blast the option could cause has passed. A walk scores:
+ * <ul>
+ *     <li>very low, if the bot is caught by a blast, or gets next to a monster early in the walk;</li>
+ *     <li>higher for every box and opponent the placed bomb reaches;</li>
+ *     <li>higher, the closer the walk ends to the nearest opponent.</li>
+ * </ul>
+ * Each option is rated by its best walk, since the bot is free to follow the walk that was found.
+ * Walks are cheap (a few array lookups per simulated cell), and they are repeated in rounds until the time budget
+ * runs out, so the search can be stopped at any point and still give an answer. After the work arrays have been
+ * sized for a map, planning doesn't allocate memory.
+ */
+public class BotPlanner {
+    /**
+     * Option of staying in the current cell.
+     */
+    public static final int STAY = 0;
+    /**
+     * Option of moving to the cell above.
+     */
+    public static final int MOVE_UP = 1;
+    /**
+     * Option of moving to the cell below.
+     */
+    public static final int MOVE_DOWN = 2;
+    /**
+     * Option of moving to the cell on the left.
+     */
+    public static final int MOVE_LEFT = 3;
+    /**
+     * Option of moving to the cell on the right.
+     */
+    public static final int MOVE_RIGHT = 4;
+    /**
+     * Option of placing a bomb in the current cell.
+     */
+    public static final int PLACE_BOMB = 5;
+
+    private static final int OPTIONS = 6;
+    private static final int[] D_COL = { 0, 0, 0, -1, 1, 0 };
+    private static final int[] D_ROW = { 0, 1, -1, 0, 0, 0 };
+    private static final int MARGIN = 4;
+    private static final double DEATH = -1000;
+    private static final double BOX_VALUE = 10;
+    private static final double OPPONENT_VALUE = 30;
+    private static final double WASTED_BOMB = -5;
+
+    private final Random random;
+    private final boolean[] valid = new boolean[OPTIONS];
+    private final double[] best = new double[OPTIONS];
+    private final int[] candidates = new int[OPTIONS];
+    private int[] targetDistance = new int[0];
+    private int[] queue = new int[0];
+    private int rollouts;
+
+    /**
+     * Only constructor.
+     *
+     * @param seed the seed of the random walks, so that plans can be reproduced.
+     */
+    public BotPlanner(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Returns the cell the bot ends up in by choosing the given option.
+     *
+     * @param view   the view the option was chosen for.
+     * @param option one of the option constants.
+     * @return cell index, or -1 if the cell is outside the map.
+     */
+    public static int target(final BotView view, int option) {
+        CellGrid grid = view.getGrid();
+        int self = view.getSelf();
+        if (self == -1) {
+            return -1;
+        }
+        return grid.index(grid.col(self) + D_COL[option], grid.row(self) + D_ROW[option]);
+    }
+
+    /**
+     * Returns the number of walks simulated by the last call of {@link #plan}.
+     *
+     * @return the number of walks.
+     */
+    public int getRollouts() {
+        return rollouts;
+    }
+
+    /**
+     * Chooses the best option for the bot of the given view.
+     * <br>
+     * The search stops when the time budget runs out or the number of walks reaches the given maximum,
+     * whichever happens first. At least one walk of every possible option is simulated.
+     *
+     * @param view        the state of the game.
+     * @param budgetNanos the time budget of the search in nanoseconds.
+     * @param maxRollouts the maximum number of walks.
+     * @return one of the option constants.
+     */
+    public int plan(final BotView view, long budgetNanos, int maxRollouts) {
+        long deadline = System.nanoTime() + budgetNanos;
+        rollouts = 0;
+        int self = view.getSelf();
+        if (self == -1) {
+            return STAY;
+        }
+        computeTargetDistances(view);
+
+        for (int option = 0; option < OPTIONS; ++option) {
+            best[option] = Double.NEGATIVE_INFINITY;
+            valid[option] = option == STAY
+                || (option == PLACE_BOMB ? view.canPlace() : canEnter(view, target(view, option), -1));
+        }
+
+        do {
+            for (int option = 0; option < OPTIONS; ++option) {
+                if (valid[option]) {
+                    best[option] = Math.max(best[option], rollout(view, option));
+                    ++rollouts;
+                }
+            }
+        } while (rollouts < maxRollouts && System.nanoTime() < deadline);
+
+        int chosen = STAY;
+        for (int option = 1; option < OPTIONS; ++option) {
+            if (valid[option] && best[option] > best[chosen]) {
+                chosen = option;
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Simulates one walk starting with the given option, and returns its score.
+     */
+    private double rollout(final BotView view, int option) {
+        int step = view.getStepTicks();
+        int horizon = view.getFuseTicks() + (view.getRadius() + 1) * view.getSpreadTicks() + MARGIN;
+        int cell = view.getSelf();
+        int bombCell = -1;
+        double score = 0;
+        int t = 0;
+
+        if (option == PLACE_BOMB) {
+            bombCell = cell;
+            score += bombValue(view, cell);
+        } else {
+            int next = target(view, option);
+            if (isHit(view, cell, t, t + step, bombCell) || isHit(view, next, t, t + step, bombCell)) {
+                return DEATH + t;
+            }
+            cell = next;
+            t += step;
+        }
+
+        while (t < horizon) {
+            int next = randomMove(view, cell, t + step, bombCell);
+            if (isHit(view, cell, t, t + step, bombCell) || isHit(view, next, t, t + step, bombCell)) {
+                return DEATH + t;
+            }
+            cell = next;
+            t += step;
+        }
+        return score - targetDistance[cell];
+    }
+
+    /**
+     * Picks the next cell of a walk. Half of the time the walk greedily approaches the nearest opponent,
+     * otherwise it moves randomly. Cells that are going to be hit on arrival are avoided, if possible.
+     */
+    private int randomMove(final BotView view, int cell, int arrival, int bombCell) {
+        CellGrid grid = view.getGrid();
+        int count = 0;
+        int greedy = -1;
+        for (int option = 0; option < PLACE_BOMB; ++option) {
+            int next = grid.index(grid.col(cell) + D_COL[option], grid.row(cell) + D_ROW[option]);
+            if ((option == STAY || canEnter(view, next, bombCell)) && !isHit(view, next, arrival, arrival, bombCell)) {
+                candidates[count++] = next;
+                if (greedy == -1 || targetDistance[next] < targetDistance[greedy]) {
+                    greedy = next;
+                }
+            }
+        }
+        if (count == 0) {
+            return cell;
+        }
+        return random.nextBoolean() ? greedy : candidates[random.nextInt(count)];
+    }
+
+    private boolean canEnter(final BotView view, int cell, int bombCell) {
+        return cell != -1 && cell != bombCell && view.getGrid().isPassable(cell) && !view.isBomb(cell);
+    }
+
+    /**
+     * Returns whether a bot standing in the given cell between the given ticks is caught by a blast or a monster.
+     */
+    private boolean isHit(final BotView view, int cell, int from, int to, int bombCell) {
+        if (isWithin(view.getBlastTicks(cell), from, to)) {
+            return true;
+        }
+        if (bombCell != -1 && isWithin(ownBlastTicks(view, bombCell, cell), from, to)) {
+            return true;
+        }
+        return from < 3 * view.getStepTicks() && isNearMonster(view, cell);
+    }
+
+    private boolean isNearMonster(final BotView view, int cell) {
+        CellGrid grid = view.getGrid();
+        for (int option = 0; option < PLACE_BOMB; ++option) {
+            int next = grid.index(grid.col(cell) + D_COL[option], grid.row(cell) + D_ROW[option]);
+            if (next != -1 && view.isMonster(next)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isWithin(int blast, int from, int to) {
+        return blast != BotView.SAFE && blast >= from - MARGIN && blast <= to + MARGIN;
+    }
+
+    /**
+     * Returns the number of ticks until the blast of a bomb placed by the bot in this tick reaches the given cell.
+     */
+    private int ownBlastTicks(final BotView view, int bombCell, int cell) {
+        CellGrid grid = view.getGrid();
+        int dCol = grid.col(cell) - grid.col(bombCell);
+        int dRow = grid.row(cell) - grid.row(bombCell);
+        if (dCol != 0 && dRow != 0) {
+            return BotView.SAFE;
+        }
+        int distance = Math.abs(dCol + dRow);
+        if (distance > 0 && grid.rayLength(bombCell, Integer.signum(dCol), Integer.signum(dRow), view.getRadius()) < distance) {
+            return BotView.SAFE;
+        }
+        return view.getFuseTicks() + distance * view.getSpreadTicks();
+    }
+
+    private double bombValue(final BotView view, int cell) {
+        double value = bombValue(view, cell, 1, 0) + bombValue(view, cell, -1, 0)
+            + bombValue(view, cell, 0, 1) + bombValue(view, cell, 0, -1);
+        return value == 0 ? WASTED_BOMB : value;
+    }
+
+    private double bombValue(final BotView view, int cell, int dCol, int dRow) {
+        CellGrid grid = view.getGrid();
+        int length = grid.rayLength(cell, dCol, dRow, view.getRadius());
+        double value = 0;
+        for (int steps = 1; steps <= length; ++steps) {
+            int next = grid.index(grid.col(cell) + steps * dCol, grid.row(cell) + steps * dRow);
+            if (grid.isBox(next)) {
+                value += BOX_VALUE;
+            }
+            for (int i = 0; i < view.getOpponentCount(); ++i) {
+                if (view.getOpponent(i) == next) {
+                    value += OPPONENT_VALUE;
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Computes the number of steps from every cell to the nearest opponent, walking through boxes
+     * (since the bot can blow them up on the way).
+     */
+    private void computeTargetDistances(final BotView view) {
+        CellGrid grid = view.getGrid();
+        if (targetDistance.length != grid.size()) {
+            targetDistance = new int[grid.size()];
+            queue = new int[grid.size()];
+        }
+        if (view.getOpponentCount() == 0) {
+            Arrays.fill(targetDistance, 0);
+            return;
+        }
+        Arrays.fill(targetDistance, grid.size());
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < view.getOpponentCount(); ++i) {
+            int cell = view.getOpponent(i);
+            if (targetDistance[cell] != 0) {
+                targetDistance[cell] = 0;
+                queue[tail++] = cell;
+            }
+        }
+        while (head < tail) {
+            int cell = queue[head++];
+            for (int option = MOVE_UP; option < PLACE_BOMB; ++option) {
+                int next = grid.index(grid.col(cell) + D_COL[option], grid.row(cell) + D_ROW[option]);
+                if (next != -1 && !grid.isWall(next) && targetDistance[next] > targetDistance[cell] + 1) {
+                    targetDistance[next] = targetDistance[cell] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+}
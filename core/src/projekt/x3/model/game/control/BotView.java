@@ -0,0 +1,264 @@
+package x3.model.game.control;
+
+import x3.model.game.GameEngine;
+import x3.model.game.grid.CellGrid;
+import x3.model.game.grid.DangerMap;
+import x3.model.game.objects.Bomb;
+import x3.model.game.objects.Explosion;
+import x3.model.game.objects.Player;
+import x3.model.util.TickClock;
+
+import java.util.Arrays;
+
+/**
+ * A <code>BotView</code> is a lightweight copy of the state of a running game, as seen by one bot {@link Player}.
+ * <br>
+ * The view only contains flat arrays: the layout of the map, the upcoming blasts and bombs of the
+ * {@link DangerMap danger map}, and the cells of monsters and opponents. Blasts are read relative to the tick the view
+ * was captured in.
+ * Since the view is a copy, the {@link BotPlanner planner} can search it on a worker thread while the
+ * {@link GameEngine game engine} keeps running. Capturing a view doesn't allocate arrays, and copies the cells in bulk,
+ * so that it stays cheap on the render thread even on large maps.
+ */
+public class BotView {
+    /**
+     * Relative blast tick of cells that no known blast is going to reach.
+     */
+    public static final int SAFE = DangerMap.SAFE;
+
+    private final CellGrid grid;
+    // absolute ticks, as the danger map holds them
+    private final int[] blastTicks;
+    private final int[] bombTicks;
+    private final boolean[] monsters;
+    private final int[] opponents;
+    private final int fuseTicks = TickClock.toTicks(Bomb.WAIT_TIME);
+    private final int spreadTicks = TickClock.toTicks(Explosion.DELAY);
+    private int tick;
+    private int opponentCount;
+    private int self = -1;
+    private int radius;
+    private boolean canPlace;
+    private int stepTicks = 1;
+
+    /**
+     * Only constructor.
+     * <br>
+     * Creates an empty view, where every cell is empty and safe.
+     *
+     * @param width  the number of columns of the map.
+     * @param height the number of rows of the map.
+     */
+    public BotView(int width, int height) {
+        grid = new CellGrid(width, height);
+        blastTicks = new int[grid.size()];
+        bombTicks = new int[grid.size()];
+        monsters = new boolean[grid.size()];
+        opponents = new int[grid.size()];
+        clear();
+    }
+
+    /**
+     * Overwrites this view with the current state of the given game.
+     * <br>
+     * Must be called on the thread running the {@link GameEngine game engine}.
+     *
+     * @param engine the engine running the game.
+     * @param player the bot the view is captured for.
+     */
+    public void capture(final GameEngine engine, final Player player) {
+        grid.copyFrom(engine.getGrid());
+        engine.getDangerMap().copyTicks(blastTicks, bombTicks);
+        tick = engine.getTick();
+        Arrays.fill(monsters, false);
+        opponentCount = 0;
+        engine.getMonsters().forEach(monster -> addMonster(engine.getCell(monster)));
+        engine.getPlayers()
+            .filter(other -> other != player)
+            .forEach(other -> addOpponent(engine.getCell(other)));
+        setSelf(engine.getCell(player), player.bombRadius, player.canPlace(),
+            (int) Math.ceil(TickClock.TICKS_PER_SECOND * engine.getPPM() / player.moveSpeed));
+    }
+
+    /**
+     * Resets every cell of this view to safe, and removes bombs, monsters and opponents.
+     * The layout of the map is kept.
+     */
+    public void clear() {
+        Arrays.fill(blastTicks, SAFE);
+        Arrays.fill(bombTicks, SAFE);
+        Arrays.fill(monsters, false);
+        tick = 0;
+        opponentCount = 0;
+        self = -1;
+    }
+
+    /**
+     * Returns the layout of the map.
+     *
+     * @return the {@link CellGrid} of this view.
+     */
+    public CellGrid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Returns the number of ticks until a blast reaches the given cell.
+     *
+     * @param cell cell index.
+     * @return the number of ticks, or {@link #SAFE} if no blast is expected.
+     */
+    public int getBlastTicks(int cell) {
+        int blast = blastTicks[cell];
+        return blast == SAFE || blast < tick ? SAFE : blast - tick;
+    }
+
+    /**
+     * Sets the number of ticks until a blast reaches the given cell.
+     *
+     * @param cell  cell index.
+     * @param ticks the number of ticks, or {@link #SAFE}.
+     */
+    public void setBlastTicks(int cell, int ticks) {
+        blastTicks[cell] = ticks == SAFE ? SAFE : tick + ticks;
+    }
+
+    /**
+     * Returns whether the given cell contains a bomb.
+     *
+     * @param cell cell index.
+     * @return true if a bomb was placed in the cell.
+     */
+    public boolean isBomb(int cell) {
+        return bombTicks[cell] != SAFE;
+    }
+
+    /**
+     * Records a bomb in the given cell.
+     *
+     * @param cell cell index.
+     */
+    public void addBomb(int cell) {
+        bombTicks[cell] = tick;
+    }
+
+    /**
+     * Returns whether the given cell contains a monster.
+     *
+     * @param cell cell index.
+     * @return true if a monster is in the cell.
+     */
+    public boolean isMonster(int cell) {
+        return monsters[cell];
+    }
+
+    /**
+     * Records a monster in the given cell. Cells outside the map are ignored.
+     *
+     * @param cell cell index, or -1.
+     */
+    public void addMonster(int cell) {
+        if (cell != -1) {
+            monsters[cell] = true;
+        }
+    }
+
+    /**
+     * Returns the number of opponents recorded in this view.
+     *
+     * @return the number of opponents.
+     */
+    public int getOpponentCount() {
+        return opponentCount;
+    }
+
+    /**
+     * Returns the cell of an opponent.
+     *
+     * @param i the index of the opponent, less than {@link #getOpponentCount()}.
+     * @return cell index.
+     */
+    public int getOpponent(int i) {
+        return opponents[i];
+    }
+
+    /**
+     * Records an opponent in the given cell. Cells outside the map are ignored.
+     *
+     * @param cell cell index, or -1.
+     */
+    public void addOpponent(int cell) {
+        if (cell != -1 && opponentCount < opponents.length) {
+            opponents[opponentCount++] = cell;
+        }
+    }
+
+    /**
+     * Records the state of the bot itself.
+     *
+     * @param cell      the cell of the bot, or -1 if it is outside the map.
+     * @param radius    the radius of the bombs the bot places.
+     * @param canPlace  whether the bot can place a bomb.
+     * @param stepTicks the number of ticks the bot needs to walk over one cell.
+     */
+    public void setSelf(int cell, int radius, boolean canPlace, int stepTicks) {
+        this.self = cell;
+        this.radius = radius;
+        this.canPlace = canPlace;
+        this.stepTicks = Math.max(1, stepTicks);
+    }
+
+    /**
+     * Returns the cell of the bot.
+     *
+     * @return cell index, or -1 if the bot is outside the map.
+     */
+    public int getSelf() {
+        return self;
+    }
+
+    /**
+     * Returns the radius of the bombs the bot places.
+     *
+     * @return the bomb radius.
+     */
+    public int getRadius() {
+        return radius;
+    }
+
+    /**
+     * Returns whether the bot can place a bomb in its cell.
+     *
+     * @return true if the bot has bombs left and its cell is free of bombs.
+     */
+    public boolean canPlace() {
+        return canPlace && self != -1 && !isBomb(self);
+    }
+
+    /**
+     * Returns the number of ticks the bot needs to walk over one cell.
+     *
+     * @return the number of ticks.
+     */
+    public int getStepTicks() {
+        return stepTicks;
+    }
+
+    /**
+     * Returns the number of ticks a newly placed bomb waits before blowing up.
+     *
+     * @return the number of ticks.
+     */
+    public int getFuseTicks() {
+        return fuseTicks;
+    }
+
+    /**
+     * Returns the number of ticks a blast needs to spread over one cell.
+     *
+     * @return the number of ticks.
+     */
+    public int getSpreadTicks() {
+        return spreadTicks;
+    }
+}
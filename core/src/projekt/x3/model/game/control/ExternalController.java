@@ -0,0 +1,37 @@
+package x3.model.game.control;
+
+import x3.model.game.GameEngine;
+import x3.model.game.objects.Player;
+
+/**
+ * An <code>ExternalController</code> returns the input most recently handed to it by code outside the engine
+ * (e.g. a training loop, or a remote client).
+ * <br>
+ * The input is kept until it is replaced, so the player keeps doing the same thing on every tick.
+ */
+public class ExternalController implements PlayerController {
+    private volatile int input;
+
+    /**
+     * Sets the input returned on the following ticks.
+     *
+     * @param input a bitmask of the action constants of {@link PlayerController}.
+     */
+    public void setInput(int input) {
+        this.input = input;
+    }
+
+    /**
+     * Returns the input currently set.
+     *
+     * @return a bitmask of the action constants of {@link PlayerController}.
+     */
+    public int getInput() {
+        return input;
+    }
+
+    @Override
+    public int poll(final Player player, final GameEngine engine) {
+        return input;
+    }
+}
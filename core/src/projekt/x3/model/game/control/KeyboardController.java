@@ -0,0 +1,35 @@
+package x3.model.game.control;
+
+import com.badlogic.gdx.Gdx;
+import x3.model.game.GameEngine;
+import x3.model.game.objects.Player;
+import x3.model.util.KeybindManager;
+
+/**
+ * A <code>KeyboardController</code> reads the input of a human {@link Player}
+ * from the keys bound to it by the {@link KeybindManager}.
+ * <br>
+ * Movement keys are active for as long as they are held down, the bomb key only in the tick it was pressed.
+ */
+public class KeyboardController implements PlayerController {
+    @Override
+    public int poll(final Player player, final GameEngine engine) {
+        int input = 0;
+        if (Gdx.input.isKeyPressed(player.upKey)) {
+            input |= UP;
+        }
+        if (Gdx.input.isKeyPressed(player.downKey)) {
+            input |= DOWN;
+        }
+        if (Gdx.input.isKeyPressed(player.leftKey)) {
+            input |= LEFT;
+        }
+        if (Gdx.input.isKeyPressed(player.rightKey)) {
+            input |= RIGHT;
+        }
+        if (Gdx.input.isKeyJustPressed(player.bombKey)) {
+            input |= BOMB;
+        }
+        return input;
+    }
+}
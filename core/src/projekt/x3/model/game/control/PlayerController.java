@@ -0,0 +1,51 @@
+package x3.model.game.control;
+
+import x3.model.game.GameEngine;
+import x3.model.game.objects.Player;
+
+/**
+ * A <code>PlayerController</code> decides the movement and bomb placement of a {@link Player} on every tick.
+ * <br>
+ * The {@link GameEngine game engine} asks the controller of every living player for its input once per tick,
+ * and applies the returned actions the same way for humans and bots.
+ * Inputs are returned as a bitmask of the action constants declared by this interface.
+ */
+public interface PlayerController {
+    /**
+     * Action bit of upwards movement.
+     */
+    int UP = 1;
+    /**
+     * Action bit of downwards movement.
+     */
+    int DOWN = 1 << 1;
+    /**
+     * Action bit of left movement.
+     */
+    int LEFT = 1 << 2;
+    /**
+     * Action bit of right movement.
+     */
+    int RIGHT = 1 << 3;
+    /**
+     * Action bit of bomb placement.
+     */
+    int BOMB = 1 << 4;
+
+    /**
+     * Returns the actions the given {@link Player} takes in the current tick.
+     * <br>
+     * Called by the {@link GameEngine game engine} on the render thread, so implementations must return quickly.
+     *
+     * @param player the player being controlled.
+     * @param engine the engine running the game.
+     * @return a bitmask of {@link #UP}, {@link #DOWN}, {@link #LEFT}, {@link #RIGHT} and {@link #BOMB}.
+     */
+    int poll(Player player, GameEngine engine);
+
+    /**
+     * Releases the resources held by this controller. Called when the game ends.
+     */
+    default void dispose() {
+    }
+}
@@ -0,0 +1,500 @@
+package x3.model.game.env;
+
+import com.badlogic.gdx.physics.box2d.Box2D;
+import com.badlogic.gdx.utils.Disposable;
+import x3.DetonatorCircle;
+import x3.model.effect.Effect;
+import x3.model.effect.buff.BiggerBombEffect;
+import x3.model.effect.buff.BonusBombEffect;
+import x3.model.effect.debuff.ForcedBombsEffect;
+import x3.model.effect.debuff.NoBombsEffect;
+import x3.model.effect.debuff.SlowEffect;
+import x3.model.effect.debuff.SmallBombEffect;
+import x3.model.game.GameEngine;
+import x3.model.game.control.ExternalController;
+import x3.model.game.control.PlayerController;
+import x3.model.game.grid.CellGrid;
+import x3.model.game.grid.DangerMap;
+import x3.model.game.objects.Monster;
+import x3.model.game.objects.Player;
+import x3.model.map.GameMap;
+import x3.model.util.TickClock;
+
+import java.util.List;
+import java.util.concurrent.Phaser;
+import java.util.function.Supplier;
+
+/**
+ * A <code>VectorEnv</code> hosts a number of independent, headless {@link GameEngine game engines},
+ * and steps all of them with a single call, so that bots can be trained without rendering the game.
+ * <br>
+ * Every environment is controlled through {@link ExternalController external controllers}: the action array passed to
+ * {@link #step(int[])} contains one {@link PlayerController action bitmask} per player of every environment.
+ * After every step, the results are written into buffers that are allocated once and reused:
+ * <ul>
+ *     <li>{@link #getObservations() observations}: one grid per {@link #CHANNELS channel} for every environment;</li>
+ *     <li>{@link #getPlayerFeatures() player features}: a few numbers describing the state of every player;</li>
+ *     <li>{@link #getRewards() rewards}: -1 for dying, +1 for winning the round, 0 otherwise;</li>
+ *     <li>{@link #getDones() dones}: whether the round of the environment ended in the step.</li>
+ * </ul>
+ * Environments whose round ended are reset automatically, and their observation describes the new round.
+ * <br>
+ * Environments are split evenly between worker threads, which are started once and synchronized with a
+ * {@link Phaser} on every step.
+ */
+public class VectorEnv implements Disposable {
+    /**
+     * Channel of walls: 1 if the cell contains a wall.
+     */
+    public static final int WALLS = 0;
+    /**
+     * Channel of boxes: 1 if the cell contains a box.
+     */
+    public static final int BOXES = 1;
+    /**
+     * Channel of bombs: the number of ticks until the bomb in the cell blows up, or 0 if there is no bomb.
+     */
+    public static final int BOMBS = 2;
+    /**
+     * Channel of danger: 1 + the number of ticks until a blast reaches the cell, or 0 if the cell is safe.
+     */
+    public static final int DANGER = 3;
+    /**
+     * Channel of players: 1 + the {@link Player#ind index} of the player in the cell, or 0 if there is none.
+     */
+    public static final int PLAYERS = 4;
+    /**
+     * Channel of monsters: the number of monsters in the cell.
+     */
+    public static final int MONSTERS = 5;
+    /**
+     * Channel of effects: 1 + the index of the effect's type in {@link #EFFECT_TYPES}, or 0 if there is none.
+     */
+    public static final int EFFECTS = 6;
+    /**
+     * The number of channels of an observation.
+     */
+    public static final int CHANNELS = 7;
+    /**
+     * The number of features describing a player: alive (0 or 1), bombs left, bomb radius, movement speed.
+     */
+    public static final int PLAYER_FEATURES = 4;
+    /**
+     * The types of effects, in the order used by the {@link #EFFECTS} channel.
+     */
+    public static final List<Class<? extends Effect>> EFFECT_TYPES = List.of(
+        BonusBombEffect.class, BiggerBombEffect.class,
+        ForcedBombsEffect.class, NoBombsEffect.class, SlowEffect.class, SmallBombEffect.class
+    );
+
+    private static final float PPM = 5;
+
+    private final int envCount;
+    private final int playerCount;
+    private final int ticksPerStep;
+    private final int maxTicks;
+    private final int width;
+    private final int height;
+    private final int cells;
+
+    private final DetonatorCircle[] games;
+    private final GameMap[] maps;
+    private final GameEngine[] engines;
+    private final ExternalController[] controllers;
+    private final boolean[] alive;
+    private final int[] wins;
+
+    private final short[] observations;
+    private final short[] playerFeatures;
+    private final float[] rewards;
+    private final boolean[] dones;
+
+    private final Thread[] workers;
+    private final Phaser phaser;
+    private int[] actions;
+    private volatile boolean closed;
+    private volatile Throwable failure;
+
+    /**
+     * Secondary constructor.
+     * <br>
+     * Every step simulates a single tick, and rounds are cut off after 3 minutes of game time.
+     * One worker thread is used per available processor.
+     *
+     * @param envCount    the number of environments.
+     * @param playerCount the number of players in every environment (2 or 3).
+     * @param maps        supplies a separate map for every environment. Every map must have the same size.
+     */
+    public VectorEnv(int envCount, int playerCount, final Supplier<GameMap> maps) {
+        this(envCount, playerCount, maps, 1, 180 * TickClock.TICKS_PER_SECOND,
+            Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Primary constructor.
+     * <br>
+     * Creates the engines of every environment, writes their initial observations, and starts the worker threads.
+     *
+     * @param envCount     the number of environments.
+     * @param playerCount  the number of players in every environment (2 or 3).
+     * @param maps         supplies a separate map for every environment. Every map must have the same size.
+     * @param ticksPerStep the number of ticks simulated by a step, with the same actions.
+     * @param maxTicks     the number of ticks after which a round is ended, even if it has no winner.
+     * @param threads      the number of worker threads. With a single thread, steps run on the calling thread.
+     * @throws IllegalArgumentException if the maps differ in size, or the player count is not 2 or 3.
+     */
+    public VectorEnv(int envCount, int playerCount, final Supplier<GameMap> maps, int ticksPerStep, int maxTicks, int threads) {
+        if (playerCount != 2 && playerCount != 3) {
+            throw new IllegalArgumentException("Player count must be 2 or 3");
+        }
+        Box2D.init();
+        this.envCount = envCount;
+        this.playerCount = playerCount;
+        this.ticksPerStep = Math.max(1, ticksPerStep);
+        this.maxTicks = maxTicks;
+
+        games = new DetonatorCircle[envCount];
+        this.maps = new GameMap[envCount];
+        engines = new GameEngine[envCount];
+        controllers = new ExternalController[envCount * playerCount];
+        alive = new boolean[envCount * playerCount];
+        wins = new int[envCount * playerCount];
+
+        for (int env = 0; env < envCount; ++env) {
+            this.maps[env] = maps.get();
+            games[env] = new DetonatorCircle(0, 0);
+            if (playerCount == 2) {
+                games[env].setPlayerCount2();
+            } else {
+                games[env].setPlayerCount3();
+            }
+            for (int p = 0; p < playerCount; ++p) {
+                controllers[env * playerCount + p] = new ExternalController();
+            }
+        }
+        width = this.maps[0].getMapWidth();
+        height = this.maps[0].getMapHeight();
+        cells = width * height;
+        for (GameMap map : this.maps) {
+            if (map.getMapWidth() != width || map.getMapHeight() != height) {
+                throw new IllegalArgumentException("Maps must have the same size");
+            }
+        }
+
+        observations = new short[envCount * CHANNELS * cells];
+        playerFeatures = new short[envCount * playerCount * PLAYER_FEATURES];
+        rewards = new float[envCount * playerCount];
+        dones = new boolean[envCount];
+
+        for (int env = 0; env < envCount; ++env) {
+            reset(env);
+            observe(env);
+        }
+
+        int workerCount = Math.max(1, Math.min(threads, envCount));
+        phaser = new Phaser(workerCount == 1 ? 0 : workerCount + 1);
+        workers = new Thread[workerCount == 1 ? 0 : workerCount];
+        for (int w = 0; w < workers.length; ++w) {
+            int from = envCount * w / workers.length;
+            int to = envCount * (w + 1) / workers.length;
+            workers[w] = new Thread(() -> work(from, to), "vector-env-" + w);
+            workers[w].setDaemon(true);
+            workers[w].start();
+        }
+    }
+
+    /**
+     * Steps every environment with the given actions.
+     * <br>
+     * The action of player <code>p</code> in environment <code>e</code> is
+     * <code>actions[e * playerCount + p]</code>. The method returns when every environment has been stepped,
+     * and the buffers have been updated.
+     *
+     * @param actions a bitmask of {@link PlayerController} action constants for every player of every environment.
+     * @throws IllegalArgumentException if the length of the array doesn't match the number of players.
+     * @throws IllegalStateException    if stepping an environment has failed.
+     */
+    public void step(final int[] actions) {
+        if (actions.length != envCount * playerCount) {
+            throw new IllegalArgumentException("Expected " + envCount * playerCount + " actions");
+        }
+        this.actions = actions;
+        if (workers.length == 0) {
+            stepRange(0, envCount);
+        } else {
+            phaser.arriveAndAwaitAdvance();
+            phaser.arriveAndAwaitAdvance();
+        }
+        Throwable error = failure;
+        if (error != null) {
+            throw new IllegalStateException("Stepping an environment failed", error);
+        }
+    }
+
+    /**
+     * Ends the round of every environment, starts new ones and writes their observations.
+     */
+    public void reset() {
+        for (int env = 0; env < envCount; ++env) {
+            reset(env);
+            observe(env);
+        }
+    }
+
+    private void work(int from, int to) {
+        while (true) {
+            phaser.arriveAndAwaitAdvance();
+            if (closed) {
+                phaser.arriveAndDeregister();
+                return;
+            }
+            try {
+                stepRange(from, to);
+            } catch (Throwable t) {
+                failure = t;
+            }
+            phaser.arriveAndAwaitAdvance();
+        }
+    }
+
+    private void stepRange(int from, int to) {
+        for (int env = from; env < to; ++env) {
+            stepEnv(env);
+        }
+    }
+
+    private void stepEnv(int env) {
+        GameEngine engine = engines[env];
+        int offset = env * playerCount;
+        for (int p = 0; p < playerCount; ++p) {
+            controllers[offset + p].setInput(actions[offset + p]);
+            rewards[offset + p] = 0;
+        }
+        for (int t = 0; t < ticksPerStep && !engine.isGameEnded(); ++t) {
+            engine.step(1 / 60f);
+        }
+
+        int[] wonRounds = games[env].wonRounds;
+        for (int p = 0; p < playerCount; ++p) {
+            boolean living = engine.getPlayer(p) != null;
+            if (alive[offset + p] && !living) {
+                rewards[offset + p] -= 1;
+            }
+            if (wonRounds[p] != wins[offset + p]) {
+                rewards[offset + p] += 1;
+            }
+        }
+        dones[env] = engine.isGameEnded() || engine.getTick() >= maxTicks;
+        if (dones[env]) {
+            reset(env);
+        }
+        observe(env);
+    }
+
+    /**
+     * Replaces the engine of the given environment with a new one, on a freshly shuffled map.
+     */
+    private void reset(int env) {
+        if (engines[env] != null) {
+            engines[env].dispose();
+        }
+        maps[env].shuffle();
+        games[env].wonRounds = new int[] { 0, 0, 0 };
+        engines[env] = new GameEngine(games[env], maps[env], PPM);
+        for (int p = 0; p < playerCount; ++p) {
+            engines[env].setController(p, controllers[env * playerCount + p]);
+            alive[env * playerCount + p] = true;
+            wins[env * playerCount + p] = 0;
+        }
+    }
+
+    /**
+     * Encodes the state of the given environment into the observation and player feature buffers.
+     */
+    private void observe(int env) {
+        GameEngine engine = engines[env];
+        CellGrid grid = engine.getGrid();
+        DangerMap dangerMap = engine.getDangerMap();
+        int tick = engine.getTick();
+        int base = env * CHANNELS * cells;
+
+        for (int cell = 0; cell < cells; ++cell) {
+            observations[base + WALLS * cells + cell] = (short) (grid.isWall(cell) ? 1 : 0);
+            observations[base + BOXES * cells + cell] = (short) (grid.isBox(cell) ? 1 : 0);
+            int bombTick = dangerMap.getBombTick(cell);
+            observations[base + BOMBS * cells + cell] = bombTick == DangerMap.SAFE ? 0 : clamp(Math.max(1, bombTick - tick));
+            int blastTick = dangerMap.getBlastTick(cell);
+            observations[base + DANGER * cells + cell] = blastTick == DangerMap.SAFE ? 0 : clamp(blastTick - tick + 1);
+            observations[base + PLAYERS * cells + cell] = 0;
+            observations[base + MONSTERS * cells + cell] = 0;
+            observations[base + EFFECTS * cells + cell] = 0;
+        }
+
+        for (int p = 0; p < playerCount; ++p) {
+            Player player = engine.getPlayer(p);
+            int features = (env * playerCount + p) * PLAYER_FEATURES;
+            alive[env * playerCount + p] = player != null;
+            if (player == null) {
+                playerFeatures[features] = 0;
+                playerFeatures[features + 1] = 0;
+                playerFeatures[features + 2] = 0;
+                playerFeatures[features + 3] = 0;
+                continue;
+            }
+            int cell = engine.getCell(player);
+            if (cell != -1) {
+                observations[base + PLAYERS * cells + cell] = (short) (p + 1);
+            }
+            playerFeatures[features] = 1;
+            playerFeatures[features + 1] = (short) Math.max(0, player.bombsMax - player.bombsPlaced);
+            playerFeatures[features + 2] = (short) player.bombRadius;
+            playerFeatures[features + 3] = (short) player.moveSpeed;
+        }
+        for (int p = 0; p < playerCount; ++p) {
+            wins[env * playerCount + p] = games[env].wonRounds[p];
+        }
+
+        for (int i = 0; i < engine.getMonsterCount(); ++i) {
+            Monster monster = engine.getMonster(i);
+            int cell = engine.getCell(monster);
+            if (cell != -1) {
+                observations[base + MONSTERS * cells + cell]++;
+            }
+        }
+        for (int i = 0; i < engine.getEffectCount(); ++i) {
+            Effect effect = engine.getEffect(i);
+            int cell = engine.getCell(effect);
+            if (cell != -1) {
+                observations[base + EFFECTS * cells + cell] = (short) (EFFECT_TYPES.indexOf(effect.getClass()) + 1);
+            }
+        }
+    }
+
+    private static short clamp(int value) {
+        return (short) Math.min(value, Short.MAX_VALUE);
+    }
+
+    /**
+     * Returns the observation buffer.
+     * <br>
+     * The value of channel <code>c</code> at cell index <code>i</code> of environment <code>e</code> is stored at
+     * {@link #index(int, int, int) index(e, c, i)}. Cells are indexed the same way as in {@link CellGrid}.
+     *
+     * @return the observation buffer, updated in place by every step.
+     */
+    public short[] getObservations() {
+        return observations;
+    }
+
+    /**
+     * Returns the index of a value in the {@link #getObservations() observation buffer}.
+     *
+     * @param env     the index of the environment.
+     * @param channel one of the channel constants.
+     * @param cell    the cell index.
+     * @return the index in the buffer.
+     */
+    public int index(int env, int channel, int cell) {
+        return (env * CHANNELS + channel) * cells + cell;
+    }
+
+    /**
+     * Returns the player feature buffer.
+     * <br>
+     * The features of player <code>p</code> of environment <code>e</code> start at
+     * <code>(e * playerCount + p) * {@link #PLAYER_FEATURES}</code>.
+     *
+     * @return the player feature buffer, updated in place by every step.
+     */
+    public short[] getPlayerFeatures() {
+        return playerFeatures;
+    }
+
+    /**
+     * Returns the reward buffer, with one reward per player of every environment.
+     *
+     * @return the reward buffer, updated in place by every step.
+     */
+    public float[] getRewards() {
+        return rewards;
+    }
+
+    /**
+     * Returns the done buffer, with one flag per environment.
+     *
+     * @return the done buffer, updated in place by every step.
+     */
+    public boolean[] getDones() {
+        return dones;
+    }
+
+    /**
+     * Returns the number of environments.
+     *
+     * @return the number of environments.
+     */
+    public int getEnvCount() {
+        return envCount;
+    }
+
+    /**
+     * Returns the number of players in every environment.
+     *
+     * @return the number of players.
+     */
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    /**
+     * Returns the number of columns of the maps.
+     *
+     * @return the width of the observation grids.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the number of rows of the maps.
+     *
+     * @return the height of the observation grids.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the engine currently running the given environment.
+     *
+     * @param env the index of the environment.
+     * @return the engine of the environment.
+     */
+    public GameEngine getEngine(int env) {
+        return engines[env];
+    }
+
+    /**
+     * Stops the worker threads and disposes every engine.
+     */
+    @Override
+    public void dispose() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (workers.length > 0) {
+            phaser.arriveAndDeregister();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (GameEngine engine : engines) {
+            engine.dispose();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package x3.model.game.grid;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedGraph;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * A <code>CellGraph</code> exposes the passable cells of a {@link CellGrid} as a gdx-ai {@link IndexedGraph},
+ * so that paths can be searched with an {@link IndexedAStarPathFinder}.
+ * <br>
+ * Connections are looked up in the grid whenever they are requested, so the graph follows the grid
+ * when boxes are destroyed without having to be rebuilt.
+ */
+public class CellGraph implements IndexedGraph<CellNode> {
+    /**
+     * Manhattan distance between two cells, which never overestimates the walking distance.
+     */
+    public final Heuristic<CellNode> heuristic;
+
+    private final CellGrid grid;
+    private final CellNode[] nodes;
+    private final Array<Connection<CellNode>> connections = new Array<>(4);
+
+    /**
+     * Only constructor.
+     * <br>
+     * Creates the nodes and connections of every cell.
+     *
+     * @param grid the grid describing which cells are passable.
+     */
+    public CellGraph(final CellGrid grid) {
+        this.grid = grid;
+        nodes = new CellNode[grid.size()];
+        for (int cell = 0; cell < nodes.length; ++cell) {
+            nodes[cell] = new CellNode(cell);
+        }
+        for (CellNode node : nodes) {
+            int col = grid.col(node.cell);
+            int row = grid.row(node.cell);
+            connect(node, 0, grid.index(col + 1, row));
+            connect(node, 1, grid.index(col - 1, row));
+            connect(node, 2, grid.index(col, row + 1));
+            connect(node, 3, grid.index(col, row - 1));
+        }
+        heuristic = (node, endNode) -> Math.abs(grid.col(node.cell) - grid.col(endNode.cell))
+            + Math.abs(grid.row(node.cell) - grid.row(endNode.cell));
+    }
+
+    private void connect(final CellNode node, int direction, int neighbour) {
+        if (neighbour != -1) {
+            node.connect(direction, nodes[neighbour]);
+        }
+    }
+
+    /**
+     * Returns the node of the given cell.
+     *
+     * @param cell cell index.
+     * @return the node of the cell.
+     */
+    public CellNode getNode(int cell) {
+        return nodes[cell];
+    }
+
+    @Override
+    public int getIndex(final CellNode node) {
+        return node.cell;
+    }
+
+    @Override
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    /**
+     * Returns the connections towards the passable neighbours of the given node.
+     * <br>
+     * The returned array is reused by the next call, as path finders only iterate it once.
+     *
+     * @param fromNode the node whose neighbours are requested.
+     * @return the connections of the node.
+     */
+    @Override
+    public Array<Connection<CellNode>> getConnections(final CellNode fromNode) {
+        connections.clear();
+        for (Connection<CellNode> connection : fromNode.neighbours) {
+            if (connection != null && grid.isPassable(connection.getToNode().cell)) {
+                connections.add(connection);
+            }
+        }
+        return connections;
+    }
+}
@@ -0,0 +1,253 @@
+package x3.model.game.grid;
+
+import x3.model.game.GameEngine;
+import x3.model.game.objects.Box;
+import x3.model.game.objects.Wall;
+import x3.model.map.GameMap;
+import x3.model.util.Pair;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A <code>CellGrid</code> is a primitive, row-major description of the static layout of a running game.
+ * <br>
+ * Every cell of the map is stored as a single byte, describing whether it contains a {@link Wall},
+ * a {@link Box} or nothing. Cells are addressed by a single integer index, so that grid based algorithms
+ * (e.g. {@link FlowField flow fields}) can work on flat arrays instead of {@link Pair} objects.
+ * <br>
+ * The grid is kept up to date by the {@link GameEngine game engine} when boxes are destroyed.
+ */
+public class CellGrid {
+    /**
+     * Tile value of cells that contain neither walls nor boxes.
+     */
+    public static final byte EMPTY = 0;
+    /**
+     * Tile value of cells that contain a {@link Wall}.
+     */
+    public static final byte WALL = 1;
+    /**
+     * Tile value of cells that contain a {@link Box}.
+     */
+    public static final byte BOX = 2;
+
+    private final int width;
+    private final int height;
+    private final byte[] tiles;
+
+    /**
+     * Creates an empty grid.
+     *
+     * @param width  the number of columns.
+     * @param height the number of rows.
+     */
+    public CellGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.tiles = new byte[width * height];
+    }
+
+    /**
+     * Creates a grid from the walls and boxes of the given map.
+     *
+     * @param map the map describing the layout.
+     */
+    public CellGrid(final GameMap map) {
+        this(map.getMapWidth(), map.getMapHeight());
+        map.getWalls().forEach(pair -> set(pair.col, pair.row, WALL));
+        map.getBoxes().forEach(pair -> set(pair.col, pair.row, BOX));
+    }
+
+    /**
+     * Returns the number of columns.
+     *
+     * @return the width of the grid.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the height of the grid.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the number of cells.
+     *
+     * @return the number of cells.
+     */
+    public int size() {
+        return tiles.length;
+    }
+
+    /**
+     * Returns whether the given column and row are within the bounds of the grid.
+     *
+     * @param col column index.
+     * @param row row index.
+     * @return true if the cell exists.
+     */
+    public boolean inBounds(int col, int row) {
+        return col >= 0 && col < width && row >= 0 && row < height;
+    }
+
+    /**
+     * Returns the index of the cell at the given column and row.
+     *
+     * @param col column index.
+     * @param row row index.
+     * @return the cell index, or -1 if the cell is out of bounds.
+     */
+    public int index(int col, int row) {
+        return inBounds(col, row) ? row * width + col : -1;
+    }
+
+    /**
+     * Returns the column of the given cell index.
+     *
+     * @param cell cell index.
+     * @return column index.
+     */
+    public int col(int cell) {
+        return cell % width;
+    }
+
+    /**
+     * Returns the row of the given cell index.
+     *
+     * @param cell cell index.
+     * @return row index.
+     */
+    public int row(int cell) {
+        return cell / width;
+    }
+
+    /**
+     * Returns the tile value of the given cell.
+     *
+     * @param cell cell index.
+     * @return one of {@link #EMPTY}, {@link #WALL} or {@link #BOX}.
+     */
+    public byte get(int cell) {
+        return tiles[cell];
+    }
+
+    /**
+     * Sets the tile value at the given column and row. Out of bounds positions are ignored.
+     *
+     * @param col  column index.
+     * @param row  row index.
+     * @param tile one of {@link #EMPTY}, {@link #WALL} or {@link #BOX}.
+     */
+    public void set(int col, int row, byte tile) {
+        if (inBounds(col, row)) {
+            tiles[row * width + col] = tile;
+        }
+    }
+
+    /**
+     * Returns whether moving objects can pass through the given cell.
+     *
+     * @param cell cell index.
+     * @return true if the cell contains neither a wall nor a box.
+     */
+    public boolean isPassable(int cell) {
+        return tiles[cell] == EMPTY;
+    }
+
+    /**
+     * Returns whether the given cell contains a wall.
+     *
+     * @param cell cell index.
+     * @return true if the cell contains a wall.
+     */
+    public boolean isWall(int cell) {
+        return tiles[cell] == WALL;
+    }
+
+    /**
+     * Returns whether the given cell contains a box.
+     *
+     * @param cell cell index.
+     * @return true if the cell contains a box.
+     */
+    public boolean isBox(int cell) {
+        return tiles[cell] == BOX;
+    }
+
+    /**
+     * Returns the number of cells a blast reaches from the given cell in one direction.
+     * <br>
+     * The blast spreads until it has covered <code>radius</code> cells, or until it reaches a wall (which is not
+     * covered) or a box (which is covered, but stops the blast).
+     *
+     * @param cell   cell index of the origin.
+     * @param dCol   horizontal direction (-1, 0 or 1).
+     * @param dRow   vertical direction (-1, 0 or 1).
+     * @param radius the maximum number of cells covered.
+     * @return the number of cells covered, excluding the origin.
+     */
+    public int rayLength(int cell, int dCol, int dRow, int radius) {
+        int col = col(cell);
+        int row = row(cell);
+        for (int steps = 1; steps <= radius; ++steps) {
+            int next = index(col + steps * dCol, row + steps * dRow);
+            if (next == -1 || tiles[next] == WALL) {
+                return steps - 1;
+            }
+            if (tiles[next] == BOX) {
+                return steps;
+            }
+        }
+        return radius;
+    }
+
+    /**
+     * Overwrites every cell of this grid with the cells of another grid of the same size.
+     *
+     * @param other the grid to copy.
+     * @throws IllegalArgumentException if the sizes of the grids differ.
+     */
+    public void copyFrom(final CellGrid other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Grid sizes differ");
+        }
+        System.arraycopy(other.tiles, 0, tiles, 0, tiles.length);
+    }
+
+    /**
+     * Writes every cell of this grid to a buffer.
+     *
+     * @param out the buffer to write to.
+     * @see #read(ByteBuffer)
+     */
+    public void write(final ByteBuffer out) {
+        out.put(tiles);
+    }
+
+    /**
+     * Overwrites every cell of this grid with the cells {@link #write(ByteBuffer) written} from a grid of the same
+     * size.
+     *
+     * @param in the buffer to read from.
+     */
+    public void read(final ByteBuffer in) {
+        in.get(tiles);
+    }
+
+    /**
+     * Records that the box in the given cell has been destroyed.
+     *
+     * @param cell cell index.
+     */
+    public void clearBox(int cell) {
+        if (tiles[cell] == BOX) {
+            tiles[cell] = EMPTY;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package x3.model.game.grid;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.DefaultConnection;
+
+/**
+ * A <code>CellNode</code> is the node of a single cell in a {@link CellGraph}.
+ * <br>
+ * Nodes are created once per cell, together with the {@link Connection connections} to their four neighbours,
+ * so searching the graph doesn't create objects.
+ */
+public class CellNode {
+    /**
+     * The index of the cell in the {@link CellGrid}.
+     */
+    public final int cell;
+    final Connection<CellNode>[] neighbours;
+
+    /**
+     * Only constructor.
+     *
+     * @param cell the index of the cell.
+     */
+    CellNode(int cell) {
+        this.cell = cell;
+        this.neighbours = newConnectionArray(4);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Connection<CellNode>[] newConnectionArray(int size) {
+        return (Connection<CellNode>[]) new Connection<?>[size];
+    }
+
+    void connect(int direction, final CellNode neighbour) {
+        neighbours[direction] = new DefaultConnection<>(this, neighbour);
+    }
+
+    @Override
+    public String toString() {
+        return "CellNode#" + cell;
+    }
+}
@@ -0,0 +1,273 @@
+package x3.model.game.grid;
+
+import x3.model.game.GameEngine;
+import x3.model.game.objects.Bomb;
+import x3.model.game.objects.Explosion;
+import x3.model.util.TickClock;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A <code>DangerMap</code> records, for every cell of a {@link CellGrid}, the earliest tick at which an
+ * upcoming blast is going to reach it.
+ * <br>
+ * The map is maintained incrementally by the {@link GameEngine game engine}:
+ * <ul>
+ *     <li>When a {@link Bomb} is placed, only its four rays are traced.</li>
+ *     <li>
+ *         When a ray reaches another bomb that would blow up later, that bomb's detonation is moved earlier
+ *         (as a chain reaction would) and its rays are traced again.
+ *     </li>
+ *     <li>When a box is destroyed, only the bombs in line with the box are traced again.</li>
+ * </ul>
+ * The map is never rebuilt from scratch and entries are never cleared explicitly: an entry whose tick has already
+ * passed is treated as safe, and is overwritten by the next blast that reaches the cell.
+ * Reading the map is O(1) per cell.
+ */
+public class DangerMap {
+    /**
+     * Value returned for cells that no known blast is going to reach.
+     */
+    public static final int SAFE = Integer.MAX_VALUE;
+
+    private final CellGrid grid;
+    private final TickClock clock;
+    private final int ticksPerCell;
+    private final int[] blastTicks;
+    private final int[] bombTicks;
+    private final int[] bombRadii;
+    private final int[] pending;
+    private final boolean[] queued;
+    private int maxRadius;
+
+    /**
+     * Only constructor.
+     *
+     * @param grid  the grid describing which cells stop blasts.
+     * @param clock the clock of the game, used to tell past and upcoming blasts apart.
+     */
+    public DangerMap(final CellGrid grid, final TickClock clock) {
+        this.grid = grid;
+        this.clock = clock;
+        ticksPerCell = TickClock.toTicks(Explosion.DELAY);
+        blastTicks = new int[grid.size()];
+        bombTicks = new int[grid.size()];
+        bombRadii = new int[grid.size()];
+        pending = new int[grid.size()];
+        queued = new boolean[grid.size()];
+
+        Arrays.fill(blastTicks, SAFE);
+        Arrays.fill(bombTicks, SAFE);
+    }
+
+    /**
+     * Returns the earliest upcoming tick at which a blast reaches the given cell.
+     *
+     * @param cell cell index.
+     * @return the tick of the blast, or {@link #SAFE} if no blast is expected.
+     */
+    public int getBlastTick(int cell) {
+        int tick = blastTicks[cell];
+        return tick >= clock.getTick() ? tick : SAFE;
+    }
+
+    /**
+     * Returns whether a blast is going to reach the given cell within the given number of ticks.
+     *
+     * @param cell  cell index.
+     * @param ticks the number of ticks to look ahead.
+     * @return true if the cell is going to be hit in time.
+     */
+    public boolean isDangerous(int cell, int ticks) {
+        int tick = getBlastTick(cell);
+        return tick != SAFE && tick - clock.getTick() <= ticks;
+    }
+
+    /**
+     * Returns the tick at which the bomb in the given cell is expected to blow up.
+     *
+     * @param cell cell index.
+     * @return the tick of the detonation, or {@link #SAFE} if there is no bomb in the cell.
+     */
+    public int getBombTick(int cell) {
+        return bombTicks[cell];
+    }
+
+    /**
+     * Records a newly placed bomb and traces its rays.
+     *
+     * @param cell   cell index of the bomb.
+     * @param radius radius of the bomb.
+     * @param tick   the tick at which the bomb is going to blow up.
+     */
+    public void addBomb(int cell, int radius, int tick) {
+        bombRadii[cell] = radius;
+        maxRadius = Math.max(maxRadius, radius);
+        bombTicks[cell] = SAFE;
+        detonateAt(cell, tick);
+    }
+
+    /**
+     * Records that the bomb in the given cell was forced to blow up earlier by another explosion.
+     *
+     * @param cell cell index of the bomb.
+     * @param tick the tick at which the bomb is going to blow up.
+     */
+    public void forceBlow(int cell, int tick) {
+        if (bombTicks[cell] != SAFE) {
+            detonateAt(cell, tick);
+        }
+    }
+
+    /**
+     * Overwrites the bombs and blasts of this map with those of another map of the same grid size.
+     *
+     * @param other the map to copy.
+     * @throws IllegalArgumentException if the sizes of the grids differ.
+     */
+    public void copyFrom(final DangerMap other) {
+        if (other.blastTicks.length != blastTicks.length) {
+            throw new IllegalArgumentException("Grid sizes differ");
+        }
+        System.arraycopy(other.blastTicks, 0, blastTicks, 0, blastTicks.length);
+        System.arraycopy(other.bombTicks, 0, bombTicks, 0, bombTicks.length);
+        System.arraycopy(other.bombRadii, 0, bombRadii, 0, bombRadii.length);
+        maxRadius = other.maxRadius;
+    }
+
+    /**
+     * Copies the blast and bomb ticks of every cell into the given arrays, as {@link #getBombTick(int)} returns them.
+     * Unlike {@link #getBlastTick(int)}, blasts that have already passed are copied as they are.
+     *
+     * @param blastTicks the array receiving the blast ticks, as long as the number of cells.
+     * @param bombTicks  the array receiving the bomb ticks, as long as the number of cells.
+     */
+    public void copyTicks(final int[] blastTicks, final int[] bombTicks) {
+        System.arraycopy(this.blastTicks, 0, blastTicks, 0, this.blastTicks.length);
+        System.arraycopy(this.bombTicks, 0, bombTicks, 0, this.bombTicks.length);
+    }
+
+    /**
+     * Writes the bombs and blasts of this map to a buffer.
+     *
+     * @param out the buffer to write to.
+     * @see #read(ByteBuffer)
+     */
+    public void write(final ByteBuffer out) {
+        for (int i = 0; i < blastTicks.length; ++i) {
+            out.putInt(blastTicks[i]).putInt(bombTicks[i]).put((byte) bombRadii[i]);
+        }
+        out.putInt(maxRadius);
+    }
+
+    /**
+     * Overwrites the bombs and blasts of this map with those {@link #write(ByteBuffer) written} from a map of the
+     * same grid size.
+     *
+     * @param in the buffer to read from.
+     */
+    public void read(final ByteBuffer in) {
+        for (int i = 0; i < blastTicks.length; ++i) {
+            blastTicks[i] = in.getInt();
+            bombTicks[i] = in.getInt();
+            bombRadii[i] = in.get();
+        }
+        maxRadius = in.getInt();
+    }
+
+    /**
+     * Removes the bomb in the given cell after it has blown up.
+     * <br>
+     * Cells reached by its blast stay dangerous until their blast tick has passed.
+     *
+     * @param cell cell index of the bomb.
+     */
+    public void removeBomb(int cell) {
+        bombTicks[cell] = SAFE;
+    }
+
+    /**
+     * Signals that the box in the given cell was destroyed, and extends the rays of the bombs that it stopped.
+     *
+     * @param cell cell index of the destroyed box.
+     */
+    public void openCell(int cell) {
+        int count = 0;
+        count = collectBombsInLine(cell, 1, 0, count);
+        count = collectBombsInLine(cell, -1, 0, count);
+        count = collectBombsInLine(cell, 0, 1, count);
+        count = collectBombsInLine(cell, 0, -1, count);
+        propagate(count);
+    }
+
+    private int collectBombsInLine(int cell, int dCol, int dRow, int count) {
+        int col = grid.col(cell);
+        int row = grid.row(cell);
+        for (int steps = 1; steps <= maxRadius; ++steps) {
+            int next = grid.index(col + steps * dCol, row + steps * dRow);
+            if (next == -1 || !grid.isPassable(next)) {
+                break;
+            }
+            if (bombTicks[next] != SAFE && bombRadii[next] >= steps && bombTicks[next] >= clock.getTick()) {
+                count = enqueue(next, count);
+            }
+        }
+        return count;
+    }
+
+    private void detonateAt(int cell, int tick) {
+        if (tick >= bombTicks[cell]) {
+            return;
+        }
+        bombTicks[cell] = tick;
+        propagate(enqueue(cell, 0));
+    }
+
+    /**
+     * Traces the rays of the pending bombs. Bombs reached by a ray before their own detonation
+     * are moved earlier and added to the pending bombs.
+     */
+    private void propagate(int count) {
+        while (count > 0) {
+            int cell = pending[--count];
+            queued[cell] = false;
+            int tick = bombTicks[cell];
+            mark(cell, tick);
+            count = trace(cell, 1, 0, tick, count);
+            count = trace(cell, -1, 0, tick, count);
+            count = trace(cell, 0, 1, tick, count);
+            count = trace(cell, 0, -1, tick, count);
+        }
+    }
+
+    private int trace(int cell, int dCol, int dRow, int tick, int count) {
+        int length = grid.rayLength(cell, dCol, dRow, bombRadii[cell]);
+        int col = grid.col(cell);
+        int row = grid.row(cell);
+        for (int steps = 1; steps <= length; ++steps) {
+            int next = grid.index(col + steps * dCol, row + steps * dRow);
+            int arrival = tick + steps * ticksPerCell;
+            mark(next, arrival);
+            if (bombTicks[next] != SAFE && arrival + 1 < bombTicks[next]) {
+                bombTicks[next] = arrival + 1;
+                count = enqueue(next, count);
+            }
+        }
+        return count;
+    }
+
+    private int enqueue(int cell, int count) {
+        if (!queued[cell]) {
+            queued[cell] = true;
+            pending[count++] = cell;
+        }
+        return count;
+    }
+
+    private void mark(int cell, int tick) {
+        if (blastTicks[cell] < clock.getTick() || tick < blastTicks[cell]) {
+            blastTicks[cell] = tick;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package x3.model.game.grid;
+
+import x3.model.game.GameEngine;
+import x3.model.game.objects.Monster;
+import x3.model.game.objects.Player;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A <code>FlowField</code> stores the walking distance from every cell of a {@link CellGrid} to the nearest
+ * source cell (usually the cell of a living {@link Player}).
+ * <br>
+ * The field is computed with a multi-source breadth-first search over the passable cells of the grid,
+ * and it is maintained incrementally afterwards:
+ * <ul>
+ *     <li>
+ *         When a source moves or disappears, only the cells that were closest to that source are invalidated
+ *         and recomputed from the edge of the invalidated region.
+ *     </li>
+ *     <li>When a cell opens up (e.g. a box is destroyed), distances are only lowered starting from that cell.</li>
+ * </ul>
+ * Reading the field is O(1), so any number of {@link Monster monsters} can steer by looking at their own cell
+ * without the {@link GameEngine game engine} having to search paths for each of them.
+ * <br>
+ * All work arrays are allocated once, updates don't create objects.
+ */
+public class FlowField {
+    /**
+     * Distance value of cells that can't reach any source.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final CellGrid grid;
+    private final int[] distance;
+    private final int[] owner;
+    private final int[] sources;
+    private final int[] fifo;
+    private final int[] region;
+    private final long[] seeds;
+    private int seedCount;
+
+    /**
+     * Only constructor.
+     * <br>
+     * Initializes the work arrays. Every cell starts out {@link #UNREACHABLE unreachable} until a source is set.
+     *
+     * @param grid        the grid describing which cells are passable.
+     * @param sourceCount the maximum number of sources (e.g. the number of players).
+     */
+    public FlowField(final CellGrid grid, int sourceCount) {
+        this.grid = grid;
+        distance = new int[grid.size()];
+        owner = new int[grid.size()];
+        sources = new int[sourceCount];
+        fifo = new int[grid.size()];
+        region = new int[grid.size()];
+        seeds = new long[grid.size() + sourceCount + 1];
+
+        Arrays.fill(distance, UNREACHABLE);
+        Arrays.fill(owner, -1);
+        Arrays.fill(sources, -1);
+    }
+
+    /**
+     * Returns the walking distance from the given cell to the nearest source.
+     *
+     * @param cell cell index.
+     * @return the number of steps, or {@link #UNREACHABLE} if no source can be reached.
+     */
+    public int getDistance(int cell) {
+        return distance[cell];
+    }
+
+    /**
+     * Returns the id of the source that is nearest to the given cell.
+     *
+     * @param cell cell index.
+     * @return the source id, or -1 if no source can be reached.
+     */
+    public int getOwner(int cell) {
+        return owner[cell];
+    }
+
+    /**
+     * Returns the cell currently registered for the given source.
+     *
+     * @param id source id.
+     * @return cell index, or -1 if the source is not set.
+     */
+    public int getSource(int id) {
+        return sources[id];
+    }
+
+    /**
+     * Returns the neighbouring cell that is one step closer to the nearest source.
+     *
+     * @param cell cell index.
+     * @return the index of the next cell on a shortest path,
+     * or -1 if the cell is a source or no source can be reached.
+     */
+    public int nextCell(int cell) {
+        int d = distance[cell];
+        if (d == UNREACHABLE || d == 0) {
+            return -1;
+        }
+        int col = grid.col(cell);
+        int row = grid.row(cell);
+        int next;
+        if ((next = grid.index(col + 1, row)) != -1 && distance[next] == d - 1) {
+            return next;
+        }
+        if ((next = grid.index(col - 1, row)) != -1 && distance[next] == d - 1) {
+            return next;
+        }
+        if ((next = grid.index(col, row + 1)) != -1 && distance[next] == d - 1) {
+            return next;
+        }
+        if ((next = grid.index(col, row - 1)) != -1 && distance[next] == d - 1) {
+            return next;
+        }
+        return -1;
+    }
+
+    /**
+     * Overwrites the sources and distances of this field with those of another field of the same size.
+     *
+     * @param other the field to copy.
+     * @throws IllegalArgumentException if the sizes of the fields differ.
+     */
+    public void copyFrom(final FlowField other) {
+        if (other.distance.length != distance.length || other.sources.length != sources.length) {
+            throw new IllegalArgumentException("Field sizes differ");
+        }
+        System.arraycopy(other.distance, 0, distance, 0, distance.length);
+        System.arraycopy(other.owner, 0, owner, 0, owner.length);
+        System.arraycopy(other.sources, 0, sources, 0, sources.length);
+    }
+
+    /**
+     * Writes the sources and distances of this field to a buffer.
+     *
+     * @param out the buffer to write to.
+     * @see #read(ByteBuffer)
+     */
+    public void write(final ByteBuffer out) {
+        for (int i = 0; i < distance.length; ++i) {
+            out.putInt(distance[i]).putInt(owner[i]);
+        }
+        for (int source : sources) {
+            out.putInt(source);
+        }
+    }
+
+    /**
+     * Overwrites the sources and distances of this field with those {@link #write(ByteBuffer) written} from a
+     * field of the same size.
+     *
+     * @param in the buffer to read from.
+     */
+    public void read(final ByteBuffer in) {
+        for (int i = 0; i < distance.length; ++i) {
+            distance[i] = in.getInt();
+            owner[i] = in.getInt();
+        }
+        for (int i = 0; i < sources.length; ++i) {
+            sources[i] = in.getInt();
+        }
+    }
+
+    /**
+     * Places or moves a source.
+     * <br>
+     * If the source is already in the given cell, nothing happens. Otherwise, the region closest to the
+     * previous position of the source is invalidated, and distances are recomputed around the new position.
+     *
+     * @param id   source id.
+     * @param cell cell index of the new position.
+     */
+    public void setSource(int id, int cell) {
+        if (sources[id] == cell) {
+            return;
+        }
+        seedCount = 0;
+        if (sources[id] != -1) {
+            invalidate(id);
+        }
+        sources[id] = cell;
+        seedSources();
+        propagate();
+    }
+
+    /**
+     * Removes a source (e.g. when a player dies), and recomputes the region that was closest to it.
+     *
+     * @param id source id.
+     */
+    public void removeSource(int id) {
+        if (sources[id] == -1) {
+            return;
+        }
+        seedCount = 0;
+        invalidate(id);
+        sources[id] = -1;
+        seedSources();
+        propagate();
+    }
+
+    /**
+     * Signals that the given cell has become passable (e.g. a box was destroyed in it),
+     * and lowers the distances that can now be reached through it.
+     *
+     * @param cell cell index.
+     */
+    public void openCell(int cell) {
+        seedCount = 0;
+        seedFromNeighbours(cell);
+        propagate();
+    }
+
+    /**
+     * Resets every cell owned by the given source to unreachable,
+     * then records the edge of the reset region as seeds for the recomputation.
+     */
+    private void invalidate(int id) {
+        int regionSize = 0;
+        int top = 0;
+        fifo[top++] = sources[id];
+        while (top > 0) {
+            int cell = fifo[--top];
+            if (owner[cell] != id) {
+                continue;
+            }
+            owner[cell] = -1;
+            distance[cell] = UNREACHABLE;
+            region[regionSize++] = cell;
+
+            int col = grid.col(cell);
+            int row = grid.row(cell);
+            top = pushOwned(fifo, top, grid.index(col + 1, row), id);
+            top = pushOwned(fifo, top, grid.index(col - 1, row), id);
+            top = pushOwned(fifo, top, grid.index(col, row + 1), id);
+            top = pushOwned(fifo, top, grid.index(col, row - 1), id);
+        }
+        for (int i = 0; i < regionSize; ++i) {
+            seedFromNeighbours(region[i]);
+        }
+    }
+
+    private int pushOwned(int[] stack, int top, int cell, int id) {
+        if (cell != -1 && owner[cell] == id) {
+            stack[top++] = cell;
+        }
+        return top;
+    }
+
+    private void seedSources() {
+        for (int id = 0; id < sources.length; ++id) {
+            if (sources[id] != -1) {
+                addSeed(sources[id], 0, id);
+            }
+        }
+    }
+
+    private void seedFromNeighbours(int cell) {
+        if (!grid.isPassable(cell)) {
+            return;
+        }
+        int col = grid.col(cell);
+        int row = grid.row(cell);
+        int best = -1;
+        int next;
+        if ((next = grid.index(col + 1, row)) != -1 && isCloser(next, best)) {
+            best = next;
+        }
+        if ((next = grid.index(col - 1, row)) != -1 && isCloser(next, best)) {
+            best = next;
+        }
+        if ((next = grid.index(col, row + 1)) != -1 && isCloser(next, best)) {
+            best = next;
+        }
+        if ((next = grid.index(col, row - 1)) != -1 && isCloser(next, best)) {
+            best = next;
+        }
+        if (best != -1) {
+            addSeed(cell, distance[best] + 1, owner[best]);
+        }
+    }
+
+    private boolean isCloser(int cell, int best) {
+        return distance[cell] != UNREACHABLE && (best == -1 || distance[cell] < distance[best]);
+    }
+
+    private void addSeed(int cell, int dist, int id) {
+        if (dist < distance[cell]) {
+            distance[cell] = dist;
+            owner[cell] = id;
+            seeds[seedCount++] = ((long) dist << 32) | cell;
+        }
+    }
+
+    /**
+     * Expands the recorded seeds in increasing order of distance.
+     * <br>
+     * Since every step costs the same, sorted seeds merged with a FIFO queue visit cells in the same order
+     * as Dijkstra's algorithm would, so every cell is finalized the first time it is expanded.
+     */
+    private void propagate() {
+        Arrays.sort(seeds, 0, seedCount);
+        int head = 0;
+        int tail = 0;
+        int next = 0;
+        while (next < seedCount || head < tail) {
+            int cell;
+            if (head < tail && (next >= seedCount || distance[fifo[head]] <= (int) (seeds[next] >>> 32))) {
+                cell = fifo[head++];
+            } else {
+                long seed = seeds[next++];
+                cell = (int) seed;
+                if (distance[cell] != (int) (seed >>> 32)) {
+                    continue;
+                }
+            }
+
+            int relaxed = distance[cell] + 1;
+            int col = grid.col(cell);
+            int row = grid.row(cell);
+            tail = relax(grid.index(col + 1, row), relaxed, owner[cell], tail);
+            tail = relax(grid.index(col - 1, row), relaxed, owner[cell], tail);
+            tail = relax(grid.index(col, row + 1), relaxed, owner[cell], tail);
+            tail = relax(grid.index(col, row - 1), relaxed, owner[cell], tail);
+        }
+        seedCount = 0;
+    }
+
+    private int relax(int cell, int dist, int id, int tail) {
+        if (cell != -1 && grid.isPassable(cell) && dist < distance[cell]) {
+            distance[cell] = dist;
+            owner[cell] = id;
+            fifo[tail++] = cell;
+        }
+        return tail;
+    }
+}
@@ -0,0 +1,79 @@
+package x3.model.game.grid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <code>WallBlocks</code> merges the walls of a {@link CellGrid} into rectangular blocks.
+ * <br>
+ * Walls never change during a round, so a straight run of walls, or a solid area of them, can collide as a single
+ * box instead of a box per cell. The blocks are grown greedily: from the lowest, leftmost wall not yet covered, a
+ * block takes the run of walls to its right, then the rows above it as long as they are walls along the whole run.
+ * Blocks never overlap, and together they cover exactly the walls.
+ */
+public final class WallBlocks {
+    private WallBlocks() { }
+
+    /**
+     * Merges every wall of the grid.
+     *
+     * @param grid the grid.
+     * @return the blocks, as arrays of column, row, width and height.
+     * @see #merge(CellGrid, int, int, int, int)
+     */
+    public static List<int[]> merge(final CellGrid grid) {
+        return merge(grid, 0, 0, grid.getWidth(), grid.getHeight());
+    }
+
+    /**
+     * Merges the walls in an area of the grid. No block reaches outside the area.
+     *
+     * @param grid   the grid.
+     * @param colMin the first column of the area.
+     * @param rowMin the first row of the area.
+     * @param colMax the column after the last column of the area.
+     * @param rowMax the row after the last row of the area.
+     * @return the blocks, as arrays of the column and row of their bottom left cell, their width and their height.
+     */
+    public static List<int[]> merge(final CellGrid grid, int colMin, int rowMin, int colMax, int rowMax) {
+        List<int[]> blocks = new ArrayList<>();
+        boolean[] covered = new boolean[(colMax - colMin) * (rowMax - rowMin)];
+        for (int row = rowMin; row < rowMax; ++row) {
+            for (int col = colMin; col < colMax; ++col) {
+                if (!isFree(grid, covered, colMin, rowMin, colMax, col, row)) {
+                    continue;
+                }
+                int width = 1;
+                while (col + width < colMax && isFree(grid, covered, colMin, rowMin, colMax, col + width, row)) {
+                    ++width;
+                }
+                int height = 1;
+                while (row + height < rowMax && isRun(grid, covered, colMin, rowMin, colMax, col, row + height, width)) {
+                    ++height;
+                }
+                for (int r = row; r < row + height; ++r) {
+                    for (int c = col; c < col + width; ++c) {
+                        covered[(r - rowMin) * (colMax - colMin) + c - colMin] = true;
+                    }
+                }
+                blocks.add(new int[] {col, row, width, height});
+            }
+        }
+        return blocks;
+    }
+
+    private static boolean isFree(final CellGrid grid, final boolean[] covered, int colMin, int rowMin, int colMax,
+                                  int col, int row) {
+        return grid.isWall(grid.index(col, row)) && !covered[(row - rowMin) * (colMax - colMin) + col - colMin];
+    }
+
+    private static boolean isRun(final CellGrid grid, final boolean[] covered, int colMin, int rowMin, int colMax,
+                                 int col, int row, int width) {
+        for (int c = col; c < col + width; ++c) {
+            if (!isFree(grid, covered, colMin, rowMin, colMax, c, row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
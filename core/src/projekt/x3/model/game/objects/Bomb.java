@@ -4,6 +4,7 @@ import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import x3.model.effect.debuff.ForcedBombsEffect;
 import x3.model.game.GameEngine;
+import x3.model.util.GameClock;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -15,6 +16,10 @@ import java.util.Set;
  * Bombs keep track of their own status, their owners and their texture settings.
  */
 public class Bomb extends Sprite {
+    /**
+     * The time (in milliseconds) a bomb waits before blowing up.
+     */
+    public static final long WAIT_TIME = 2000;
     /**
      * Whether the bomb has already blown up or not.
      */
@@ -29,8 +34,13 @@ public class Bomb extends Sprite {
      * The owner defines the radius of the bomb.
      */
     public final Player owner;
+    /**
+     * The radius of this bomb, taken from its owner at the time of placement.
+     */
+    public final int radius;
+    private final GameClock clock;
     private final long placeTime;
-    private final long waitTime = 2000;
+    private final long waitTime = WAIT_TIME;
     private final Texture texture2;
     private final Texture texture3;
     private int age;
@@ -45,16 +55,46 @@ public class Bomb extends Sprite {
     public boolean hasSetPlayers = false;
 
     /**
-     * Only constructor.
+     * Secondary constructor.
      * <br>
-     * Records the time and sets the owner so its data can be retrieved later.
+     * Measures the fuse of the bomb with the {@link GameClock#SYSTEM system clock}.
      * @param owner the owner of this bomb.
      * @param texture2 the texture for the second state of the bomb.
      * @param texture3 the texture for the third state of the bomb.
      */
     public Bomb(Player owner, Texture texture2, Texture texture3){
+        this(owner, texture2, texture3, GameClock.SYSTEM);
+    }
+
+    /**
+     * Secondary constructor.
+     * <br>
+     * Records the time and sets the owner so its data can be retrieved later.
+     * @param owner the owner of this bomb.
+     * @param texture2 the texture for the second state of the bomb.
+     * @param texture3 the texture for the third state of the bomb.
+     * @param clock the clock that measures the fuse of the bomb.
+     */
+    public Bomb(Player owner, Texture texture2, Texture texture3, GameClock clock){
+        this(owner, owner.bombRadius, clock.millis(), texture2, texture3, clock);
+    }
+
+    /**
+     * Primary constructor.
+     * <br>
+     * Used directly when a saved game is loaded, to put back a bomb placed earlier.
+     * @param owner the owner of this bomb.
+     * @param radius the radius of the bomb's blast.
+     * @param placeTime the time the bomb was placed at, on the given clock.
+     * @param texture2 the texture for the second state of the bomb.
+     * @param texture3 the texture for the third state of the bomb.
+     * @param clock the clock that measures the fuse of the bomb.
+     */
+    public Bomb(Player owner, int radius, long placeTime, Texture texture2, Texture texture3, GameClock clock){
         this.owner = owner;
-        this.placeTime = System.currentTimeMillis();
+        this.radius = radius;
+        this.clock = clock;
+        this.placeTime = placeTime;
 
         this.texture2 = texture2;
         this.texture3 = texture3;
@@ -70,6 +110,14 @@ public class Bomb extends Sprite {
         age++;
     }
 
+    /**
+     * Sets the bomb's age, when the {@link GameEngine game engine} restores an earlier state of the bomb.
+     * @param age the number of frames the bomb has spent alive.
+     */
+    public void setAge(int age) {
+        this.age = age;
+    }
+
     /**
      * Returns the bomb's age.
      * @return the bomb's age
@@ -79,6 +127,22 @@ public class Bomb extends Sprite {
         return age;
     }
 
+    /**
+     * Returns the time the bomb was placed at, measured by its clock.
+     * @return the time of placement, in milliseconds.
+     */
+    public long getPlaceTime() {
+        return placeTime;
+    }
+
+    /**
+     * Returns the time it takes for this bomb to blow up after placement, in milliseconds.
+     * @return the length of the fuse.
+     */
+    public long getWaitTime() {
+        return waitTime;
+    }
+
     /**
      * Returns whether this bomb is allowed to blow up.
      * <br>
@@ -87,7 +151,7 @@ public class Bomb extends Sprite {
      * @return true if the bomb is ready to blow up.
      */
     public boolean canBlow() {
-        return forceBlow || System.currentTimeMillis() >= placeTime + waitTime;
+        return forceBlow || clock.millis() >= placeTime + waitTime;
     }
 
     /**
@@ -96,10 +160,10 @@ public class Bomb extends Sprite {
      * Second texture is applied 250ms after placement, third is applied 500ms after placement.
      */
     public void checkBombState(){
-        if ((placeTime + waitTime) - System.currentTimeMillis() <= 250){
+        if ((placeTime + waitTime) - clock.millis() <= 250){
             this.setTexture(texture3);
         }
-        else if ((placeTime + waitTime) - System.currentTimeMillis() <= 500){
+        else if ((placeTime + waitTime) - clock.millis() <= 500){
             this.setTexture(texture2);
         }
     }
@@ -13,7 +13,7 @@ import java.util.Optional;
  * <code>Boxes</code> may optionally hold an {@link Effect}.
  */
 public class Box extends Sprite {
-    private final Optional<Effect> effect;
+    private Optional<Effect> effect;
 
     /**
      * Only constructor.
@@ -32,4 +32,13 @@ public class Box extends Sprite {
     public Optional<Effect> getEffect() {
         return effect;
     }
+
+    /**
+     * Replaces the {@link Effect} held by this <code>Box</code>, when the {@link GameEngine game engine} loads a
+     * saved game.
+     * @param effect the {@link Effect} that this <code>Box</code> holds.
+     */
+    public void setEffect(Optional<Effect> effect) {
+        this.effect = effect;
+    }
 }
@@ -5,6 +5,7 @@ import com.badlogic.gdx.graphics.g2d.ParticleEffect;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.physics.box2d.graphics.ParticleEmitterBox2D;
+import x3.model.util.GameClock;
 
 import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
@@ -20,14 +21,14 @@ public class Explosion {
      */
     public static final long DELAY = 100;
 
-    private final long created;
-    private final long delay;
+    private final GameClock clock;
+    private final long readyTime;
     private final List<ParticleEffect> effects;
 
     /**
-     * Only constructor.
+     * Secondary constructor.
      * <br>
-     * Initializes the particle effects that will be rendered by the game.
+     * Measures the delay of the explosion with the {@link GameClock#SYSTEM system clock}.
      *
      * @param particleEffects a list of {@link FileHandle file handle} {@link SimpleEntry pairs}, that contain
      *                        the effect files and the locations where the particle images are of each particle effect.
@@ -37,8 +38,42 @@ public class Explosion {
      * @param PPM             Pixels Per Meter.
      */
     public Explosion(List<SimpleEntry<FileHandle, FileHandle>> particleEffects, int offset, World world, Vector2 position, float PPM) {
-        created = System.currentTimeMillis();
-        delay = offset * DELAY;
+        this(particleEffects, offset, world, position, PPM, GameClock.SYSTEM);
+    }
+
+    /**
+     * Secondary constructor.
+     * <br>
+     * The explosion is ready after <code>offset</code> times the {@link #DELAY delay}.
+     *
+     * @param particleEffects a list of {@link FileHandle file handle} {@link SimpleEntry pairs}, that contain
+     *                        the effect files and the locations where the particle images are of each particle effect.
+     * @param offset          a delay multiplier.
+     * @param world           the {@link World} where the particle's physics are simulated.
+     * @param position        the origin of the effects.
+     * @param PPM             Pixels Per Meter.
+     * @param clock           the clock that measures the delay.
+     */
+    public Explosion(List<SimpleEntry<FileHandle, FileHandle>> particleEffects, int offset, World world, Vector2 position, float PPM, GameClock clock) {
+        this(particleEffects, world, position, PPM, clock, clock.millis() + offset * DELAY);
+    }
+
+    /**
+     * Primary constructor.
+     * <br>
+     * Initializes the particle effects that will be rendered by the game.
+     *
+     * @param particleEffects a list of {@link FileHandle file handle} {@link SimpleEntry pairs}, that contain
+     *                        the effect files and the locations where the particle images are of each particle effect.
+     * @param world           the {@link World} where the particle's physics are simulated.
+     * @param position        the origin of the effects.
+     * @param PPM             Pixels Per Meter.
+     * @param clock           the clock that measures the delay.
+     * @param readyTime       the time the explosion is ready at, on the given clock.
+     */
+    public Explosion(List<SimpleEntry<FileHandle, FileHandle>> particleEffects, World world, Vector2 position, float PPM, GameClock clock, long readyTime) {
+        this.clock = clock;
+        this.readyTime = readyTime;
         effects = new ArrayList<>();
 
         particleEffects.forEach(file -> {
@@ -60,7 +95,16 @@ public class Explosion {
      * @return true if <code>delay</code> has elapsed.
      */
     public boolean ready() {
-        return System.currentTimeMillis() >= created + delay;
+        return clock.millis() >= readyTime;
+    }
+
+    /**
+     * Returns the time the built-in delay ends at, measured by the explosion's clock.
+     *
+     * @return the time the explosion is ready at, in milliseconds.
+     */
+    public long getReadyTime() {
+        return readyTime;
     }
 
     /**
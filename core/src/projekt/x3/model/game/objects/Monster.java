@@ -6,8 +6,6 @@ import com.badlogic.gdx.math.Vector2;
 import java.util.Random;
 
 public class Monster extends Sprite {
-    private static final Random RANDOM = new Random();
-
     /**
      * The movement speed of this <code>Monster</code>.
      */
@@ -16,13 +14,20 @@ public class Monster extends Sprite {
      * The current direction of this <code>Monster</code>.
      */
     public final Vector2 direction = new Vector2(0,0);
+    /**
+     * The walking distance (in cells) from the nearest player, within which this <code>Monster</code> chases
+     * instead of wandering randomly.
+     */
+    public final int chaseRange = 8;
     private boolean dead = false;
 
     /**
      * Sets the monster's direction to a random value.
+     *
+     * @param random the random number generator of the game.
      */
-    public void setRandomDir(){
-        switch (RANDOM.nextInt(0, 4)) {
+    public void setRandomDir(final Random random){
+        switch (random.nextInt(0, 4)) {
             case 0 -> this.direction.set(moveSpeed, 0);
             case 1 -> this.direction.set(-moveSpeed, 0);
             case 2 -> this.direction.set(0, moveSpeed);
@@ -30,6 +35,17 @@ public class Monster extends Sprite {
         }
     }
 
+    /**
+     * Sets the monster's direction towards the given offset, keeping the length of the direction at
+     * the monster's {@link #moveSpeed movement speed}.
+     *
+     * @param x horizontal offset.
+     * @param y vertical offset.
+     */
+    public void setDir(float x, float y) {
+        direction.set(x, y).setLength(moveSpeed);
+    }
+
     /**
      * Marks this <code>Monster</code> as dead, signalling to the engine that it can be removed.
      */
@@ -37,6 +53,13 @@ public class Monster extends Sprite {
         dead = true;
     }
 
+    /**
+     * Marks this <code>Monster</code> as alive again, when the engine restores a state from before its death.
+     */
+    public void revive() {
+        dead = false;
+    }
+
     /**
      * Returns whether this <code>Monster</code> is dead.
      * @return true if this <code>Monster</code> is dead.
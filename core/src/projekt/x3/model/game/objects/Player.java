@@ -262,6 +262,16 @@ public class Player extends Sprite {
         dead = true;
     }
 
+    /**
+     * Marks this <code>Player</code> as playing again.
+     * <br>
+     * Used by the {@link GameEngine game engine} when it restores a state from before the death of the
+     * <code>Player</code>.
+     */
+    public void revive() {
+        dead = false;
+    }
+
     /**
      * Returns whether this <code>Player</code> is still playing the game.
      * <br>
@@ -7,6 +7,7 @@ import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
 import com.badlogic.gdx.utils.Disposable;
 import x3.DetonatorCircle;
 import x3.model.effect.Effect;
+import x3.model.effect.TimedEffect;
 import x3.model.effect.buff.BiggerBombEffect;
 import x3.model.effect.buff.BonusBombEffect;
 import x3.model.effect.debuff.ForcedBombsEffect;
@@ -17,8 +18,10 @@ import x3.model.game.objects.Box;
 import x3.model.game.objects.Monster;
 import x3.model.game.objects.Player;
 import x3.model.game.objects.Wall;
+import x3.model.util.GameClock;
 import x3.model.util.Pair;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Random;
 
@@ -33,10 +36,20 @@ import static x3.model.util.CollisionFilters.*;
  * Utility objects are reused during instantiation and freed when {@link Disposable#dispose()} is called.
  */
 public class BodyFactory implements Disposable {
-    private static final Random RANDOM = new Random();
+    /**
+     * The effects a box can hold. The index of an effect's class in this list is its kind.
+     *
+     * @see #newEffect(int)
+     */
+    public static final List<Class<? extends Effect>> EFFECTS = List.of(
+        BonusBombEffect.class, BiggerBombEffect.class,
+        ForcedBombsEffect.class, NoBombsEffect.class, SlowEffect.class, SmallBombEffect.class
+    );
 
     private final World world;
     private final float PPM;
+    private final GameClock clock;
+    private final Random random;
 
     private final Texture wallTexture;
     private final Texture boxTexture;
@@ -55,10 +68,12 @@ public class BodyFactory implements Disposable {
     private final BodyDef movingDef;
 
     private final PolygonShape unitShape;
+    private final PolygonShape blockShape;
     private final PolygonShape effectShape;
     private final PolygonShape movingShape;
 
     private final FixtureDef movingFDef;
+    private final Vector2 blockCenter = new Vector2();
 
     private final Filter wallFilter;
     private final Filter boxFilter;
@@ -69,9 +84,10 @@ public class BodyFactory implements Disposable {
     private final float effectSize;
 
     /**
-     * Only constructor.
+     * Secondary constructor.
      * <br>
-     * Initializes the reusable utility objects and collects the textures that will be used during instantiation.
+     * {@link TimedEffect Timed effects} built by this factory measure time with the
+     * {@link GameClock#SYSTEM system clock}.
      *
      * @param game       the object that stores the {@link Texture textures}.
      * @param world      the {@link World} where the bodies will be created.
@@ -80,7 +96,44 @@ public class BodyFactory implements Disposable {
      * @param effectSize size of the {@link Effect Effects}.
      */
     public BodyFactory(final DetonatorCircle game, final World world, final float PPM, final float playerSize, final float effectSize) {
+        this(game, world, PPM, playerSize, effectSize, GameClock.SYSTEM);
+    }
+
+    /**
+     * Secondary constructor.
+     * <br>
+     * The effects hidden in boxes are chosen with a generator of their own.
+     *
+     * @param game       the object that stores the {@link Texture textures}.
+     * @param world      the {@link World} where the bodies will be created.
+     * @param PPM        Pixels Per Meter.
+     * @param playerSize size of the {@link Player Players}.
+     * @param effectSize size of the {@link Effect Effects}.
+     * @param clock      the clock measuring the duration of {@link TimedEffect timed effects}.
+     */
+    public BodyFactory(final DetonatorCircle game, final World world, final float PPM, final float playerSize, final float effectSize,
+                       final GameClock clock) {
+        this(game, world, PPM, playerSize, effectSize, clock, new Random());
+    }
+
+    /**
+     * Primary constructor.
+     * <br>
+     * Initializes the reusable utility objects and collects the textures that will be used during instantiation.
+     *
+     * @param game       the object that stores the {@link Texture textures}.
+     * @param world      the {@link World} where the bodies will be created.
+     * @param PPM        Pixels Per Meter.
+     * @param playerSize size of the {@link Player Players}.
+     * @param effectSize size of the {@link Effect Effects}.
+     * @param clock      the clock measuring the duration of {@link TimedEffect timed effects}.
+     * @param random     the random number generator of the game, which chooses the effects hidden in boxes.
+     */
+    public BodyFactory(final DetonatorCircle game, final World world, final float PPM, final float playerSize, final float effectSize,
+                       final GameClock clock, final Random random) {
         this.world = world;
+        this.clock = clock;
+        this.random = random;
         this.PPM = PPM;
         this.playerSize = playerSize;
         this.effectSize = effectSize;
@@ -108,6 +161,8 @@ public class BodyFactory implements Disposable {
         unitShape = new PolygonShape();
         unitShape.setAsBox(PPM / 2, PPM / 2, new Vector2(PPM / 2, PPM / 2), 0);
 
+        blockShape = new PolygonShape();
+
         effectShape = new PolygonShape();
         effectShape.setAsBox(effectSize / 2, effectSize / 2,
             new Vector2(effectSize / 2, effectSize / 2), 0);
@@ -139,19 +194,36 @@ public class BodyFactory implements Disposable {
     }
 
     private Effect randomBuff() {
-        if (RANDOM.nextInt(0, 2) == 0) {
-            return new BonusBombEffect(bonusBombTexture);
-        }
-        return new BiggerBombEffect(biggerBombTexture);
+        return newEffect(random.nextInt(0, 2));
     }
 
     private Effect randomDebuff() {
-        return switch (RANDOM.nextInt(0, 4)) {
-            case 0 -> new ForcedBombsEffect(forcedBombsTexture);
-            case 1 -> new NoBombsEffect(noBombsTexture);
-            case 2 -> new SlowEffect(slowTexture);
-            default -> new SmallBombEffect(smallBombTexture);
+        return newEffect(2 + random.nextInt(0, 4));
+    }
+
+    /**
+     * Returns a new {@link Effect} of the given kind, without a body.
+     * <br>
+     * {@link TimedEffect Timed effects} measure time with the clock of this factory.
+     *
+     * @param kind the index of the effect's class in {@link #EFFECTS}.
+     * @return the new effect.
+     * @throws IllegalArgumentException if there is no effect of the given kind.
+     */
+    public Effect newEffect(int kind) {
+        Effect effect = switch (kind) {
+            case 0 -> new BonusBombEffect(bonusBombTexture);
+            case 1 -> new BiggerBombEffect(biggerBombTexture);
+            case 2 -> new ForcedBombsEffect(forcedBombsTexture);
+            case 3 -> new NoBombsEffect(noBombsTexture);
+            case 4 -> new SlowEffect(slowTexture);
+            case 5 -> new SmallBombEffect(smallBombTexture);
+            default -> throw new IllegalArgumentException("Unknown effect kind: " + kind);
         };
+        if (effect instanceof TimedEffect timed) {
+            timed.setClock(clock);
+        }
+        return effect;
     }
 
     private void setStaticDefPosition(Pair position) {
@@ -179,15 +251,51 @@ public class BodyFactory implements Disposable {
         f.getFilterData().categoryBits = wallFilter.categoryBits;
         f.getFilterData().maskBits = wallFilter.maskBits;
 
+        body.setUserData(newWall(position));
+
+        return body;
+    }
+
+    /**
+     * Returns a newly created {@link Body} for a block of walls, as {@link x3.model.game.grid.WallBlocks merged}
+     * from the grid.
+     * <br>
+     * The block is a single box, so it costs one entry in the broadphase however many walls it covers. Players and
+     * monsters collide with its sides the same way as with the sides of the walls it covers. The body holds a
+     * {@link Wall} without a texture, as walls are drawn cell by cell.
+     *
+     * @param block the column and row of the bottom left wall of the block, its width and its height.
+     * @return the new body.
+     */
+    public Body buildWalls(final int[] block) {
+        staticDef.position.set(block[0] * PPM, block[1] * PPM);
+        Body body = world.createBody(staticDef);
+
+        float width = block[2] * PPM;
+        float height = block[3] * PPM;
+        blockShape.setAsBox(width / 2, height / 2, blockCenter.set(width / 2, height / 2), 0);
+        Fixture f = body.createFixture(blockShape, 0.0f);
+        f.getFilterData().categoryBits = wallFilter.categoryBits;
+        f.getFilterData().maskBits = wallFilter.maskBits;
+
+        body.setUserData(new Wall());
+
+        return body;
+    }
+
+    /**
+     * Returns a newly created {@link Wall} sprite at the specified position, without a body.
+     *
+     * @param position the position of the wall.
+     * @return the new sprite.
+     */
+    public Wall newWall(final Pair position) {
         Wall wall = new Wall();
         wall.setTexture(wallTexture);
         wall.setSize(PPM, PPM);
         wall.setOriginCenter();
-        wall.setPosition(body.getPosition().x, body.getPosition().y);
-
-        body.setUserData(wall);
-
-        return body;
+        wall.setPosition(position.col * PPM, position.row * PPM);
+        return wall;
     }
 
     /**
@@ -203,13 +311,20 @@ public class BodyFactory implements Disposable {
      * @return the new body.
      */
     public Body buildBox(final Pair position, EffectType type) {
-        setStaticDefPosition(position);
-        Body body = world.createBody(staticDef);
-
-        Fixture f = body.createFixture(unitShape, 0.0f);
-        f.getFilterData().categoryBits = boxFilter.categoryBits;
-        f.getFilterData().maskBits = boxFilter.maskBits;
+        return buildBox(newBox(position, type));
+    }
 
+    /**
+     * Returns a newly created {@link Box} sprite at the specified position, without a body, containing the specified
+     * type of {@link Effect} or nothing, if <code>type</code> is {@link EffectType#NONE}.
+     * <br>
+     * Effects are selected randomly from the specified category.
+     *
+     * @param position the position of the box.
+     * @param type     the type of the effect held by the box.
+     * @return the new sprite.
+     */
+    public Box newBox(final Pair position, EffectType type) {
         Optional<Effect> effect;
         if (type == BUFF) {
             effect = Optional.of(randomBuff());
@@ -223,7 +338,26 @@ public class BodyFactory implements Disposable {
         box.setTexture(boxTexture);
         box.setSize(PPM, PPM);
         box.setOriginCenter();
-        box.setPosition(body.getPosition().x, body.getPosition().y);
+        box.setPosition(position.col * PPM, position.row * PPM);
+        return box;
+    }
+
+    /**
+     * Returns a newly created {@link Body} enclosing an existing {@link Box}, at the position of its sprite.
+     * <br>
+     * Boxes of large maps get their bodies only while they're near a player or a monster, and keep their sprites and
+     * effects in between.
+     *
+     * @param box the box.
+     * @return the new body.
+     */
+    public Body buildBox(final Box box) {
+        staticDef.position.set(box.getX(), box.getY());
+        Body body = world.createBody(staticDef);
+
+        Fixture f = body.createFixture(unitShape, 0.0f);
+        f.getFilterData().categoryBits = boxFilter.categoryBits;
+        f.getFilterData().maskBits = boxFilter.maskBits;
 
         body.setUserData(box);
 
@@ -252,6 +386,7 @@ public class BodyFactory implements Disposable {
         monster.setTexture(monsterTexture);
         monster.setSize(playerSize, playerSize);
         monster.setOriginCenter();
+        monster.setPosition(body.getPosition().x, body.getPosition().y);
 
         body.setUserData(monster);
 
@@ -321,6 +456,7 @@ public class BodyFactory implements Disposable {
         }
         player.setSize(playerSize, playerSize);
         player.setOriginCenter();
+        player.setPosition(body.getPosition().x, body.getPosition().y);
 
         body.setUserData(player);
 
@@ -330,6 +466,7 @@ public class BodyFactory implements Disposable {
     @Override
     public void dispose() {
         unitShape.dispose();
+        blockShape.dispose();
         movingShape.dispose();
     }
 
@@ -7,6 +7,7 @@ import com.badlogic.gdx.utils.Disposable;
 import x3.model.game.GameEngine;
 import x3.model.game.objects.Bomb;
 import x3.model.game.objects.Player;
+import x3.model.util.GameClock;
 
 import java.util.ArrayDeque;
 import java.util.Queue;
@@ -35,11 +36,28 @@ public class BombPool implements Disposable {
     private final Texture bomb3Texture;
 
     private final float bombSize;
+    private final GameClock clock;
 
     private final Queue<Body> bombQueue;
 
     /**
-     * Only constructor.
+     * Secondary constructor.
+     * <br>
+     * Bombs created by this pool measure their fuse with the {@link GameClock#SYSTEM system clock}.
+     *
+     * @param world    the {@link World} where the objects will be created by this pool.
+     * @param PPM      Pixels Per Meter.
+     * @param bombSize the size of the bomb texture and body.
+     * @param state1 the texture of the bombs in their first state.
+     * @param state2 the texture of the bombs in their second state.
+     * @param state3 the texture of the bombs in their third state.
+     */
+    public BombPool(World world, float PPM, float bombSize, Texture state1, Texture state2, Texture state3) {
+        this(world, PPM, bombSize, state1, state2, state3, GameClock.SYSTEM);
+    }
+
+    /**
+     * Primary constructor.
      * <br>
      * This constructor stores the passed arguments in fields,
      * and initializes the common objects, textures and filters required for instantiating explosions.
@@ -50,9 +68,11 @@ public class BombPool implements Disposable {
      * @param state1 the texture of the bombs in their first state.
      * @param state2 the texture of the bombs in their second state.
      * @param state3 the texture of the bombs in their third state.
+     * @param clock the clock that measures the fuse of the bombs.
      */
-    public BombPool(World world, float PPM, float bombSize, Texture state1, Texture state2, Texture state3) {
+    public BombPool(World world, float PPM, float bombSize, Texture state1, Texture state2, Texture state3, GameClock clock) {
         this.world = world;
+        this.clock = clock;
         this.PPM = PPM;
         this.bombSize = bombSize;
 
@@ -91,6 +111,40 @@ public class BombPool implements Disposable {
      * @return the body retrieved from the queue.
      */
     public Body getBomb(final Vector2 position, final Body owner) {
+        Player player = (Player) owner.getUserData();
+        return getBomb(position, newBomb(player, player.bombRadius, clock.millis()));
+    }
+
+    /**
+     * Creates a {@link Bomb} with its default texture, without a body.
+     * <br>
+     * Used by the {@link GameEngine} to put back the bombs of a loaded game, which were placed before the game was
+     * saved.
+     *
+     * @param owner     the {@link Bomb#owner owner} of the bomb.
+     * @param radius    the radius of the bomb's blast.
+     * @param placeTime the time the bomb was placed at, on the clock of this pool.
+     * @return the new bomb.
+     * @see #getBomb(Vector2, Bomb)
+     */
+    public Bomb newBomb(final Player owner, int radius, long placeTime) {
+        Bomb bomb = new Bomb(owner, radius, placeTime, bomb2Texture, bomb3Texture, clock);
+        bomb.setTexture(bomb1Texture);
+        bomb.setSize(bombSize, bombSize);
+        bomb.setOriginCenter();
+        return bomb;
+    }
+
+    /**
+     * Returns a body from the queue holding an existing {@link Bomb}.
+     * <br>
+     * Used by the {@link GameEngine} to put back the bombs of a restored state, without creating new bombs.
+     *
+     * @param position the new position of the {@link Body}.
+     * @param bomb     the bomb held by the body.
+     * @return the body retrieved from the queue.
+     */
+    public Body getBomb(final Vector2 position, final Bomb bomb) {
         if (bombQueue.isEmpty()) {
             buildBomb();
         }
@@ -98,11 +152,6 @@ public class BombPool implements Disposable {
         Body target = bombQueue.remove();
         initFilters(target);
         target.setTransform(position, 0.0f);
-
-        Bomb bomb = new Bomb((Player) owner.getUserData(), bomb2Texture, bomb3Texture);
-        bomb.setTexture(bomb1Texture);
-        bomb.setSize(bombSize, bombSize);
-        bomb.setOriginCenter();
         bomb.setPosition(target.getPosition().x + (PPM - bombSize) / 2, target.getPosition().y + (PPM - bombSize) / 2);
 
         target.setUserData(bomb);
@@ -6,6 +6,7 @@ import com.badlogic.gdx.physics.box2d.*;
 import com.badlogic.gdx.utils.Disposable;
 import x3.model.game.GameEngine;
 import x3.model.game.objects.Explosion;
+import x3.model.util.GameClock;
 
 import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayDeque;
@@ -28,9 +29,23 @@ public class ExplosionPool implements Disposable {
 
     private final Queue<Body> explosionQueue;
     private final List<SimpleEntry<FileHandle, FileHandle>> particles;
+    private final GameClock clock;
 
     /**
-     * Only constructor.
+     * Secondary constructor.
+     * <br>
+     * Explosions created by this pool measure their delay with the {@link GameClock#SYSTEM system clock}.
+     *
+     * @param world     the {@link World} where the objects will be created by this pool.
+     * @param PPM       Pixels Per Meter.
+     * @param particles a list of particle file - particle image pairs.
+     */
+    public ExplosionPool(World world, float PPM, List<SimpleEntry<FileHandle, FileHandle>> particles) {
+        this(world, PPM, particles, GameClock.SYSTEM);
+    }
+
+    /**
+     * Primary constructor.
      * <br>
      * This constructor stores the passed arguments in fields,
      * and initializes the common objects required for instantiating explosions.
@@ -38,9 +53,11 @@ public class ExplosionPool implements Disposable {
      * @param world     the {@link World} where the objects will be created by this pool.
      * @param PPM       Pixels Per Meter.
      * @param particles a list of particle file - particle image pairs.
+     * @param clock     the clock that measures the delay of the explosions.
      */
-    public ExplosionPool(World world, float PPM, List<SimpleEntry<FileHandle, FileHandle>> particles) {
+    public ExplosionPool(World world, float PPM, List<SimpleEntry<FileHandle, FileHandle>> particles, GameClock clock) {
         this.world = world;
+        this.clock = clock;
         this.PPM = PPM;
         this.particles = particles;
 
@@ -67,6 +84,35 @@ public class ExplosionPool implements Disposable {
      * @return the body retrieved from the queue.
      */
     public Body getExplosion(final Vector2 position, final int offset) {
+        return getExplosion(position, new Explosion(particles, offset, world, position, PPM, clock));
+    }
+
+    /**
+     * Creates an {@link Explosion} that is ready at the given time, without a body.
+     * <br>
+     * Used by the {@link GameEngine} to put back the explosions of a loaded game, whose delays started before the
+     * game was saved.
+     *
+     * @param position  the origin of the explosion's particle effects.
+     * @param readyTime the time the explosion is ready at, on the clock of this pool.
+     * @return the new explosion.
+     * @see #getExplosion(Vector2, Explosion)
+     */
+    public Explosion newExplosion(final Vector2 position, long readyTime) {
+        return new Explosion(particles, world, position, PPM, clock, readyTime);
+    }
+
+    /**
+     * Returns a body from the queue holding an existing {@link Explosion}.
+     * <br>
+     * Used by the {@link GameEngine} to put back the explosions of a restored state, without loading their
+     * particle effects again.
+     *
+     * @param position  the new position of the {@link Body}.
+     * @param explosion the explosion held by the body.
+     * @return the body retrieved from the queue.
+     */
+    public Body getExplosion(final Vector2 position, final Explosion explosion) {
         if (explosionQueue.isEmpty()) {
             buildExplosion();
         }
@@ -74,7 +120,7 @@ public class ExplosionPool implements Disposable {
         Body target = explosionQueue.remove();
         target.setTransform(position, 0.0f);
 
-        target.setUserData(new Explosion(particles, offset, world, position, PPM));
+        target.setUserData(explosion);
         target.setActive(true);
 
         return target;
@@ -0,0 +1,161 @@
+package x3.model.map;
+
+import x3.model.util.Pair;
+import x3.model.util.exception.MapConstructionException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An <code>AsciiMap</code> is a map drawn as text, the way new maps are authored before they're
+ * {@link FileGameMap#write written} in the compact format.
+ * <br>
+ * The text starts with optional <code>key = value</code> lines for the <code>buffs</code>, <code>debuffs</code>,
+ * <code>monsters</code> and <code>shrinks</code> of the map, followed by the grid, one line per row, the top line
+ * being the highest row. In the grid:
+ * <ul>
+ *     <li><code>#</code> is a wall,</li>
+ *     <li><code>B</code> is a box,</li>
+ *     <li><code>1</code> to <code>9</code> are player spawns, in the order of their numbers,</li>
+ *     <li><code>M</code> is a monster spawn,</li>
+ *     <li><code>.</code> and space are floor.</li>
+ * </ul>
+ * Lines starting with <code>;</code> are comments. Without a <code>monsters</code> line, every monster spawn gets a
+ * monster; without a <code>shrinks</code> line, the map shrinks a quarter of its smaller side.
+ */
+public class AsciiMap extends GameMap {
+    private final int width;
+    private final int height;
+    private final int buffCount;
+    private final int debuffCount;
+    private final int monsterCount;
+    private final int maxShrinks;
+
+    /**
+     * Only constructor.
+     *
+     * @param lines the lines of the text.
+     * @throws MapConstructionException if the text isn't a valid map, or the map fails its {@link #check() checks}.
+     */
+    public AsciiMap(final List<String> lines) throws MapConstructionException {
+        Map<String, Integer> properties = new TreeMap<>();
+        List<String> grid = new ArrayList<>();
+        for (int i = 0; i < lines.size(); ++i) {
+            String line = lines.get(i).stripTrailing();
+            if (line.startsWith(";") || grid.isEmpty() && line.isBlank()) {
+                continue;
+            }
+            int equals = line.indexOf('=');
+            if (grid.isEmpty() && equals > 0 && Character.isLetter(line.charAt(0))) {
+                String key = line.substring(0, equals).strip();
+                try {
+                    properties.put(key, Integer.parseInt(line.substring(equals + 1).strip()));
+                } catch (NumberFormatException e) {
+                    throw new MapConstructionException("Line " + (i + 1) + ": " + key + " is not a number.");
+                }
+            } else {
+                grid.add(line);
+            }
+        }
+        while (!grid.isEmpty() && grid.get(grid.size() - 1).isBlank()) {
+            grid.remove(grid.size() - 1);
+        }
+        properties.keySet().stream()
+            .filter(key -> !List.of("buffs", "debuffs", "monsters", "shrinks").contains(key))
+            .findFirst()
+            .ifPresent(key -> {
+                throw new MapConstructionException("Unknown property " + key + ".");
+            });
+
+        height = grid.size();
+        width = grid.stream().mapToInt(String::length).max().orElse(0);
+        Pair[] numbered = new Pair[9];
+        for (int line = 0; line < height; ++line) {
+            int row = height - 1 - line;
+            String text = grid.get(line);
+            for (int col = 0; col < text.length(); ++col) {
+                char c = text.charAt(col);
+                switch (c) {
+                    case '#' -> walls.set(col, row);
+                    case 'B' -> boxes.set(col, row);
+                    case 'M' -> monsterSpawns.add(Pair.of(col, row));
+                    case '.', ' ' -> {
+                    }
+                    default -> {
+                        if (c < '1' || c > '9') {
+                            throw new MapConstructionException("Unknown cell '" + c + "' at (" + col + ", " + row + ").");
+                        }
+                        if (numbered[c - '1'] != null) {
+                            throw new MapConstructionException("Player spawn " + c + " is drawn more than once.");
+                        }
+                        numbered[c - '1'] = Pair.of(col, row);
+                    }
+                }
+            }
+        }
+        for (Pair spawn : numbered) {
+            if (spawn != null) {
+                playerSpawns.add(spawn);
+            }
+        }
+
+        buffCount = properties.getOrDefault("buffs", 0);
+        debuffCount = properties.getOrDefault("debuffs", 0);
+        monsterCount = properties.getOrDefault("monsters", monsterSpawns.size());
+        maxShrinks = properties.getOrDefault("shrinks", Math.min(width, height) / 4);
+        check();
+    }
+
+    /**
+     * Reads a text map, and writes it to a file in the compact format. The name of the map is the name of the text
+     * file, without its extension.
+     *
+     * @param text the text map, in UTF-8.
+     * @param file the map file to write.
+     * @return the map that was written.
+     * @throws IOException              if a file can't be read or written.
+     * @throws MapConstructionException if the text isn't a valid map.
+     */
+    public static AsciiMap importFile(final Path text, final Path file) throws IOException {
+        AsciiMap map = new AsciiMap(Files.readAllLines(text, StandardCharsets.UTF_8));
+        String name = text.getFileName().toString();
+        FileGameMap.write(map, name.contains(".") ? name.substring(0, name.lastIndexOf('.')) : name, file);
+        return map;
+    }
+
+    @Override
+    public int getBuffCount() {
+        return buffCount;
+    }
+
+    @Override
+    public int getDebuffCount() {
+        return debuffCount;
+    }
+
+    @Override
+    public int getMonsterCount() {
+        return monsterCount;
+    }
+
+    @Override
+    public int getMaxShrinks() {
+        return maxShrinks;
+    }
+
+    @Override
+    public int getMapWidth() {
+        return width;
+    }
+
+    @Override
+    public int getMapHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,412 @@
+package x3.model.map;
+
+import x3.model.util.Pair;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * A <code>CellLayer</code> holds the positions of one kind of object on a {@link GameMap}, e.g. its walls, as a
+ * bitset of the map's cells, one bit per cell in row-major order.
+ * <br>
+ * Setting, clearing and testing a cell takes constant time, and {@link #fill filling} or {@link #clear(int, int,
+ * int, int) clearing} a rectangle sets or clears 64 cells at a time, so building even a large map is quick.
+ * <br>
+ * The layer is also a collection of {@link Pair pairs}, so maps can add and remove positions as they did with
+ * lists. Positions outside the map and positions added more than once can't be held by the bitset: they are kept
+ * aside, so that the map's {@link GameMap#check() checks} can report them.
+ * <br>
+ * Iterating the layer gives its cells in row-major order, or in the order of the last {@link #shuffle(Random)
+ * shuffle}, which lasts until the layer is changed.
+ * <br>
+ * The size of the layer is the size of its map, read when the layer is first used.
+ */
+public class CellLayer extends AbstractCollection<Pair> {
+    private final GameMap map;
+    private int width = -1;
+    private int height;
+    private long[] words;
+    private int count;
+    private final List<Pair> extras = new ArrayList<>();
+    private int[] order;
+
+    /**
+     * Only constructor.
+     *
+     * @param map the map the layer belongs to.
+     */
+    CellLayer(final GameMap map) {
+        this.map = map;
+    }
+
+    private void resolve() {
+        if (width == -1) {
+            width = Math.max(0, map.getMapWidth());
+            height = Math.max(0, map.getMapHeight());
+            words = new long[(width * height + 63) >>> 6];
+        }
+    }
+
+    /**
+     * Makes this layer a copy of the given one, a word of cells at a time. The order of the last shuffle is kept.
+     *
+     * @param other the layer of a map of the same size.
+     */
+    void copy(final CellLayer other) {
+        other.resolve();
+        width = other.width;
+        height = other.height;
+        words = other.words.clone();
+        count = other.count;
+        extras.clear();
+        extras.addAll(other.extras);
+        order = other.order;
+    }
+
+    /**
+     * Returns whether the given column and row are within the bounds of the map.
+     *
+     * @param col column index.
+     * @param row row index.
+     * @return true if the cell exists.
+     */
+    public boolean inBounds(int col, int row) {
+        resolve();
+        return col >= 0 && col < width && row >= 0 && row < height;
+    }
+
+    /**
+     * Returns whether the given cell is set.
+     *
+     * @param col column index.
+     * @param row row index.
+     * @return true if the cell is within the map, and is set.
+     */
+    public boolean test(int col, int row) {
+        if (!inBounds(col, row)) {
+            return false;
+        }
+        int cell = row * width + col;
+        return (words[cell >>> 6] & 1L << cell) != 0;
+    }
+
+    /**
+     * Sets the given cell.
+     *
+     * @param col column index.
+     * @param row row index.
+     */
+    public void set(int col, int row) {
+        order = null;
+        if (!inBounds(col, row)) {
+            extras.add(Pair.of(col, row));
+            return;
+        }
+        int cell = row * width + col;
+        long bit = 1L << cell;
+        if ((words[cell >>> 6] & bit) != 0) {
+            extras.add(Pair.of(col, row));
+        } else {
+            words[cell >>> 6] |= bit;
+            ++count;
+        }
+    }
+
+    /**
+     * Clears the given cell once: a position added more than once remains set.
+     *
+     * @param col column index.
+     * @param row row index.
+     * @return true if the cell was set.
+     */
+    public boolean clear(int col, int row) {
+        order = null;
+        for (int i = 0; i < extras.size(); ++i) {
+            Pair pair = extras.get(i);
+            if (pair.col == col && pair.row == row) {
+                extras.remove(i);
+                return true;
+            }
+        }
+        if (!test(col, row)) {
+            return false;
+        }
+        int cell = row * width + col;
+        words[cell >>> 6] &= ~(1L << cell);
+        --count;
+        return true;
+    }
+
+    /**
+     * Sets every cell of the rectangle between the given rows and columns, inclusive.
+     * <br>
+     * Cells that were already set, and cells outside the map, are kept aside for the checks of the map.
+     *
+     * @param rowMin the first row.
+     * @param colMin the first column.
+     * @param rowMax the last row.
+     * @param colMax the last column.
+     */
+    public void fill(int rowMin, int colMin, int rowMax, int colMax) {
+        resolve();
+        order = null;
+        int from = Math.max(0, colMin);
+        int to = Math.min(width - 1, colMax);
+        for (int row = rowMin; row <= rowMax; ++row) {
+            if (row < 0 || row >= height) {
+                for (int col = colMin; col <= colMax; ++col) {
+                    extras.add(Pair.of(col, row));
+                }
+                continue;
+            }
+            for (int col = colMin; col <= Math.min(colMax, -1); ++col) {
+                extras.add(Pair.of(col, row));
+            }
+            for (int col = Math.max(colMin, width); col <= colMax; ++col) {
+                extras.add(Pair.of(col, row));
+            }
+            if (from <= to) {
+                setRange(row * width + from, row * width + to);
+            }
+        }
+    }
+
+    /**
+     * Clears every cell of the rectangle between the given rows and columns, inclusive, including positions added
+     * more than once, and positions outside the map.
+     *
+     * @param rowMin the first row.
+     * @param colMin the first column.
+     * @param rowMax the last row.
+     * @param colMax the last column.
+     */
+    public void clear(int rowMin, int colMin, int rowMax, int colMax) {
+        resolve();
+        order = null;
+        extras.removeIf(pair -> pair.row >= rowMin && pair.row <= rowMax && pair.col >= colMin && pair.col <= colMax);
+        int from = Math.max(0, colMin);
+        int to = Math.min(width - 1, colMax);
+        if (from > to) {
+            return;
+        }
+        for (int row = Math.max(0, rowMin); row <= Math.min(height - 1, rowMax); ++row) {
+            clearRange(row * width + from, row * width + to);
+        }
+    }
+
+    /**
+     * Sets the cells of the given range, inclusive, a word at a time.
+     *
+     * @param from the first cell index.
+     * @param to   the last cell index.
+     */
+    void setCells(int from, int to) {
+        resolve();
+        order = null;
+        if (from < 0 || to >= width * height) {
+            throw new IndexOutOfBoundsException("Cells " + from + ".." + to + " are outside the map");
+        }
+        if (from <= to) {
+            setRange(from, to);
+        }
+    }
+
+    /**
+     * Sets the cells of the given bits of a word of the bitset. Bits past the last cell are ignored.
+     *
+     * @param index the index of the word.
+     * @param bits  the cells to set.
+     */
+    void setWord(int index, long bits) {
+        resolve();
+        order = null;
+        int cells = width * height - (index << 6);
+        if (cells < 64) {
+            bits &= (1L << cells) - 1;
+        }
+        count += Long.bitCount(bits & ~words[index]);
+        words[index] |= bits;
+    }
+
+    /**
+     * Returns the number of words of the bitset.
+     *
+     * @return the number of words.
+     */
+    int getWordCount() {
+        resolve();
+        return words.length;
+    }
+
+    private void setRange(int from, int to) {
+        int last = to >>> 6;
+        for (int w = from >>> 6; w <= last; ++w) {
+            long mask = mask(w, from, to);
+            long repeated = words[w] & mask;
+            while (repeated != 0) {
+                int cell = (w << 6) + Long.numberOfTrailingZeros(repeated);
+                extras.add(Pair.of(cell % width, cell / width));
+                repeated &= repeated - 1;
+            }
+            count += Long.bitCount(mask & ~words[w]);
+            words[w] |= mask;
+        }
+    }
+
+    private void clearRange(int from, int to) {
+        int last = to >>> 6;
+        for (int w = from >>> 6; w <= last; ++w) {
+            long mask = mask(w, from, to);
+            count -= Long.bitCount(words[w] & mask);
+            words[w] &= ~mask;
+        }
+    }
+
+    /**
+     * Returns the bits of the given word that are within the range of cells.
+     */
+    private static long mask(int word, int from, int to) {
+        long mask = -1L;
+        if (word == from >>> 6) {
+            mask &= -1L << from;
+        }
+        if (word == to >>> 6) {
+            mask &= -1L >>> 63 - (to & 63);
+        }
+        return mask;
+    }
+
+    /**
+     * Returns whether this layer and the given one, of a map of the same size, have a set cell in common.
+     *
+     * @param other the other layer.
+     * @return true if the layers overlap.
+     */
+    public boolean intersects(final CellLayer other) {
+        resolve();
+        other.resolve();
+        for (int w = 0; w < Math.min(words.length, other.words.length); ++w) {
+            if ((words[w] & other.words[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the positions that the bitset can't hold: the ones outside the map, and the ones added more than once.
+     *
+     * @return the positions kept aside, empty on a valid map.
+     */
+    List<Pair> getExtras() {
+        return extras;
+    }
+
+    /**
+     * Orders the set cells randomly, until the layer is next changed.
+     *
+     * @param random the source of randomness.
+     */
+    public void shuffle(final Random random) {
+        resolve();
+        int[] cells = new int[count];
+        int i = 0;
+        for (int w = 0; w < words.length; ++w) {
+            for (long word = words[w]; word != 0; word &= word - 1) {
+                cells[i++] = (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        for (i = cells.length; i > 1; --i) {
+            int j = random.nextInt(i);
+            int cell = cells[i - 1];
+            cells[i - 1] = cells[j];
+            cells[j] = cell;
+        }
+        order = cells;
+    }
+
+    @Override
+    public boolean add(final Pair pair) {
+        set(pair.col, pair.row);
+        return true;
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        return o instanceof Pair pair && clear(pair.col, pair.row);
+    }
+
+    @Override
+    public boolean removeAll(final Collection<?> c) {
+        boolean changed = false;
+        for (Object o : c) {
+            changed |= remove(o);
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof Pair pair && (test(pair.col, pair.row) || extras.contains(pair));
+    }
+
+    @Override
+    public void clear() {
+        resolve();
+        order = null;
+        extras.clear();
+        Arrays.fill(words, 0);
+        count = 0;
+    }
+
+    @Override
+    public int size() {
+        return count + extras.size();
+    }
+
+    @Override
+    public Iterator<Pair> iterator() {
+        resolve();
+        return new Iterator<>() {
+            private final int[] cells = order;
+            private int index;
+            private int word;
+            private long bits = words.length > 0 ? words[0] : 0;
+            private int extra;
+
+            @Override
+            public boolean hasNext() {
+                if (cells != null) {
+                    return index < cells.length || extra < extras.size();
+                }
+                while (bits == 0 && word + 1 < words.length) {
+                    bits = words[++word];
+                }
+                return bits != 0 || extra < extras.size();
+            }
+
+            @Override
+            public Pair next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int cell;
+                if (cells != null && index < cells.length) {
+                    cell = cells[index++];
+                } else if (cells == null && bits != 0) {
+                    cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                } else {
+                    return extras.get(extra++);
+                }
+                return Pair.of(cell % width, cell / width);
+            }
+        };
+    }
+}
@@ -0,0 +1,638 @@
+package x3.model.map;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntSet;
+import x3.model.effect.Effect;
+import x3.model.game.objects.Box;
+import x3.model.game.objects.Wall;
+import x3.model.util.Pair;
+import x3.model.util.exception.MapConstructionException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * An <code>EditableMap</code> is a map painted cell by cell, e.g. in the map editor, that keeps the result of its
+ * {@link #check() checks} up to date after every edit.
+ * <br>
+ * Instead of checking the whole map again, an edit only updates what it touched:
+ * <ul>
+ *     <li>whether the edited cell holds more than one object, kept in a set of the overlapping cells,</li>
+ *     <li>the number of {@link Box boxes}, against the number of effects,</li>
+ *     <li>the regions of the floor, as described by {@link Reachability}.</li>
+ * </ul>
+ * Removing a {@link Wall} merges the regions around it into the largest one, relabelling the smaller ones. Adding a
+ * wall can only split its region if the floor around it falls apart, which is decided from the 8 cells around it;
+ * only then is the region searched, from the cells next to the new wall, until they all meet again. Edits outside
+ * the map are ignored, so nothing ever hangs over its edges.
+ * <br>
+ * The map is checked in full once more when it's {@link #save(String, Path) saved}.
+ */
+public class EditableMap extends GameMap {
+    /**
+     * The offsets of the 8 cells around a cell, going around it: the cells next to it at even indices, and the
+     * corners between them at odd ones.
+     */
+    private static final int[] RING_COLS = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final int[] RING_ROWS = {1, 1, 0, -1, -1, -1, 0, 1};
+
+    private final int width;
+    private final int height;
+    private int buffCount;
+    private int debuffCount;
+    private int monsterCount;
+    private int maxShrinks;
+
+    private final int[] regions;
+    private int[] regionSizes = new int[16];
+    private int regionCount;
+    private final IntArray freeRegions = new IntArray();
+    private final int[] spawnCounts;
+    private final IntSet overlaps = new IntSet();
+    private final int[] queue;
+    private final int[] visits;
+    private int visit;
+    private final int[] neighbourCells = new int[4];
+
+    /**
+     * Primary constructor.
+     * <br>
+     * Creates an empty map surrounded with walls, without spawns, effects or monsters.
+     *
+     * @param width  the width of the map.
+     * @param height the height of the map.
+     * @throws IllegalArgumentException if the map would have no cells.
+     */
+    public EditableMap(int width, int height) {
+        this(width, height, null);
+    }
+
+    /**
+     * Copy constructor.
+     * <br>
+     * Copies the layout and the numbers of any map, e.g. a built-in map or a map file, to edit it. All monster
+     * spawns are copied, not only the ones in use, and positions outside the map are left out. A map file that fails
+     * its checks is copied all the same, so that it can be fixed.
+     *
+     * @param map the map to copy.
+     * @throws IllegalArgumentException if the map has no cells.
+     */
+    public EditableMap(final GameMap map) {
+        this(map.getMapWidth(), map.getMapHeight(), map);
+        buffCount = map.getBuffCount();
+        debuffCount = map.getDebuffCount();
+        monsterCount = map.getMonsterCount();
+        maxShrinks = map.getMaxShrinks();
+    }
+
+    private EditableMap(int width, int height, final GameMap layout) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Map area size cannot be less than 1.");
+        }
+        this.width = width;
+        this.height = height;
+        regions = new int[width * height];
+        spawnCounts = new int[regions.length];
+        queue = new int[regions.length];
+        visits = new int[regions.length];
+        if (layout == null) {
+            surroundWithWalls();
+        } else {
+            copy(layout);
+        }
+        rebuild();
+    }
+
+    private void copy(final GameMap layout) {
+        if (layout instanceof FileGameMap file) {
+            try {
+                file.load();
+            } catch (MapConstructionException e) {
+                // the layers of a map that fails its checks are decoded all the same
+            }
+        }
+        layout.walls.stream().filter(pair -> isInside(pair.col, pair.row) && !walls.test(pair.col, pair.row))
+            .forEach(pair -> walls.set(pair.col, pair.row));
+        layout.boxes.stream().filter(pair -> isInside(pair.col, pair.row) && !boxes.test(pair.col, pair.row))
+            .forEach(pair -> boxes.set(pair.col, pair.row));
+        layout.playerSpawns.stream().filter(pair -> isInside(pair.col, pair.row)).forEach(playerSpawns::add);
+        layout.monsterSpawns.stream().filter(pair -> isInside(pair.col, pair.row)).forEach(monsterSpawns::add);
+    }
+
+    /**
+     * Labels the regions of the whole map, and finds every overlap.
+     */
+    private void rebuild() {
+        for (int cell = 0; cell < regions.length; ++cell) {
+            regions[cell] = isWall(cell % width, cell / width) ? Reachability.NONE : Integer.MAX_VALUE;
+        }
+        for (int cell = 0; cell < regions.length; ++cell) {
+            if (regions[cell] == Integer.MAX_VALUE) {
+                int region = newRegion();
+                regionSizes[region] = relabel(cell, Integer.MAX_VALUE, region);
+            }
+        }
+        playerSpawns.forEach(pair -> ++spawnCounts[pair.row * width + pair.col]);
+        monsterSpawns.forEach(pair -> ++spawnCounts[pair.row * width + pair.col]);
+        for (int cell = 0; cell < regions.length; ++cell) {
+            updateOverlap(cell);
+        }
+    }
+
+    private boolean isInside(int col, int row) {
+        return col >= 0 && col < width && row >= 0 && row < height;
+    }
+
+    /**
+     * Puts a {@link Wall} in the given cell, in place of a box.
+     *
+     * @param col column index.
+     * @param row row index.
+     * @return true if the cell changed, false if it already held a wall, or is outside the map.
+     */
+    public boolean setWall(int col, int row) {
+        if (!isInside(col, row) || walls.test(col, row)) {
+            return false;
+        }
+        boxes.clear(col, row);
+        walls.set(col, row);
+        close(row * width + col);
+        updateOverlap(row * width + col);
+        return true;
+    }
+
+    /**
+     * Puts a {@link Box} in the given cell, in place of a wall.
+     *
+     * @param col column index.
+     * @param row row index.
+     * @return true if the cell changed, false if it already held a box, or is outside the map.
+     */
+    public boolean setBox(int col, int row) {
+        if (!isInside(col, row) || boxes.test(col, row)) {
+            return false;
+        }
+        if (walls.clear(col, row)) {
+            open(row * width + col);
+        }
+        boxes.set(col, row);
+        updateOverlap(row * width + col);
+        return true;
+    }
+
+    /**
+     * Clears the wall or the box of the given cell. Its spawns are kept.
+     *
+     * @param col column index.
+     * @param row row index.
+     * @return true if the cell changed, false if it was already empty, or is outside the map.
+     */
+    public boolean setFloor(int col, int row) {
+        if (!isInside(col, row)) {
+            return false;
+        }
+        boolean changed = boxes.clear(col, row);
+        if (walls.clear(col, row)) {
+            open(row * width + col);
+            changed = true;
+        }
+        updateOverlap(row * width + col);
+        return changed;
+    }
+
+    /**
+     * Adds a player spawn in the given cell, after the others.
+     * <br>
+     * A spawn on a wall, on a box or on another spawn is kept, and reported as an overlap.
+     *
+     * @param col column index.
+     * @param row row index.
+     * @return true if the spawn was added, false if the cell is outside the map.
+     */
+    public boolean addPlayerSpawn(int col, int row) {
+        return addSpawn(playerSpawns, col, row);
+    }
+
+    /**
+     * Adds a monster spawn in the given cell, after the others.
+     * <br>
+     * A spawn on a wall, on a box or on another spawn is kept, and reported as an overlap.
+     *
+     * @param col column index.
+     * @param row row index.
+     * @return true if the spawn was added, false if the cell is outside the map.
+     */
+    public boolean addMonsterSpawn(int col, int row) {
+        return addSpawn(monsterSpawns, col, row);
+    }
+
+    private boolean addSpawn(final List<Pair> spawns, int col, int row) {
+        if (!isInside(col, row)) {
+            return false;
+        }
+        spawns.add(Pair.of(col, row));
+        ++spawnCounts[row * width + col];
+        updateOverlap(row * width + col);
+        return true;
+    }
+
+    /**
+     * Removes every player and monster spawn of the given cell.
+     *
+     * @param col column index.
+     * @param row row index.
+     * @return true if a spawn was removed.
+     */
+    public boolean removeSpawns(int col, int row) {
+        if (!isInside(col, row) || spawnCounts[row * width + col] == 0) {
+            return false;
+        }
+        Pair pair = Pair.of(col, row);
+        playerSpawns.removeIf(pair::equals);
+        monsterSpawns.removeIf(pair::equals);
+        spawnCounts[row * width + col] = 0;
+        updateOverlap(row * width + col);
+        return true;
+    }
+
+    /**
+     * Returns whether the given cell holds a player spawn.
+     *
+     * @param col column index.
+     * @param row row index.
+     * @return true if a player spawns in the cell.
+     */
+    public boolean isPlayerSpawn(int col, int row) {
+        return isInside(col, row) && spawnCounts[row * width + col] > 0 && playerSpawns.contains(Pair.of(col, row));
+    }
+
+    /**
+     * Returns whether the given cell holds a monster spawn.
+     *
+     * @param col column index.
+     * @param row row index.
+     * @return true if a monster spawns in the cell.
+     */
+    public boolean isMonsterSpawn(int col, int row) {
+        return isInside(col, row) && spawnCounts[row * width + col] > 0 && monsterSpawns.contains(Pair.of(col, row));
+    }
+
+    /**
+     * Returns every monster spawn, including the ones beyond the {@link #getMonsterCount() number of monsters}.
+     *
+     * @return a stream of all monster spawn positions.
+     */
+    public Stream<Pair> getAllMonsterSpawns() {
+        return monsterSpawns.stream();
+    }
+
+    private void updateOverlap(int cell) {
+        int col = cell % width;
+        int row = cell / width;
+        int objects = spawnCounts[cell] + (walls.test(col, row) ? 1 : 0) + (boxes.test(col, row) ? 1 : 0);
+        if (objects > 1) {
+            overlaps.add(cell);
+        } else {
+            overlaps.remove(cell);
+        }
+    }
+
+    /**
+     * Merges the regions next to a cell that was opened up into the largest one of them.
+     */
+    private void open(int cell) {
+        int largest = Reachability.NONE;
+        for (int next : neighbours(cell)) {
+            if (next != Reachability.NONE && regions[next] != Reachability.NONE
+                && (largest == Reachability.NONE || regionSizes[regions[next]] > regionSizes[largest])) {
+                largest = regions[next];
+            }
+        }
+        if (largest == Reachability.NONE) {
+            largest = newRegion();
+        }
+        for (int next : neighbours(cell).clone()) {
+            if (next != Reachability.NONE && regions[next] != Reachability.NONE && regions[next] != largest) {
+                int region = regions[next];
+                regionSizes[largest] += relabel(next, region, largest);
+                freeRegion(region);
+            }
+        }
+        regions[cell] = largest;
+        ++regionSizes[largest];
+    }
+
+    /**
+     * Takes a cell that was closed off out of its region, and splits the region if the cell held it together.
+     * <br>
+     * Starting from the first cell next to the closed one, the region is searched until the other cells next to it
+     * are all found. The cells that can't be found are in other parts, which are searched and relabelled in turn.
+     */
+    private void close(int cell) {
+        int region = regions[cell];
+        regions[cell] = Reachability.NONE;
+        if (--regionSizes[region] == 0) {
+            freeRegion(region);
+            return;
+        }
+        if (!maySplit(cell)) {
+            return;
+        }
+        int[] starts = neighbours(cell).clone();
+        for (int i = 0; i < starts.length; ++i) {
+            int start = starts[i];
+            if (start == Reachability.NONE || regions[start] != region) {
+                continue;
+            }
+            int size = search(start, region, starts, i + 1);
+            if (size == 0) {
+                break;
+            }
+            // the rest of the region was out of reach: the part searched is a region of its own
+            int part = newRegion();
+            for (int k = 0; k < size; ++k) {
+                regions[queue[k]] = part;
+            }
+            regionSizes[part] = size;
+            regionSizes[region] -= size;
+        }
+    }
+
+    /**
+     * Returns whether closing the given cell may split its region, i.e. whether the floor among the 8 cells around it
+     * falls into more than one group that holds a cell next to it. Groups joined around the cell can't be split.
+     */
+    private boolean maySplit(int cell) {
+        int col = cell % width;
+        int row = cell / width;
+        int groups = 0;
+        int joins = 0;
+        for (int i = 0; i < 8; i += 2) {
+            if (!isFloor(col + RING_COLS[i], row + RING_ROWS[i])) {
+                continue;
+            }
+            ++groups;
+            int corner = i + 1;
+            int following = (i + 2) % 8;
+            if (isFloor(col + RING_COLS[corner], row + RING_ROWS[corner])
+                && isFloor(col + RING_COLS[following], row + RING_ROWS[following])) {
+                ++joins;
+            }
+        }
+        return Math.max(Math.min(groups, 1), groups - joins) > 1;
+    }
+
+    private boolean isFloor(int col, int row) {
+        return isInside(col, row) && regions[row * width + col] != Reachability.NONE;
+    }
+
+    /**
+     * Searches a region from a cell, until the given cells are all found.
+     *
+     * @return 0 if they were all found, or else the number of cells of the region found, which are at the start of
+     *         the queue.
+     */
+    private int search(int start, int region, final int[] targets, int from) {
+        ++visit;
+        int missing = 0;
+        for (int i = from; i < targets.length; ++i) {
+            if (targets[i] != Reachability.NONE && regions[targets[i]] == region && targets[i] != start) {
+                ++missing;
+            }
+        }
+        if (missing == 0) {
+            return 0;
+        }
+        visits[start] = visit;
+        queue[0] = start;
+        int tail = 1;
+        for (int head = 0; head < tail; ++head) {
+            for (int next : neighbours(queue[head])) {
+                if (next == Reachability.NONE || regions[next] != region || visits[next] == visit) {
+                    continue;
+                }
+                visits[next] = visit;
+                queue[tail++] = next;
+                for (int i = from; i < targets.length; ++i) {
+                    if (targets[i] == next && --missing == 0) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Relabels the region of a cell.
+     *
+     * @return the number of cells relabelled.
+     */
+    private int relabel(int start, int from, int to) {
+        regions[start] = to;
+        queue[0] = start;
+        int tail = 1;
+        for (int head = 0; head < tail; ++head) {
+            for (int next : neighbours(queue[head])) {
+                if (next != Reachability.NONE && regions[next] == from) {
+                    regions[next] = to;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Returns the cells next to the given one, or {@link Reachability#NONE} for the ones outside the map.
+     */
+    private int[] neighbours(int cell) {
+        int col = cell % width;
+        neighbourCells[0] = col > 0 ? cell - 1 : Reachability.NONE;
+        neighbourCells[1] = col < width - 1 ? cell + 1 : Reachability.NONE;
+        neighbourCells[2] = cell >= width ? cell - width : Reachability.NONE;
+        neighbourCells[3] = cell < regions.length - width ? cell + width : Reachability.NONE;
+        return neighbourCells;
+    }
+
+    private int newRegion() {
+        if (freeRegions.notEmpty()) {
+            return freeRegions.pop();
+        }
+        if (regionCount == regionSizes.length) {
+            regionSizes = Arrays.copyOf(regionSizes, regionCount * 2);
+        }
+        regionSizes[regionCount] = 0;
+        return regionCount++;
+    }
+
+    private void freeRegion(int region) {
+        regionSizes[region] = 0;
+        freeRegions.add(region);
+    }
+
+    /**
+     * Returns the region of the given cell. Cells share a region if the players can walk from one to the other,
+     * once the boxes are blown up. The indices of the regions change as the map is edited.
+     *
+     * @param col column index.
+     * @param row row index.
+     * @return the index of the region, or {@link Reachability#NONE} if the cell is a wall, or outside the map.
+     */
+    public int getRegion(int col, int row) {
+        return isInside(col, row) ? regions[row * width + col] : Reachability.NONE;
+    }
+
+    /**
+     * Returns the cells that hold more than one object, in the order of the cells.
+     *
+     * @return the overlapping cells.
+     */
+    public List<Pair> getOverlaps() {
+        int[] cells = overlaps.iterator().toArray().toArray();
+        Arrays.sort(cells);
+        return Arrays.stream(cells).mapToObj(cell -> Pair.of(cell % width, cell / width)).toList();
+    }
+
+    /**
+     * Returns the player spawns sealed off from the others: the ones outside the region of most spawns, as
+     * {@link Reachability#getSealedSpawns()} finds them.
+     *
+     * @return the sealed spawns, in the order of the spawns.
+     */
+    public List<Pair> getSealedSpawns() {
+        Map<Integer, Integer> spawnsPerRegion = new HashMap<>();
+        int main = Reachability.NONE;
+        for (Pair spawn : playerSpawns) {
+            int region = regions[spawn.row * width + spawn.col];
+            if (region == Reachability.NONE) {
+                continue;
+            }
+            int count = spawnsPerRegion.merge(region, 1, Integer::sum);
+            if (count > (main == Reachability.NONE ? 0 : spawnsPerRegion.get(main))) {
+                main = region;
+            }
+        }
+        int mainRegion = main;
+        return playerSpawns.stream().filter(spawn -> regions[spawn.row * width + spawn.col] != mainRegion).toList();
+    }
+
+    /**
+     * Describes every problem of the map, as its {@link #check() checks} would. Takes time in the number of problems
+     * and spawns, not in the size of the map.
+     *
+     * @return the descriptions of the problems, empty if the map can be played.
+     */
+    public List<String> getProblems() {
+        List<String> problems = new ArrayList<>();
+        for (Runnable check : List.<Runnable>of(this::checkCounts, this::checkBoxCount)) {
+            try {
+                check.run();
+            } catch (MapConstructionException e) {
+                problems.add(e.getMessage());
+            }
+        }
+        if (!overlaps.isEmpty()) {
+            problems.add(describe(getOverlaps(), "occurring more than once, possible overlap"));
+        }
+        List<Pair> sealed = getSealedSpawns();
+        if (!sealed.isEmpty()) {
+            problems.add(describe(sealed, "sealed off from the other player spawns"));
+        }
+        return problems;
+    }
+
+    /**
+     * Returns whether the map passes its checks.
+     *
+     * @return true if there are no {@link #getProblems() problems}.
+     */
+    public boolean isValid() {
+        return getProblems().isEmpty();
+    }
+
+    /**
+     * Checks the whole map, then writes it to a file in the {@link FileGameMap compact map format}.
+     *
+     * @param name the name of the map.
+     * @param file the file to write.
+     * @throws MapConstructionException if the map fails its checks. Nothing is written then.
+     * @throws IOException              if the file can't be written.
+     */
+    public void save(String name, final Path file) throws IOException {
+        check();
+        FileGameMap.write(this, name, file);
+    }
+
+    /**
+     * Sets the number of {@link Effect buffs} hidden in the boxes.
+     *
+     * @param buffCount the number, checked along with the rest of the map.
+     */
+    public void setBuffCount(int buffCount) {
+        this.buffCount = buffCount;
+    }
+
+    /**
+     * Sets the number of {@link Effect debuffs} hidden in the boxes.
+     *
+     * @param debuffCount the number, checked along with the rest of the map.
+     */
+    public void setDebuffCount(int debuffCount) {
+        this.debuffCount = debuffCount;
+    }
+
+    /**
+     * Sets the number of monsters.
+     *
+     * @param monsterCount the number, checked along with the rest of the map.
+     */
+    public void setMonsterCount(int monsterCount) {
+        this.monsterCount = monsterCount;
+    }
+
+    /**
+     * Sets the number of shrinks of the battle royale.
+     *
+     * @param maxShrinks the number, checked along with the rest of the map.
+     */
+    public void setMaxShrinks(int maxShrinks) {
+        this.maxShrinks = maxShrinks;
+    }
+
+    @Override
+    public int getBuffCount() {
+        return buffCount;
+    }
+
+    @Override
+    public int getDebuffCount() {
+        return debuffCount;
+    }
+
+    @Override
+    public int getMonsterCount() {
+        return monsterCount;
+    }
+
+    @Override
+    public int getMaxShrinks() {
+        return maxShrinks;
+    }
+
+    @Override
+    public int getMapWidth() {
+        return width;
+    }
+
+    @Override
+    public int getMapHeight() {
+        return height;
+    }
+}
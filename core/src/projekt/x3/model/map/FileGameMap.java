@@ -0,0 +1,442 @@
+package x3.model.map;
+
+import x3.model.util.Pair;
+import x3.model.util.exception.MapConstructionException;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * A <code>FileGameMap</code> is a map read from a file of the compact map format.
+ * <br>
+ * The format, big-endian:
+ * <ol>
+ *     <li>the {@link #MAGIC magic} int and the {@link #VERSION version} short,</li>
+ *     <li>the name of the map, as a short length and UTF-8 bytes,</li>
+ *     <li>the width and height as unsigned shorts,</li>
+ *     <li>the numbers of buffs, debuffs and monsters and the maximum number of shrinks, as ints,</li>
+ *     <li>the player and then the monster spawns, each as a short count and (column, row) short pairs,</li>
+ *     <li>the walls and then the boxes, each as an encoding byte, an int length and the encoded layer.</li>
+ * </ol>
+ * A layer is encoded either as the words of its {@link CellLayer bitset}, or as varint runs of cells in row-major
+ * order, alternately clear and set, starting with a clear run. The writer picks the smaller of the two, so a
+ * 1024x1024 map takes 256 KB at most, and far less if its walls and boxes are grouped.
+ * <br>
+ * The file is mapped into memory, and only its header and spawns are read when it's opened, so the maps directory is
+ * listed quickly. The layers are decoded when they're first used, and the map is then {@link #check() checked}.
+ */
+public class FileGameMap extends GameMap {
+    /**
+     * The first bytes of every map file.
+     */
+    public static final int MAGIC = 0x44434D50;
+    /**
+     * The version of the format.
+     */
+    public static final short VERSION = 1;
+    /**
+     * The extension of map files.
+     */
+    public static final String EXTENSION = ".map";
+    private static final byte BITS = 0;
+    private static final byte RUNS = 1;
+    private static final int MAX_SIZE = 0xFFFF;
+
+    private final String name;
+    private final int width;
+    private final int height;
+    private final int buffCount;
+    private final int debuffCount;
+    private final int monsterCount;
+    private final int maxShrinks;
+    private final ByteBuffer wallLayer;
+    private final ByteBuffer boxLayer;
+    private volatile boolean decoded;
+    private boolean decoding;
+    private MapConstructionException failure;
+
+    /**
+     * Primary constructor.
+     * <br>
+     * Reads the header and the spawns of the encoded map. The buffer isn't copied, and must not be changed.
+     *
+     * @param buffer the encoded map, from its position to its limit.
+     * @throws IOException if the buffer isn't a map of the known version.
+     */
+    public FileGameMap(final ByteBuffer buffer) throws IOException {
+        ByteBuffer in = buffer.slice();
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a map");
+            }
+            short version = in.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unknown map version " + version);
+            }
+            byte[] nameBytes = new byte[Short.toUnsignedInt(in.getShort())];
+            in.get(nameBytes);
+            name = new String(nameBytes, StandardCharsets.UTF_8);
+            width = Short.toUnsignedInt(in.getShort());
+            height = Short.toUnsignedInt(in.getShort());
+            if ((long) width * height > Integer.MAX_VALUE - Long.SIZE) {
+                throw new IOException("The map is too large: " + width + "x" + height);
+            }
+            buffCount = in.getInt();
+            debuffCount = in.getInt();
+            monsterCount = in.getInt();
+            maxShrinks = in.getInt();
+            readSpawns(in, playerSpawns);
+            readSpawns(in, monsterSpawns);
+            wallLayer = readLayer(in);
+            boxLayer = readLayer(in);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated map", e);
+        }
+    }
+
+    /**
+     * Secondary constructor.
+     * <br>
+     * Maps the file into memory, and reads its header and spawns.
+     *
+     * @param file the map file.
+     * @throws IOException if the file can't be read, or isn't a map of the known version.
+     */
+    public FileGameMap(final Path file) throws IOException {
+        this(map(file));
+    }
+
+    private static ByteBuffer map(final Path file) throws IOException {
+        // the mapping stays valid after its channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("The map is larger than 2 GB");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static void readSpawns(final ByteBuffer in, final List<Pair> spawns) {
+        for (int count = Short.toUnsignedInt(in.getShort()); count > 0; --count) {
+            spawns.add(Pair.of(in.getShort(), in.getShort()));
+        }
+    }
+
+    private ByteBuffer readLayer(final ByteBuffer in) throws IOException {
+        int start = in.position();
+        byte encoding = in.get();
+        int length = in.getInt();
+        if (encoding != BITS && encoding != RUNS || length < 0 || length > in.remaining()) {
+            throw new IOException("Corrupt map layer");
+        }
+        if (encoding == BITS && length != ((long) width * height + 63 >>> 6) * Long.BYTES) {
+            throw new IOException("Corrupt map layer");
+        }
+        ByteBuffer layer = in.slice(start, Byte.BYTES + Integer.BYTES + length);
+        in.position(in.position() + length);
+        return layer;
+    }
+
+    /**
+     * Lists the maps of the given directory, the files with the {@link #EXTENSION map extension}, in the order of
+     * their names. Only the headers are read: the layers are decoded when a map is played.
+     *
+     * @param directory the maps directory.
+     * @return the maps, empty if the directory doesn't exist.
+     * @throws IOException if the directory can't be listed.
+     */
+    public static List<FileGameMap> list(final Path directory) throws IOException {
+        List<FileGameMap> maps = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return maps;
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        for (Path file : files) {
+            try {
+                maps.add(new FileGameMap(file));
+            } catch (IOException e) {
+                // a file that isn't a map is left out of the list, the others can still be played
+            }
+        }
+        return maps;
+    }
+
+    /**
+     * Encodes the given map in the compact map format.
+     *
+     * @param map  the map.
+     * @param name the name of the map.
+     * @return the encoded map, ready to be read.
+     * @throws IllegalArgumentException if the map or its name is too long for the format.
+     */
+    public static ByteBuffer encode(final GameMap map, String name) {
+        int width = map.getMapWidth();
+        int height = map.getMapHeight();
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (width < 0 || width > MAX_SIZE || height < 0 || height > MAX_SIZE || nameBytes.length > MAX_SIZE
+            || (long) width * height > Integer.MAX_VALUE - Long.SIZE) {
+            throw new IllegalArgumentException("The map is too large for the format");
+        }
+        List<Pair> playerSpawns = map.getPlayerSpawns(Integer.MAX_VALUE).toList();
+        List<Pair> monsterSpawns = map.monsterSpawns;
+        byte[] walls = encodeLayer(map.getWalls(), width, height);
+        byte[] boxes = encodeLayer(map.getBoxes(), width, height);
+
+        ByteBuffer out = ByteBuffer.allocate(Integer.BYTES + Short.BYTES + Short.BYTES + nameBytes.length
+            + 2 * Short.BYTES + 4 * Integer.BYTES
+            + 2 * Short.BYTES + 2 * Short.BYTES * (playerSpawns.size() + monsterSpawns.size())
+            + walls.length + boxes.length);
+        out.putInt(MAGIC).putShort(VERSION);
+        out.putShort((short) nameBytes.length).put(nameBytes);
+        out.putShort((short) width).putShort((short) height);
+        out.putInt(map.getBuffCount()).putInt(map.getDebuffCount()).putInt(map.getMonsterCount())
+            .putInt(map.getMaxShrinks());
+        writeSpawns(out, playerSpawns);
+        writeSpawns(out, monsterSpawns);
+        out.put(walls).put(boxes);
+        return out.flip();
+    }
+
+    /**
+     * Writes the given map to a file, in the compact map format.
+     *
+     * @param map  the map.
+     * @param name the name of the map.
+     * @param file the file to write.
+     * @throws IOException if the file can't be written.
+     * @see #encode(GameMap, String)
+     */
+    public static void write(final GameMap map, String name, final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = encode(map, name);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static void writeSpawns(final ByteBuffer out, final List<Pair> spawns) {
+        if (spawns.size() > MAX_SIZE) {
+            throw new IllegalArgumentException("Too many spawns for the format");
+        }
+        out.putShort((short) spawns.size());
+        for (Pair spawn : spawns) {
+            out.putShort((short) spawn.col).putShort((short) spawn.row);
+        }
+    }
+
+    /**
+     * Encodes the cells of a layer in the smaller of the two encodings, with its header. Positions outside the map
+     * are left out.
+     */
+    private static byte[] encodeLayer(final Stream<Pair> cells, int width, int height) {
+        long[] words = new long[(int) ((long) width * height + 63 >>> 6)];
+        cells.filter(pair -> pair.col >= 0 && pair.col < width && pair.row >= 0 && pair.row < height)
+            .mapToInt(pair -> pair.row * width + pair.col)
+            .forEach(cell -> words[cell >>> 6] |= 1L << cell);
+
+        ByteBuffer runs = ByteBuffer.allocate(words.length * Long.BYTES);
+        int total = width * height;
+        boolean set = false;
+        int start = 0;
+        for (int cell = 0; cell <= total && runs.remaining() >= 10; ++cell) {
+            boolean bit = cell < total && (words[cell >>> 6] & 1L << cell) != 0;
+            if (cell == total || bit != set) {
+                putVarint(runs, cell - start);
+                start = cell;
+                set = bit;
+            }
+        }
+        ByteBuffer layer;
+        if (runs.remaining() >= 10) {
+            runs.flip();
+            layer = ByteBuffer.allocate(Byte.BYTES + Integer.BYTES + runs.remaining());
+            layer.put(RUNS).putInt(runs.remaining()).put(runs);
+        } else {
+            layer = ByteBuffer.allocate(Byte.BYTES + Integer.BYTES + words.length * Long.BYTES);
+            layer.put(BITS).putInt(words.length * Long.BYTES);
+            for (long word : words) {
+                layer.putLong(word);
+            }
+        }
+        return layer.array();
+    }
+
+    private static void putVarint(final ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int getVarint(final ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new MapConstructionException("Corrupt map layer");
+    }
+
+    /**
+     * Decodes the walls and the boxes, and checks the map, unless they've been decoded already.
+     *
+     * @return this map.
+     * @throws MapConstructionException if a layer is corrupt, or the map fails its {@link #check() checks}. The
+     *                                  same exception is thrown on every call.
+     */
+    public FileGameMap load() throws MapConstructionException {
+        if (!decoded) {
+            decode();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return this;
+    }
+
+    /**
+     * Decodes the layers once. Other threads wait on the monitor until the map is decoded, and only then see
+     * {@link #decoded} set. The thread decoding the map gets in again while checking it, as the checks read the
+     * layers back through this map, and returns at once.
+     */
+    private synchronized void decode() {
+        if (decoded || decoding) {
+            return;
+        }
+        decoding = true;
+        try {
+            decodeLayers();
+        } finally {
+            decoded = true;
+        }
+    }
+
+    private void decodeLayers() {
+        try {
+            decodeLayer(wallLayer.duplicate(), walls);
+            decodeLayer(boxLayer.duplicate(), boxes);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | MapConstructionException e) {
+            walls.clear();
+            boxes.clear();
+            failure = new MapConstructionException("Corrupt map layer");
+            return;
+        }
+        boxes.shuffle(new Random());
+        try {
+            check();
+        } catch (MapConstructionException e) {
+            failure = e;
+        }
+    }
+
+    private static void decodeLayer(final ByteBuffer in, final CellLayer layer) {
+        byte encoding = in.get();
+        in.getInt();
+        if (encoding == BITS) {
+            for (int w = 0; in.hasRemaining(); ++w) {
+                layer.setWord(w, in.getLong());
+            }
+            return;
+        }
+        boolean set = false;
+        int cell = 0;
+        while (in.hasRemaining()) {
+            int run = getVarint(in);
+            if (set) {
+                layer.setCells(cell, cell + run - 1);
+            }
+            cell += run;
+            set = !set;
+        }
+    }
+
+    /**
+     * Returns the name of the map, as given when it was written.
+     *
+     * @return the name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Stream<Pair> getWalls() {
+        load();
+        return super.getWalls();
+    }
+
+    @Override
+    public Stream<Pair> getBoxes() {
+        load();
+        return super.getBoxes();
+    }
+
+    @Override
+    public boolean isWall(int col, int row) {
+        load();
+        return super.isWall(col, row);
+    }
+
+    @Override
+    public boolean isBox(int col, int row) {
+        load();
+        return super.isBox(col, row);
+    }
+
+    @Override
+    public void shuffle(final Random random) {
+        load();
+        super.shuffle(random);
+    }
+
+    @Override
+    public int getBuffCount() {
+        return buffCount;
+    }
+
+    @Override
+    public int getDebuffCount() {
+        return debuffCount;
+    }
+
+    @Override
+    public int getMonsterCount() {
+        return monsterCount;
+    }
+
+    @Override
+    public int getMaxShrinks() {
+        return maxShrinks;
+    }
+
+    @Override
+    public int getMapWidth() {
+        return width;
+    }
+
+    @Override
+    public int getMapHeight() {
+        return height;
+    }
+}
@@ -10,10 +10,17 @@ import x3.model.util.BattleRoyaleManager;
 import x3.model.util.Pair;
 import x3.model.util.exception.MapConstructionException;
 
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
 import java.util.stream.Stream;
 
 /*
@@ -47,13 +54,13 @@ IMPLEMENTÁCIÓS LÉPÉSEK:
  */
 public abstract class GameMap {
     /**
-     * List of {@link Wall} positions.
+     * Layer of {@link Wall} positions.
      */
-    protected final List<Pair> walls = new ArrayList<>();
+    protected final CellLayer walls = new CellLayer(this);
     /**
-     * List of {@link Box} positions.
+     * Layer of {@link Box} positions.
      */
-    protected final List<Pair> boxes = new ArrayList<>();
+    protected final CellLayer boxes = new CellLayer(this);
 
     /**
      * List of {@link Player} spawn positions.
@@ -67,6 +74,22 @@ public abstract class GameMap {
     protected GameMap() {
     }
 
+    /**
+     * Copy constructor.
+     * <br>
+     * Copies the positions of a map that has already been checked, without checking them again. The layers are
+     * copied a word of cells at a time, so a copy takes far less time than building the map.
+     *
+     * @param layout the map to copy.
+     * @see MapDescriptor
+     */
+    protected GameMap(final GameMap layout) {
+        walls.copy(layout.walls);
+        boxes.copy(layout.boxes);
+        playerSpawns.addAll(layout.playerSpawns);
+        monsterSpawns.addAll(layout.monsterSpawns);
+    }
+
     public Stream<Pair> getWalls() {
         return walls.stream();
     }
@@ -75,6 +98,28 @@ public abstract class GameMap {
         return boxes.stream();
     }
 
+    /**
+     * Returns whether there is a {@link Wall} in the given cell.
+     *
+     * @param col column index.
+     * @param row row index.
+     * @return true if the cell holds a wall.
+     */
+    public boolean isWall(int col, int row) {
+        return walls.test(col, row);
+    }
+
+    /**
+     * Returns whether there is a {@link Box} in the given cell.
+     *
+     * @param col column index.
+     * @param row row index.
+     * @return true if the cell holds a box.
+     */
+    public boolean isBox(int col, int row) {
+        return boxes.test(col, row);
+    }
+
     /**
      * Returns a <code>playerCount</code> number of {@link Player} spawn positions.
      *
@@ -96,35 +141,70 @@ public abstract class GameMap {
     }
 
     /**
-     * Adds all position to the target list that fit within the bounding
-     * rectangle between <code>bottomLeft</code> and <code>topRight</code>
+     * Returns a hash of what the map looks like: its size, and where its walls, boxes and spawns are.
+     * <br>
+     * The order of the positions doesn't count, so every {@link #shuffle(Random) shuffle} of a map has the same hash,
+     * and neither do the numbers of effects and shrinks. Maps that look the same have the same hash, e.g. a map and
+     * the {@link FileGameMap file} it was written to, so the hash can key what is drawn from a map.
      *
-     * @param target     the list where the area will be filled.
-     * @param bottomLeft bottom left corner of the bounding rectangle.
-     * @param topRight   bottom left corner of the bounding rectangle.
+     * @return the SHA-256 hash of the layout, in hexadecimal.
      */
-    protected void areaFill(List<Pair> target, Pair bottomLeft, Pair topRight) {
-        for (int i = bottomLeft.col; i <= topRight.col; ++i) {
-            for (int j = bottomLeft.row; j <= topRight.row; ++j) {
-                target.add(Pair.of(j, i));
+    public String layoutHash() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is missing", e);
+        }
+        int width = getMapWidth();
+        int height = getMapHeight();
+        digest.update(ByteBuffer.allocate(2 * Integer.BYTES).putInt(width).putInt(height).array());
+        byte[] cells = new byte[Math.max(0, width)];
+        for (int row = 0; row < height; ++row) {
+            for (int col = 0; col < width; ++col) {
+                cells[col] = (byte) (isWall(col, row) ? 1 : isBox(col, row) ? 2 : 0);
             }
+            digest.update(cells);
         }
+        hashSpawns(digest, getPlayerSpawns(Integer.MAX_VALUE));
+        hashSpawns(digest, getMonsterSpawns());
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void hashSpawns(final MessageDigest digest, final Stream<Pair> spawns) {
+        long[] cells = spawns.mapToLong(pair -> (long) pair.row << Integer.SIZE | pair.col & 0xFFFFFFFFL)
+            .sorted().toArray();
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + cells.length * Long.BYTES).putInt(cells.length);
+        for (long cell : cells) {
+            buffer.putLong(cell);
+        }
+        digest.update(buffer.array());
     }
 
     /**
-     * Removes all positions from the target list that fit within the bounding
-     * rectangle between <code>bottomLeft</code> and <code>topRight</code>.
+     * Sets all cells of the target layer that fit within the bounding rectangle between <code>bottomLeft</code> and
+     * <code>topRight</code>, given as (row, column) pairs, a row of cells at a time.
      *
-     * @param target     the list where the area will be cleared.
+     * @param target     the layer where the area will be filled.
      * @param bottomLeft bottom left corner of the bounding rectangle.
-     * @param topRight   bottom left corner of the bounding rectangle.
+     * @param topRight   top right corner of the bounding rectangle.
+     * @see CellLayer#fill(int, int, int, int)
      */
-    protected void areaClear(List<Pair> target, Pair bottomLeft, Pair topRight) {
-        for (int i = bottomLeft.col; i <= topRight.col; ++i) {
-            for (int j = bottomLeft.row; j <= topRight.row; ++j) {
-                target.remove(Pair.of(j, i));
-            }
-        }
+    protected void areaFill(CellLayer target, Pair bottomLeft, Pair topRight) {
+        target.fill(bottomLeft.col, bottomLeft.row, topRight.col, topRight.row);
+    }
+
+    /**
+     * Clears all cells of the target layer that fit within the bounding rectangle between <code>bottomLeft</code>
+     * and <code>topRight</code>, given as (row, column) pairs, a row of cells at a time.
+     *
+     * @param target     the layer where the area will be cleared.
+     * @param bottomLeft bottom left corner of the bounding rectangle.
+     * @param topRight   top right corner of the bounding rectangle.
+     * @see CellLayer#clear(int, int, int, int)
+     */
+    protected void areaClear(CellLayer target, Pair bottomLeft, Pair topRight) {
+        target.clear(bottomLeft.col, bottomLeft.row, topRight.col, topRight.row);
     }
 
     /**
@@ -147,32 +227,120 @@ public abstract class GameMap {
     /**
      * Shuffles the order of {@link Box} positions, {@link Player} spawn positions and {@link Monster} spawn positions.
      *
-     * @see Collections#shuffle(List)
+     * @see #shuffle(Random)
      */
     public void shuffle() {
-        Collections.shuffle(boxes);
-        Collections.shuffle(playerSpawns);
-        Collections.shuffle(monsterSpawns);
+        shuffle(new Random());
+    }
+
+    /**
+     * Shuffles the order of {@link Box} positions, {@link Player} spawn positions and {@link Monster} spawn positions
+     * with the given source of randomness, so that the same seed always gives the same round.
+     *
+     * @param random the random number generator of the game.
+     * @see Collections#shuffle(List, Random)
+     * @see CellLayer#shuffle(Random)
+     */
+    public void shuffle(final Random random) {
+        boxes.shuffle(random);
+        Collections.shuffle(playerSpawns, random);
+        Collections.shuffle(monsterSpawns, random);
     }
 
     /**
-     * Performs all checks on the map.
+     * Performs all checks on the map, and reports every problem found at once.
      * <br>
-     * Order of checks:
+     * Checks:
      * <ol>
      *     <li>{@link #checkMapSize}</li>
      *     <li>{@link #checkCounts}</li>
      *     <li>{@link #checkHangingObjects}</li>
      *     <li>{@link #checkOverlaps}</li>
      *     <li>{@link #checkBoxCount}</li>
+     *     <li>{@link #checkReachability}</li>
      * </ol>
+     * Hanging objects and overlaps are found by a single pass over the positions, in linear time.
+     *
+     * Reachability is only checked on maps whose positions are all valid.
+     *
+     * @throws MapConstructionException when at least one check fails. Its message lists the failed checks, and its
+     *                                  {@link MapConstructionException#getCells() cells} every hanging,
+     *                                  overlapping and sealed position.
+     */
+    protected void check() throws MapConstructionException {
+        List<String> failures = new ArrayList<>();
+        for (Runnable check : List.<Runnable>of(this::checkMapSize, this::checkCounts, this::checkBoxCount)) {
+            try {
+                check.run();
+            } catch (MapConstructionException e) {
+                failures.add(e.getMessage());
+            }
+        }
+        List<Pair> hanging = new ArrayList<>();
+        List<Pair> overlapping = new ArrayList<>();
+        scan(hanging, overlapping);
+        if (!hanging.isEmpty()) {
+            failures.add(describe(hanging, "overhanging"));
+        }
+        if (!overlapping.isEmpty()) {
+            failures.add(describe(overlapping, "occurring more than once, possible overlap"));
+        }
+        List<Pair> sealed = List.of();
+        if (hanging.isEmpty() && overlapping.isEmpty()) {
+            sealed = sealedSpawns();
+            if (!sealed.isEmpty()) {
+                failures.add(describe(sealed, "sealed off from the other player spawns"));
+            }
+        }
+        if (!failures.isEmpty()) {
+            List<Pair> cells = new ArrayList<>(hanging);
+            cells.addAll(overlapping);
+            cells.addAll(sealed);
+            throw new MapConstructionException(String.join(" ", failures), cells);
+        }
+    }
+
+    /**
+     * Finds the hanging and the overlapping positions in a single pass.
+     * <br>
+     * Walls overlapping boxes are found a word of cells at a time. The positions that the layers
+     * {@link CellLayer couldn't hold} (the ones outside the map, and the ones added more than once) and the spawn
+     * positions are then looked up in the layers, and in a set of the ones seen before.
+     *
+     * @param hanging     the list that the positions outside the map are added to.
+     * @param overlapping the list that every repeated position is added to, once per repetition.
+     */
+    private void scan(final List<Pair> hanging, final List<Pair> overlapping) {
+        if (walls.intersects(boxes)) {
+            walls.stream().filter(pair -> boxes.test(pair.col, pair.row)).forEach(overlapping::add);
+        }
+        Set<Pair> seen = new HashSet<>();
+        Stream.of(walls.getExtras().stream(), boxes.getExtras().stream(), playerSpawns.stream(), monsterSpawns.stream())
+            .flatMap(pair -> pair)
+            .forEach(pair -> {
+                boolean inside = walls.inBounds(pair.col, pair.row);
+                if (!inside) {
+                    hanging.add(pair);
+                }
+                if (inside && (walls.test(pair.col, pair.row) || boxes.test(pair.col, pair.row)) || !seen.add(pair)) {
+                    overlapping.add(pair);
+                }
+            });
+    }
+
+    /**
+     * Describes the given positions, listing the first few.
      */
-    protected void check() {
-        checkMapSize();
-        checkCounts();
-        checkHangingObjects();
-        checkOverlaps();
-        checkBoxCount();
+    static String describe(final List<Pair> pairs, String problem) {
+        StringBuilder description = new StringBuilder(pairs.size() == 1 ? "Pair " : "Pairs ");
+        for (int i = 0; i < Math.min(pairs.size(), 10); ++i) {
+            description.append(i == 0 ? "" : ", ").append('(').append(pairs.get(i).col).append(", ")
+                .append(pairs.get(i).row).append(')');
+        }
+        if (pairs.size() > 10) {
+            description.append(" and ").append(pairs.size() - 10).append(" more");
+        }
+        return description.append(pairs.size() == 1 ? " is " : " are ").append(problem).append('.').toString();
     }
 
     /**
@@ -215,22 +383,17 @@ public abstract class GameMap {
      * are described as (column, row) integer pairs, no floating point error can occur.
      * <br>
      * This method checks all {@link Wall walls}, {@link Box boxes}, {@link Player players}
-     * and {@link Monster monsters} for overlap.
+     * and {@link Monster monsters} for overlap, in linear time.
      *
-     * @throws MapConstructionException when there's at least one pair of positions overlapping.
+     * @throws MapConstructionException when there's at least one pair of positions overlapping. All overlapping
+     *                                  positions are reported.
      */
     protected void checkOverlaps() throws MapConstructionException {
-        List<Pair> pairs = Stream.of(walls.stream(), boxes.stream(), playerSpawns.stream(), monsterSpawns.stream())
-            .flatMap(pair -> pair)
-            .toList();
-
-        for (int i = 0; i < pairs.size(); ++i) {
-            for (int j = i + 1; j < pairs.size(); ++j) {
-                Pair p1 = pairs.get(i);
-                Pair p2 = pairs.get(j);
-                if (p1.equals(p2))
-                    throw new MapConstructionException("Pair (" + p1.col + ", " + p1.row + ") occurs more than once, possible overlap.");
-            }
+        List<Pair> overlapping = new ArrayList<>();
+        scan(new ArrayList<>(), overlapping);
+        if (!overlapping.isEmpty()) {
+            throw new MapConstructionException(describe(overlapping, "occurring more than once, possible overlap"),
+                overlapping);
         }
     }
 
@@ -241,25 +404,37 @@ public abstract class GameMap {
      * and {@link #getMapHeight() height} values of the map
      * (e.g. when a position value is {@code < 0} or {@code >} {@link #getMapWidth() width}).
      * <br>
-     * This method goes over a stream of all {@link Wall wall}, {@link Box box}, {@link Player player}
-     * and {@link Monster monster} positions and finds the first whose coordinates (at least one) is invalid.
+     * Only the {@link Wall wall} and {@link Box box} positions that their layers {@link CellLayer couldn't hold}
+     * can be hanging, so only those and the {@link Player player} and {@link Monster monster} positions are checked.
      *
-     * @throws MapConstructionException when an invalidly positioned object is found.
+     * @throws MapConstructionException when an invalidly positioned object is found. All of them are reported.
      */
     protected void checkHangingObjects() throws MapConstructionException {
-        Optional<Pair> anyHanging = Stream.of(walls.stream(), boxes.stream(), playerSpawns.stream(), monsterSpawns.stream())
-            .flatMap(pair -> pair)
-            .parallel()
-            .filter(pair ->
-                pair.col < 0 || pair.col > getMapWidth() - 1
-                    || pair.row < 0 || pair.row > getMapHeight() - 1)
-            .findAny();
-        if (anyHanging.isPresent()) {
-            Pair p = anyHanging.get();
-            throw new MapConstructionException("Pair with indeces (" + p.col + ", " + p.row + ") is overhanging.");
+        List<Pair> hanging = new ArrayList<>();
+        scan(hanging, new ArrayList<>());
+        if (!hanging.isEmpty()) {
+            throw new MapConstructionException(describe(hanging, "overhanging"), hanging);
         }
     }
 
+    /**
+     * Verifies that every {@link Player player} can reach every other one, once the {@link Box boxes} between them
+     * are blown up.
+     *
+     * @throws MapConstructionException when a player spawn is sealed off by walls. All sealed spawns are reported.
+     * @see Reachability
+     */
+    protected void checkReachability() throws MapConstructionException {
+        List<Pair> sealed = sealedSpawns();
+        if (!sealed.isEmpty()) {
+            throw new MapConstructionException(describe(sealed, "sealed off from the other player spawns"), sealed);
+        }
+    }
+
+    private List<Pair> sealedSpawns() {
+        return Arrays.stream(new Reachability(this).getSealedSpawns()).mapToObj(playerSpawns::get).toList();
+    }
+
     /**
      * Verifies that the number of {@link Effect effects} (buffs and debuffs total) don't exceed
      * the number of {@link Box boxes} on the map.
@@ -9,7 +9,14 @@ import java.util.List;
  */
 public class Map1 extends GameMap {
     /**
-     * Only constructor.
+     * Describes the map, which is built when it's first played.
+     */
+    public static final MapDescriptor<Map1> DESCRIPTOR = new MapDescriptor<>(Map1.class, Map1::new, Map1::new);
+
+    /**
+     * Primary constructor.
+     * <br>
+     * Builds and checks the map.
      */
     public Map1() {
         surroundWithWalls();
@@ -44,6 +51,16 @@ public class Map1 extends GameMap {
         check();
     }
 
+    /**
+     * Copy constructor.
+     *
+     * @param layout the map to copy.
+     * @see GameMap#GameMap(GameMap)
+     */
+    public Map1(final Map1 layout) {
+        super(layout);
+    }
+
 
     @Override
     public int getBuffCount() {
@@ -9,7 +9,14 @@ import java.util.List;
  */
 public class Map2 extends GameMap {
     /**
-     * Only constructor.
+     * Describes the map, which is built when it's first played.
+     */
+    public static final MapDescriptor<Map2> DESCRIPTOR = new MapDescriptor<>(Map2.class, Map2::new, Map2::new);
+
+    /**
+     * Primary constructor.
+     * <br>
+     * Builds and checks the map.
      */
     public Map2() {
         surroundWithWalls();
@@ -72,6 +79,16 @@ public class Map2 extends GameMap {
         check();
     }
 
+    /**
+     * Copy constructor.
+     *
+     * @param layout the map to copy.
+     * @see GameMap#GameMap(GameMap)
+     */
+    public Map2(final Map2 layout) {
+        super(layout);
+    }
+
     @Override
     public int getBuffCount() {
         return 15;
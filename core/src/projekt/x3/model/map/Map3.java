@@ -9,7 +9,14 @@ import java.util.List;
  */
 public class Map3 extends GameMap {
     /**
-     * Only constructor.
+     * Describes the map, which is built when it's first played.
+     */
+    public static final MapDescriptor<Map3> DESCRIPTOR = new MapDescriptor<>(Map3.class, Map3::new, Map3::new);
+
+    /**
+     * Primary constructor.
+     * <br>
+     * Builds and checks the map.
      */
     public Map3() {
         surroundWithWalls();
@@ -42,6 +49,16 @@ public class Map3 extends GameMap {
         check();
     }
 
+    /**
+     * Copy constructor.
+     *
+     * @param layout the map to copy.
+     * @see GameMap#GameMap(GameMap)
+     */
+    public Map3(final Map3 layout) {
+        super(layout);
+    }
+
 
     @Override
     public int getBuffCount() {
@@ -0,0 +1,91 @@
+package x3.model.map;
+
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A <code>MapDescriptor</code> registers a map without building it.
+ * <br>
+ * The map is built and {@link GameMap#check() checked} when it's first {@link #create() created}, and its layout is
+ * kept. Every map created afterwards is a shuffled copy of that layout, so the checks run once per map, however
+ * often it's played, and registering maps costs nothing at startup.
+ * <br>
+ * The layout itself is never handed out, so the games played on it can't change it.
+ *
+ * @param <T> the type of the map.
+ */
+public class MapDescriptor<T extends GameMap> {
+    private final Class<T> type;
+    private final Supplier<T> builder;
+    private final Function<T, T> copier;
+    private volatile T layout;
+
+    /**
+     * Only constructor.
+     *
+     * @param type    the class of the map.
+     * @param builder builds and checks the map.
+     * @param copier  copies a built map, e.g. with its {@link GameMap#GameMap(GameMap) copy constructor}.
+     */
+    public MapDescriptor(final Class<T> type, final Supplier<T> builder, final Function<T, T> copier) {
+        this.type = type;
+        this.builder = builder;
+        this.copier = copier;
+    }
+
+    private T layout() {
+        T built = layout;
+        if (built == null) {
+            synchronized (this) {
+                built = layout;
+                if (built == null) {
+                    built = builder.get();
+                    layout = built;
+                }
+            }
+        }
+        return built;
+    }
+
+    /**
+     * Creates a map for a new game, built on first use.
+     *
+     * @return a shuffled copy of the layout.
+     * @see #create(Random)
+     */
+    public T create() {
+        return create(new Random());
+    }
+
+    /**
+     * Creates a map for a new game, built on first use, with the given source of randomness.
+     *
+     * @param random the random number generator of the game.
+     * @return a copy of the layout, shuffled with the given generator.
+     * @throws x3.model.util.exception.MapConstructionException if the map fails its checks when it's built.
+     */
+    public T create(final Random random) {
+        T map = copier.apply(layout());
+        map.shuffle(random);
+        return map;
+    }
+
+    /**
+     * Returns the class of the maps created.
+     *
+     * @return the class of the map.
+     */
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * Returns whether the map has been built.
+     *
+     * @return true if the layout is cached.
+     */
+    public boolean isBuilt() {
+        return layout != null;
+    }
+}
@@ -0,0 +1,281 @@
+package x3.model.map;
+
+import x3.model.util.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+/**
+ * A map generated from a seed.
+ * <br>
+ * The layout is symmetric to both axes of the map, so no player spawn is favoured. The players spawn in the corners,
+ * with the cells next to them kept free, so they can escape their first bomb. Walls and boxes are scattered in the
+ * rest of the map with the given densities, and the monsters spawn on free cells far from the players.
+ * <br>
+ * Walls that seal a player spawn off are drawn again, up to a few times, after which the map only has its outer
+ * walls. Floor that no player can reach is filled with walls. A generated map thus always passes its
+ * {@link #check() checks}, including {@link Reachability reachability}.
+ * <br>
+ * The same seed and parameters always give the same map, down to the order of its boxes and spawns, so a map is
+ * described by its seed alone. Batches of maps are {@link #generate generated} in parallel.
+ */
+public class ProceduralMap extends GameMap {
+    /**
+     * The width and height of the default maps, those of {@link Map2}.
+     */
+    public static final int DEFAULT_SIZE = 21;
+    /**
+     * The default ratio of the cells that are walls.
+     */
+    public static final float DEFAULT_WALL_DENSITY = 0.25f;
+    /**
+     * The default ratio of the free cells that are boxes.
+     */
+    public static final float DEFAULT_BOX_DENSITY = 0.3f;
+    /**
+     * The default number of monsters.
+     */
+    public static final int DEFAULT_MONSTER_COUNT = 4;
+    /**
+     * The smallest width and height of a map.
+     */
+    public static final int MIN_SIZE = 7;
+    private static final int ATTEMPTS = 8;
+
+    private final long seed;
+    private final int width;
+    private final int height;
+    private final int monsterCount;
+    private final int buffCount;
+    private final int debuffCount;
+
+    /**
+     * Primary constructor.
+     *
+     * @param seed         the seed of the map.
+     * @param width        the width of the map, at least {@link #MIN_SIZE}.
+     * @param height       the height of the map, at least {@link #MIN_SIZE}.
+     * @param wallDensity  the ratio of the cells that are walls, between 0 and 1.
+     * @param boxDensity   the ratio of the free cells that are boxes, between 0 and 1.
+     * @param monsterCount the number of monsters. Fewer spawn if the map has no room for them.
+     * @throws IllegalArgumentException if a parameter is out of its range.
+     */
+    public ProceduralMap(long seed, int width, int height, float wallDensity, float boxDensity, int monsterCount) {
+        if (width < MIN_SIZE || height < MIN_SIZE) {
+            throw new IllegalArgumentException("A map must be at least " + MIN_SIZE + "x" + MIN_SIZE);
+        }
+        if (wallDensity < 0 || wallDensity > 1 || boxDensity < 0 || boxDensity > 1 || monsterCount < 0) {
+            throw new IllegalArgumentException("Invalid densities or monster count");
+        }
+        this.seed = seed;
+        this.width = width;
+        this.height = height;
+        Random random = new Random(seed);
+
+        surroundWithWalls();
+        playerSpawns.addAll(List.of(
+            Pair.of(1, 1), Pair.of(width - 2, height - 2), Pair.of(width - 2, 1), Pair.of(1, height - 2)
+        ));
+        Reachability reachability = null;
+        for (int attempt = 0; attempt < ATTEMPTS; ++attempt) {
+            scatterWalls(random, wallDensity);
+            reachability = new Reachability(this);
+            if (reachability.isConnected()) {
+                break;
+            }
+            clearInside(walls);
+        }
+        if (!reachability.isConnected()) {
+            // every attempt failed, and only the outer walls are left
+            reachability = new Reachability(this);
+        }
+        fillIsolatedRegions(reachability);
+
+        scatterBoxes(random, boxDensity);
+        this.monsterCount = placeMonsters(random, reachability, monsterCount);
+        int boxCount = boxes.size();
+        buffCount = boxCount / 2;
+        debuffCount = boxCount / 6;
+
+        shuffle(random);
+        check();
+    }
+
+    /**
+     * Secondary constructor.
+     * <br>
+     * Generates a map of the {@link #DEFAULT_SIZE default size} and densities.
+     *
+     * @param seed the seed of the map.
+     */
+    public ProceduralMap(long seed) {
+        this(seed, DEFAULT_SIZE, DEFAULT_SIZE, DEFAULT_WALL_DENSITY, DEFAULT_BOX_DENSITY, DEFAULT_MONSTER_COUNT);
+    }
+
+    /**
+     * Generates maps in parallel, the map of index <code>i</code> from the seed <code>seed + i</code>.
+     *
+     * @param seed         the seed of the first map.
+     * @param count        the number of maps.
+     * @param width        the width of the maps.
+     * @param height       the height of the maps.
+     * @param wallDensity  the ratio of the cells that are walls.
+     * @param boxDensity   the ratio of the free cells that are boxes.
+     * @param monsterCount the number of monsters.
+     * @return the maps, in the order of their seeds.
+     */
+    public static List<ProceduralMap> generate(long seed, int count, int width, int height, float wallDensity,
+                                               float boxDensity, int monsterCount) {
+        return LongStream.range(seed, seed + count)
+            .parallel()
+            .mapToObj(s -> new ProceduralMap(s, width, height, wallDensity, boxDensity, monsterCount))
+            .toList();
+    }
+
+    /**
+     * Returns whether the player of a corner spawn needs the given cell to be free, to escape their first bomb.
+     */
+    private boolean isSpawnArea(int col, int row) {
+        int dx = Math.min(col, width - 1 - col);
+        int dy = Math.min(row, height - 1 - row);
+        return dx + dy <= 3 && dx >= 1 && dy >= 1;
+    }
+
+    /**
+     * Calls the given action on the cells of the top left quarter of the map, inside the outer walls, including the
+     * middle column and row of maps of odd sizes.
+     */
+    private void forQuarter(final CellAction action) {
+        for (int row = 1; row <= (height - 1) / 2; ++row) {
+            for (int col = 1; col <= (width - 1) / 2; ++col) {
+                action.accept(col, row);
+            }
+        }
+    }
+
+    private interface CellAction {
+        void accept(int col, int row);
+    }
+
+    /**
+     * Sets a cell and its mirror images.
+     */
+    private void setMirrored(final CellLayer layer, int col, int row) {
+        for (int mirror = 0; mirror < 4; ++mirror) {
+            int c = (mirror & 1) == 0 ? col : width - 1 - col;
+            int r = (mirror & 2) == 0 ? row : height - 1 - row;
+            if (!layer.test(c, r)) {
+                layer.set(c, r);
+            }
+        }
+    }
+
+    private void scatterWalls(final Random random, float density) {
+        forQuarter((col, row) -> {
+            if (!isSpawnArea(col, row) && random.nextFloat() < density) {
+                setMirrored(walls, col, row);
+            }
+        });
+    }
+
+    private void clearInside(final CellLayer layer) {
+        layer.clear(1, 1, height - 2, width - 2);
+    }
+
+    private void fillIsolatedRegions(final Reachability reachability) {
+        int[] isolated = reachability.getIsolatedRegions();
+        if (isolated.length == 0) {
+            return;
+        }
+        boolean[] fill = new boolean[reachability.getRegionCount()];
+        for (int region : isolated) {
+            fill[region] = true;
+        }
+        for (int row = 1; row < height - 1; ++row) {
+            for (int col = 1; col < width - 1; ++col) {
+                int region = reachability.getRegion(col, row);
+                if (region != Reachability.NONE && fill[region]) {
+                    walls.set(col, row);
+                }
+            }
+        }
+    }
+
+    private void scatterBoxes(final Random random, float density) {
+        forQuarter((col, row) -> {
+            if (!isSpawnArea(col, row) && !walls.test(col, row) && random.nextFloat() < density) {
+                setMirrored(boxes, col, row);
+            }
+        });
+    }
+
+    /**
+     * Places the monster spawns, on free cells of the players' region, at least a third of the map away from the
+     * players.
+     *
+     * @return the number of monsters that fit on the map.
+     */
+    private int placeMonsters(final Random random, final Reachability reachability, int count) {
+        int region = reachability.getSpawnRegion(0);
+        int distance = Math.max(4, (width + height) / 6);
+        List<Pair> candidates = new ArrayList<>();
+        forQuarter((col, row) -> {
+            if (col - 1 + row - 1 >= distance && !walls.test(col, row) && !boxes.test(col, row)
+                && reachability.getRegion(col, row) == region) {
+                candidates.add(Pair.of(col, row));
+            }
+        });
+        while (monsterSpawns.size() < count && !candidates.isEmpty()) {
+            Pair cell = candidates.remove(random.nextInt(candidates.size()));
+            for (int mirror = 0; mirror < 4; ++mirror) {
+                Pair spawn = Pair.of((mirror & 1) == 0 ? cell.col : width - 1 - cell.col,
+                    (mirror & 2) == 0 ? cell.row : height - 1 - cell.row);
+                if (!monsterSpawns.contains(spawn)) {
+                    monsterSpawns.add(spawn);
+                }
+            }
+        }
+        return Math.min(count, monsterSpawns.size());
+    }
+
+    /**
+     * Returns the seed the map was generated from.
+     *
+     * @return the seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public int getBuffCount() {
+        return buffCount;
+    }
+
+    @Override
+    public int getDebuffCount() {
+        return debuffCount;
+    }
+
+    @Override
+    public int getMonsterCount() {
+        return monsterCount;
+    }
+
+    @Override
+    public int getMaxShrinks() {
+        return Math.max(1, (Math.min(width, height) + 3) / 4);
+    }
+
+    @Override
+    public int getMapWidth() {
+        return width;
+    }
+
+    @Override
+    public int getMapHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,276 @@
+package x3.model.map;
+
+import x3.model.game.objects.Box;
+import x3.model.game.objects.Player;
+import x3.model.game.objects.Wall;
+import x3.model.util.Pair;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * The <code>Reachability</code> of a {@link GameMap} describes which cells the players can reach from their spawns.
+ * <br>
+ * Every cell without a {@link Wall} is floor: {@link Box boxes} are passable, as they can be blown up. The floor is
+ * split into regions, connected cells that can reach each other, by a flood fill over the grid. A map is
+ * {@link #isConnected() connected} if all of its {@link Player player} spawns are in the same region; regions
+ * without player spawns are {@link #getIsolatedRegions() isolated}, and can never be played on.
+ * <br>
+ * Its fairness is described by the {@link #getTerritory(int) territory} of every spawn: the cells its player reaches
+ * before any other player, moving at the same speed.
+ * <br>
+ * The analysis takes linear time in the size of the map, so batches of generated maps can be
+ * {@link #analyze(List) analyzed} in parallel.
+ */
+public class Reachability {
+    /**
+     * The region of walls, and of cells outside the map.
+     */
+    public static final int NONE = -1;
+    private static final int CONTESTED = -2;
+
+    private final int width;
+    private final int height;
+    private final int[] regions;
+    private final int[] regionSizes;
+    private final List<Pair> spawns;
+    private final int[] spawnRegions;
+    private final int[] territories;
+    private final int[] neighbourCells = new int[4];
+
+    /**
+     * Only constructor.
+     * <br>
+     * Analyzes the walls and the player spawns of the given map.
+     *
+     * @param map the map to analyze.
+     */
+    public Reachability(final GameMap map) {
+        width = Math.max(0, map.getMapWidth());
+        height = Math.max(0, map.getMapHeight());
+        regions = new int[width * height];
+        int[] queue = new int[regions.length];
+
+        int regionCount = 0;
+        int[] sizes = new int[16];
+        Arrays.fill(regions, Integer.MAX_VALUE);
+        for (int cell = 0; cell < regions.length; ++cell) {
+            if (map.isWall(cell % width, cell / width)) {
+                regions[cell] = NONE;
+            }
+        }
+        for (int cell = 0; cell < regions.length; ++cell) {
+            if (regions[cell] != Integer.MAX_VALUE) {
+                continue;
+            }
+            if (regionCount == sizes.length) {
+                sizes = Arrays.copyOf(sizes, regionCount * 2);
+            }
+            regions[cell] = regionCount;
+            queue[0] = cell;
+            int tail = 1;
+            for (int head = 0; head < tail; ++head) {
+                int current = queue[head];
+                for (int next : neighbours(current)) {
+                    if (next != NONE && regions[next] == Integer.MAX_VALUE) {
+                        regions[next] = regionCount;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            sizes[regionCount++] = tail;
+        }
+        regionSizes = Arrays.copyOf(sizes, regionCount);
+
+        spawns = map.getPlayerSpawns(Integer.MAX_VALUE).toList();
+        spawnRegions = new int[spawns.size()];
+        for (int i = 0; i < spawns.size(); ++i) {
+            spawnRegions[i] = getRegion(spawns.get(i).col, spawns.get(i).row);
+        }
+        territories = territories(queue);
+    }
+
+    /**
+     * Returns the cells next to the given one, or {@link #NONE} for the ones outside the map.
+     */
+    private int[] neighbours(int cell) {
+        int col = cell % width;
+        neighbourCells[0] = col > 0 ? cell - 1 : NONE;
+        neighbourCells[1] = col < width - 1 ? cell + 1 : NONE;
+        neighbourCells[2] = cell >= width ? cell - width : NONE;
+        neighbourCells[3] = cell < regions.length - width ? cell + width : NONE;
+        return neighbourCells;
+    }
+
+    /**
+     * Spreads out from all spawns at once. A cell belongs to the spawn that reaches it first, or to none if several
+     * reach it at the same time.
+     */
+    private int[] territories(final int[] queue) {
+        int[] owners = new int[regions.length];
+        int[] distances = new int[regions.length];
+        Arrays.fill(owners, NONE);
+        int tail = 0;
+        for (int i = 0; i < spawns.size(); ++i) {
+            if (spawnRegions[i] == NONE) {
+                continue;
+            }
+            int cell = spawns.get(i).row * width + spawns.get(i).col;
+            if (owners[cell] == NONE) {
+                owners[cell] = i;
+                queue[tail++] = cell;
+            } else {
+                owners[cell] = CONTESTED;
+            }
+        }
+        for (int head = 0; head < tail; ++head) {
+            int current = queue[head];
+            for (int next : neighbours(current)) {
+                if (next == NONE || regions[next] == NONE) {
+                    continue;
+                }
+                if (owners[next] == NONE) {
+                    owners[next] = owners[current];
+                    distances[next] = distances[current] + 1;
+                    queue[tail++] = next;
+                } else if (distances[next] == distances[current] + 1 && owners[next] != owners[current]) {
+                    owners[next] = CONTESTED;
+                }
+            }
+        }
+        int[] counts = new int[spawns.size()];
+        for (int owner : owners) {
+            if (owner >= 0) {
+                ++counts[owner];
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Analyzes the given maps in parallel.
+     *
+     * @param maps the maps to analyze.
+     * @return the reachability of every map, in the order of the maps.
+     */
+    public static List<Reachability> analyze(final List<? extends GameMap> maps) {
+        return maps.parallelStream().map(Reachability::new).toList();
+    }
+
+    /**
+     * Returns the number of regions of the floor.
+     *
+     * @return the number of regions.
+     */
+    public int getRegionCount() {
+        return regionSizes.length;
+    }
+
+    /**
+     * Returns the region of the given cell.
+     *
+     * @param col column index.
+     * @param row row index.
+     * @return the index of the region, or {@link #NONE} if the cell is a wall, or outside the map.
+     */
+    public int getRegion(int col, int row) {
+        if (col < 0 || col >= width || row < 0 || row >= height) {
+            return NONE;
+        }
+        return regions[row * width + col];
+    }
+
+    /**
+     * Returns the number of cells of a region.
+     *
+     * @param region the index of the region.
+     * @return the size of the region.
+     */
+    public int getRegionSize(int region) {
+        return regionSizes[region];
+    }
+
+    /**
+     * Returns the number of player spawns of the map.
+     *
+     * @return the number of spawns.
+     */
+    public int getSpawnCount() {
+        return spawns.size();
+    }
+
+    /**
+     * Returns the region of a player spawn.
+     *
+     * @param spawn the index of the spawn, in the order of {@link GameMap#getPlayerSpawns(int)}.
+     * @return the index of the region, or {@link #NONE} if the spawn is on a wall, or outside the map.
+     */
+    public int getSpawnRegion(int spawn) {
+        return spawnRegions[spawn];
+    }
+
+    /**
+     * Returns the number of cells the player of a spawn can reach, once all boxes are blown up.
+     *
+     * @param spawn the index of the spawn, in the order of {@link GameMap#getPlayerSpawns(int)}.
+     * @return the reachable area, or 0 if the spawn is on a wall, or outside the map.
+     */
+    public int getReachableArea(int spawn) {
+        return spawnRegions[spawn] == NONE ? 0 : regionSizes[spawnRegions[spawn]];
+    }
+
+    /**
+     * Returns the number of cells that the player of a spawn reaches before all other players. Cells reached by
+     * several players at the same time belong to none of them.
+     *
+     * @param spawn the index of the spawn, in the order of {@link GameMap#getPlayerSpawns(int)}.
+     * @return the territory of the spawn.
+     */
+    public int getTerritory(int spawn) {
+        return territories[spawn];
+    }
+
+    /**
+     * Returns whether every player can reach every other one, once the boxes between them are blown up.
+     *
+     * @return true if all player spawns are in the same region.
+     */
+    public boolean isConnected() {
+        return Arrays.stream(spawnRegions).allMatch(region -> region != NONE && region == spawnRegions[0]);
+    }
+
+    /**
+     * Returns the spawns that are sealed off from the others: the ones outside the region of most spawns.
+     *
+     * @return the indices of the sealed spawns, empty if the map is {@link #isConnected() connected}.
+     */
+    public int[] getSealedSpawns() {
+        int[] spawnsPerRegion = new int[regionSizes.length];
+        int main = NONE;
+        for (int region : spawnRegions) {
+            if (region != NONE && (++spawnsPerRegion[region] > (main == NONE ? 0 : spawnsPerRegion[main]))) {
+                main = region;
+            }
+        }
+        int mainRegion = main;
+        return IntStream.range(0, spawnRegions.length)
+            .filter(spawn -> spawnRegions[spawn] != mainRegion)
+            .toArray();
+    }
+
+    /**
+     * Returns the regions that no player can reach.
+     *
+     * @return the indices of the regions without player spawns.
+     */
+    public int[] getIsolatedRegions() {
+        boolean[] reached = new boolean[regionSizes.length];
+        for (int region : spawnRegions) {
+            if (region != NONE) {
+                reached[region] = true;
+            }
+        }
+        return IntStream.range(0, regionSizes.length).filter(region -> !reached[region]).toArray();
+    }
+}
@@ -0,0 +1,175 @@
+package x3.model.net;
+
+import x3.model.game.GameEngine;
+
+import static x3.model.net.EntityIndex.BUCKET_SIZE;
+
+/**
+ * An <code>AreaOfInterest</code> is the part of the map a client is sent: the square of cells within a radius around
+ * the client's player.
+ * <br>
+ * The area {@link #filter(WorldState, EntityIndex, WorldState) filters} the complete state of every tick into the
+ * view of the client:
+ * <ul>
+ *     <li>The header and the players are copied as is, so the client always knows where the other players are.</li>
+ *     <li>Monsters, bombs, effects and blasts are copied if they are inside the area. They are found through an
+ *     {@link EntityIndex}, so only the buckets overlapping the area are visited.</li>
+ *     <li>Boxes are copied inside the area, a row of cells at a time. Outside, the view keeps the boxes the client
+ *     saw last.</li>
+ * </ul>
+ * The cost of filtering thus depends on the size of the area and the entities in it, not on the size of the map.
+ * An {@link InterestTracker} reports the entities that entered and left the view to the area's listener.
+ * <br>
+ * Once the player is dead, the area stays where the player died.
+ */
+public class AreaOfInterest {
+    private final int width;
+    private final int height;
+    private final float PPM;
+    private final int player;
+    private final int radius;
+    private final InterestTracker tracker;
+    private InterestListener listener = InterestListener.NONE;
+    private int centerCol;
+    private int centerRow;
+
+    /**
+     * Only constructor.
+     * <br>
+     * Until the player is seen alive, the area is centered on the map.
+     *
+     * @param width  the width of the map, in cells.
+     * @param height the height of the map, in cells.
+     * @param PPM    the size of a cell, in the units of the positions.
+     * @param player the index of the player the area follows.
+     * @param radius the number of cells the area extends around the player's cell in every direction.
+     */
+    public AreaOfInterest(int width, int height, float PPM, int player, int radius) {
+        this.width = width;
+        this.height = height;
+        this.PPM = PPM;
+        this.player = player;
+        this.radius = radius;
+        tracker = new InterestTracker(width * height);
+        centerCol = width / 2;
+        centerRow = height / 2;
+    }
+
+    /**
+     * Copies the part of the state inside the area into the view, and reports what entered and left it.
+     *
+     * @param world the complete state.
+     * @param index the index of the complete state, {@link EntityIndex#build(WorldState) built} for this tick.
+     * @param view  the view of the client, which was only ever written by this method.
+     */
+    public void filter(final WorldState world, final EntityIndex index, final WorldState view) {
+        if (world.isAlive(player)) {
+            float offset = PPM * GameEngine.MOVING_SIZE / 2;
+            centerCol = Math.max(0, Math.min(width - 1, (int) Math.floor((world.getPlayerX(player) + offset) / PPM)));
+            centerRow = Math.max(0, Math.min(height - 1, (int) Math.floor((world.getPlayerY(player) + offset) / PPM)));
+        }
+        int minCol = Math.max(0, centerCol - radius);
+        int maxCol = Math.min(width - 1, centerCol + radius);
+        int minRow = Math.max(0, centerRow - radius);
+        int maxRow = Math.min(height - 1, centerRow + radius);
+
+        view.setHeader(world.getTick(), world.isGameEnded(), world.getShrinks(), world.getMillisUntilShrink());
+        for (int p = 0; p < WorldState.MAX_PLAYERS; ++p) {
+            view.setPlayer(p, world.isAlive(p), world.getPlayerX(p), world.getPlayerY(p));
+        }
+        long[] boxes = world.getBoxWords();
+        long[] viewBoxes = view.getBoxWords();
+        for (int row = minRow; row <= maxRow; ++row) {
+            copyBits(boxes, viewBoxes, row * width + minCol, row * width + maxCol + 1);
+        }
+
+        view.clearEntities();
+        for (int bucketRow = minRow / BUCKET_SIZE; bucketRow <= maxRow / BUCKET_SIZE; ++bucketRow) {
+            for (int bucketCol = minCol / BUCKET_SIZE; bucketCol <= maxCol / BUCKET_SIZE; ++bucketCol) {
+                int bucket = index.getBucket(bucketCol * BUCKET_SIZE, bucketRow * BUCKET_SIZE);
+                for (int kind = 0; kind <= EntityIndex.BLAST; ++kind) {
+                    for (int i = index.first(kind, bucket); i != -1; i = index.next(kind, i)) {
+                        int cell = index.getCell(kind, i);
+                        int col = cell % width;
+                        int row = cell / width;
+                        if (col >= minCol && col <= maxCol && row >= minRow && row <= maxRow) {
+                            copy(world, kind, i, view);
+                        }
+                    }
+                }
+            }
+        }
+        tracker.update(view, listener);
+    }
+
+    private static void copy(final WorldState world, int kind, int i, final WorldState view) {
+        switch (kind) {
+            case InterestListener.MONSTER ->
+                view.addMonster(world.getMonsterId(i), world.getMonsterX(i), world.getMonsterY(i));
+            case InterestListener.BOMB -> view.addBomb(world.getBombCell(i), world.getBombFuse(i));
+            case InterestListener.EFFECT -> view.addEffect(world.getEffectCell(i), world.getEffectType(i));
+            default -> view.addBlast(world.getBlastCell(i));
+        }
+    }
+
+    /**
+     * Copies the bits from <code>from</code> (inclusive) to <code>to</code> (exclusive), a word at a time.
+     */
+    private static void copyBits(final long[] source, final long[] target, int from, int to) {
+        int first = from >>> 6;
+        int last = to - 1 >>> 6;
+        for (int i = first; i <= last; ++i) {
+            long mask = -1L;
+            if (i == first) {
+                mask &= -1L << from;
+            }
+            if (i == last) {
+                mask &= -1L >>> 63 - (to - 1 & 63);
+            }
+            target[i] = target[i] & ~mask | source[i] & mask;
+        }
+    }
+
+    /**
+     * Sets the listener told about the entities entering and leaving the view.
+     *
+     * @param listener the listener.
+     */
+    public void setListener(final InterestListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the tracker of the entities in view.
+     * @return the tracker, updated by every {@link #filter(WorldState, EntityIndex, WorldState) filtering}.
+     */
+    public InterestTracker getTracker() {
+        return tracker;
+    }
+
+    /**
+     * Returns the index of the player the area follows.
+     * @return the player index.
+     */
+    public int getPlayer() {
+        return player;
+    }
+
+    /**
+     * Returns the radius of the area.
+     * @return the number of cells around the center, in every direction.
+     */
+    public int getRadius() {
+        return radius;
+    }
+
+    /**
+     * Returns whether a cell was inside the area at the last filtering.
+     * @param col the column of the cell.
+     * @param row the row of the cell.
+     * @return true if the cell is inside the area.
+     */
+    public boolean contains(int col, int row) {
+        return Math.abs(col - centerCol) <= radius && Math.abs(row - centerRow) <= radius;
+    }
+}
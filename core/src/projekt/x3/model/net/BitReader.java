@@ -0,0 +1,74 @@
+package x3.model.net;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * A <code>BitReader</code> reads the values packed by a {@link BitWriter}.
+ * <br>
+ * Readers are reused: {@link #begin(ByteBuffer)} attaches a reader to a buffer, and {@link #end()} skips
+ * the padding of the last byte.
+ */
+class BitReader {
+    private ByteBuffer buffer;
+    private long bits;
+    private int count;
+
+    void begin(final ByteBuffer buffer) {
+        this.buffer = buffer;
+        bits = 0;
+        count = 0;
+    }
+
+    /**
+     * Reads an unsigned value.
+     *
+     * @param length the number of bits to read, at most 32.
+     * @return the value.
+     * @throws BufferUnderflowException if the buffer ends before the value does.
+     */
+    int read(int length) {
+        while (count < length) {
+            bits = bits << 8 | buffer.get() & 0xFF;
+            count += 8;
+        }
+        count -= length;
+        return (int) (bits >>> count & (1L << length) - 1);
+    }
+
+    /**
+     * Reads a signed value written in two's complement.
+     *
+     * @param length the number of bits to read, at most 32.
+     * @return the value.
+     */
+    int readSigned(int length) {
+        int value = read(length);
+        return value << 32 - length >> 32 - length;
+    }
+
+    boolean readBit() {
+        return read(1) != 0;
+    }
+
+    long readLong() {
+        return (long) read(32) << 32 | read(32) & 0xFFFFFFFFL;
+    }
+
+    int readVar() {
+        int value = 0;
+        int shift = 0;
+        int group;
+        do {
+            group = read(5);
+            value |= (group & 15) << shift;
+            shift += 4;
+        } while ((group & 16) != 0 && shift < 32);
+        return value;
+    }
+
+    void end() {
+        count = 0;
+        buffer = null;
+    }
+}
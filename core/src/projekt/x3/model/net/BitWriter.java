@@ -0,0 +1,67 @@
+package x3.model.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A <code>BitWriter</code> packs values of any bit length into a {@link ByteBuffer}, most significant bit first.
+ * <br>
+ * Writers are reused: {@link #begin(ByteBuffer)} attaches a writer to a buffer, and {@link #end()} writes the
+ * last partial byte, padded with zeros.
+ */
+class BitWriter {
+    private ByteBuffer buffer;
+    private long bits;
+    private int count;
+
+    void begin(final ByteBuffer buffer) {
+        this.buffer = buffer;
+        bits = 0;
+        count = 0;
+    }
+
+    /**
+     * Writes the lowest bits of the value.
+     *
+     * @param value  the value.
+     * @param length the number of bits to write, at most 32.
+     */
+    void write(int value, int length) {
+        bits = bits << length | value & (1L << length) - 1;
+        count += length;
+        while (count >= 8) {
+            count -= 8;
+            buffer.put((byte) (bits >>> count));
+        }
+    }
+
+    void writeBit(boolean bit) {
+        write(bit ? 1 : 0, 1);
+    }
+
+    void writeLong(long value) {
+        write((int) (value >>> 32), 32);
+        write((int) value, 32);
+    }
+
+    /**
+     * Writes a non-negative value in groups of 4 bits, each preceded by a bit telling whether another group follows.
+     * Small values, which are the most common in deltas, take 5 bits.
+     *
+     * @param value the value, not negative.
+     */
+    void writeVar(int value) {
+        while (value >= 16) {
+            write(16 | value & 15, 5);
+            value >>>= 4;
+        }
+        write(value, 5);
+    }
+
+    void end() {
+        if (count > 0) {
+            buffer.put((byte) (bits << 8 - count));
+            count = 0;
+        }
+        buffer = null;
+    }
+}
@@ -0,0 +1,137 @@
+package x3.model.net;
+
+import x3.model.game.GameEngine;
+
+import java.util.Arrays;
+
+/**
+ * An <code>EntityIndex</code> sorts the entities of a {@link WorldState} into buckets by the part of the map they
+ * are in, so that the entities around a cell can be listed without looking at the others.
+ * <br>
+ * The map is divided into square buckets of {@link #BUCKET_SIZE} cells. The index is {@link #build(WorldState)
+ * rebuilt} from the state of every tick, in time linear in the number of entities. The entities of a bucket are a
+ * linked list threaded through arrays indexed like the entities of the state, so rebuilding doesn't allocate once
+ * the arrays are large enough.
+ * <br>
+ * Monsters are indexed by the cell that contains their middle, bombs, effects and blasts by their cell.
+ */
+public class EntityIndex {
+    /**
+     * The width and height of a bucket, in cells.
+     */
+    public static final int BUCKET_SIZE = 8;
+    /**
+     * Kind of the blasts, indexed along with the kinds of {@link InterestListener}.
+     */
+    public static final int BLAST = 3;
+    private static final int KINDS = 4;
+
+    private final int width;
+    private final int height;
+    private final float PPM;
+    private final int bucketColumns;
+    private final int[][] heads = new int[KINDS][];
+    private final int[][] next = new int[KINDS][];
+    private final int[][] cells = new int[KINDS][];
+
+    /**
+     * Only constructor.
+     *
+     * @param width  the width of the map, in cells.
+     * @param height the height of the map, in cells.
+     * @param PPM    the size of a cell, in the units of the positions.
+     */
+    public EntityIndex(int width, int height, float PPM) {
+        this.width = width;
+        this.height = height;
+        this.PPM = PPM;
+        bucketColumns = (width + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        int buckets = bucketColumns * ((height + BUCKET_SIZE - 1) / BUCKET_SIZE);
+        for (int kind = 0; kind < KINDS; ++kind) {
+            heads[kind] = new int[buckets];
+            next[kind] = new int[16];
+            cells[kind] = new int[16];
+        }
+    }
+
+    /**
+     * Replaces the indexed entities with those of the state.
+     *
+     * @param state the state, of a map of the index's size.
+     */
+    public void build(final WorldState state) {
+        for (int kind = 0; kind < KINDS; ++kind) {
+            Arrays.fill(heads[kind], -1);
+        }
+        float offset = PPM * GameEngine.MOVING_SIZE / 2;
+        for (int i = 0; i < state.getMonsterCount(); ++i) {
+            int col = Math.max(0, Math.min(width - 1, (int) Math.floor((state.getMonsterX(i) + offset) / PPM)));
+            int row = Math.max(0, Math.min(height - 1, (int) Math.floor((state.getMonsterY(i) + offset) / PPM)));
+            add(InterestListener.MONSTER, i, row * width + col);
+        }
+        for (int i = 0; i < state.getBombCount(); ++i) {
+            add(InterestListener.BOMB, i, state.getBombCell(i));
+        }
+        for (int i = 0; i < state.getEffectCount(); ++i) {
+            add(InterestListener.EFFECT, i, state.getEffectCell(i));
+        }
+        for (int i = 0; i < state.getBlastCount(); ++i) {
+            add(BLAST, i, state.getBlastCell(i));
+        }
+    }
+
+    private void add(int kind, int i, int cell) {
+        if (i == next[kind].length) {
+            next[kind] = Arrays.copyOf(next[kind], i * 2);
+            cells[kind] = Arrays.copyOf(cells[kind], i * 2);
+        }
+        int bucket = getBucket(cell % width, cell / width);
+        cells[kind][i] = cell;
+        next[kind][i] = heads[kind][bucket];
+        heads[kind][bucket] = i;
+    }
+
+    /**
+     * Returns the bucket that contains a cell.
+     *
+     * @param col the column of the cell.
+     * @param row the row of the cell.
+     * @return the index of the bucket.
+     */
+    public int getBucket(int col, int row) {
+        return row / BUCKET_SIZE * bucketColumns + col / BUCKET_SIZE;
+    }
+
+    /**
+     * Returns the first entity of a kind in a bucket.
+     *
+     * @param kind   the kind of the entities, one of the kinds of {@link InterestListener} or {@link #BLAST}.
+     * @param bucket the index of the bucket.
+     * @return the index of the entity in the indexed state, or -1 if the bucket has none.
+     */
+    public int first(int kind, int bucket) {
+        return heads[kind][bucket];
+    }
+
+    /**
+     * Returns the entity after the given one in its bucket.
+     *
+     * @param kind the kind of the entities.
+     * @param i    the index of an entity in the indexed state.
+     * @return the index of the next entity in the indexed state, or -1 if it was the last of its bucket.
+     */
+    public int next(int kind, int i) {
+        return next[kind][i];
+    }
+
+    /**
+     * Returns the cell an entity was indexed by.
+     *
+     * @param kind the kind of the entity.
+     * @param i    the index of the entity in the indexed state.
+     * @return the index of the cell.
+     */
+    public int getCell(int kind, int i) {
+        return cells[kind][i];
+    }
+}
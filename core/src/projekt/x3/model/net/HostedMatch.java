@@ -0,0 +1,210 @@
+package x3.model.net;
+
+import x3.DetonatorCircle;
+import x3.model.game.GameEngine;
+import x3.model.game.control.BotController;
+import x3.model.map.GameMap;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A <code>HostedMatch</code> is a single round of bots, run headless by a {@link MatchHost}.
+ * <br>
+ * Every match has its own {@link GameEngine engine}, and with it its own physics world and tick clock, and its own
+ * random number generator, seeded by the host: the map is shuffled and the game's random decisions are made with
+ * it, so a match shares nothing with the others but the threads of the host.
+ * <br>
+ * The host runs the ticks of a match one at a time, though not always on the same thread. Every
+ * tick is measured twice: how long it took, and how late it started behind the match's schedule. Both are kept in
+ * {@link TickStats}, whose overruns are the ticks that took longer than a tick period and the ticks that started
+ * more than a period late.
+ * <br>
+ * A match ends with its round, or when it is {@link #stop() stopped}. Its engine is disposed by its last tick.
+ */
+public class HostedMatch {
+    private final MatchHost host;
+    private final int id;
+    private final long seed;
+    private final long tickNanos;
+    private final GameEngine engine;
+    private final TickStats stats;
+    private final TickStats lateness;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile ScheduledFuture<?> future;
+    private long firstTickNanos;
+    private long ticks;
+    private volatile boolean stopping;
+    private volatile boolean stopped;
+    private volatile RuntimeException failure;
+
+    /**
+     * Only constructor.
+     * <br>
+     * Builds the engine of the round, with a {@link BotController bot} playing every player.
+     *
+     * @param host        the host running the match.
+     * @param id          the number of the match on its host.
+     * @param map         the map of the round, used by no other match.
+     * @param playerCount the number of players, 2 or 3.
+     * @param seed        the seed of the match's random number generator and of its bots.
+     * @param botBudget   the time budget of a bot's search, in milliseconds.
+     * @param tickNanos   the period of the ticks, in nanoseconds.
+     */
+    HostedMatch(final MatchHost host, int id, final GameMap map, int playerCount, long seed, long botBudget,
+                long tickNanos) {
+        this.host = host;
+        this.id = id;
+        this.seed = seed;
+        this.tickNanos = tickNanos;
+        stats = new TickStats(tickNanos);
+        lateness = new TickStats(tickNanos);
+
+        DetonatorCircle game = new DetonatorCircle(0, 0);
+        if (playerCount == 3) {
+            game.setPlayerCount3();
+        } else {
+            game.setPlayerCount2();
+        }
+        game.wonRounds = new int[3];
+        game.roundCount = 1;
+        game.remainingRounds = 1;
+        Random random = new Random(seed);
+        map.shuffle(random);
+        engine = new GameEngine(game, map, MatchServer.PPM, random);
+        for (int i = 0; i < playerCount; ++i) {
+            engine.setController(i, new BotController(botBudget, random.nextLong()));
+        }
+    }
+
+    /**
+     * Schedules the ticks of the match on the host's pool.
+     */
+    void schedule(final ScheduledExecutorService pool) {
+        firstTickNanos = System.nanoTime();
+        future = pool.scheduleAtFixedRate(this::tick, 0, tickNanos, TimeUnit.NANOSECONDS);
+        if (isFinished()) {
+            // the match ended before its future was known
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * Simulates a tick of the round, and ends the match once the round has ended or the match was stopped.
+     * <br>
+     * A failing tick ends the match too, instead of silently cancelling its schedule.
+     */
+    private void tick() {
+        if (finished.getCount() == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        long late = Math.max(0, start - (firstTickNanos + ticks * tickNanos));
+        boolean ended = stopping;
+        if (!ended) {
+            try {
+                engine.step(1f / MatchServer.TICK_RATE);
+                ended = engine.isGameEnded();
+            } catch (RuntimeException e) {
+                failure = e;
+                ended = true;
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        stats.record(nanos);
+        lateness.record(late);
+        host.ticked(ticks++, nanos, late);
+        if (ended) {
+            finish();
+        }
+    }
+
+    private void finish() {
+        if (future != null) {
+            future.cancel(false);
+        }
+        stopped = stopping && !engine.isGameEnded();
+        engine.dispose();
+        host.finished(this, ticks);
+        finished.countDown();
+    }
+
+    /**
+     * Asks the match to end at its next tick, whether its round has ended or not.
+     */
+    public void stop() {
+        stopping = true;
+    }
+
+    /**
+     * Waits for the match to end.
+     *
+     * @param timeout the longest time to wait.
+     * @param unit    the unit of the timeout.
+     * @return true if the match has ended, false if the time ran out.
+     * @throws InterruptedException if the thread was interrupted while waiting.
+     */
+    public boolean awaitFinished(long timeout, final TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    /**
+     * Returns whether the match has ended. Its engine is then disposed.
+     * @return true if the match has ended.
+     */
+    public boolean isFinished() {
+        return finished.getCount() == 0;
+    }
+
+    /**
+     * Returns whether the match was stopped before its round ended.
+     * @return true if the match was stopped.
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Returns the exception that ended the match, if a tick failed.
+     * @return the exception, or null if no tick failed.
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Returns the number of the match on its host.
+     * @return the id of the match.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the seed of the match.
+     * @return the seed of the match's random number generator.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns how long the ticks of the match took. Overruns are the ticks that took longer than a tick period.
+     * @return the durations of the ticks.
+     */
+    public TickStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns how late the ticks of the match started. Overruns are the ticks that started more than a tick period
+     * after their scheduled time.
+     * @return the delays of the ticks.
+     */
+    public TickStats getLateness() {
+        return lateness;
+    }
+}
@@ -0,0 +1,54 @@
+package x3.model.net;
+
+/**
+ * An <code>InterestListener</code> is told when entities come into the view of a client, and when they go out of it.
+ * <br>
+ * An entity enters the view when it moves into the client's {@link AreaOfInterest area of interest}, or appears
+ * inside it (a bomb placed, an effect dropped), and leaves the view the other way around. Entities are identified by
+ * their kind and a key: the {@link WorldState#getMonsterId(int) id} of a monster, or the cell of a bomb or effect.
+ *
+ * @see InterestTracker
+ */
+public interface InterestListener {
+    /**
+     * Kind of the monsters, keyed by id.
+     */
+    int MONSTER = 0;
+    /**
+     * Kind of the bombs, keyed by cell.
+     */
+    int BOMB = 1;
+    /**
+     * Kind of the effects lying on the map, keyed by cell.
+     */
+    int EFFECT = 2;
+
+    /**
+     * A listener that ignores every event.
+     */
+    InterestListener NONE = new InterestListener() {
+        @Override
+        public void entered(int kind, int key) {
+        }
+
+        @Override
+        public void left(int kind, int key) {
+        }
+    };
+
+    /**
+     * Called when an entity enters the view.
+     *
+     * @param kind the kind of the entity, {@link #MONSTER}, {@link #BOMB} or {@link #EFFECT}.
+     * @param key  the id or cell of the entity.
+     */
+    void entered(int kind, int key);
+
+    /**
+     * Called when an entity leaves the view.
+     *
+     * @param kind the kind of the entity, {@link #MONSTER}, {@link #BOMB} or {@link #EFFECT}.
+     * @param key  the id or cell of the entity.
+     */
+    void left(int kind, int key);
+}
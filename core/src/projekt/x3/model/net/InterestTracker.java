@@ -0,0 +1,101 @@
+package x3.model.net;
+
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * An <code>InterestTracker</code> compares the successive views of a client, and reports the entities that entered
+ * and left them to an {@link InterestListener}.
+ * <br>
+ * The entities of the last view are kept as a bitset over their keys, along with the list of the keys, so an update
+ * takes time linear in the number of entities of the two views, whatever the size of the map.
+ */
+public class InterestTracker {
+    private static final int KINDS = 3;
+
+    private final long[][] visible = new long[KINDS][];
+    private final long[][] nextVisible = new long[KINDS][];
+    private final IntArray[] keys = new IntArray[KINDS];
+    private final IntArray[] nextKeys = new IntArray[KINDS];
+
+    /**
+     * Only constructor.
+     *
+     * @param cells the number of cells of the map, which bounds the keys of the entities.
+     */
+    public InterestTracker(int cells) {
+        for (int kind = 0; kind < KINDS; ++kind) {
+            visible[kind] = new long[(cells + 63) / 64];
+            nextVisible[kind] = new long[(cells + 63) / 64];
+            keys[kind] = new IntArray(false, 16);
+            nextKeys[kind] = new IntArray(false, 16);
+        }
+    }
+
+    /**
+     * Replaces the last view with the given one, reporting the differences.
+     *
+     * @param view     the new view.
+     * @param listener the listener to report the entities that entered and left the view to.
+     */
+    public void update(final WorldState view, final InterestListener listener) {
+        for (int i = 0; i < view.getMonsterCount(); ++i) {
+            see(InterestListener.MONSTER, view.getMonsterId(i), listener);
+        }
+        for (int i = 0; i < view.getBombCount(); ++i) {
+            see(InterestListener.BOMB, view.getBombCell(i), listener);
+        }
+        for (int i = 0; i < view.getEffectCount(); ++i) {
+            see(InterestListener.EFFECT, view.getEffectCell(i), listener);
+        }
+        for (int kind = 0; kind < KINDS; ++kind) {
+            long[] bits = visible[kind];
+            long[] nextBits = nextVisible[kind];
+            IntArray oldKeys = keys[kind];
+            for (int i = 0; i < oldKeys.size; ++i) {
+                int key = oldKeys.get(i);
+                if ((nextBits[key >>> 6] & 1L << key) == 0) {
+                    listener.left(kind, key);
+                }
+                bits[key >>> 6] = 0;
+            }
+            oldKeys.clear();
+            visible[kind] = nextBits;
+            nextVisible[kind] = bits;
+            keys[kind] = nextKeys[kind];
+            nextKeys[kind] = oldKeys;
+        }
+    }
+
+    private void see(int kind, int key, final InterestListener listener) {
+        long[] nextBits = nextVisible[kind];
+        if ((nextBits[key >>> 6] & 1L << key) != 0) {
+            return;
+        }
+        nextBits[key >>> 6] |= 1L << key;
+        nextKeys[kind].add(key);
+        if ((visible[kind][key >>> 6] & 1L << key) == 0) {
+            listener.entered(kind, key);
+        }
+    }
+
+    /**
+     * Returns whether an entity was in the last view.
+     *
+     * @param kind the kind of the entity.
+     * @param key  the id or cell of the entity.
+     * @return true if the entity is in view.
+     */
+    public boolean isVisible(int kind, int key) {
+        return (visible[kind][key >>> 6] & 1L << key) != 0;
+    }
+
+    /**
+     * Returns the number of entities of a kind in the last view.
+     *
+     * @param kind the kind of the entities.
+     * @return the number of entities.
+     */
+    public int getVisibleCount(int kind) {
+        return keys[kind].size;
+    }
+}
@@ -0,0 +1,315 @@
+package x3.model.net;
+
+import x3.model.game.GameEngine;
+import x3.model.util.TickClock;
+
+import java.net.ProtocolException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import static x3.model.net.WorldState.MAX_PLAYERS;
+
+/**
+ * A <code>KillCam</code> remembers the last seconds of a game, so that they can be played back once a player dies.
+ * <br>
+ * Every {@link #record(GameEngine) recorded} tick is {@link WorldState captured} and encoded by a
+ * {@link SnapshotCodec}: as a delta against the previous tick, and every {@link #KEYFRAME_INTERVAL} ticks as a
+ * keyframe. The encoded ticks are kept in a ring of bytes of a fixed size, along with a ring of their ticks and
+ * offsets, so the memory of the recording is bounded both in bytes and in ticks. Once either is full, the oldest
+ * ticks are dropped; playback starts at the oldest keyframe left.
+ * <br>
+ * Recording only allocates when a tick is larger than every earlier one. Playback {@link #seek(int, WorldState)
+ * decodes} forward from the last decoded tick, or from the closest keyframe before the requested tick, so a replay
+ * can be played at any speed, and rewound.
+ * <br>
+ * The tick a player died in, whether hit by an explosion or by a monster, is found by the players who were alive
+ * in the previous recorded tick and aren't anymore.
+ */
+public class KillCam {
+    /**
+     * The default number of seconds kept.
+     */
+    public static final int DEFAULT_SECONDS = 10;
+    /**
+     * The default size of the ring of encoded ticks, in bytes.
+     */
+    public static final int DEFAULT_BYTES = 128 * 1024;
+    /**
+     * The number of ticks between keyframes.
+     */
+    public static final int KEYFRAME_INTERVAL = TickClock.TICKS_PER_SECOND;
+    /**
+     * Returned when no tick can be played back.
+     */
+    public static final int NONE = -1;
+
+    private final WorldState state;
+    private final SnapshotCodec encoder;
+    private final SnapshotCodec decoder;
+    private final byte[] bytes;
+    private final ByteBuffer reader;
+    private final int[] ticks;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final boolean[] keyframes;
+    private final boolean[] alive = new boolean[MAX_PLAYERS];
+    private ByteBuffer scratch = ByteBuffer.allocate(4096);
+    private int recorded;
+    private int count;
+    private int writePos;
+    private int used;
+    private int lastTick = NONE;
+    private int sinceKeyframe;
+    private int decoded = -1;
+    private int killTick = NONE;
+    private int victim = NONE;
+
+    /**
+     * Primary constructor.
+     *
+     * @param width   the width of the map, in cells.
+     * @param height  the height of the map, in cells.
+     * @param PPM     the size of a cell, in the units of the positions.
+     * @param seconds the number of seconds kept.
+     * @param size    the size of the ring of encoded ticks, in bytes.
+     */
+    public KillCam(int width, int height, float PPM, int seconds, int size) {
+        state = new WorldState(width, height);
+        encoder = new SnapshotCodec(width, height, PPM);
+        decoder = new SnapshotCodec(width, height, PPM);
+        bytes = new byte[size];
+        reader = ByteBuffer.wrap(bytes);
+        int capacity = seconds * TickClock.TICKS_PER_SECOND;
+        ticks = new int[capacity];
+        offsets = new int[capacity];
+        lengths = new int[capacity];
+        keyframes = new boolean[capacity];
+    }
+
+    /**
+     * Secondary constructor.
+     * <br>
+     * Keeps the {@link #DEFAULT_SECONDS default number of seconds} in a ring of the {@link #DEFAULT_BYTES default
+     * size}.
+     *
+     * @param width  the width of the map, in cells.
+     * @param height the height of the map, in cells.
+     * @param PPM    the size of a cell, in the units of the positions.
+     */
+    public KillCam(int width, int height, float PPM) {
+        this(width, height, PPM, DEFAULT_SECONDS, DEFAULT_BYTES);
+    }
+
+    /**
+     * Records the current tick of the engine, dropping the oldest ticks if needed. Called after every step.
+     * <br>
+     * A tick that doesn't follow the last recorded one, e.g. after the engine was restored, starts with a keyframe. If
+     * the engine went back to an earlier tick, the recording starts over.
+     *
+     * @param engine the engine of the game, whose map has the size of the kill cam.
+     */
+    public void record(final GameEngine engine) {
+        state.capture(engine);
+        int tick = state.getTick();
+        if (tick <= lastTick) {
+            // the engine went back in time: what was recorded never happened
+            while (count > 0) {
+                drop();
+            }
+            killTick = NONE;
+            victim = NONE;
+            lastTick = NONE;
+        }
+        boolean keyframe = tick != lastTick + 1 || sinceKeyframe + 1 >= KEYFRAME_INTERVAL || count == 0;
+        if (lastTick != NONE) {
+            for (int p = 0; p < MAX_PLAYERS; ++p) {
+                if (alive[p] && !state.isAlive(p)) {
+                    killTick = tick;
+                    victim = p;
+                }
+            }
+        }
+        for (int p = 0; p < MAX_PLAYERS; ++p) {
+            alive[p] = state.isAlive(p);
+        }
+        encoder.capture(state);
+        int length = encode(keyframe ? SnapshotCodec.NO_BASELINE : lastTick);
+        lastTick = tick;
+        sinceKeyframe = keyframe ? 0 : sinceKeyframe + 1;
+        if (length > bytes.length) {
+            // a tick larger than the whole ring: the next tick starts over with a keyframe
+            while (count > 0) {
+                drop();
+            }
+            sinceKeyframe = KEYFRAME_INTERVAL;
+            return;
+        }
+
+        if (writePos + length > bytes.length) {
+            while (count > 0 && offsets[slot(recorded - count)] >= writePos) {
+                drop();
+            }
+            writePos = 0;
+        }
+        while (count > 0 && (count == ticks.length || overlaps(offsets[slot(recorded - count)], length))) {
+            drop();
+        }
+        int slot = slot(recorded);
+        ticks[slot] = tick;
+        offsets[slot] = writePos;
+        lengths[slot] = length;
+        keyframes[slot] = keyframe;
+        scratch.get(bytes, writePos, length);
+        writePos += length;
+        used += length;
+        ++recorded;
+        ++count;
+    }
+
+    private int encode(int baselineTick) {
+        while (true) {
+            try {
+                scratch.clear();
+                encoder.encode(baselineTick, scratch);
+                scratch.flip();
+                return scratch.remaining();
+            } catch (BufferOverflowException e) {
+                scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+            }
+        }
+    }
+
+    private boolean overlaps(int offset, int length) {
+        return offset >= writePos && offset < writePos + length;
+    }
+
+    private void drop() {
+        used -= lengths[slot(recorded - count)];
+        --count;
+    }
+
+    private int slot(int index) {
+        return index % ticks.length;
+    }
+
+    /**
+     * Returns the index of the first keyframe kept, from which every later tick can be decoded.
+     */
+    private int firstKeyframe() {
+        for (int i = recorded - count; i < recorded; ++i) {
+            if (keyframes[slot(i)]) {
+                return i;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns the index of the last tick kept that isn't after the given tick, or {@link #NONE}.
+     */
+    private int indexOf(int tick) {
+        int low = recorded - count;
+        int high = recorded - 1;
+        int found = NONE;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (ticks[slot(mid)] <= tick) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Decodes the last recorded tick that isn't after the given tick, or the first tick that can be played back if
+     * the given tick is before it.
+     *
+     * @param tick the tick to play back.
+     * @param out  the state to overwrite with the decoded tick, of a map of the kill cam's size.
+     * @return the decoded tick, or {@link #NONE} if nothing can be played back.
+     */
+    public int seek(int tick, final WorldState out) {
+        int first = firstKeyframe();
+        if (first == NONE) {
+            return NONE;
+        }
+        int target = Math.max(first, indexOf(tick));
+        int keyframe = target;
+        while (!keyframes[slot(keyframe)]) {
+            --keyframe;
+        }
+        // continue from the tick decoded last if it leads to the target, its baseline is still known to the decoder
+        int start = decoded < keyframe || decoded > target ? keyframe : Math.min(decoded + 1, target);
+        for (int i = start; i <= target; ++i) {
+            int slot = slot(i);
+            reader.limit(offsets[slot] + lengths[slot]).position(offsets[slot]);
+            try {
+                decoder.decode(reader, out);
+            } catch (ProtocolException e) {
+                throw new IllegalStateException("Corrupt kill cam tick " + ticks[slot], e);
+            }
+        }
+        decoded = target;
+        return ticks[slot(target)];
+    }
+
+    /**
+     * Returns the first tick that can be played back.
+     * @return the tick of the oldest keyframe kept, or {@link #NONE} if there is none.
+     */
+    public int getFirstTick() {
+        int first = firstKeyframe();
+        return first == NONE ? NONE : ticks[slot(first)];
+    }
+
+    /**
+     * Returns the last recorded tick.
+     * @return the tick, or {@link #NONE} if nothing can be played back.
+     */
+    public int getLastTick() {
+        return firstKeyframe() == NONE ? NONE : ticks[slot(recorded - 1)];
+    }
+
+    /**
+     * Returns the last tick a player died in.
+     * @return the tick, or {@link #NONE} if no player died while recording.
+     */
+    public int getKillTick() {
+        return killTick;
+    }
+
+    /**
+     * Returns the player who died last.
+     * @return the index of the player, or {@link #NONE} if no player died while recording.
+     */
+    public int getVictim() {
+        return victim;
+    }
+
+    /**
+     * Returns the number of ticks kept.
+     * @return the number of ticks.
+     */
+    public int getTickCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of bytes taken by the ticks kept.
+     * @return the size of the kept ticks, in bytes.
+     */
+    public int getBytesUsed() {
+        return used;
+    }
+
+    /**
+     * Returns the memory of the recording: the ring of encoded ticks and the rings of their ticks and offsets.
+     * @return the size of the recording, in bytes.
+     */
+    public int getFootprint() {
+        return bytes.length + ticks.length * (3 * Integer.BYTES + 1);
+    }
+}
@@ -0,0 +1,281 @@
+package x3.model.net;
+
+import x3.model.game.control.PlayerController;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.function.Consumer;
+
+import static x3.model.net.NetProtocol.*;
+
+/**
+ * A <code>MatchClient</code> is the connection of a player to a {@link MatchServer}.
+ * <br>
+ * The client never blocks after connecting: {@link #sendInput(int) inputs} are written as far as the socket accepts
+ * them, and received messages are processed when the client is {@link #poll() polled}, typically once per frame.
+ * Only the latest {@link WorldState} is kept, along with the recent states its {@link SnapshotCodec codec} needs
+ * to decode the deltas of the server. Every input acknowledges the latest state.
+ * <br>
+ * A client can also connect as a spectator, of a {@link MatchServer} or a {@link SpectatorRelay}: it receives the
+ * states without controlling a player.
+ * <br>
+ * A server may only send the entities in an {@link AreaOfInterest area} around the client's player: an
+ * {@link InterestListener} can be told about the entities entering and leaving the received states.
+ */
+public class MatchClient implements Closeable {
+    private final SocketChannel channel;
+    private final ByteBuffer in = ByteBuffer.allocateDirect(2 * MAX_FRAME);
+    private final ByteBuffer out = ByteBuffer.allocateDirect(1024);
+    private WorldState state;
+    private SnapshotCodec codec;
+    private long[] walls;
+    private int player = -1;
+    private int playerCount;
+    private int sequence;
+    private int ackedSequence;
+    private int statesReceived;
+    private boolean full;
+    private boolean spectator;
+    private Consumer<WorldState> listener = state -> { };
+    private InterestListener interestListener = InterestListener.NONE;
+    private InterestTracker tracker;
+
+    /**
+     * Secondary constructor.
+     * <br>
+     * Connects to the server and asks it for a player slot.
+     *
+     * @param address the address of the server.
+     * @throws IOException if the server can't be reached.
+     */
+    public MatchClient(final InetSocketAddress address) throws IOException {
+        this(address, false);
+    }
+
+    /**
+     * Primary constructor.
+     * <br>
+     * Connects to the server and asks it for a player slot, or to spectate.
+     *
+     * @param address   the address of the server or relay.
+     * @param spectator true to watch the match without a player.
+     * @throws IOException if the server can't be reached.
+     */
+    public MatchClient(final InetSocketAddress address, boolean spectator) throws IOException {
+        channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.configureBlocking(false);
+        int start = beginFrame(out, spectator ? SPECTATE : HELLO);
+        out.put(VERSION);
+        endFrame(out, start);
+        flush();
+    }
+
+    /**
+     * Processes the messages received since the last call.
+     *
+     * @return true if a new state was received.
+     * @throws IOException if the connection failed, or the server sent an invalid message.
+     */
+    public boolean poll() throws IOException {
+        flush();
+        int received = statesReceived;
+        int read;
+        do {
+            read = channel.read(in);
+            if (read < 0 && full) {
+                return false;
+            }
+            if (read < 0) {
+                throw new IOException("Connection closed by the server");
+            }
+            in.flip();
+            try {
+                while (true) {
+                    int limit = in.limit();
+                    byte type = nextFrame(in);
+                    if (type == 0) {
+                        break;
+                    }
+                    handleMessage(type, in);
+                    skipFrame(in, limit);
+                }
+            } catch (BufferUnderflowException e) {
+                throw new ProtocolException("Truncated message");
+            }
+            in.compact();
+        } while (read > 0);
+        return statesReceived != received;
+    }
+
+    private void handleMessage(byte type, final ByteBuffer payload) throws ProtocolException {
+        switch (type) {
+            case WELCOME -> {
+                player = payload.get();
+                spectator = player == -1;
+                playerCount = payload.get();
+                int width = payload.getShort();
+                int height = payload.getShort();
+                state = new WorldState(width, height);
+                codec = new SnapshotCodec(width, height, MatchServer.PPM);
+                tracker = new InterestTracker(width * height);
+                walls = new long[(width * height + 63) / 64];
+                for (int i = 0; i < walls.length; ++i) {
+                    walls[i] = payload.getLong();
+                }
+            }
+            case FULL -> full = true;
+            case STATE -> {
+                if (state != null) {
+                    ackedSequence = payload.getInt();
+                    codec.decode(payload, state);
+                    ++statesReceived;
+                    tracker.update(state, interestListener);
+                    listener.accept(state);
+                }
+            }
+            default -> {
+                // unknown messages are ignored
+            }
+        }
+    }
+
+    /**
+     * Sends the input of the player to the server.
+     * <br>
+     * If the socket doesn't accept the input right away, it is sent on the next call or {@link #poll() poll}.
+     *
+     * @param input a bitmask of the action constants of {@link PlayerController}.
+     * @return the sequence number of the input.
+     * @throws IOException if the connection failed.
+     */
+    public int sendInput(int input) throws IOException {
+        ++sequence;
+        if (out.remaining() >= HEADER + 9) {
+            int start = beginFrame(out, INPUT);
+            out.putInt(sequence);
+            out.put((byte) input);
+            out.putInt(codec == null ? SnapshotCodec.NO_BASELINE : codec.getTick());
+            endFrame(out, start);
+        }
+        flush();
+        return sequence;
+    }
+
+    /**
+     * Sets the listener called with every state received, even those replaced by a newer state in the same
+     * {@link #poll() poll}.
+     *
+     * @param listener the listener.
+     */
+    public void setStateListener(final Consumer<WorldState> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the listener told about the entities entering and leaving the received states.
+     *
+     * @param listener the listener.
+     */
+    public void setInterestListener(final InterestListener listener) {
+        interestListener = listener;
+    }
+
+    private void flush() throws IOException {
+        out.flip();
+        channel.write(out);
+        out.compact();
+    }
+
+    /**
+     * Returns whether the server accepted the client as a player.
+     * @return true if the client controls a player.
+     */
+    public boolean isJoined() {
+        return player != -1;
+    }
+
+    /**
+     * Returns whether the server accepted the client as a spectator.
+     * @return true if the client receives the states without controlling a player.
+     */
+    public boolean isSpectating() {
+        return spectator;
+    }
+
+    /**
+     * Returns whether the server refused the client, because every player slot is taken.
+     * @return true if the server is full.
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+    /**
+     * Returns the index of the client's player.
+     * @return the player index, or -1 if the client hasn't {@link #isJoined() joined} yet.
+     */
+    public int getPlayer() {
+        return player;
+    }
+
+    /**
+     * Returns the number of players of the match.
+     * @return the player count, or 0 if the client hasn't {@link #isJoined() joined} yet.
+     */
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    /**
+     * Returns whether there is a wall in the given cell of the map.
+     * @param cell the cell index.
+     * @return true if the cell holds a wall.
+     */
+    public boolean isWall(int cell) {
+        return (walls[cell >>> 6] & 1L << cell) != 0;
+    }
+
+    /**
+     * Returns the latest state received from the server.
+     * @return the state, or null if the client hasn't {@link #isJoined() joined} yet.
+     */
+    public WorldState getState() {
+        return state;
+    }
+
+    /**
+     * Returns the number of states received.
+     * @return the number of states.
+     */
+    public int getStatesReceived() {
+        return statesReceived;
+    }
+
+    /**
+     * Returns the sequence number of the last input sent.
+     * @return the sequence number.
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the sequence number of the last input the server applied before the latest state.
+     * @return the sequence number.
+     */
+    public int getAckedSequence() {
+        return ackedSequence;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
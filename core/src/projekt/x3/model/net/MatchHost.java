@@ -0,0 +1,336 @@
+package x3.model.net;
+
+import com.badlogic.gdx.physics.box2d.Box2D;
+import com.badlogic.gdx.utils.Disposable;
+import x3.model.game.control.BotController;
+import x3.model.map.GameMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A <code>MatchHost</code> runs many independent {@link HostedMatch matches} of bots in a single process.
+ * <br>
+ * A match is not a thread: every tick of every match is a task scheduled at a fixed rate on a shared pool, sized to
+ * the processors of the machine. A match only holds a thread while it simulates a tick, so hundreds of them can run
+ * side by side, as long as the pool keeps up with their ticks.
+ * <br>
+ * The host admits a new match only while:
+ * <ul>
+ *     <li>it isn't {@link #drain(long, TimeUnit) draining};</li>
+ *     <li>it runs fewer matches than its capacity;</li>
+ *     <li>its pool isn't behind: the {@link #getBacklogNanos() backlog}, how late the ticks of the running matches
+ *     start on average, is below a tick period.</li>
+ * </ul>
+ * The first {@link #WARM_UP_TICKS ticks} of a match are left out of the backlog: they run slower while the code of the
+ * game is loaded and compiled, and start late because of it, even though the pool isn't behind.
+ * Otherwise {@link #host(GameMap, int, long)} throws a {@link RejectedExecutionException}, and the caller can try
+ * another host or later.
+ * <br>
+ * Every match measures its own ticks, and the host adds them all up: how long the ticks took, how late they started,
+ * and how many took or started later than a tick period.
+ */
+public class MatchHost implements Disposable {
+    /**
+     * The default time budget of the bots' searches, in milliseconds.
+     */
+    public static final long DEFAULT_BOT_BUDGET = 1;
+    /**
+     * The number of ticks of a match left out of the backlog of the host.
+     */
+    public static final int WARM_UP_TICKS = 60;
+    /**
+     * The number of recent ticks the backlog is averaged over, roughly: every tick moves it by 1/16th of the way to
+     * its lateness.
+     */
+    private static final int BACKLOG_SMOOTHING = 16;
+
+    private final ScheduledThreadPoolExecutor pool;
+    private final int capacity;
+    private final long tickNanos;
+    private final long botBudget;
+    private final Set<HostedMatch> matches = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final LongAdder ticks = new LongAdder();
+    private final LongAdder tickNanosTotal = new LongAdder();
+    private final LongAdder latenessTotal = new LongAdder();
+    private final LongAdder overruns = new LongAdder();
+    private final LongAdder lateTicks = new LongAdder();
+    private final LongAccumulator maxLateness = new LongAccumulator(Math::max, 0);
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicInteger warmMatches = new AtomicInteger();
+    private final LongAdder finished = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final Object admission = new Object();
+    private volatile boolean draining;
+
+    /**
+     * Secondary constructor.
+     * <br>
+     * Ticks the matches at the {@link MatchServer#TICK_RATE rate of the game}, with a thread per processor and bots
+     * of the {@link #DEFAULT_BOT_BUDGET default budget}.
+     *
+     * @param capacity the largest number of matches run at once.
+     */
+    public MatchHost(int capacity) {
+        this(Runtime.getRuntime().availableProcessors(), capacity, MatchServer.TICK_RATE, DEFAULT_BOT_BUDGET);
+    }
+
+    /**
+     * Primary constructor.
+     *
+     * @param threads   the number of threads of the pool.
+     * @param capacity  the largest number of matches run at once.
+     * @param tickRate  the number of ticks of every match per second. The game always advances by a tick of
+     *                  {@link MatchServer#TICK_RATE its own rate}, so a lower rate slows the matches down.
+     * @param botBudget the time budget of the bots' searches, in milliseconds.
+     */
+    public MatchHost(int threads, int capacity, int tickRate, long botBudget) {
+        Box2D.init();
+        this.capacity = capacity;
+        this.botBudget = botBudget;
+        tickNanos = 1_000_000_000L / tickRate;
+        AtomicInteger threadCount = new AtomicInteger();
+        pool = new ScheduledThreadPoolExecutor(threads, task -> {
+            Thread thread = new Thread(task, "match-host-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.setRemoveOnCancelPolicy(true);
+        pool.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        pool.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Starts a new match, if the host admits it.
+     *
+     * @param map         the map of the round, used by no other match. It is shuffled with the match's seed.
+     * @param playerCount the number of players, 2 or 3, all of them {@link BotController bots}.
+     * @param seed        the seed of the match's random decisions.
+     * @return the match, already running.
+     * @throws RejectedExecutionException if the host is draining, full, or behind its ticks.
+     */
+    public HostedMatch host(final GameMap map, int playerCount, long seed) {
+        synchronized (admission) {
+            String reason = null;
+            if (draining || pool.isShutdown()) {
+                reason = "The host is draining";
+            } else if (matches.size() >= capacity) {
+                reason = "The host runs " + capacity + " matches already";
+            } else if (getBacklogNanos() >= tickNanos) {
+                reason = "The host is behind its ticks";
+            }
+            if (reason != null) {
+                rejected.increment();
+                throw new RejectedExecutionException(reason);
+            }
+            HostedMatch match = new HostedMatch(this, nextId.getAndIncrement(), map, playerCount, seed, botBudget,
+                tickNanos);
+            matches.add(match);
+            match.schedule(pool);
+            return match;
+        }
+    }
+
+    /**
+     * Records a tick of a match. Called by the matches, on the threads of the pool.
+     *
+     * @param tick the number of ticks of the match before this one.
+     */
+    void ticked(long tick, long nanos, long late) {
+        if (tick == WARM_UP_TICKS) {
+            warmMatches.incrementAndGet();
+        }
+        if (tick >= WARM_UP_TICKS) {
+            backlog.accumulateAndGet(late, (average, lateness) -> average + (lateness - average) / BACKLOG_SMOOTHING);
+        }
+        ticks.increment();
+        tickNanosTotal.add(nanos);
+        latenessTotal.add(late);
+        maxLateness.accumulate(late);
+        if (nanos > tickNanos) {
+            overruns.increment();
+        }
+        if (late > tickNanos) {
+            lateTicks.increment();
+        }
+    }
+
+    /**
+     * Forgets a match that ended. Called by the match, on a thread of the pool.
+     *
+     * @param ticks the number of ticks of the match.
+     */
+    void finished(final HostedMatch match, long ticks) {
+        if (ticks > WARM_UP_TICKS) {
+            warmMatches.decrementAndGet();
+        }
+        matches.remove(match);
+        finished.increment();
+    }
+
+    /**
+     * Stops admitting matches, waits for the running ones to end, and shuts the pool down.
+     * <br>
+     * The matches still running when the time runs out are {@link HostedMatch#stop() stopped} at their next tick.
+     *
+     * @param timeout the longest time to wait for the running matches to end by themselves.
+     * @param unit    the unit of the timeout.
+     * @return the number of matches that had to be stopped.
+     * @throws InterruptedException if the thread was interrupted while waiting.
+     */
+    public int drain(long timeout, final TimeUnit unit) throws InterruptedException {
+        synchronized (admission) {
+            draining = true;
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        List<HostedMatch> running = new ArrayList<>(matches);
+        for (HostedMatch match : running) {
+            match.awaitFinished(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+        int stopped = 0;
+        for (HostedMatch match : running) {
+            if (!match.isFinished()) {
+                match.stop();
+                ++stopped;
+            }
+        }
+        // a stopped match ends at its next tick
+        for (HostedMatch match : running) {
+            match.awaitFinished(1, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.SECONDS);
+        return stopped;
+    }
+
+    /**
+     * Returns how late the recent ticks of the running matches started, on average, leaving out the first
+     * {@link #WARM_UP_TICKS ticks} of every match.
+     * <br>
+     * While the pool keeps up, every tick starts on time and the backlog is about 0. It grows when the ticks take more
+     * time than the threads have. It is 0 while no match is past its first ticks.
+     *
+     * @return the backlog, in nanoseconds.
+     */
+    public long getBacklogNanos() {
+        return warmMatches.get() == 0 ? 0 : backlog.get();
+    }
+
+    /**
+     * Returns the number of running matches.
+     * @return the number of matches admitted that haven't ended.
+     */
+    public int getMatchCount() {
+        return matches.size();
+    }
+
+    /**
+     * Returns the largest number of matches run at once.
+     * @return the capacity of the host.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the period of the ticks of every match.
+     * @return the period, in nanoseconds.
+     */
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Returns whether the host stopped admitting matches to shut down.
+     * @return true if the host is draining.
+     */
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * Returns the number of matches that ended.
+     * @return the number of finished matches.
+     */
+    public long getFinishedCount() {
+        return finished.sum();
+    }
+
+    /**
+     * Returns the number of matches the host refused.
+     * @return the number of rejected matches.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Returns the number of ticks simulated, by all the matches.
+     * @return the number of ticks.
+     */
+    public long getTicks() {
+        return ticks.sum();
+    }
+
+    /**
+     * Returns the total time the ticks took.
+     * @return the total duration of the ticks, in nanoseconds.
+     */
+    public long getTickNanosTotal() {
+        return tickNanosTotal.sum();
+    }
+
+    /**
+     * Returns the total delay of the ticks behind their schedule.
+     * @return the total lateness of the ticks, in nanoseconds.
+     */
+    public long getLatenessTotal() {
+        return latenessTotal.sum();
+    }
+
+    /**
+     * Returns the largest delay of a tick behind its schedule.
+     * @return the maximum lateness, in nanoseconds.
+     */
+    public long getMaxLatenessNanos() {
+        return maxLateness.get();
+    }
+
+    /**
+     * Returns the number of ticks that took longer than a tick period.
+     * @return the number of overruns.
+     */
+    public long getOverruns() {
+        return overruns.sum();
+    }
+
+    /**
+     * Returns the number of ticks that started more than a tick period after their scheduled time.
+     * @return the number of late ticks.
+     */
+    public long getLateTicks() {
+        return lateTicks.sum();
+    }
+
+    /**
+     * Stops every match at once and shuts the pool down.
+     */
+    @Override
+    public void dispose() {
+        try {
+            drain(0, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
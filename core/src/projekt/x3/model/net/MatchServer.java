@@ -0,0 +1,548 @@
+package x3.model.net;
+
+import com.badlogic.gdx.utils.Disposable;
+import x3.DetonatorCircle;
+import x3.model.game.GameEngine;
+import x3.model.game.control.ExternalController;
+import x3.model.game.grid.CellGrid;
+import x3.model.map.GameMap;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.StandardSocketOptions;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static x3.model.net.NetProtocol.*;
+
+/**
+ * A <code>MatchServer</code> runs a single round of the game authoritatively, for players connected over TCP.
+ * <br>
+ * The server runs its {@link GameEngine engine} headless, at a fixed rate of {@link #TICK_RATE} ticks per second.
+ * Every connected {@link MatchClient client} controls one player: its inputs are applied through
+ * {@link ExternalController external controllers}, and after every tick the resulting {@link WorldState} is sent
+ * to every client. The round starts once every player slot is taken.
+ * <br>
+ * Any number of clients can also {@link NetProtocol#SPECTATE spectate}: they receive the states without controlling
+ * a player. A {@link SpectatorRelay} spectates to serve many viewers with a single connection.
+ * <br>
+ * States are sent {@link SnapshotCodec delta-encoded} against the last state each client acknowledged, straight
+ * into the client's output buffer. A client that acknowledged nothing recently gets a keyframe.
+ * <br>
+ * On large maps, the server can limit every player to an {@link AreaOfInterest area of interest} around it: the
+ * entities of every tick are then {@link EntityIndex indexed} once, and every player is sent its own view, encoded by
+ * a codec of its own. Spectators always receive the whole map.
+ * <br>
+ * The server can also {@link GameEngine#enableLagCompensation(int) compensate the lag} of the players: explosions and
+ * monsters then hit every player where it was at the last tick its client acknowledged, up to a limit.
+ * <br>
+ * All sockets are non-blocking and served by a single thread with a {@link Selector}, between the ticks.
+ * The duration of every tick (simulation and broadcast) is recorded in the server's {@link TickStats}.
+ */
+public class MatchServer implements Runnable, Disposable {
+    /**
+     * The number of ticks simulated per second.
+     */
+    public static final int TICK_RATE = 60;
+    /**
+     * The length of a tick, in nanoseconds.
+     */
+    public static final long TICK_NANOS = 1_000_000_000L / TICK_RATE;
+    /**
+     * The size of a map cell in the server's engine.
+     */
+    public static final float PPM = 5;
+    private static final int MAX_STALLED_TICKS = 5;
+
+    private final DetonatorCircle game;
+    private final GameEngine engine;
+    private final ExternalController[] controllers;
+    private final Connection[] slots;
+    private final List<Connection> spectators = new ArrayList<>();
+    private final WorldState state;
+    private final SnapshotCodec codec;
+    private final EntityIndex index;
+    private final int interestRadius;
+    private final int maxRewind;
+    private final long[] walls;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final TickStats stats = new TickStats(TICK_NANOS);
+    private volatile boolean running = true;
+    private volatile boolean started;
+    private volatile boolean finished;
+    private volatile int connected;
+    private volatile int spectating;
+    private volatile boolean serving;
+    private boolean closed;
+    private Thread thread;
+
+    /**
+     * Secondary constructor.
+     * <br>
+     * Every player is sent the whole map.
+     *
+     * @param map         the map of the round.
+     * @param playerCount the number of players, 2 or 3.
+     * @param address     the address to listen on. Port 0 picks a free port.
+     * @throws IOException if the socket can't be bound.
+     */
+    public MatchServer(final GameMap map, int playerCount, final InetSocketAddress address) throws IOException {
+        this(map, playerCount, address, 0);
+    }
+
+    /**
+     * Secondary constructor.
+     * <br>
+     * Hits on the players are not rewound.
+     *
+     * @param map            the map of the round.
+     * @param playerCount    the number of players, 2 or 3.
+     * @param address        the address to listen on. Port 0 picks a free port.
+     * @param interestRadius the radius in cells of the {@link AreaOfInterest area} sent to each player, or 0 to send
+     *                       the whole map.
+     * @throws IOException if the socket can't be bound.
+     */
+    public MatchServer(final GameMap map, int playerCount, final InetSocketAddress address, int interestRadius)
+        throws IOException {
+        this(map, playerCount, address, interestRadius, 0);
+    }
+
+    /**
+     * Primary constructor.
+     * <br>
+     * Builds the engine of the round and binds the server socket. Serving begins when the server is
+     * {@link #start() started} or {@link #run() run}.
+     *
+     * @param map            the map of the round.
+     * @param playerCount    the number of players, 2 or 3.
+     * @param address        the address to listen on. Port 0 picks a free port.
+     * @param interestRadius the radius in cells of the {@link AreaOfInterest area} sent to each player, or 0 to send
+     *                       the whole map.
+     * @param maxRewind      the largest number of ticks hits on a player are rewound by, or 0 to hit the players
+     *                       where they are.
+     * @throws IOException if the socket can't be bound.
+     */
+    public MatchServer(final GameMap map, int playerCount, final InetSocketAddress address, int interestRadius,
+                       int maxRewind) throws IOException {
+        game = new DetonatorCircle(0, 0);
+        if (playerCount == 3) {
+            game.setPlayerCount3();
+        } else {
+            game.setPlayerCount2();
+        }
+        game.wonRounds = new int[3];
+        game.roundCount = 1;
+        game.remainingRounds = 1;
+        engine = new GameEngine(game, map, PPM);
+        controllers = new ExternalController[playerCount];
+        for (int i = 0; i < playerCount; ++i) {
+            controllers[i] = new ExternalController();
+            engine.setController(i, controllers[i]);
+        }
+        this.maxRewind = maxRewind;
+        if (maxRewind > 0) {
+            engine.enableLagCompensation(maxRewind);
+        }
+        slots = new Connection[playerCount];
+
+        CellGrid grid = engine.getGrid();
+        state = new WorldState(grid.getWidth(), grid.getHeight());
+        codec = new SnapshotCodec(grid.getWidth(), grid.getHeight(), PPM);
+        this.interestRadius = interestRadius;
+        index = interestRadius > 0 ? new EntityIndex(grid.getWidth(), grid.getHeight(), PPM) : null;
+        walls = new long[(grid.size() + 63) / 64];
+        for (int cell = 0; cell < grid.size(); ++cell) {
+            if (grid.isWall(cell)) {
+                walls[cell >>> 6] |= 1L << cell;
+            }
+        }
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Runs the server on a new thread.
+     */
+    public void start() {
+        thread = new Thread(this, "match-server");
+        thread.start();
+    }
+
+    /**
+     * Serves the clients and runs the round, until the server is {@link #dispose() disposed}.
+     */
+    @Override
+    public void run() {
+        serving = true;
+        long nextTick = System.nanoTime();
+        try {
+            while (running) {
+                long wait = nextTick - System.nanoTime();
+                if (wait >= 1_000_000) {
+                    selector.select(wait / 1_000_000);
+                } else {
+                    selector.selectNow();
+                }
+                for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext(); ) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    handleKey(key);
+                }
+
+                long now = System.nanoTime();
+                if (now - nextTick >= 0) {
+                    if (started && !finished) {
+                        tick();
+                    }
+                    nextTick += TICK_NANOS;
+                    if (now - nextTick > MAX_STALLED_TICKS * TICK_NANOS) {
+                        nextTick = now;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            close();
+        }
+    }
+
+    private void handleKey(final SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            SocketChannel channel = serverChannel.accept();
+            if (channel != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Connection connection = new Connection(channel);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            }
+            return;
+        }
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                receive(connection);
+            }
+            if (key.isValid() && key.isWritable()) {
+                flush(connection);
+            }
+        } catch (IOException | BufferUnderflowException e) {
+            disconnect(connection);
+        }
+    }
+
+    private void receive(final Connection connection) throws IOException {
+        ByteBuffer in = connection.in;
+        if (connection.channel.read(in) < 0) {
+            disconnect(connection);
+            return;
+        }
+        in.flip();
+        while (connection.channel.isOpen()) {
+            int limit = in.limit();
+            byte type = nextFrame(in);
+            if (type == 0) {
+                break;
+            }
+            handleMessage(connection, type, in);
+            skipFrame(in, limit);
+        }
+        in.compact();
+        if (!in.hasRemaining()) {
+            throw new ProtocolException("Frame too long");
+        }
+    }
+
+    private void handleMessage(final Connection connection, byte type, final ByteBuffer payload) throws IOException {
+        if (type == HELLO && connection.player == -1) {
+            if (payload.get() != VERSION) {
+                throw new ProtocolException("Unsupported protocol version");
+            }
+            join(connection);
+        } else if (type == SPECTATE && connection.player == -1 && !connection.spectator) {
+            if (payload.get() != VERSION) {
+                throw new ProtocolException("Unsupported protocol version");
+            }
+            connection.spectator = true;
+            connection.codec = codec;
+            spectators.add(connection);
+            ++spectating;
+            welcome(connection, -1);
+        } else if (type == INPUT && connection.player != -1) {
+            int sequence = payload.getInt();
+            int input = payload.get();
+            int ackedTick = payload.getInt();
+            if (sequence - connection.lastSequence > 0) {
+                connection.lastSequence = sequence;
+                controllers[connection.player].setInput(input);
+            }
+            if (ackedTick > connection.ackedTick && ackedTick <= codec.getTick()) {
+                connection.ackedTick = ackedTick;
+                if (maxRewind > 0) {
+                    engine.getLagCompensation().setRewind(connection.player, codec.getTick() - ackedTick);
+                }
+            }
+        }
+    }
+
+    private void join(final Connection connection) throws IOException {
+        ByteBuffer out = connection.out;
+        for (int i = 0; i < slots.length; ++i) {
+            if (slots[i] == null) {
+                slots[i] = connection;
+                connection.player = i;
+                if (index != null) {
+                    int width = state.getWidth();
+                    int height = state.getHeight();
+                    connection.interest = new AreaOfInterest(width, height, PPM, i, interestRadius);
+                    connection.view = new WorldState(width, height);
+                    connection.codec = new SnapshotCodec(width, height, PPM);
+                } else {
+                    connection.codec = codec;
+                }
+                ++connected;
+                welcome(connection, i);
+                started |= connected == slots.length;
+                return;
+            }
+        }
+        endFrame(out, beginFrame(out, FULL));
+        flush(connection);
+        disconnect(connection);
+    }
+
+    private void welcome(final Connection connection, int player) throws IOException {
+        ByteBuffer out = connection.out;
+        int start = beginFrame(out, WELCOME);
+        out.put((byte) player);
+        out.put((byte) slots.length);
+        out.putShort((short) state.getWidth());
+        out.putShort((short) state.getHeight());
+        for (long word : walls) {
+            out.putLong(word);
+        }
+        endFrame(out, start);
+        flush(connection);
+    }
+
+    private void tick() {
+        long start = System.nanoTime();
+        engine.step(1f / TICK_RATE);
+        state.capture(engine);
+        codec.capture(state);
+        if (index != null) {
+            index.build(state);
+        }
+        for (Connection connection : slots) {
+            if (connection != null) {
+                if (connection.interest != null) {
+                    connection.interest.filter(state, index, connection.view);
+                    connection.codec.capture(connection.view);
+                }
+                sendState(connection);
+            }
+        }
+        // backwards, as a failed send removes the spectator
+        for (int i = spectators.size() - 1; i >= 0; --i) {
+            sendState(spectators.get(i));
+        }
+        finished = engine.isGameEnded();
+        stats.record(System.nanoTime() - start);
+    }
+
+    private void sendState(final Connection connection) {
+        ByteBuffer out = connection.out;
+        int start = out.position();
+        try {
+            beginFrame(out, STATE);
+            out.putInt(connection.lastSequence);
+            connection.codec.encode(connection.ackedTick, out);
+            endFrame(out, start);
+            if (connection.spectator) {
+                // spectators receive every state sent, in order
+                connection.ackedTick = codec.getTick();
+            }
+        } catch (BufferOverflowException e) {
+            // the client can't keep up: skip this state, a newer one replaces it anyway
+            out.position(start);
+            return;
+        }
+        try {
+            flush(connection);
+        } catch (IOException e) {
+            disconnect(connection);
+        }
+    }
+
+    private void flush(final Connection connection) throws IOException {
+        ByteBuffer out = connection.out;
+        out.flip();
+        connection.channel.write(out);
+        out.compact();
+        int ops = out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (connection.key.isValid() && connection.key.interestOps() != ops) {
+            connection.key.interestOps(ops);
+        }
+    }
+
+    private void disconnect(final Connection connection) {
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {
+            // the connection is gone either way
+        }
+        if (connection.player != -1 && slots[connection.player] == connection) {
+            slots[connection.player] = null;
+            controllers[connection.player].setInput(0);
+            --connected;
+        }
+        if (connection.spectator && spectators.remove(connection)) {
+            --spectating;
+        }
+        connection.player = -1;
+    }
+
+    /**
+     * Returns the address the server listens on.
+     *
+     * @return the bound address.
+     * @throws IOException if the address can't be queried.
+     */
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    /**
+     * Returns the duration statistics of the ticks.
+     *
+     * @return the tick statistics.
+     */
+    public TickStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns the number of clients controlling a player.
+     *
+     * @return the number of connected players.
+     */
+    public int getConnectedCount() {
+        return connected;
+    }
+
+    /**
+     * Returns the radius of the area of interest of the players.
+     *
+     * @return the radius in cells, or 0 if every player is sent the whole map.
+     */
+    public int getInterestRadius() {
+        return interestRadius;
+    }
+
+    /**
+     * Returns the largest number of ticks hits on a player are rewound by.
+     *
+     * @return the rewind limit, or 0 if the players are hit where they are.
+     */
+    public int getMaxRewind() {
+        return maxRewind;
+    }
+
+    /**
+     * Returns the number of spectating clients.
+     *
+     * @return the number of spectators.
+     */
+    public int getSpectatorCount() {
+        return spectating;
+    }
+
+    /**
+     * Returns whether every player has joined and the round is running (or has ended).
+     *
+     * @return true if the round has started.
+     */
+    public boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Returns whether the round has ended.
+     *
+     * @return true if the round has ended.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Stops the server. If the server was {@link #start() started}, waits for its thread to finish.
+     */
+    @Override
+    public void dispose() {
+        running = false;
+        selector.wakeup();
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else if (!serving) {
+            close();
+        }
+    }
+
+    private synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (SelectionKey key : selector.keys()) {
+            try {
+                key.channel().close();
+            } catch (IOException ignored) {
+                // closing anyway
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+            // closing anyway
+        }
+        engine.dispose();
+    }
+
+    private static class Connection {
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocate(1024);
+        private final ByteBuffer out = ByteBuffer.allocateDirect(2 * MAX_FRAME);
+        private SelectionKey key;
+        private int player = -1;
+        private int lastSequence;
+        private int ackedTick = SnapshotCodec.NO_BASELINE;
+        private boolean spectator;
+        private SnapshotCodec codec;
+        private AreaOfInterest interest;
+        private WorldState view;
+
+        private Connection(final SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
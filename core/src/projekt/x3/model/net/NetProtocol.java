@@ -0,0 +1,138 @@
+package x3.model.net;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+/**
+ * Constants and framing of the messages between a {@link MatchServer} and its {@link MatchClient clients}.
+ * <br>
+ * Every message is a frame of an unsigned 16-bit length, a type byte, and the payload.
+ * The length counts the type and the payload. Messages:
+ * <ul>
+ *     <li>{@link #HELLO} (client): the {@link #VERSION protocol version}.</li>
+ *     <li>{@link #SPECTATE} (client): the protocol version, to watch the match without a player.</li>
+ *     <li>
+ *         {@link #WELCOME} (server): the index of the client's player (-1 for a spectator), the player count, the
+ *         width and height of the map and a bitset of its walls.
+ *     </li>
+ *     <li>{@link #FULL} (server): every player slot is taken, the connection is closed.</li>
+ *     <li>
+ *         {@link #INPUT} (client): a sequence number, the input bitmask of the client's player, and the tick of the
+ *         last state the client decoded (or {@link SnapshotCodec#NO_BASELINE}).
+ *     </li>
+ *     <li>
+ *         {@link #STATE} (server): the sequence number of the last input of the client applied by the server,
+ *         followed by a {@link WorldState} encoded by a {@link SnapshotCodec}.
+ *     </li>
+ * </ul>
+ * Spectators don't acknowledge states: they receive every state in order, so each is encoded against the previous
+ * one sent to them.
+ */
+public final class NetProtocol {
+    /**
+     * The default port of a match server.
+     */
+    public static final int DEFAULT_PORT = 27015;
+    /**
+     * The version of the protocol, sent by clients in their {@link #HELLO}.
+     */
+    public static final byte VERSION = 4;
+    /**
+     * The size of a frame header.
+     */
+    public static final int HEADER = 3;
+    /**
+     * The maximum size of a frame, header included.
+     */
+    public static final int MAX_FRAME = 0xFFFF + 2;
+
+    /**
+     * Type of the first message of a client.
+     */
+    public static final byte HELLO = 1;
+    /**
+     * Type of the reply of the server to a {@link #HELLO}, if a player slot is free.
+     */
+    public static final byte WELCOME = 2;
+    /**
+     * Type of the reply of the server to a {@link #HELLO}, if every player slot is taken.
+     */
+    public static final byte FULL = 3;
+    /**
+     * Type of the input messages of clients.
+     */
+    public static final byte INPUT = 4;
+    /**
+     * Type of the state messages of the server.
+     */
+    public static final byte STATE = 5;
+    /**
+     * Type of the first message of a spectator.
+     */
+    public static final byte SPECTATE = 6;
+
+    private NetProtocol() {
+    }
+
+    /**
+     * Reserves the header of a frame at the position of the buffer.
+     *
+     * @param buffer the buffer to write to.
+     * @param type   the type of the message.
+     * @return the position of the frame, to be passed to {@link #endFrame(ByteBuffer, int)}.
+     */
+    public static int beginFrame(final ByteBuffer buffer, byte type) {
+        int start = buffer.position();
+        buffer.putShort((short) 0);
+        buffer.put(type);
+        return start;
+    }
+
+    /**
+     * Fills in the length of a frame, after its payload was written.
+     *
+     * @param buffer the buffer the frame was written to.
+     * @param start  the position returned by {@link #beginFrame(ByteBuffer, byte)}.
+     */
+    public static void endFrame(final ByteBuffer buffer, int start) {
+        buffer.putShort(start, (short) (buffer.position() - start - 2));
+    }
+
+    /**
+     * Returns the type of the frame at the position of the buffer, if the buffer holds all of it.
+     * <br>
+     * If it does, the position is moved to the payload and the limit to its end. The caller must then
+     * {@link #skipFrame(ByteBuffer, int) skip} the frame once it's done with it.
+     *
+     * @param buffer a buffer in read mode.
+     * @return the type of the frame, or 0 if the frame is incomplete.
+     * @throws ProtocolException if the frame is empty.
+     */
+    public static byte nextFrame(final ByteBuffer buffer) throws ProtocolException {
+        if (buffer.remaining() < HEADER) {
+            return 0;
+        }
+        int length = Short.toUnsignedInt(buffer.getShort(buffer.position()));
+        if (length == 0) {
+            throw new ProtocolException("Empty frame");
+        }
+        if (buffer.remaining() < length + 2) {
+            return 0;
+        }
+        byte type = buffer.get(buffer.position() + 2);
+        buffer.position(buffer.position() + HEADER);
+        buffer.limit(buffer.position() + length - 1);
+        return type;
+    }
+
+    /**
+     * Moves the buffer past the frame returned by {@link #nextFrame(ByteBuffer)}.
+     *
+     * @param buffer the buffer.
+     * @param limit  the limit of the buffer before the frame was read.
+     */
+    public static void skipFrame(final ByteBuffer buffer, int limit) {
+        buffer.position(buffer.limit());
+        buffer.limit(limit);
+    }
+}
@@ -0,0 +1,294 @@
+package x3.model.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A <code>ReplayFile</code> plays back a replay recorded by a {@link ReplayWriter}.
+ * <br>
+ * The file is mapped into memory, and only its index is read when it's opened: the rounds, and the tick and offset
+ * of every keyframe. {@link #seek(int, int, WorldState) Seeking} a tick finds the last keyframe before it with a
+ * binary search, and decodes the deltas from there, so any tick of a long recording is reached by decoding at most
+ * a {@link ReplayWriter#getKeyframeInterval() keyframe interval} of frames. Playing forward continues from the tick
+ * decoded last.
+ * <br>
+ * Replays hold the states of the game rather than its inputs: the monsters think under a time budget, so a round
+ * can't be simulated again from the inputs alone.
+ */
+public class ReplayFile implements Closeable {
+    /**
+     * The first and last bytes of every replay.
+     */
+    public static final int MAGIC = 0x44435250;
+    /**
+     * The version of the format.
+     */
+    public static final short VERSION = 1;
+    /**
+     * The extension of replay files.
+     */
+    public static final String EXTENSION = ".replay";
+    /**
+     * Returned when no tick can be played back.
+     */
+    public static final int NONE = -1;
+    private static final int HEADER = Integer.BYTES + Short.BYTES + Float.BYTES;
+    private static final int TRAILER = Long.BYTES + Integer.BYTES;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final float PPM;
+    private final ByteBuffer frames;
+    private final long[] roundOffsets;
+    private final long[] roundEnds;
+    private final int[] firstTicks;
+    private final int[] lastTicks;
+    private final int[] firstKeyframes;
+    private final int[] keyframeTicks;
+    private final long[] keyframeOffsets;
+    private SnapshotCodec codec;
+    private int decodedRound = NONE;
+    private int decodedTick = NONE;
+    private int decodedStart;
+    private int decodedEnd;
+
+    /**
+     * Only constructor.
+     * <br>
+     * Maps the file and reads its index.
+     *
+     * @param file the replay file.
+     * @throws IOException if the file can't be read, or isn't a complete replay.
+     */
+    public ReplayFile(final Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("The replay is larger than 2 GB");
+            }
+            if (size < HEADER + TRAILER) {
+                throw new IOException("Not a replay: " + file);
+            }
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            frames = map.duplicate();
+            if (map.getInt(0) != MAGIC || map.getInt((int) size - Integer.BYTES) != MAGIC) {
+                throw new IOException("Not a complete replay: " + file);
+            }
+            if (map.getShort(Integer.BYTES) != VERSION) {
+                throw new IOException("Unknown replay version " + map.getShort(Integer.BYTES));
+            }
+            PPM = map.getFloat(Integer.BYTES + Short.BYTES);
+
+            long index = map.getLong((int) size - TRAILER);
+            if (index < HEADER || index > size - TRAILER) {
+                throw new IOException("Corrupt replay index");
+            }
+            ByteBuffer in = map.duplicate().position((int) index).limit((int) size - TRAILER);
+            int rounds = in.getInt();
+            if (rounds < 0 || rounds > in.remaining() / (Long.BYTES + 3 * Integer.BYTES)) {
+                throw new IOException("Corrupt replay index");
+            }
+            roundOffsets = new long[rounds];
+            roundEnds = new long[rounds];
+            firstTicks = new int[rounds];
+            lastTicks = new int[rounds];
+            firstKeyframes = new int[rounds + 1];
+            int[] ticks = new int[16];
+            long[] offsets = new long[16];
+            int keyframes = 0;
+            for (int r = 0; r < rounds; ++r) {
+                roundOffsets[r] = in.getLong();
+                firstTicks[r] = in.getInt();
+                lastTicks[r] = in.getInt();
+                firstKeyframes[r] = keyframes;
+                for (int k = in.getInt(); k > 0; --k) {
+                    if (keyframes == ticks.length) {
+                        ticks = Arrays.copyOf(ticks, keyframes * 2);
+                        offsets = Arrays.copyOf(offsets, keyframes * 2);
+                    }
+                    ticks[keyframes] = in.getInt();
+                    offsets[keyframes] = in.getLong();
+                    ++keyframes;
+                }
+            }
+            firstKeyframes[rounds] = keyframes;
+            keyframeTicks = Arrays.copyOf(ticks, keyframes);
+            keyframeOffsets = Arrays.copyOf(offsets, keyframes);
+            for (int r = 0; r < rounds; ++r) {
+                roundEnds[r] = r + 1 < rounds ? roundOffsets[r + 1] : index;
+            }
+        } catch (BufferUnderflowException e) {
+            channel.close();
+            throw new IOException("Corrupt replay index", e);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Finds the last replay of the given directory, the file with the {@link #EXTENSION replay extension} whose name
+     * comes last. Replays named after the time they were recorded are found in the order they were recorded.
+     *
+     * @param directory the directory of the replays.
+     * @return the last replay, or null if the directory doesn't exist or holds no replay.
+     * @throws IOException if the directory can't be listed.
+     */
+    public static Path latest(final Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        Path latest = null;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : stream) {
+                if (latest == null || file.getFileName().compareTo(latest.getFileName()) > 0) {
+                    latest = file;
+                }
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Returns the number of rounds of the replay.
+     * @return the number of rounds.
+     */
+    public int getRoundCount() {
+        return roundOffsets.length;
+    }
+
+    /**
+     * Returns the width of the map of a round.
+     * @param round the index of the round.
+     * @return the width, in cells.
+     */
+    public int getWidth(int round) {
+        return map.getShort((int) roundOffsets[round]);
+    }
+
+    /**
+     * Returns the height of the map of a round.
+     * @param round the index of the round.
+     * @return the height, in cells.
+     */
+    public int getHeight(int round) {
+        return map.getShort((int) roundOffsets[round] + Short.BYTES);
+    }
+
+    /**
+     * Returns whether there is a wall in the given cell of the map of a round.
+     * @param round the index of the round.
+     * @param cell  the cell index.
+     * @return true if the cell holds a wall.
+     */
+    public boolean isWall(int round, int cell) {
+        long word = map.getLong((int) roundOffsets[round] + 2 * Short.BYTES + (cell >>> 6) * Long.BYTES);
+        return (word & 1L << cell) != 0;
+    }
+
+    /**
+     * Returns the first tick of a round.
+     * @param round the index of the round.
+     * @return the tick, or {@link #NONE} if the round has no ticks.
+     */
+    public int getFirstTick(int round) {
+        return firstTicks[round];
+    }
+
+    /**
+     * Returns the last tick of a round.
+     * @param round the index of the round.
+     * @return the tick, or {@link #NONE} if the round has no ticks.
+     */
+    public int getLastTick(int round) {
+        return lastTicks[round];
+    }
+
+    /**
+     * Returns the number of keyframes of a round.
+     * @param round the index of the round.
+     * @return the number of keyframes.
+     */
+    public int getKeyframeCount(int round) {
+        return firstKeyframes[round + 1] - firstKeyframes[round];
+    }
+
+    /**
+     * Decodes the last tick of a round that isn't after the given tick, or the first tick of the round if the given
+     * tick is before it.
+     *
+     * @param round the index of the round.
+     * @param tick  the tick to play back.
+     * @param out   the state to overwrite with the decoded tick, of the size of the round's map.
+     * @return the decoded tick, or {@link #NONE} if the round has no ticks.
+     * @throws IOException if the replay is corrupt.
+     */
+    public int seek(int round, int tick, final WorldState out) throws IOException {
+        int first = firstKeyframes[round];
+        int last = firstKeyframes[round + 1] - 1;
+        if (last < first) {
+            return NONE;
+        }
+        int target = Math.max(tick, firstTicks[round]);
+        int keyframe = Arrays.binarySearch(keyframeTicks, first, last + 1, target);
+        if (keyframe < 0) {
+            keyframe = Math.max(first, -keyframe - 2);
+        }
+
+        int position;
+        if (round == decodedRound && decodedTick <= target && decodedTick >= keyframeTicks[keyframe]) {
+            // the tick decoded last is decoded again, as the state may have been changed since
+            position = decodedTick == target ? decodedStart : decodedEnd;
+        } else {
+            if (round != decodedRound) {
+                codec = new SnapshotCodec(getWidth(round), getHeight(round), PPM);
+            }
+            position = (int) keyframeOffsets[keyframe];
+            decodedTick = NONE;
+        }
+        decodedRound = round;
+
+        int end = (int) roundEnds[round];
+        try {
+            while (position < end) {
+                int length = map.getShort(position) & 0xFFFF;
+                int frameTick = SnapshotCodec.peekTick(map, position + Short.BYTES);
+                if (frameTick > target && decodedTick != NONE) {
+                    break;
+                }
+                frames.limit(position + Short.BYTES + length).position(position + Short.BYTES);
+                decodedTick = codec.decode(frames, out);
+                decodedStart = position;
+                position += Short.BYTES + length;
+                decodedEnd = position;
+            }
+        } catch (ProtocolException | IndexOutOfBoundsException e) {
+            decodedRound = NONE;
+            throw new IOException("Corrupt replay frame at " + position, e);
+        } finally {
+            frames.clear();
+        }
+        return decodedTick;
+    }
+
+    /**
+     * Closes the file. The mapping is released once it's no longer reachable.
+     *
+     * @throws IOException if the file can't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
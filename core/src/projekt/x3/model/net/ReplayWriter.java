@@ -0,0 +1,254 @@
+package x3.model.net;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongArray;
+import x3.model.game.GameEngine;
+import x3.model.game.grid.CellGrid;
+import x3.model.util.TickClock;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A <code>ReplayWriter</code> records the rounds of a game to a replay file, to be played back by a
+ * {@link ReplayFile}.
+ * <br>
+ * Every round starts with its header: the size of the map and its walls. Its ticks follow as
+ * frames, each encoded by a {@link SnapshotCodec}: a keyframe every {@link #getKeyframeInterval() keyframe interval}
+ * ticks, and deltas against the previous tick in between. A frame is its length in 2 bytes, followed by the encoded
+ * state.
+ * <br>
+ * Once the file is {@link #close() closed}, an index is appended: the offset and ticks of every round, and the tick
+ * and offset of every keyframe. The file ends with the offset of the index and the {@link ReplayFile#MAGIC magic
+ * number}, so a reader finds the index without reading the frames.
+ * <br>
+ * Frames are written through a buffer, so recording a tick only writes to the file every few seconds.
+ */
+public class ReplayWriter implements Closeable {
+    /**
+     * The default number of ticks between keyframes: seeking decodes at most 2 seconds of deltas.
+     */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 2 * TickClock.TICKS_PER_SECOND;
+    private static final int MAX_FRAME = 0xFFFF;
+
+    private final FileChannel channel;
+    private final int keyframeInterval;
+    private final float PPM;
+    private final List<Round> rounds = new ArrayList<>();
+    private final ByteBuffer out = ByteBuffer.allocateDirect(64 * 1024);
+    private ByteBuffer frame = ByteBuffer.allocate(4096);
+    private long written;
+    private Round round;
+    private WorldState state;
+    private SnapshotCodec codec;
+
+    /**
+     * The index of a round.
+     */
+    private static class Round {
+        final long offset;
+        final IntArray keyframeTicks = new IntArray();
+        final LongArray keyframeOffsets = new LongArray();
+        int firstTick = ReplayFile.NONE;
+        int lastTick = ReplayFile.NONE;
+
+        Round(long offset) {
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Primary constructor.
+     * <br>
+     * Creates the file, replacing any earlier one, and writes its header.
+     *
+     * @param file             the file to write.
+     * @param PPM              the size of a cell, in the units of the positions.
+     * @param keyframeInterval the number of ticks between keyframes.
+     * @throws IOException if the file can't be created.
+     */
+    public ReplayWriter(final Path file, float PPM, int keyframeInterval) throws IOException {
+        this.PPM = PPM;
+        this.keyframeInterval = keyframeInterval;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        out.putInt(ReplayFile.MAGIC);
+        out.putShort(ReplayFile.VERSION);
+        out.putFloat(PPM);
+    }
+
+    /**
+     * Secondary constructor.
+     * <br>
+     * Writes a keyframe every {@link #DEFAULT_KEYFRAME_INTERVAL} ticks.
+     *
+     * @param file the file to write.
+     * @param PPM  the size of a cell, in the units of the positions.
+     * @throws IOException if the file can't be created.
+     */
+    public ReplayWriter(final Path file, float PPM) throws IOException {
+        this(file, PPM, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Starts a new round, played by the given engine.
+     *
+     * @param engine the engine of the round.
+     * @throws IOException if the file can't be written.
+     */
+    public void startRound(final GameEngine engine) throws IOException {
+        CellGrid grid = engine.getGrid();
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        long[] walls = new long[(width * height + 63) / 64];
+        for (int cell = 0; cell < grid.size(); ++cell) {
+            if (grid.isWall(cell)) {
+                walls[cell >>> 6] |= 1L << cell;
+            }
+        }
+        reserve(4 + walls.length * Long.BYTES);
+        round = new Round(position());
+        rounds.add(round);
+        out.putShort((short) width);
+        out.putShort((short) height);
+        for (long word : walls) {
+            out.putLong(word);
+        }
+        if (state == null || state.getWidth() != width || state.getHeight() != height) {
+            state = new WorldState(width, height);
+            codec = new SnapshotCodec(width, height, PPM);
+        }
+    }
+
+    /**
+     * Records the current tick of the engine in the current round. Called after every step.
+     * <br>
+     * If the engine went back to an earlier tick, e.g. after it was restored, a new round is started.
+     *
+     * @param engine the engine of the round.
+     * @throws IOException           if the file can't be written.
+     * @throws IllegalStateException if no round was started.
+     */
+    public void record(final GameEngine engine) throws IOException {
+        if (round == null) {
+            throw new IllegalStateException("No round was started");
+        }
+        state.capture(engine);
+        int tick = state.getTick();
+        if (round.lastTick != ReplayFile.NONE && tick <= round.lastTick) {
+            startRound(engine);
+        }
+        boolean keyframe = round.keyframeTicks.isEmpty()
+            || tick - round.keyframeTicks.peek() >= keyframeInterval;
+        codec.capture(state);
+        while (true) {
+            try {
+                frame.clear();
+                codec.encode(keyframe ? SnapshotCodec.NO_BASELINE : round.lastTick, frame);
+                frame.flip();
+                break;
+            } catch (BufferOverflowException e) {
+                frame = ByteBuffer.allocate(frame.capacity() * 2);
+            }
+        }
+        if (frame.remaining() > MAX_FRAME) {
+            throw new IllegalStateException("A tick of " + frame.remaining() + " bytes can't be recorded");
+        }
+
+        reserve(2 + frame.remaining());
+        if (keyframe) {
+            round.keyframeTicks.add(tick);
+            round.keyframeOffsets.add(position());
+        }
+        if (round.firstTick == ReplayFile.NONE) {
+            round.firstTick = tick;
+        }
+        round.lastTick = tick;
+        out.putShort((short) frame.remaining());
+        out.put(frame);
+    }
+
+    private long position() {
+        return written + out.position();
+    }
+
+    /**
+     * Makes room for the given number of bytes in the buffer, writing it to the file if needed.
+     */
+    private void reserve(int bytes) throws IOException {
+        if (out.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            written += channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * Returns the number of ticks between keyframes.
+     * @return the keyframe interval, in ticks.
+     */
+    public int getKeyframeInterval() {
+        return keyframeInterval;
+    }
+
+    /**
+     * Returns the number of rounds started.
+     * @return the number of rounds.
+     */
+    public int getRoundCount() {
+        return rounds.size();
+    }
+
+    /**
+     * Returns the size of the recording so far, without the index.
+     * @return the number of bytes recorded.
+     */
+    public long getSize() {
+        return position();
+    }
+
+    /**
+     * Writes the index and closes the file.
+     *
+     * @throws IOException if the file can't be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            long index = position();
+            reserve(Integer.BYTES);
+            out.putInt(rounds.size());
+            for (Round r : rounds) {
+                reserve(Long.BYTES + 3 * Integer.BYTES);
+                out.putLong(r.offset);
+                out.putInt(r.firstTick);
+                out.putInt(r.lastTick);
+                out.putInt(r.keyframeTicks.size);
+                for (int k = 0; k < r.keyframeTicks.size; ++k) {
+                    reserve(Integer.BYTES + Long.BYTES);
+                    out.putInt(r.keyframeTicks.get(k));
+                    out.putLong(r.keyframeOffsets.get(k));
+                }
+            }
+            reserve(Long.BYTES + Integer.BYTES);
+            out.putLong(index);
+            out.putInt(ReplayFile.MAGIC);
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package x3.model.net;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+
+import static x3.model.net.NetProtocol.MAX_FRAME;
+
+/**
+ * A <code>SharedFrame</code> is an encoded message queued to many connections at once, without copying it.
+ * <br>
+ * Frames are reference counted: every connection queuing the frame {@link #retain() retains} it, and
+ * {@link #release() releases} it once it's written. The last release returns the frame to its pool.
+ * <br>
+ * Frames aren't thread-safe: they are shared by the connections of a single thread.
+ */
+final class SharedFrame {
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_FRAME);
+    private final Queue<SharedFrame> pool;
+    private int references;
+
+    /**
+     * Only constructor.
+     *
+     * @param pool the pool the frame returns to when it's released by every holder.
+     */
+    SharedFrame(final Queue<SharedFrame> pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Prepares the frame to be written, with a single reference held by the caller.
+     *
+     * @return the buffer to write the frame into, to be {@link ByteBuffer#flip() flipped} once written.
+     */
+    ByteBuffer open() {
+        references = 1;
+        return buffer.clear();
+    }
+
+    /**
+     * Adds a holder of the frame.
+     */
+    void retain() {
+        ++references;
+    }
+
+    /**
+     * Removes a holder of the frame, and returns it to its pool if it was the last.
+     */
+    void release() {
+        if (--references == 0) {
+            pool.add(this);
+        }
+    }
+
+    /**
+     * Returns the flipped buffer of the frame, positioned at the given offset.
+     * <br>
+     * The position is shared by every holder: it must be set again before every use.
+     *
+     * @param offset the number of bytes of the frame already written by the caller.
+     * @return the buffer.
+     */
+    ByteBuffer from(int offset) {
+        return buffer.position(offset);
+    }
+}
@@ -0,0 +1,555 @@
+package x3.model.net;
+
+import java.net.ProtocolException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static x3.model.net.WorldState.MAX_PLAYERS;
+
+/**
+ * A <code>SnapshotCodec</code> encodes {@link WorldState world states} as bit-packed deltas against an earlier
+ * state the receiver already has (its baseline), and decodes them.
+ * <br>
+ * The codec keeps the last {@link #HISTORY} states it {@link #capture(WorldState) captured} or
+ * {@link #decode(ByteBuffer, WorldState) decoded}, in a ring of preallocated snapshots. A snapshot is quantized:
+ * <ul>
+ *     <li>Positions of players and monsters are stored in 1/{@link #SUBCELLS} of a cell, in 16 bits.</li>
+ *     <li>Boxes, bombs and effects are stored as bitsets over the cells of the map, and monsters as a bitset of their
+ *     ids, which are smaller than the number of cells.</li>
+ *     <li>The fuse of each bomb is stored in ticks, in {@link #FUSE_BITS} bits; the type of each effect in 3 bits.</li>
+ * </ul>
+ * An encoded state only contains what changed since the baseline: positions that moved (small moves in 5 bits),
+ * the monsters that appeared or disappeared, the cells whose box, bomb or effect bit flipped, and the fuses that
+ * didn't burn down as expected.
+ * A state encoded without a baseline (a keyframe) is a delta against an empty map.
+ * <br>
+ * Encoding and decoding read and write the buffers directly, and don't allocate, except to grow the snapshots
+ * when the number of monsters, bombs, effects or blasts exceeds every earlier state.
+ */
+public class SnapshotCodec {
+    /**
+     * The number of past states kept as possible baselines.
+     */
+    public static final int HISTORY = 64;
+    /**
+     * The number of position steps per cell.
+     */
+    public static final int SUBCELLS = 64;
+    /**
+     * The baseline tick of keyframes.
+     */
+    public static final int NO_BASELINE = -1;
+    /**
+     * The number of bits of a bomb fuse. Longer fuses are clamped.
+     */
+    public static final int FUSE_BITS = 7;
+    private static final int MAX_FUSE = (1 << FUSE_BITS) - 1;
+    private static final int TYPE_BITS = 3;
+    private static final int SMALL_DELTA_BITS = 5;
+    private static final int SMALL_DELTA = 1 << SMALL_DELTA_BITS - 1;
+    private static final int COORD_BITS = 16;
+    private static final int MAX_COORD = (1 << COORD_BITS) - 1;
+
+    private final int cells;
+    private final int cellBits;
+    private final float PPM;
+    private final Snapshot[] history = new Snapshot[HISTORY];
+    private final Snapshot empty;
+    private final BitWriter writer = new BitWriter();
+    private final BitReader reader = new BitReader();
+    private Snapshot current;
+
+    /**
+     * Only constructor.
+     *
+     * @param width  the width of the map, in cells.
+     * @param height the height of the map, in cells.
+     * @param PPM    the size of a cell, in the units of the positions.
+     */
+    public SnapshotCodec(int width, int height, float PPM) {
+        this.PPM = PPM;
+        cells = width * height;
+        cellBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(cells - 1));
+        for (int i = 0; i < HISTORY; ++i) {
+            history[i] = new Snapshot(cells);
+        }
+        empty = new Snapshot(cells);
+    }
+
+    /**
+     * Quantizes the state and stores it as the state to {@link #encode(int, ByteBuffer) encode}.
+     *
+     * @param state the state, of a map of the codec's size.
+     * @throws IllegalArgumentException if the id of a monster isn't smaller than the number of cells.
+     */
+    public void capture(final WorldState state) {
+        Snapshot snapshot = history[state.getTick() & HISTORY - 1];
+        snapshot.tick = state.getTick();
+        snapshot.ended = state.isGameEnded();
+        snapshot.shrinks = state.getShrinks();
+        snapshot.millisUntilShrink = state.getMillisUntilShrink();
+        for (int p = 0; p < MAX_PLAYERS; ++p) {
+            snapshot.alive[p] = state.isAlive(p);
+            snapshot.playerX[p] = snapshot.alive[p] ? quantize(state.getPlayerX(p)) : 0;
+            snapshot.playerY[p] = snapshot.alive[p] ? quantize(state.getPlayerY(p)) : 0;
+        }
+        Arrays.fill(snapshot.monsters, 0);
+        snapshot.monsterCount = 0;
+        for (int i = 0; i < state.getMonsterCount(); ++i) {
+            int id = state.getMonsterId(i);
+            if (id < 0 || id >= cells) {
+                throw new IllegalArgumentException("Monster id " + id + " out of bounds");
+            }
+            if (!get(snapshot.monsters, id)) {
+                flip(snapshot.monsters, id);
+                snapshot.addMonster(id, quantize(state.getMonsterX(i)), quantize(state.getMonsterY(i)));
+            }
+        }
+        sort(snapshot.monsterIds, snapshot.monsterX, snapshot.monsterY, snapshot.monsterCount);
+        System.arraycopy(state.getBoxWords(), 0, snapshot.boxes, 0, snapshot.boxes.length);
+
+        Arrays.fill(snapshot.bombs, 0);
+        snapshot.bombCount = 0;
+        for (int i = 0; i < state.getBombCount(); ++i) {
+            int cell = state.getBombCell(i);
+            if (!get(snapshot.bombs, cell)) {
+                flip(snapshot.bombs, cell);
+                snapshot.addBomb(cell, Math.min(state.getBombFuse(i), MAX_FUSE));
+            }
+        }
+        sort(snapshot.bombCells, snapshot.bombFuses, snapshot.bombCount);
+
+        Arrays.fill(snapshot.effects, 0);
+        snapshot.effectCount = 0;
+        for (int i = 0; i < state.getEffectCount(); ++i) {
+            int cell = state.getEffectCell(i);
+            if (!get(snapshot.effects, cell)) {
+                flip(snapshot.effects, cell);
+                snapshot.addEffect(cell, state.getEffectType(i));
+            }
+        }
+        sort(snapshot.effectCells, snapshot.effectTypes, snapshot.effectCount);
+
+        snapshot.blastCount = 0;
+        for (int i = 0; i < state.getBlastCount(); ++i) {
+            snapshot.addBlast(state.getBlastCell(i));
+        }
+        current = snapshot;
+    }
+
+    /**
+     * Returns whether the codec still has the state of the given tick.
+     *
+     * @param tick the tick.
+     * @return true if the state can be used as a baseline.
+     */
+    public boolean hasSnapshot(int tick) {
+        return tick >= 0 && history[tick & HISTORY - 1].tick == tick;
+    }
+
+    /**
+     * Returns the tick of the state captured or decoded last.
+     *
+     * @return the tick, or -1 if there is none.
+     */
+    public int getTick() {
+        return current == null ? -1 : current.tick;
+    }
+
+    /**
+     * Encodes the state captured last, starting at the position of the buffer.
+     * <br>
+     * If the codec doesn't have the state of the baseline tick anymore, a keyframe is encoded instead.
+     *
+     * @param baselineTick the tick of the last state the receiver decoded, or {@link #NO_BASELINE}.
+     * @param buffer       the buffer to write to.
+     * @throws BufferOverflowException if the buffer is too small.
+     */
+    public void encode(int baselineTick, final ByteBuffer buffer) {
+        Snapshot cur = current;
+        Snapshot base = baselineTick < cur.tick && hasSnapshot(baselineTick) ? history[baselineTick & HISTORY - 1] : empty;
+        int elapsed = cur.tick - (base == empty ? 0 : base.tick);
+        BitWriter w = writer;
+        w.begin(buffer);
+        w.write(cur.tick, 32);
+        w.write(base == empty ? NO_BASELINE : base.tick, 32);
+        w.writeBit(cur.ended);
+        w.write(cur.shrinks + 1, 8);
+        w.write(cur.millisUntilShrink < 0 ? 0 : cur.millisUntilShrink / 10 + 1, 16);
+
+        for (int p = 0; p < MAX_PLAYERS; ++p) {
+            w.writeBit(cur.alive[p]);
+            if (cur.alive[p]) {
+                writeCoord(base.playerX[p], cur.playerX[p]);
+                writeCoord(base.playerY[p], cur.playerY[p]);
+            }
+        }
+        writeFlips(base.monsters, cur.monsters);
+        for (int i = 0, j = 0; i < cur.monsterCount; ++i) {
+            int id = cur.monsterIds[i];
+            while (j < base.monsterCount && base.monsterIds[j] < id) {
+                ++j;
+            }
+            boolean known = j < base.monsterCount && base.monsterIds[j] == id;
+            writeCoord(known ? base.monsterX[j] : 0, cur.monsterX[i]);
+            writeCoord(known ? base.monsterY[j] : 0, cur.monsterY[i]);
+        }
+
+        writeFlips(base.boxes, cur.boxes);
+
+        writeFlips(base.bombs, cur.bombs);
+        for (int i = 0, j = 0; i < cur.bombCount; ++i) {
+            int cell = cur.bombCells[i];
+            while (j < base.bombCount && base.bombCells[j] < cell) {
+                ++j;
+            }
+            boolean expected = j < base.bombCount && base.bombCells[j] == cell
+                && cur.bombFuses[i] == Math.max(0, base.bombFuses[j] - elapsed);
+            w.writeBit(!expected);
+            if (!expected) {
+                w.write(cur.bombFuses[i], FUSE_BITS);
+            }
+        }
+
+        writeFlips(base.effects, cur.effects);
+        for (int i = 0, j = 0; i < cur.effectCount; ++i) {
+            int cell = cur.effectCells[i];
+            while (j < base.effectCount && base.effectCells[j] < cell) {
+                ++j;
+            }
+            boolean same = j < base.effectCount && base.effectCells[j] == cell && base.effectTypes[j] == cur.effectTypes[i];
+            w.writeBit(!same);
+            if (!same) {
+                w.write(cur.effectTypes[i], TYPE_BITS);
+            }
+        }
+
+        w.writeVar(cur.blastCount);
+        for (int i = 0; i < cur.blastCount; ++i) {
+            w.write(cur.blastCells[i], cellBits);
+        }
+        w.end();
+    }
+
+    /**
+     * Returns the tick of an encoded state, without decoding it.
+     *
+     * @param buffer   the buffer holding the state.
+     * @param position the index of the first byte of the state.
+     * @return the tick of the state.
+     */
+    static int peekTick(final ByteBuffer buffer, int position) {
+        // the tick is the first field, written most significant bit first
+        return buffer.getInt(position);
+    }
+
+    /**
+     * Decodes a state, starting at the position of the buffer.
+     * <br>
+     * The decoded state becomes a possible baseline of the following states.
+     *
+     * @param buffer the buffer to read from.
+     * @param state  the state to overwrite with the decoded one, of a map of the codec's size.
+     * @return the tick of the decoded state.
+     * @throws ProtocolException if the codec doesn't have the baseline of the state, or the buffer ends before the state does.
+     */
+    public int decode(final ByteBuffer buffer, final WorldState state) throws ProtocolException {
+        BitReader r = reader;
+        r.begin(buffer);
+        try {
+            int tick = r.read(32);
+            int baselineTick = r.read(32);
+            if (tick < 0 || baselineTick != NO_BASELINE && (baselineTick >= tick || !hasSnapshot(baselineTick))) {
+                throw new ProtocolException("Missing baseline " + baselineTick + " of tick " + tick);
+            }
+            Snapshot base = baselineTick == NO_BASELINE ? empty : history[baselineTick & HISTORY - 1];
+            Snapshot cur = history[tick & HISTORY - 1];
+            int elapsed = tick - (base == empty ? 0 : base.tick);
+            cur.tick = tick;
+            cur.ended = r.readBit();
+            cur.shrinks = r.read(8) - 1;
+            int millis = r.read(16);
+            cur.millisUntilShrink = millis == 0 ? -1 : (millis - 1) * 10;
+
+            for (int p = 0; p < MAX_PLAYERS; ++p) {
+                cur.alive[p] = r.readBit();
+                cur.playerX[p] = cur.alive[p] ? readCoord(base.playerX[p]) : 0;
+                cur.playerY[p] = cur.alive[p] ? readCoord(base.playerY[p]) : 0;
+            }
+            readFlips(base.monsters, cur.monsters);
+            cur.monsterCount = 0;
+            for (int id = nextSetBit(cur.monsters, 0), j = 0; id != -1; id = nextSetBit(cur.monsters, id + 1)) {
+                while (j < base.monsterCount && base.monsterIds[j] < id) {
+                    ++j;
+                }
+                boolean known = j < base.monsterCount && base.monsterIds[j] == id;
+                int x = readCoord(known ? base.monsterX[j] : 0);
+                int y = readCoord(known ? base.monsterY[j] : 0);
+                cur.addMonster(id, x, y);
+            }
+
+            readFlips(base.boxes, cur.boxes);
+
+            readFlips(base.bombs, cur.bombs);
+            cur.bombCount = 0;
+            for (int cell = nextSetBit(cur.bombs, 0), j = 0; cell != -1; cell = nextSetBit(cur.bombs, cell + 1)) {
+                while (j < base.bombCount && base.bombCells[j] < cell) {
+                    ++j;
+                }
+                if (r.readBit()) {
+                    cur.addBomb(cell, r.read(FUSE_BITS));
+                } else if (j < base.bombCount && base.bombCells[j] == cell) {
+                    cur.addBomb(cell, Math.max(0, base.bombFuses[j] - elapsed));
+                } else {
+                    throw new ProtocolException("Bomb without fuse");
+                }
+            }
+
+            readFlips(base.effects, cur.effects);
+            cur.effectCount = 0;
+            for (int cell = nextSetBit(cur.effects, 0), j = 0; cell != -1; cell = nextSetBit(cur.effects, cell + 1)) {
+                while (j < base.effectCount && base.effectCells[j] < cell) {
+                    ++j;
+                }
+                if (r.readBit()) {
+                    cur.addEffect(cell, r.read(TYPE_BITS));
+                } else if (j < base.effectCount && base.effectCells[j] == cell) {
+                    cur.addEffect(cell, base.effectTypes[j]);
+                } else {
+                    throw new ProtocolException("Effect without type");
+                }
+            }
+
+            int blastCount = r.readVar();
+            cur.blastCount = 0;
+            for (int i = 0; i < blastCount; ++i) {
+                cur.addBlast(r.read(cellBits));
+            }
+            r.end();
+            current = cur;
+            dequantize(cur, state);
+            return tick;
+        } catch (BufferUnderflowException e) {
+            throw new ProtocolException("Truncated snapshot");
+        }
+    }
+
+    private void dequantize(final Snapshot snapshot, final WorldState state) {
+        state.setHeader(snapshot.tick, snapshot.ended, snapshot.shrinks, snapshot.millisUntilShrink);
+        for (int p = 0; p < MAX_PLAYERS; ++p) {
+            state.setPlayer(p, snapshot.alive[p], position(snapshot.playerX[p]), position(snapshot.playerY[p]));
+        }
+        state.clearEntities();
+        for (int i = 0; i < snapshot.monsterCount; ++i) {
+            state.addMonster(snapshot.monsterIds[i], position(snapshot.monsterX[i]), position(snapshot.monsterY[i]));
+        }
+        System.arraycopy(snapshot.boxes, 0, state.getBoxWords(), 0, snapshot.boxes.length);
+        for (int i = 0; i < snapshot.bombCount; ++i) {
+            state.addBomb(snapshot.bombCells[i], snapshot.bombFuses[i]);
+        }
+        for (int i = 0; i < snapshot.effectCount; ++i) {
+            state.addEffect(snapshot.effectCells[i], snapshot.effectTypes[i]);
+        }
+        for (int i = 0; i < snapshot.blastCount; ++i) {
+            state.addBlast(snapshot.blastCells[i]);
+        }
+    }
+
+    private int quantize(float position) {
+        return Math.max(0, Math.min(MAX_COORD, Math.round(position * SUBCELLS / PPM)));
+    }
+
+    private float position(int quantized) {
+        return quantized * PPM / SUBCELLS;
+    }
+
+    private void writeCoord(int base, int value) {
+        int delta = value - base;
+        if (delta == 0) {
+            writer.write(0, 1);
+        } else if (delta >= -SMALL_DELTA && delta < SMALL_DELTA) {
+            writer.write(2, 2);
+            writer.write(delta, SMALL_DELTA_BITS);
+        } else {
+            writer.write(3, 2);
+            writer.write(value, COORD_BITS);
+        }
+    }
+
+    private int readCoord(int base) {
+        if (!reader.readBit()) {
+            return base;
+        }
+        if (!reader.readBit()) {
+            return base + reader.readSigned(SMALL_DELTA_BITS);
+        }
+        return reader.read(COORD_BITS);
+    }
+
+    /**
+     * Writes the cells whose bits differ, as the number of such cells and the gaps between them.
+     */
+    private void writeFlips(final long[] base, final long[] bits) {
+        int count = 0;
+        for (int i = 0; i < bits.length; ++i) {
+            count += Long.bitCount(base[i] ^ bits[i]);
+        }
+        writer.writeVar(count);
+        int previous = -1;
+        for (int i = 0; i < bits.length; ++i) {
+            long flips = base[i] ^ bits[i];
+            while (flips != 0) {
+                int cell = i << 6 | Long.numberOfTrailingZeros(flips);
+                writer.writeVar(cell - previous - 1);
+                previous = cell;
+                flips &= flips - 1;
+            }
+        }
+    }
+
+    private void readFlips(final long[] base, final long[] bits) throws ProtocolException {
+        System.arraycopy(base, 0, bits, 0, bits.length);
+        int previous = -1;
+        for (int count = reader.readVar(); count > 0; --count) {
+            int cell = previous + 1 + reader.readVar();
+            if (cell >= cells) {
+                throw new ProtocolException("Cell out of bounds");
+            }
+            flip(bits, cell);
+            previous = cell;
+        }
+    }
+
+    private static boolean get(final long[] bits, int cell) {
+        return (bits[cell >>> 6] & 1L << cell) != 0;
+    }
+
+    private static void flip(final long[] bits, int cell) {
+        bits[cell >>> 6] ^= 1L << cell;
+    }
+
+    private static int nextSetBit(final long[] bits, int from) {
+        int i = from >>> 6;
+        if (i >= bits.length) {
+            return -1;
+        }
+        long word = bits[i] & -1L << from;
+        while (word == 0) {
+            if (++i == bits.length) {
+                return -1;
+            }
+            word = bits[i];
+        }
+        return i << 6 | Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Sorts the entries by cell. The entries are few and mostly sorted already, so insertion sort is used.
+     */
+    private static void sort(final int[] keys, final int[] values, int count) {
+        for (int i = 1; i < count; ++i) {
+            int key = keys[i];
+            int value = values[i];
+            int j = i - 1;
+            while (j >= 0 && keys[j] > key) {
+                keys[j + 1] = keys[j];
+                values[j + 1] = values[j];
+                --j;
+            }
+            keys[j + 1] = key;
+            values[j + 1] = value;
+        }
+    }
+
+    /**
+     * Sorts the monsters by id, like {@link #sort(int[], int[], int)}.
+     */
+    private static void sort(final int[] ids, final int[] xs, final int[] ys, int count) {
+        for (int i = 1; i < count; ++i) {
+            int id = ids[i];
+            int x = xs[i];
+            int y = ys[i];
+            int j = i - 1;
+            while (j >= 0 && ids[j] > id) {
+                ids[j + 1] = ids[j];
+                xs[j + 1] = xs[j];
+                ys[j + 1] = ys[j];
+                --j;
+            }
+            ids[j + 1] = id;
+            xs[j + 1] = x;
+            ys[j + 1] = y;
+        }
+    }
+
+    private static class Snapshot {
+        private final boolean[] alive = new boolean[MAX_PLAYERS];
+        private final int[] playerX = new int[MAX_PLAYERS];
+        private final int[] playerY = new int[MAX_PLAYERS];
+        private final long[] boxes;
+        private final long[] bombs;
+        private final long[] effects;
+        private final long[] monsters;
+        private int[] monsterIds = new int[8];
+        private int[] monsterX = new int[8];
+        private int[] monsterY = new int[8];
+        private int[] bombCells = new int[8];
+        private int[] bombFuses = new int[8];
+        private int[] effectCells = new int[8];
+        private int[] effectTypes = new int[8];
+        private int[] blastCells = new int[8];
+        private int tick = -1;
+        private boolean ended;
+        private int shrinks = -1;
+        private int millisUntilShrink;
+        private int monsterCount;
+        private int bombCount;
+        private int effectCount;
+        private int blastCount;
+
+        private Snapshot(int cells) {
+            boxes = new long[(cells + 63) / 64];
+            bombs = new long[boxes.length];
+            effects = new long[boxes.length];
+            monsters = new long[boxes.length];
+        }
+
+        private void addMonster(int id, int x, int y) {
+            if (monsterCount == monsterX.length) {
+                monsterIds = Arrays.copyOf(monsterIds, monsterCount * 2);
+                monsterX = Arrays.copyOf(monsterX, monsterCount * 2);
+                monsterY = Arrays.copyOf(monsterY, monsterCount * 2);
+            }
+            monsterIds[monsterCount] = id;
+            monsterX[monsterCount] = x;
+            monsterY[monsterCount++] = y;
+        }
+
+        private void addBomb(int cell, int fuse) {
+            if (bombCount == bombCells.length) {
+                bombCells = Arrays.copyOf(bombCells, bombCount * 2);
+                bombFuses = Arrays.copyOf(bombFuses, bombCount * 2);
+            }
+            bombCells[bombCount] = cell;
+            bombFuses[bombCount++] = fuse;
+        }
+
+        private void addEffect(int cell, int type) {
+            if (effectCount == effectCells.length) {
+                effectCells = Arrays.copyOf(effectCells, effectCount * 2);
+                effectTypes = Arrays.copyOf(effectTypes, effectCount * 2);
+            }
+            effectCells[effectCount] = cell;
+            effectTypes[effectCount++] = type;
+        }
+
+        private void addBlast(int cell) {
+            if (blastCount == blastCells.length) {
+                blastCells = Arrays.copyOf(blastCells, blastCount * 2);
+            }
+            blastCells[blastCount++] = cell;
+        }
+    }
+}
@@ -0,0 +1,492 @@
+package x3.model.net;
+
+import com.badlogic.gdx.utils.Disposable;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+
+import static x3.model.net.NetProtocol.*;
+
+/**
+ * A <code>SpectatorRelay</code> lets many viewers watch a match, at the cost of a single spectator of its
+ * {@link MatchServer}.
+ * <br>
+ * The relay {@link NetProtocol#SPECTATE spectates} the server and decodes every state once. It then encodes the state
+ * once as a delta against the previous state, and every {@link #getKeyframeInterval() keyframe interval} ticks once
+ * more as a keyframe. Viewers are {@link MatchClient spectating clients}: the encoded frames are
+ * {@link SharedFrame shared} by the queues of all viewers, so an additional viewer costs a socket write per state
+ * and no encoding at all.
+ * <br>
+ * A new viewer receives the next keyframe and every delta after it. A viewer too slow to keep up drops its queue
+ * and syncs again from the next keyframe.
+ * <br>
+ * All sockets are non-blocking and served by a single thread with a {@link Selector}, driven by the states of the
+ * server. The duration of handling every state (decoding, encoding and fan-out) is recorded in the relay's
+ * {@link TickStats}.
+ */
+public class SpectatorRelay implements Runnable, Disposable {
+    /**
+     * The default number of ticks between keyframes: a new viewer waits at most a second for its first state.
+     */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = MatchServer.TICK_RATE;
+    /**
+     * The number of frames a viewer may have queued before it's considered too slow.
+     */
+    public static final int MAX_QUEUED = MatchServer.TICK_RATE / 2;
+
+    private final int keyframeInterval;
+    private final SocketChannel upstream;
+    private final ByteBuffer upstreamIn = ByteBuffer.allocateDirect(2 * MAX_FRAME);
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final List<Viewer> viewers = new ArrayList<>();
+    private final Queue<SharedFrame> framePool = new ArrayDeque<>();
+    private final TickStats stats = new TickStats(MatchServer.TICK_NANOS);
+    private SharedFrame welcome;
+    private WorldState state;
+    private SnapshotCodec upstreamCodec;
+    private SnapshotCodec codec;
+    private int lastTick = SnapshotCodec.NO_BASELINE;
+    private volatile boolean running = true;
+    private volatile int viewerCount;
+    private volatile int relayedTick = SnapshotCodec.NO_BASELINE;
+    private volatile long framesEncoded;
+    private volatile long resyncs;
+    private volatile boolean serving;
+    private boolean closed;
+    private Thread thread;
+
+    /**
+     * Secondary constructor.
+     * <br>
+     * Sends a keyframe every {@link #DEFAULT_KEYFRAME_INTERVAL} ticks.
+     *
+     * @param server  the address of the match server.
+     * @param address the address to listen on for viewers. Port 0 picks a free port.
+     * @throws IOException if the server can't be reached, or the socket can't be bound.
+     */
+    public SpectatorRelay(final InetSocketAddress server, final InetSocketAddress address) throws IOException {
+        this(server, address, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Primary constructor.
+     * <br>
+     * Connects to the server as a spectator and binds the socket of the viewers. Serving begins when the relay is
+     * {@link #start() started} or {@link #run() run}.
+     *
+     * @param server           the address of the match server.
+     * @param address          the address to listen on for viewers. Port 0 picks a free port.
+     * @param keyframeInterval the number of ticks between keyframes.
+     * @throws IOException if the server can't be reached, or the socket can't be bound.
+     */
+    public SpectatorRelay(final InetSocketAddress server, final InetSocketAddress address, int keyframeInterval)
+        throws IOException {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("The keyframe interval must be at least 1 tick");
+        }
+        this.keyframeInterval = keyframeInterval;
+        selector = Selector.open();
+        upstream = SocketChannel.open(server);
+        upstream.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        ByteBuffer hello = ByteBuffer.allocate(HEADER + 1);
+        int start = beginFrame(hello, SPECTATE);
+        hello.put(VERSION);
+        endFrame(hello, start);
+        hello.flip();
+        while (hello.hasRemaining()) {
+            upstream.write(hello);
+        }
+        upstream.configureBlocking(false);
+        upstream.register(selector, SelectionKey.OP_READ);
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Runs the relay on a new thread.
+     */
+    public void start() {
+        thread = new Thread(this, "spectator-relay");
+        thread.start();
+    }
+
+    /**
+     * Relays the states of the server to the viewers, until the relay is {@link #dispose() disposed} or the server
+     * closes the connection.
+     */
+    @Override
+    public void run() {
+        serving = true;
+        try {
+            while (running) {
+                selector.select();
+                for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext(); ) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    handleKey(key);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            close();
+        }
+    }
+
+    private void handleKey(final SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.channel() == upstream) {
+            receiveUpstream();
+            return;
+        }
+        if (key.isAcceptable()) {
+            SocketChannel channel = serverChannel.accept();
+            if (channel != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Viewer viewer = new Viewer(channel);
+                viewer.key = channel.register(selector, SelectionKey.OP_READ, viewer);
+                viewers.add(viewer);
+                ++viewerCount;
+            }
+            return;
+        }
+        Viewer viewer = (Viewer) key.attachment();
+        try {
+            if (key.isReadable()) {
+                receive(viewer);
+            }
+            if (key.isValid() && key.isWritable()) {
+                flush(viewer);
+            }
+        } catch (IOException | BufferUnderflowException e) {
+            disconnect(viewer);
+        }
+    }
+
+    private void receiveUpstream() throws IOException {
+        ByteBuffer in = upstreamIn;
+        if (upstream.read(in) < 0) {
+            // the match is over
+            running = false;
+            return;
+        }
+        in.flip();
+        try {
+            while (true) {
+                int frameStart = in.position();
+                int limit = in.limit();
+                byte type = nextFrame(in);
+                if (type == 0) {
+                    break;
+                }
+                if (type == WELCOME && welcome == null) {
+                    welcome(in, frameStart);
+                } else if (type == STATE && codec != null) {
+                    relay(in);
+                }
+                skipFrame(in, limit);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new ProtocolException("Truncated message");
+        }
+        in.compact();
+    }
+
+    private void welcome(final ByteBuffer payload, int frameStart) {
+        payload.get();
+        payload.get();
+        int width = payload.getShort();
+        int height = payload.getShort();
+        state = new WorldState(width, height);
+        upstreamCodec = new SnapshotCodec(width, height, MatchServer.PPM);
+        codec = new SnapshotCodec(width, height, MatchServer.PPM);
+
+        // the viewers receive the welcome of the server as is
+        welcome = new SharedFrame(framePool);
+        ByteBuffer buffer = welcome.open();
+        for (int i = frameStart; i < payload.limit(); ++i) {
+            buffer.put(payload.get(i));
+        }
+        buffer.flip();
+        for (int i = viewers.size() - 1; i >= 0; --i) {
+            Viewer viewer = viewers.get(i);
+            if (viewer.joined) {
+                send(viewer, welcome);
+            }
+        }
+    }
+
+    private void relay(final ByteBuffer payload) throws ProtocolException {
+        long start = System.nanoTime();
+        // the sequence acknowledged to the relay means nothing to the viewers
+        payload.getInt();
+        int tick = upstreamCodec.decode(payload, state);
+        codec.capture(state);
+
+        boolean keyframeTick = tick % keyframeInterval == 0;
+        SharedFrame delta = null;
+        SharedFrame keyframe = null;
+        for (int i = viewers.size() - 1; i >= 0; --i) {
+            Viewer viewer = viewers.get(i);
+            if (!viewer.joined) {
+                continue;
+            }
+            if (viewer.synced && viewer.queue.size() >= MAX_QUEUED) {
+                // too slow to keep up: start over from the next keyframe
+                resync(viewer);
+            }
+            if (viewer.synced) {
+                if (delta == null) {
+                    delta = encode(lastTick);
+                }
+                send(viewer, delta);
+            } else if (keyframeTick) {
+                if (keyframe == null) {
+                    keyframe = encode(SnapshotCodec.NO_BASELINE);
+                }
+                viewer.synced = true;
+                send(viewer, keyframe);
+            }
+        }
+        if (delta != null) {
+            delta.release();
+        }
+        if (keyframe != null) {
+            keyframe.release();
+        }
+        lastTick = tick;
+        relayedTick = tick;
+        stats.record(System.nanoTime() - start);
+    }
+
+    private SharedFrame encode(int baselineTick) {
+        SharedFrame frame = framePool.poll();
+        if (frame == null) {
+            frame = new SharedFrame(framePool);
+        }
+        ByteBuffer buffer = frame.open();
+        int start = beginFrame(buffer, STATE);
+        buffer.putInt(0);
+        codec.encode(baselineTick, buffer);
+        endFrame(buffer, start);
+        buffer.flip();
+        ++framesEncoded;
+        return frame;
+    }
+
+    private void receive(final Viewer viewer) throws IOException {
+        ByteBuffer in = viewer.in;
+        if (viewer.channel.read(in) < 0) {
+            disconnect(viewer);
+            return;
+        }
+        in.flip();
+        while (viewer.channel.isOpen()) {
+            int limit = in.limit();
+            byte type = nextFrame(in);
+            if (type == 0) {
+                break;
+            }
+            if (type == HELLO) {
+                throw new ProtocolException("A relay only accepts spectators");
+            }
+            if (type == SPECTATE && !viewer.joined) {
+                if (in.get() != VERSION) {
+                    throw new ProtocolException("Unsupported protocol version");
+                }
+                viewer.joined = true;
+                if (welcome != null) {
+                    send(viewer, welcome);
+                }
+            }
+            // inputs of viewers are ignored
+            skipFrame(in, limit);
+        }
+        in.compact();
+        if (!in.hasRemaining()) {
+            throw new ProtocolException("Frame too long");
+        }
+    }
+
+    private void send(final Viewer viewer, final SharedFrame frame) {
+        frame.retain();
+        viewer.queue.add(frame);
+        try {
+            flush(viewer);
+        } catch (IOException e) {
+            disconnect(viewer);
+        }
+    }
+
+    private void flush(final Viewer viewer) throws IOException {
+        Queue<SharedFrame> queue = viewer.queue;
+        while (!queue.isEmpty()) {
+            ByteBuffer buffer = queue.peek().from(viewer.offset);
+            viewer.channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                viewer.offset = buffer.position();
+                break;
+            }
+            viewer.offset = 0;
+            queue.poll().release();
+        }
+        int ops = queue.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+        if (viewer.key.isValid() && viewer.key.interestOps() != ops) {
+            viewer.key.interestOps(ops);
+        }
+    }
+
+    private void resync(final Viewer viewer) {
+        // a frame partially written must be finished, or the viewer would lose track of the frames
+        SharedFrame partial = viewer.offset > 0 ? viewer.queue.poll() : null;
+        while (!viewer.queue.isEmpty()) {
+            viewer.queue.poll().release();
+        }
+        if (partial != null) {
+            viewer.queue.add(partial);
+        }
+        viewer.synced = false;
+        ++resyncs;
+    }
+
+    private void disconnect(final Viewer viewer) {
+        viewer.key.cancel();
+        try {
+            viewer.channel.close();
+        } catch (IOException ignored) {
+            // the connection is gone either way
+        }
+        while (!viewer.queue.isEmpty()) {
+            viewer.queue.poll().release();
+        }
+        if (viewers.remove(viewer)) {
+            --viewerCount;
+        }
+    }
+
+    /**
+     * Returns the address the relay listens on for viewers.
+     *
+     * @return the bound address.
+     * @throws IOException if the address can't be queried.
+     */
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    /**
+     * Returns the number of ticks between keyframes.
+     * @return the keyframe interval.
+     */
+    public int getKeyframeInterval() {
+        return keyframeInterval;
+    }
+
+    /**
+     * Returns the duration statistics of handling the states of the server.
+     * @return the statistics, one tick per state.
+     */
+    public TickStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns the number of connected viewers.
+     * @return the number of viewers.
+     */
+    public int getViewerCount() {
+        return viewerCount;
+    }
+
+    /**
+     * Returns the tick of the last state relayed.
+     * @return the tick, or {@link SnapshotCodec#NO_BASELINE} if no state was received yet.
+     */
+    public int getTick() {
+        return relayedTick;
+    }
+
+    /**
+     * Returns the number of frames encoded, which doesn't depend on the number of viewers.
+     * @return the number of deltas and keyframes encoded.
+     */
+    public long getFramesEncoded() {
+        return framesEncoded;
+    }
+
+    /**
+     * Returns the number of times a viewer too slow to keep up had to sync again.
+     * @return the number of resyncs.
+     */
+    public long getResyncs() {
+        return resyncs;
+    }
+
+    /**
+     * Stops the relay. If the relay was {@link #start() started}, waits for its thread to finish.
+     */
+    @Override
+    public void dispose() {
+        running = false;
+        selector.wakeup();
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else if (!serving) {
+            close();
+        }
+    }
+
+    private synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (SelectionKey key : selector.keys()) {
+            try {
+                key.channel().close();
+            } catch (IOException ignored) {
+                // closing anyway
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+            // closing anyway
+        }
+    }
+
+    private static class Viewer {
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocate(256);
+        private final Queue<SharedFrame> queue = new ArrayDeque<>(MAX_QUEUED);
+        private SelectionKey key;
+        private int offset;
+        private boolean joined;
+        private boolean synced;
+
+        private Viewer(final SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package x3.model.net;
+
+/**
+ * A <code>TickStats</code> measures how long the ticks of a server take.
+ * <br>
+ * A single thread {@link #record(long) records} the ticks, any thread can read the statistics.
+ */
+public class TickStats {
+    private final long budgetNanos;
+    private volatile long ticks;
+    private volatile long totalNanos;
+    private volatile long lastNanos;
+    private volatile long maxNanos;
+    private volatile long overruns;
+
+    /**
+     * Only constructor.
+     *
+     * @param budgetNanos the time a tick may take without counting as an overrun, in nanoseconds.
+     */
+    public TickStats(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * Records the duration of a tick.
+     *
+     * @param nanos the time the tick took, in nanoseconds.
+     */
+    public void record(long nanos) {
+        lastNanos = nanos;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+        if (nanos > budgetNanos) {
+            ++overruns;
+        }
+        ++ticks;
+    }
+
+    /**
+     * Returns the number of recorded ticks.
+     * @return the number of ticks.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Returns the duration of the last tick.
+     * @return the duration in nanoseconds.
+     */
+    public long getLastNanos() {
+        return lastNanos;
+    }
+
+    /**
+     * Returns the average duration of the ticks.
+     * @return the average duration in nanoseconds, or 0 if no tick was recorded.
+     */
+    public long getAverageNanos() {
+        long count = ticks;
+        return count == 0 ? 0 : totalNanos / count;
+    }
+
+    /**
+     * Returns the duration of the longest tick.
+     * @return the maximum duration in nanoseconds.
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Returns the number of ticks that took longer than the budget.
+     * @return the number of overruns.
+     */
+    public long getOverruns() {
+        return overruns;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d ticks, avg %.3f ms, max %.3f ms, %d overruns",
+            ticks, getAverageNanos() / 1e6, maxNanos / 1e6, overruns);
+    }
+}
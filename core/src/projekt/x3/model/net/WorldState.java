@@ -0,0 +1,462 @@
+package x3.model.net;
+
+import x3.model.effect.Effect;
+import x3.model.game.GameEngine;
+import x3.model.game.env.VectorEnv;
+import x3.model.game.grid.CellGrid;
+import x3.model.game.grid.DangerMap;
+import x3.model.game.objects.Monster;
+import x3.model.game.objects.Player;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A <code>WorldState</code> holds everything a client needs to draw a single tick of a game,
+ * in flat arrays that are reused from tick to tick.
+ * <br>
+ * The state is {@link #capture(GameEngine) captured} from a {@link GameEngine} on the server,
+ * {@link #write(ByteBuffer) written} to a buffer, and {@link #read(ByteBuffer) read} back on the client.
+ * Walls never change during a round, so they are sent once, when a client joins.
+ */
+public class WorldState {
+    /**
+     * The maximum number of players of a game.
+     */
+    public static final int MAX_PLAYERS = 3;
+
+    private final int width;
+    private final int height;
+    private final long[] boxes;
+    private final float[] playerX = new float[MAX_PLAYERS];
+    private final float[] playerY = new float[MAX_PLAYERS];
+    private final boolean[] alive = new boolean[MAX_PLAYERS];
+    private int[] monsterIds = new int[8];
+    private float[] monsterX = new float[8];
+    private float[] monsterY = new float[8];
+    private int[] bombCells = new int[8];
+    private int[] bombFuses = new int[8];
+    private int[] effectCells = new int[8];
+    private byte[] effectTypes = new byte[8];
+    private int[] blastCells = new int[8];
+    private int tick;
+    private boolean gameEnded;
+    private int shrinks;
+    private int millisUntilShrink;
+    private int monsterCount;
+    private int bombCount;
+    private int effectCount;
+    private int blastCount;
+
+    /**
+     * Only constructor.
+     *
+     * @param width  the width of the map, in cells.
+     * @param height the height of the map, in cells.
+     */
+    public WorldState(int width, int height) {
+        this.width = width;
+        this.height = height;
+        boxes = new long[(width * height + 63) / 64];
+    }
+
+    /**
+     * Copies the current state of the engine.
+     *
+     * @param engine the engine of the game, whose map has the size of this state.
+     */
+    public void capture(final GameEngine engine) {
+        CellGrid grid = engine.getGrid();
+        DangerMap dangerMap = engine.getDangerMap();
+        tick = engine.getTick();
+        gameEnded = engine.isGameEnded();
+        shrinks = engine.getBoundaryShrinks();
+        millisUntilShrink = engine.isAtMaxShrink() ? -1 : (int) Math.max(0, engine.getSecondsUntilShrink() * 1000);
+
+        for (int p = 0; p < MAX_PLAYERS; ++p) {
+            Player player = engine.getPlayer(p);
+            alive[p] = player != null;
+            if (player != null) {
+                playerX[p] = player.getX();
+                playerY[p] = player.getY();
+            }
+        }
+
+        monsterCount = 0;
+        for (int i = 0; i < engine.getMonsterCount(); ++i) {
+            Monster monster = engine.getMonster(i);
+            addMonster(engine.getMonsterId(i), monster.getX(), monster.getY());
+        }
+
+        Arrays.fill(boxes, 0);
+        bombCount = 0;
+        for (int cell = 0; cell < grid.size(); ++cell) {
+            if (grid.isBox(cell)) {
+                boxes[cell >>> 6] |= 1L << cell;
+            }
+            int bombTick = dangerMap.getBombTick(cell);
+            if (bombTick != DangerMap.SAFE) {
+                addBomb(cell, Math.max(0, bombTick - tick));
+            }
+        }
+
+        effectCount = 0;
+        for (int i = 0; i < engine.getEffectCount(); ++i) {
+            Effect effect = engine.getEffect(i);
+            int cell = engine.getCell(effect);
+            if (cell != -1) {
+                addEffect(cell, VectorEnv.EFFECT_TYPES.indexOf(effect.getClass()));
+            }
+        }
+
+        blastCount = 0;
+        for (int i = 0; i < engine.getBlastCount(); ++i) {
+            addBlast(engine.getBlastCell(i));
+        }
+    }
+
+    /**
+     * Writes the state to the buffer, starting at its position.
+     *
+     * @param buffer the buffer to write to.
+     */
+    public void write(final ByteBuffer buffer) {
+        buffer.putInt(tick);
+        buffer.put((byte) (gameEnded ? 1 : 0));
+        buffer.put((byte) shrinks);
+        buffer.putInt(millisUntilShrink);
+        for (int p = 0; p < MAX_PLAYERS; ++p) {
+            buffer.put((byte) (alive[p] ? 1 : 0));
+            buffer.putFloat(playerX[p]);
+            buffer.putFloat(playerY[p]);
+        }
+        buffer.putShort((short) monsterCount);
+        for (int i = 0; i < monsterCount; ++i) {
+            buffer.putShort((short) monsterIds[i]);
+            buffer.putFloat(monsterX[i]);
+            buffer.putFloat(monsterY[i]);
+        }
+        for (long word : boxes) {
+            buffer.putLong(word);
+        }
+        buffer.putShort((short) bombCount);
+        for (int i = 0; i < bombCount; ++i) {
+            buffer.putShort((short) bombCells[i]);
+            buffer.putShort((short) bombFuses[i]);
+        }
+        buffer.putShort((short) effectCount);
+        for (int i = 0; i < effectCount; ++i) {
+            buffer.putShort((short) effectCells[i]);
+            buffer.put(effectTypes[i]);
+        }
+        buffer.putShort((short) blastCount);
+        for (int i = 0; i < blastCount; ++i) {
+            buffer.putShort((short) blastCells[i]);
+        }
+    }
+
+    /**
+     * Replaces the state with the one written to the buffer, starting at its position.
+     *
+     * @param buffer the buffer to read from.
+     * @throws BufferUnderflowException if the buffer ends before the state does.
+     */
+    public void read(final ByteBuffer buffer) {
+        tick = buffer.getInt();
+        gameEnded = buffer.get() != 0;
+        shrinks = buffer.get();
+        millisUntilShrink = buffer.getInt();
+        for (int p = 0; p < MAX_PLAYERS; ++p) {
+            alive[p] = buffer.get() != 0;
+            playerX[p] = buffer.getFloat();
+            playerY[p] = buffer.getFloat();
+        }
+        monsterCount = 0;
+        for (int i = buffer.getShort(); i > 0; --i) {
+            addMonster(buffer.getShort(), buffer.getFloat(), buffer.getFloat());
+        }
+        for (int i = 0; i < boxes.length; ++i) {
+            boxes[i] = buffer.getLong();
+        }
+        bombCount = 0;
+        for (int i = buffer.getShort(); i > 0; --i) {
+            addBomb(buffer.getShort(), buffer.getShort());
+        }
+        effectCount = 0;
+        for (int i = buffer.getShort(); i > 0; --i) {
+            addEffect(buffer.getShort(), buffer.get());
+        }
+        blastCount = 0;
+        for (int i = buffer.getShort(); i > 0; --i) {
+            addBlast(buffer.getShort());
+        }
+    }
+
+    void setHeader(int tick, boolean gameEnded, int shrinks, int millisUntilShrink) {
+        this.tick = tick;
+        this.gameEnded = gameEnded;
+        this.shrinks = shrinks;
+        this.millisUntilShrink = millisUntilShrink;
+    }
+
+    void setPlayer(int ind, boolean alive, float x, float y) {
+        this.alive[ind] = alive;
+        playerX[ind] = x;
+        playerY[ind] = y;
+    }
+
+    void clearEntities() {
+        monsterCount = 0;
+        bombCount = 0;
+        effectCount = 0;
+        blastCount = 0;
+    }
+
+    long[] getBoxWords() {
+        return boxes;
+    }
+
+    void addMonster(int id, float x, float y) {
+        if (monsterCount == monsterX.length) {
+            monsterIds = Arrays.copyOf(monsterIds, monsterCount * 2);
+            monsterX = Arrays.copyOf(monsterX, monsterCount * 2);
+            monsterY = Arrays.copyOf(monsterY, monsterCount * 2);
+        }
+        monsterIds[monsterCount] = id;
+        monsterX[monsterCount] = x;
+        monsterY[monsterCount] = y;
+        ++monsterCount;
+    }
+
+    void addBomb(int cell, int fuse) {
+        if (bombCount == bombCells.length) {
+            bombCells = Arrays.copyOf(bombCells, bombCount * 2);
+            bombFuses = Arrays.copyOf(bombFuses, bombCount * 2);
+        }
+        bombCells[bombCount] = cell;
+        bombFuses[bombCount] = fuse;
+        ++bombCount;
+    }
+
+    void addEffect(int cell, int type) {
+        if (effectCount == effectCells.length) {
+            effectCells = Arrays.copyOf(effectCells, effectCount * 2);
+            effectTypes = Arrays.copyOf(effectTypes, effectCount * 2);
+        }
+        effectCells[effectCount] = cell;
+        effectTypes[effectCount] = (byte) type;
+        ++effectCount;
+    }
+
+    void addBlast(int cell) {
+        if (blastCount == blastCells.length) {
+            blastCells = Arrays.copyOf(blastCells, blastCount * 2);
+        }
+        blastCells[blastCount++] = cell;
+    }
+
+    /**
+     * Returns the width of the map.
+     * @return the number of columns.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the map.
+     * @return the number of rows.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the tick of the state.
+     * @return the number of ticks simulated before the state was captured.
+     */
+    public int getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns whether the round has ended.
+     * @return true if the round has ended.
+     */
+    public boolean isGameEnded() {
+        return gameEnded;
+    }
+
+    /**
+     * Returns the number of layers the map has shrunk by.
+     * @return the number of shrinks, or -1 if the shrinking hasn't started yet.
+     */
+    public int getShrinks() {
+        return shrinks;
+    }
+
+    /**
+     * Returns whether the boundary closes off the given cell.
+     * @param col the column of the cell.
+     * @param row the row of the cell.
+     * @return true if the cell is outside the boundary.
+     * @see GameEngine#getBoundaryAffectedCells()
+     */
+    public boolean isBoundary(int col, int row) {
+        if (shrinks < 0) {
+            return false;
+        }
+        int centerX = width / 2;
+        int centerY = height / 2;
+        return Math.abs(col - centerX) >= centerX - shrinks || Math.abs(row - centerY) >= centerY - shrinks;
+    }
+
+    /**
+     * Returns the time until the next shrink.
+     * @return the remaining time in milliseconds, or -1 if the map can't shrink anymore.
+     */
+    public int getMillisUntilShrink() {
+        return millisUntilShrink;
+    }
+
+    /**
+     * Returns whether the player is alive.
+     * @param ind the index of the player.
+     * @return true if the player is alive.
+     */
+    public boolean isAlive(int ind) {
+        return alive[ind];
+    }
+
+    /**
+     * Returns the horizontal position of a living player.
+     * @param ind the index of the player.
+     * @return the x coordinate of the player's bottom left corner.
+     */
+    public float getPlayerX(int ind) {
+        return playerX[ind];
+    }
+
+    /**
+     * Returns the vertical position of a living player.
+     * @param ind the index of the player.
+     * @return the y coordinate of the player's bottom left corner.
+     */
+    public float getPlayerY(int ind) {
+        return playerY[ind];
+    }
+
+    /**
+     * Returns the number of living monsters.
+     * @return the number of monsters.
+     */
+    public int getMonsterCount() {
+        return monsterCount;
+    }
+
+    /**
+     * Returns the id of a monster, which stays the same for the whole round.
+     * @param i the index of the monster, less than {@link #getMonsterCount()}.
+     * @return the id of the monster, see {@link GameEngine#getMonsterId(int)}.
+     */
+    public int getMonsterId(int i) {
+        return monsterIds[i];
+    }
+
+    /**
+     * Returns the horizontal position of a monster.
+     * @param i the index of the monster, less than {@link #getMonsterCount()}.
+     * @return the x coordinate of the monster's bottom left corner.
+     */
+    public float getMonsterX(int i) {
+        return monsterX[i];
+    }
+
+    /**
+     * Returns the vertical position of a monster.
+     * @param i the index of the monster, less than {@link #getMonsterCount()}.
+     * @return the y coordinate of the monster's bottom left corner.
+     */
+    public float getMonsterY(int i) {
+        return monsterY[i];
+    }
+
+    /**
+     * Returns whether there is a box in the given cell.
+     * @param cell the index of the cell.
+     * @return true if the cell holds a box.
+     */
+    public boolean isBox(int cell) {
+        return (boxes[cell >>> 6] & 1L << cell) != 0;
+    }
+
+    /**
+     * Returns the number of bombs on the map.
+     * @return the number of bombs.
+     */
+    public int getBombCount() {
+        return bombCount;
+    }
+
+    /**
+     * Returns the cell of a bomb.
+     * @param i the index of the bomb, less than {@link #getBombCount()}.
+     * @return the cell index of the bomb.
+     */
+    public int getBombCell(int i) {
+        return bombCells[i];
+    }
+
+    /**
+     * Returns the number of ticks until a bomb blows up.
+     * @param i the index of the bomb, less than {@link #getBombCount()}.
+     * @return the remaining length of the fuse, in ticks.
+     */
+    public int getBombFuse(int i) {
+        return bombFuses[i];
+    }
+
+    /**
+     * Returns the number of effects lying on the map.
+     * @return the number of effects.
+     */
+    public int getEffectCount() {
+        return effectCount;
+    }
+
+    /**
+     * Returns the cell of an effect.
+     * @param i the index of the effect, less than {@link #getEffectCount()}.
+     * @return the cell index of the effect.
+     */
+    public int getEffectCell(int i) {
+        return effectCells[i];
+    }
+
+    /**
+     * Returns the type of an effect.
+     * @param i the index of the effect, less than {@link #getEffectCount()}.
+     * @return the index of the effect's type in {@link VectorEnv#EFFECT_TYPES}.
+     */
+    public int getEffectType(int i) {
+        return effectTypes[i];
+    }
+
+    /**
+     * Returns the number of cells where flames appeared in the tick of the state.
+     * @return the number of blasts.
+     */
+    public int getBlastCount() {
+        return blastCount;
+    }
+
+    /**
+     * Returns a cell where flames appeared in the tick of the state.
+     * @param i the index of the blast, less than {@link #getBlastCount()}.
+     * @return the cell index of the blast.
+     */
+    public int getBlastCell(int i) {
+        return blastCells[i];
+    }
+}
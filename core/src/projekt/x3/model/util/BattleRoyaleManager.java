@@ -7,6 +7,7 @@ package x3.model.util;
  * A <code>BattleRoyaleManager</code> knows how shrunk the map is supposed to be.
  */
 public class BattleRoyaleManager {
+    private final GameClock clock;
     private final long shrinkStart;
     private final long shrinkInterval;
     private final int maxShrinks;
@@ -14,15 +15,28 @@ public class BattleRoyaleManager {
     private boolean startedShrinking;
 
     /**
-     * Only constructor.
+     * Secondary constructor.
      * <br>
-     * Sets the maximum number of shrinks, records the time and sets the shrink interval to 20 seconds.
+     * Measures time with the {@link GameClock#SYSTEM system clock}.
      *
      * @param max the maximum number of shrinks.
      */
     public BattleRoyaleManager(int max) {
+        this(max, GameClock.SYSTEM);
+    }
+
+    /**
+     * Primary constructor.
+     * <br>
+     * Sets the maximum number of shrinks, records the time and sets the shrink interval to 20 seconds.
+     *
+     * @param max   the maximum number of shrinks.
+     * @param clock the clock of the game.
+     */
+    public BattleRoyaleManager(int max, GameClock clock) {
+        this.clock = clock;
         maxShrinks = max;
-        shrinkStart = System.currentTimeMillis() + 10_000;
+        shrinkStart = clock.millis() + 10_000;
         shrinkInterval = 20_000;
     }
 
@@ -35,7 +49,7 @@ public class BattleRoyaleManager {
      * @return true if the game is allowed to start the shrinking.
      */
     public boolean canStartShrinking() {
-        return !startedShrinking && System.currentTimeMillis() - shrinkStart >= 0;
+        return !startedShrinking && clock.millis() - shrinkStart >= 0;
     }
 
     /**
@@ -64,6 +78,17 @@ public class BattleRoyaleManager {
         shrinksShrunk++;
     }
 
+    /**
+     * Overwrites the recorded progress of the shrinking, e.g. when an earlier state of the game is restored.
+     *
+     * @param startedShrinking whether the game has started the shrinking.
+     * @param shrunk           the number of shrinks performed.
+     */
+    public void restore(boolean startedShrinking, int shrunk) {
+        this.startedShrinking = startedShrinking;
+        shrinksShrunk = shrunk;
+    }
+
     /**
      * Returns the number of shrinks that are supposed to have happened since instantiation,
      * or the maximum if the number would exceed it.
@@ -71,7 +96,7 @@ public class BattleRoyaleManager {
      * @return the number of expected shrinks.
      */
     private int getExpectedShrinks() {
-        return Math.min((int) ((System.currentTimeMillis() - shrinkStart) / shrinkInterval), maxShrinks);
+        return Math.min((int) ((clock.millis() - shrinkStart) / shrinkInterval), maxShrinks);
     }
 
     /**
@@ -80,7 +105,7 @@ public class BattleRoyaleManager {
      * @return the remaining time in milliseconds.
      */
     public long timeUntilShrink() {
-        return shrinkInterval - ((System.currentTimeMillis() - shrinkStart) % shrinkInterval) - (!startedShrinking ? shrinkInterval : 0);
+        return shrinkInterval - ((clock.millis() - shrinkStart) % shrinkInterval) - (!startedShrinking ? shrinkInterval : 0);
     }
 
     /**
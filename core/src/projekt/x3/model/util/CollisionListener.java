@@ -11,7 +11,7 @@ import x3.model.game.objects.Player;
 /**
  * A CollisionListener is an object that handles collisions for the {@link GameEngine game engine}.
  * <br>
- * This object handles contact beginnings and endings for several interactions, including:
+ * This object handles contact beginnings for several interactions, including:
  * <ul>
  *     <li>{@link Player} - {@link Bomb}</li>
  *     <li>{@link Player} - {@link Effect}</li>
@@ -20,45 +20,42 @@ import x3.model.game.objects.Player;
  * </ul>
  */
 public class CollisionListener implements ContactListener {
+    private boolean monstersKillOnContact = true;
+
     /**
-     * Invoked when a {@link Player} and a {@link Bomb} collide.
+     * Sets whether a {@link Player} touching a {@link Monster} dies.
      * <br>
-     * This method checks if the bomb has {@link Bomb#hasSetPlayers set its list of players}
-     * that it allows to pass through, and if it hasn't, it adds the detected player to the list.
-     * @param playerBody {@link Body body} of the {@link Player}.
-     * @param bombBody {@link Body body} of the {@link Bomb}.
+     * When the engine compensates lag, it resolves these hits itself, from the players' rewound positions.
+     * @param monstersKillOnContact true if the contact kills the player.
      */
-    private void beginPlayerOnBomb(Body playerBody, Body bombBody) {
-        Bomb bomb = (Bomb) bombBody.getUserData();
-        if (bomb.hasSetPlayers) {
-            return;
-        }
-        Player player = (Player) playerBody.getUserData();
-        bomb.playersAllowedThrough.add(player);
+    public void setMonstersKillOnContact(boolean monstersKillOnContact) {
+        this.monstersKillOnContact = monstersKillOnContact;
     }
 
     /**
-     * Invoked when a {@link Player} and a {@link Bomb} stop colliding.
+     * Invoked when a {@link Player} and a {@link Bomb} collide.
      * <br>
      * This method checks if the bomb has {@link Bomb#hasSetPlayers set its list of players}
-     * that it allows to pass through, and if it has, it removes the detected player from the list,
-     * to indicate that it is no longer allowed through.
+     * that it allows to pass through, and if it hasn't, it adds the detected player to the list.
      * @param playerBody {@link Body body} of the {@link Player}.
      * @param bombBody {@link Body body} of the {@link Bomb}.
      */
-    private void endPlayerOnBomb(Body playerBody, Body bombBody) {
+    private void beginPlayerOnBomb(Body playerBody, Body bombBody) {
         Bomb bomb = (Bomb) bombBody.getUserData();
-        if (!bomb.hasSetPlayers) {
+        if (bomb.hasSetPlayers) {
             return;
         }
-
         Player player = (Player) playerBody.getUserData();
-        bomb.playersAllowedThrough.remove(player);
+        bomb.playersAllowedThrough.add(player);
     }
 
     private void beginPlayerOnEffect(Body playerBody, Body effectBody) {
         Player player = (Player) playerBody.getUserData();
         Effect effect = (Effect) effectBody.getUserData();
+        if (effect.bodyDead) {
+            // already picked up by another player in this step
+            return;
+        }
 
         if (effect instanceof TimedEffect) {
             player.apply((TimedEffect) effect);
@@ -70,6 +67,9 @@ public class CollisionListener implements ContactListener {
     }
 
     private void beginPlayerOnMonster(Body playerBody) {
+        if (!monstersKillOnContact) {
+            return;
+        }
         ((Player) playerBody.getUserData()).markDead();
     }
 
@@ -116,19 +116,13 @@ public class CollisionListener implements ContactListener {
         }
     }
 
+    /**
+     * Players leaving a {@link Bomb} are released by the {@link GameEngine game engine} itself, which tests their
+     * overlap before every step, because the end of a contact is lost when the engine restores an earlier state.
+     */
     @Override
     public void endContact(Contact contact) {
-        Fixture f1 = contact.getFixtureA();
-        Fixture f2 = contact.getFixtureB();
-
-        Body b1 = f1.getBody();
-        Body b2 = f2.getBody();
 
-        if (is(b1, Bomb.class) && is(b2, Player.class)) {
-            endPlayerOnBomb(b2, b1);
-        } else if (is(b2, Bomb.class) && is(b1, Player.class)) {
-            endPlayerOnBomb(b1, b2);
-        }
     }
 
     @Override
@@ -0,0 +1,26 @@
+package x3.model.util;
+
+import x3.model.game.GameEngine;
+
+/**
+ * A <code>GameClock</code> provides the current time for objects that measure durations
+ * (e.g. bomb fuses, explosion delays).
+ * <br>
+ * Objects created outside the {@link GameEngine game engine} use the {@link #SYSTEM system clock},
+ * while the engine supplies its own {@link TickClock tick based clock}, so that game time only advances
+ * when the simulation is stepped.
+ */
+@FunctionalInterface
+public interface GameClock {
+    /**
+     * Clock backed by {@link System#currentTimeMillis()}.
+     */
+    GameClock SYSTEM = System::currentTimeMillis;
+
+    /**
+     * Returns the current time of this clock in milliseconds.
+     *
+     * @return the current time in milliseconds.
+     */
+    long millis();
+}
@@ -0,0 +1,71 @@
+package x3.model.util;
+
+import x3.model.game.EngineSnapshot;
+
+import java.util.Random;
+
+/**
+ * A <code>GameRandom</code> is a {@link Random} whose state can be read and set, so that the random decisions of a
+ * game are part of its {@link EngineSnapshot snapshots}.
+ * <br>
+ * It uses the same linear congruential generator as {@link Random}, so it produces the same numbers for the same
+ * seed. The spare value of {@link #nextGaussian()} is not part of the state.
+ * <br>
+ * Unlike {@link Random}, this class is not thread-safe: it belongs to a single game.
+ */
+public class GameRandom extends Random {
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    // set by setSeed, which the constructor of Random calls before the fields of this class are initialized
+    private long state;
+
+    /**
+     * Secondary constructor.
+     * <br>
+     * The generator is seeded like {@link Random#Random()}.
+     */
+    public GameRandom() {
+        super();
+    }
+
+    /**
+     * Primary constructor.
+     *
+     * @param seed the initial seed.
+     */
+    public GameRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * Returns the current state of the generator.
+     *
+     * @return the state, which {@link #setState(long)} accepts.
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Puts the generator back in a state returned by {@link #getState()}.
+     *
+     * @param state the state.
+     */
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+}
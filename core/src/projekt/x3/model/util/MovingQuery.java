@@ -1,5 +1,6 @@
 package x3.model.util;
 
+import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.QueryCallback;
@@ -15,14 +16,44 @@ import java.util.Set;
  * This is a callback object for AABB querying.
  * <br>
  * It records all players and monsters (moving objects) in a certain bounding box and stores them in separate lists.
+ * <br>
+ * Box2D reports every fixture whose enlarged bounding box overlaps the queried one. The enlargement depends on how the
+ * body moved before, and is lost when the engine restores an earlier state, so the reported bodies are tested again
+ * with their actual bounds.
  */
 public class MovingQuery implements QueryCallback {
     private final Set<Player> players = new HashSet<>();
     private final List<Monster> monsters = new ArrayList<>();
+    private final float lowerX;
+    private final float lowerY;
+    private final float upperX;
+    private final float upperY;
+    private final float size;
+
+    /**
+     * Only constructor.
+     *
+     * @param lowerX the left side of the queried box.
+     * @param lowerY the bottom side of the queried box.
+     * @param upperX the right side of the queried box.
+     * @param upperY the top side of the queried box.
+     * @param size   the size of the bodies of the players and monsters, whose position is their bottom left corner.
+     */
+    public MovingQuery(float lowerX, float lowerY, float upperX, float upperY, float size) {
+        this.lowerX = lowerX;
+        this.lowerY = lowerY;
+        this.upperX = upperX;
+        this.upperY = upperY;
+        this.size = size;
+    }
 
     @Override
     public boolean reportFixture(Fixture fixture) {
         Body body = fixture.getBody();
+        Vector2 pos = body.getPosition();
+        if (pos.x >= upperX || pos.x + size <= lowerX || pos.y >= upperY || pos.y + size <= lowerY) {
+            return true;
+        }
         if (body.getUserData() instanceof Player) {
             players.add((Player) body.getUserData());
         } else if (body.getUserData() instanceof Monster) {
@@ -0,0 +1,58 @@
+package x3.model.util;
+
+import x3.model.game.GameEngine;
+
+/**
+ * A <code>TickClock</code> is a {@link GameClock} that measures time in simulation steps.
+ * <br>
+ * The {@link GameEngine game engine} advances the clock once per step, and every step is
+ * exactly <code>1 / {@link #TICKS_PER_SECOND}</code> seconds long, matching the fixed time step of the physics world.
+ */
+public class TickClock implements GameClock {
+    /**
+     * The number of ticks in a second of game time.
+     */
+    public static final int TICKS_PER_SECOND = 60;
+
+    private int tick;
+
+    /**
+     * Converts a duration to the number of ticks it takes to elapse, rounding upwards.
+     *
+     * @param millis duration in milliseconds.
+     * @return the duration in ticks.
+     */
+    public static int toTicks(long millis) {
+        return (int) ((millis * TICKS_PER_SECOND + 999) / 1000);
+    }
+
+    /**
+     * Advances the clock by one tick.
+     */
+    public void advance() {
+        tick++;
+    }
+
+    /**
+     * Moves the clock to the given tick, e.g. when an earlier state of the game is restored.
+     *
+     * @param tick the new current tick.
+     */
+    public void setTick(int tick) {
+        this.tick = tick;
+    }
+
+    /**
+     * Returns the number of ticks elapsed.
+     *
+     * @return the current tick.
+     */
+    public int getTick() {
+        return tick;
+    }
+
+    @Override
+    public long millis() {
+        return tick * 1000L / TICKS_PER_SECOND;
+    }
+}
@@ -1,6 +1,9 @@
 package x3.model.util.exception;
 
 import x3.model.map.GameMap;
+import x3.model.util.Pair;
+
+import java.util.List;
 
 /**
  * This class describes an exception that occurs during the initialization of a {@link GameMap},
@@ -9,11 +12,13 @@ import x3.model.map.GameMap;
  * Checks are performed on a map during instantiation.
  */
 public class MapConstructionException extends RuntimeException {
+    private final List<Pair> cells;
+
     /**
      * Default constructor.
      */
     public MapConstructionException() {
-        super("Map cannot be constructed.");
+        this("Map cannot be constructed.");
     }
 
     /**
@@ -21,6 +26,26 @@ public class MapConstructionException extends RuntimeException {
      * @param msg the message that gets printed with the stacktrace.
      */
     public MapConstructionException(String msg) {
+        this(msg, List.of());
+    }
+
+    /**
+     * Constructor of a failed check that found invalid cells.
+     * @param msg   the message that gets printed with the stacktrace.
+     * @param cells all cells that failed the check.
+     */
+    public MapConstructionException(String msg, List<Pair> cells) {
         super(msg);
+        this.cells = List.copyOf(cells);
+    }
+
+    /**
+     * Returns the cells that failed the checks, e.g. the overlapping or overhanging positions.
+     * Each cell is listed as many times as it failed.
+     *
+     * @return the invalid cells, empty if the check wasn't about cells.
+     */
+    public List<Pair> getCells() {
+        return cells;
     }
 }
\ No newline at end of file
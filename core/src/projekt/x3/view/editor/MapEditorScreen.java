@@ -0,0 +1,366 @@
+package x3.view.editor;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.InputAdapter;
+import com.badlogic.gdx.InputMultiplexer;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.scenes.scene2d.InputEvent;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.scenes.scene2d.ui.ButtonGroup;
+import com.badlogic.gdx.scenes.scene2d.ui.ImageButton;
+import com.badlogic.gdx.scenes.scene2d.ui.Label;
+import com.badlogic.gdx.scenes.scene2d.ui.ScrollPane;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.scenes.scene2d.ui.Table;
+import com.badlogic.gdx.scenes.scene2d.ui.TextButton;
+import com.badlogic.gdx.scenes.scene2d.ui.TextField;
+import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
+import com.badlogic.gdx.utils.ScreenUtils;
+import com.badlogic.gdx.utils.viewport.FillViewport;
+import com.badlogic.gdx.utils.viewport.FitViewport;
+import x3.DetonatorCircle;
+import x3.model.map.EditableMap;
+import x3.model.map.FileGameMap;
+import x3.model.util.Pair;
+import x3.model.util.exception.MapConstructionException;
+import x3.view.mapselect.MapSelectScreen;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+
+/**
+ * A {@link Screen} to paint maps with, and to save them into {@link MapSelectScreen#MAPS the maps directory}.
+ * <br>
+ * The map is drawn on the left, and painted by clicking or dragging over it with the tool chosen on the right:
+ * walls, boxes, floor, player spawns, monster spawns, or the eraser of spawns. The right mouse button always paints
+ * floor. The numbers of effects and monsters are set below the tools.
+ * <br>
+ * Every edit is checked as it's made by the {@link EditableMap}, which only looks at what the edit touched, so even
+ * a large map gives feedback at once: the problems of the map are listed under the tools, and their cells are marked
+ * on the map.
+ */
+public class MapEditorScreen implements Screen {
+    /**
+     * The size of a cell, in the units of the map's view.
+     */
+    private static final float CELL = 32;
+    /**
+     * The share of the width of the window that the map is drawn on.
+     */
+    private static final float MAP_SHARE = 0.6f;
+    private static final String[] TOOLS = {"Wall", "Box", "Floor", "Player", "Monster", "Erase"};
+    private static final int WALL = 0;
+    private static final int BOX = 1;
+    private static final int FLOOR = 2;
+    private static final int PLAYER = 3;
+    private static final int MONSTER = 4;
+
+    private final DetonatorCircle game;
+    private final EditableMap map;
+    private final Skin skin;
+    private final Stage uiStage;
+    private final FitViewport mapView;
+    private final InputMultiplexer input;
+    private final Texture mark;
+    private final Label status;
+    private final TextField nameField;
+    private final ButtonGroup<TextButton> tools = new ButtonGroup<>();
+    private final Vector2 pointer = new Vector2();
+    private List<Pair> marked = List.of();
+    private int lastCol = -1;
+    private int lastRow = -1;
+
+    /**
+     * Only constructor.
+     * <br>
+     * Initializes the UI elements and the listeners of the buttons and of the map.
+     *
+     * @param game the object responsible for managing the game.
+     * @param map  the map to edit.
+     * @param name the name the map is saved under, which can be changed before saving.
+     */
+    public MapEditorScreen(final DetonatorCircle game, final EditableMap map, String name) {
+        this.game = game;
+        this.map = map;
+        skin = new Skin(Gdx.files.internal("gamesetup/metal-ui.json"));
+
+        mapView = new FitViewport(map.getMapWidth() * CELL, map.getMapHeight() * CELL);
+        uiStage = new Stage(new FillViewport(game.initialWindowWidth, game.initialWindowHeight));
+
+        Pixmap red = new Pixmap(1, 1, Pixmap.Format.RGBA8888);
+        red.setColor(new Color(1, 0, 0, 0.5f));
+        red.fill();
+        mark = new Texture(red);
+        red.dispose();
+
+        Table root = new Table();
+        root.setFillParent(true);
+        root.right();
+        uiStage.addActor(root);
+
+        Table panel = new Table();
+        panel.defaults().space(4);
+
+        Table toolTable = new Table();
+        toolTable.defaults().width(95).height(30).space(4);
+        for (int i = 0; i < TOOLS.length; ++i) {
+            TextButton tool = new TextButton(TOOLS[i], skin, "toggle");
+            tools.add(tool);
+            toolTable.add(tool);
+            if (i % 3 == 2) {
+                toolTable.row();
+            }
+        }
+        panel.add(toolTable).colspan(4).row();
+
+        addCounter(panel, "Buffs", map::getBuffCount, map::setBuffCount);
+        addCounter(panel, "Debuffs", map::getDebuffCount, map::setDebuffCount);
+        addCounter(panel, "Monsters", map::getMonsterCount, map::setMonsterCount);
+        addCounter(panel, "Shrinks", map::getMaxShrinks, map::setMaxShrinks);
+
+        nameField = new TextField(name, skin);
+        nameField.setTextFieldFilter((field, c) -> Character.isLetterOrDigit(c) || c == '-' || c == '_');
+        panel.add(new Label("Name", skin)).left();
+        panel.add(nameField).colspan(3).fillX().row();
+
+        status = new Label("", skin);
+        status.setWrap(true);
+        ScrollPane statusPane = new ScrollPane(status);
+        statusPane.setFadeScrollBars(false);
+        panel.add(statusPane).colspan(4).width(game.initialWindowWidth * (1 - MAP_SHARE) - 20).height(120).row();
+
+        ImageButton backBtn = new ImageButton(game.getDrawable("back"));
+        backBtn.getStyle().imageOver = game.getDrawable("backhover");
+        ImageButton saveBtn = new ImageButton(game.getDrawable("save"));
+        saveBtn.getStyle().imageOver = game.getDrawable("savehover");
+        Table nav = new Table();
+        nav.row().width(120).height(32).space(0, 10, 0, 10);
+        nav.add(backBtn);
+        nav.add(saveBtn);
+        panel.add(nav).colspan(4).padTop(10);
+
+        root.add(panel).width(game.initialWindowWidth * (1 - MAP_SHARE)).pad(10);
+
+        backBtn.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                game.setScreen(new MapSelectScreen(game));
+                dispose();
+            }
+        });
+
+        saveBtn.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                save();
+            }
+        });
+
+        input = new InputMultiplexer(uiStage, new InputAdapter() {
+            @Override
+            public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+                lastCol = -1;
+                return paint(screenX, screenY, button == Input.Buttons.RIGHT, true);
+            }
+
+            @Override
+            public boolean touchDragged(int screenX, int screenY, int pointer) {
+                return paint(screenX, screenY, Gdx.input.isButtonPressed(Input.Buttons.RIGHT), false);
+            }
+
+            @Override
+            public boolean touchUp(int screenX, int screenY, int pointer, int button) {
+                lastCol = -1;
+                return false;
+            }
+        });
+        updateStatus();
+    }
+
+    /**
+     * Adds a row to set a number of the map with, from 0 up.
+     */
+    private void addCounter(final Table panel, String name, final IntSupplier getter, final IntConsumer setter) {
+        Label value = new Label(String.valueOf(getter.getAsInt()), skin);
+        TextButton lessBtn = new TextButton("-", skin);
+        TextButton moreBtn = new TextButton("+", skin);
+        lessBtn.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                setter.accept(Math.max(0, getter.getAsInt() - 1));
+                value.setText(String.valueOf(getter.getAsInt()));
+                updateStatus();
+            }
+        });
+        moreBtn.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                setter.accept(getter.getAsInt() + 1);
+                value.setText(String.valueOf(getter.getAsInt()));
+                updateStatus();
+            }
+        });
+        panel.add(new Label(name, skin)).left().expandX();
+        panel.add(lessBtn).size(30);
+        panel.add(value).width(40).center();
+        panel.add(moreBtn).size(30).row();
+    }
+
+    /**
+     * Paints the cell under the pointer with the chosen tool, and the cells between it and the previous one, so a
+     * fast drag leaves no gaps. Spawns are only placed on a click, not along a drag.
+     *
+     * @return true if the pointer is over the map.
+     */
+    private boolean paint(int screenX, int screenY, boolean floor, boolean click) {
+        mapView.unproject(pointer.set(screenX, screenY));
+        int col = (int) Math.floor(pointer.x / CELL);
+        int row = (int) Math.floor(pointer.y / CELL);
+        if (col < 0 || col >= map.getMapWidth() || row < 0 || row >= map.getMapHeight()) {
+            lastCol = -1;
+            return false;
+        }
+        int tool = floor ? FLOOR : tools.getCheckedIndex();
+        if (tool >= PLAYER && !click) {
+            return true;
+        }
+        boolean changed = false;
+        int steps = lastCol == -1 ? 0 : Math.max(Math.abs(col - lastCol), Math.abs(row - lastRow));
+        for (int step = 0; step <= steps; ++step) {
+            int c = steps == 0 ? col : lastCol + Math.round((col - lastCol) * (float) step / steps);
+            int r = steps == 0 ? row : lastRow + Math.round((row - lastRow) * (float) step / steps);
+            changed |= apply(tool, c, r);
+        }
+        lastCol = col;
+        lastRow = row;
+        if (changed) {
+            updateStatus();
+        }
+        return true;
+    }
+
+    private boolean apply(int tool, int col, int row) {
+        return switch (tool) {
+            case WALL -> map.setWall(col, row);
+            case BOX -> map.setBox(col, row);
+            case FLOOR -> map.setFloor(col, row);
+            case PLAYER -> !map.isPlayerSpawn(col, row) && map.addPlayerSpawn(col, row);
+            case MONSTER -> !map.isMonsterSpawn(col, row) && map.addMonsterSpawn(col, row);
+            default -> map.removeSpawns(col, row);
+        };
+    }
+
+    /**
+     * Lists the problems of the map, and marks their cells.
+     */
+    private void updateStatus() {
+        List<String> problems = map.getProblems();
+        if (problems.isEmpty()) {
+            status.setStyle(skin.get(Label.LabelStyle.class));
+            status.setText("The map can be played.");
+        } else {
+            status.setStyle(skin.get("red", Label.LabelStyle.class));
+            status.setText(String.join("\n", problems));
+        }
+        List<Pair> cells = new ArrayList<>(map.getOverlaps());
+        cells.addAll(map.getSealedSpawns());
+        marked = cells;
+    }
+
+    /**
+     * Writes the map into the maps directory, under the name given, unless it fails its checks.
+     */
+    private void save() {
+        String name = nameField.getText();
+        if (name.isEmpty()) {
+            status.setText("The map needs a name.");
+            return;
+        }
+        try {
+            Files.createDirectories(MapSelectScreen.MAPS);
+            map.save(name, MapSelectScreen.MAPS.resolve(name + FileGameMap.EXTENSION));
+            status.setStyle(skin.get(Label.LabelStyle.class));
+            status.setText("Saved as " + name + ".");
+        } catch (MapConstructionException e) {
+            status.setStyle(skin.get("red", Label.LabelStyle.class));
+            status.setText(e.getMessage());
+        } catch (IOException e) {
+            status.setStyle(skin.get("red", Label.LabelStyle.class));
+            status.setText("The map couldn't be saved: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void show() {
+        Gdx.input.setInputProcessor(input);
+    }
+
+    @Override
+    public void render(float delta) {
+        ScreenUtils.clear(1, 1, 1, 1);
+
+        mapView.apply();
+        game.setProjectionMatrix(mapView.getCamera().combined);
+        game.beginBatch();
+        Texture tile = game.getTexture("tile");
+        Texture wall = game.getTexture("wall");
+        Texture box = game.getTexture("box");
+        for (int row = 0; row < map.getMapHeight(); ++row) {
+            for (int col = 0; col < map.getMapWidth(); ++col) {
+                Texture texture = map.isWall(col, row) ? wall : map.isBox(col, row) ? box : tile;
+                game.draw(texture, col * CELL, row * CELL, CELL, CELL);
+            }
+        }
+        Texture player = game.getTexture("player1");
+        map.getPlayerSpawns(Integer.MAX_VALUE).forEach(spawn ->
+            game.draw(player, spawn.col * CELL, spawn.row * CELL, CELL, CELL));
+        Texture monster = game.getTexture("monster");
+        map.getAllMonsterSpawns().forEach(spawn ->
+            game.draw(monster, spawn.col * CELL, spawn.row * CELL, CELL, CELL));
+        for (Pair cell : marked) {
+            game.draw(mark, cell.col * CELL, cell.row * CELL, CELL, CELL);
+        }
+        game.endBatch();
+
+        uiStage.getViewport().apply();
+        uiStage.act(delta);
+        uiStage.draw();
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        mapView.update((int) (width * MAP_SHARE), height, true);
+        uiStage.getViewport().update(width, height, true);
+    }
+
+    @Override
+    public void pause() {
+
+    }
+
+    @Override
+    public void resume() {
+
+    }
+
+    @Override
+    public void hide() {
+
+    }
+
+    @Override
+    public void dispose() {
+        uiStage.dispose();
+        skin.dispose();
+        mark.dispose();
+    }
+}
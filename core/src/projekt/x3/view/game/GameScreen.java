@@ -22,11 +22,20 @@ import com.badlogic.gdx.utils.ScreenUtils;
 import com.badlogic.gdx.utils.viewport.ExtendViewport;
 import com.badlogic.gdx.utils.viewport.FillViewport;
 import x3.DetonatorCircle;
+import x3.model.game.AutoSave;
 import x3.model.game.GameEngine;
+import x3.model.game.SaveGame;
 import x3.model.game.objects.Player;
 import x3.model.map.GameMap;
+import x3.model.net.KillCam;
+import x3.model.net.WorldState;
 import x3.model.util.Pair;
+import x3.model.util.TickClock;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -36,8 +45,42 @@ import java.util.List;
  * Manages the UI, updates the time on the counter, shows the current score.
  * At the end of a round displays a round ending screen, revealing who won the round. Waits for users to start new round.
  * At the end of the game displays a game ending screen.
+ * <br>
+ * While a round is running, the game is {@link AutoSave saved} every few seconds to {@link #AUTOSAVE a file}, which
+ * is offered to resume the next time the game starts. The file is deleted as soon as the round ends, so that it is
+ * gone whichever way the screen is left, and only a game closed or crashed mid-round is offered. F5 saves the game to
+ * {@link #QUICKSAVE another file}, and F9 loads it back.
+ * <br>
+ * The last seconds of the round are recorded by a {@link KillCam}. If a player died, they are played back during the
+ * round ending screen, from a few seconds before the death, at a speed changed with LEFT and RIGHT.
+ * <br>
+ * The whole game is recorded to a replay, if the game {@link DetonatorCircle#setReplayDirectory(Path) records
+ * games}.
  */
 public class GameScreen implements Screen {
+    /**
+     * The file the running game is saved to every few seconds.
+     */
+    public static final Path AUTOSAVE = Path.of("./.autosave");
+    /**
+     * The file of the quick-save.
+     */
+    public static final Path QUICKSAVE = Path.of("./.quicksave");
+    /**
+     * The number of ticks played back before a player's death.
+     */
+    public static final int REPLAY_LEAD = 3 * TickClock.TICKS_PER_SECOND;
+    /**
+     * The default directory of the replays, which a {@link ReplayScreen} plays back.
+     */
+    public static final Path REPLAYS = Path.of("./replays");
+    /**
+     * The size of a cell, in the units of the world.
+     */
+    public static final float PPM = 5;
+    private static final float MIN_REPLAY_SPEED = 1 / 4f;
+    private static final float MAX_REPLAY_SPEED = 4;
+
     private final DetonatorCircle game;
     private final GameMap map;
     private final Box2DDebugRenderer debugRenderer = new Box2DDebugRenderer();
@@ -49,7 +92,10 @@ public class GameScreen implements Screen {
     private final Stage overlayStage;
 
     private final GameEngine gameEngine;
-    private final float PPM = 5;
+    private final AutoSave autoSave;
+    private final KillCam killCam;
+    private final StateRenderer replayRenderer;
+    private final WorldState replayState;
     private final Texture boundaryTexture;
     private final Texture tileTexture;
 
@@ -66,19 +112,54 @@ public class GameScreen implements Screen {
 
     private long endTime;
     private boolean waiting;
+    private boolean autoSaveDeleted;
+    private float replayTime;
+    private float replaySpeed = 1;
+    private int replayTick = KillCam.NONE;
 
     /**
-     * Creates the game screen.
-     * Initialises UI elements, cameras. Creates a GameEngine for the game.
+     * Creates the game screen of a new round.
      *
      * @param game the object responsible for managing the game
      * @param map  the map the game is played on
      */
     public GameScreen(final DetonatorCircle game, final GameMap map) {
+        this(game, map, null);
+    }
+
+    /**
+     * Creates the game screen.
+     * Initialises UI elements, cameras. Creates a GameEngine for the game, and loads the saved game if there is one.
+     *
+     * @param game the object responsible for managing the game
+     * @param map  the map the game is played on, {@link SaveGame#prepare prepared} for the saved game
+     * @param save the saved game to resume, or null to start a new round
+     * @throws IllegalArgumentException if the saved game can't be loaded on the map
+     */
+    public GameScreen(final DetonatorCircle game, final GameMap map, final ByteBuffer save) {
         this.waiting = false;
         this.game = game;
         this.map = map;
         this.gameEngine = new GameEngine(game, map, PPM);
+        if (save != null) {
+            try {
+                new SaveGame(gameEngine).load(save);
+            } catch (IllegalArgumentException e) {
+                gameEngine.dispose();
+                throw e;
+            }
+        }
+        autoSave = new AutoSave(gameEngine, AUTOSAVE, AutoSave.DEFAULT_INTERVAL);
+        killCam = new KillCam(map.getMapWidth(), map.getMapHeight(), PPM);
+        replayRenderer = new StateRenderer(game, PPM);
+        replayState = new WorldState(map.getMapWidth(), map.getMapHeight());
+        if (game.getRecording() != null) {
+            try {
+                game.getRecording().startRound(gameEngine);
+            } catch (IOException e) {
+                game.stopRecording();
+            }
+        }
         boundaryTexture = game.getTexture("boundary");
         tileTexture = game.getTexture("tile");
 
@@ -188,6 +269,40 @@ public class GameScreen implements Screen {
         game.endBatch();
     }
 
+    private boolean isReplaying() {
+        return waiting && killCam.getKillTick() != KillCam.NONE && killCam.getFirstTick() != KillCam.NONE;
+    }
+
+    /**
+     * Draws the kill cam, from {@link #REPLAY_LEAD a few seconds} before the last death to the end of the recording,
+     * over and over. Every tick passed is decoded, so that no explosion is skipped at higher speeds.
+     */
+    private void drawReplay(float delta) {
+        int start = Math.max(killCam.getFirstTick(), killCam.getKillTick() - REPLAY_LEAD);
+        replayTime += delta * replaySpeed;
+        int tick = start + (int) (replayTime * TickClock.TICKS_PER_SECOND);
+        if (tick > killCam.getLastTick() || replayTick == KillCam.NONE) {
+            replayTime = 0;
+            tick = start;
+            replayTick = KillCam.NONE;
+            replayRenderer.clearFlames();
+        }
+        for (int t = replayTick == KillCam.NONE ? start : replayTick + 1; t <= tick; ++t) {
+            int decoded = killCam.seek(t, replayState);
+            if (decoded > replayTick) {
+                replayTick = decoded;
+                replayRenderer.spawnFlames(replayState);
+            }
+        }
+        replayRenderer.updateFlames(delta);
+
+        gameView.apply();
+        game.setProjectionMatrix(gameView.getCamera().combined);
+        game.beginBatch();
+        replayRenderer.draw(replayState, gameEngine.getGrid()::isWall, game.getPlayerCount());
+        game.endBatch();
+    }
+
     private void drawUI() {
         nameView.apply();
         playerNameStage.act();
@@ -204,11 +319,16 @@ public class GameScreen implements Screen {
             public boolean keyDown(int keyCode) {
                 if (keyCode == Input.Keys.ENTER) {
                     if (game.remainingRounds + 1 == 0) {
+                        game.stopRecording();
                         game.toMainMenu();
                     } else {
                         map.shuffle();
                         game.setScreen((new GameScreen(game, map)));
                     }
+                } else if (keyCode == Input.Keys.LEFT) {
+                    replaySpeed = Math.max(MIN_REPLAY_SPEED, replaySpeed / 2);
+                } else if (keyCode == Input.Keys.RIGHT) {
+                    replaySpeed = Math.min(MAX_REPLAY_SPEED, replaySpeed * 2);
                 }
                 return true;
             }
@@ -216,6 +336,45 @@ public class GameScreen implements Screen {
         game.remainingRounds--;
     }
 
+    private void record() {
+        if (game.getRecording() == null) {
+            return;
+        }
+        try {
+            game.getRecording().record(gameEngine);
+        } catch (IOException e) {
+            // the disk is full or gone: the rest of the game isn't recorded
+            game.stopRecording();
+        }
+    }
+
+    private void deleteAutoSave() {
+        try {
+            autoSave.delete();
+        } catch (IOException e) {
+            // the round has ended anyway, and an outdated autosave can be discarded when it's offered
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Replaces this screen with the game of the {@link #QUICKSAVE quick-save}, if it can be loaded.
+     */
+    private void quickLoad() {
+        if (!Files.exists(QUICKSAVE)) {
+            return;
+        }
+        try {
+            ByteBuffer save = AutoSave.read(QUICKSAVE);
+            GameMap savedMap = SaveGame.prepare(game, save);
+            game.setScreen(new GameScreen(game, savedMap, save));
+            dispose();
+        } catch (IOException | IllegalArgumentException e) {
+            // the quick-save is unreadable, or of another game: keep playing this one
+        }
+    }
+
     private String outcome() {
         if (game.remainingRounds > 0) {
             if (gameEngine.getPlayers().findAny().isEmpty()) {
@@ -249,7 +408,8 @@ public class GameScreen implements Screen {
         LabelStyle style = new LabelStyle(game.font48, Color.BLACK);
         Label result = new Label(endGameText, style);
         result.setFontScale(uiLabelFontScale);
-        Label prompt = new Label("Press ENTER to continue.", style);
+        Label prompt = new Label(killCam.getKillTick() != KillCam.NONE
+            ? "Press ENTER to continue, LEFT or RIGHT to change the replay's speed." : "Press ENTER to continue.", style);
         prompt.setFontScale(uiLabelFontScale);
 
         ui.row();
@@ -279,13 +439,32 @@ public class GameScreen implements Screen {
         }
         if (gameInProgress) {
             gameEngine.step(delta);
+            killCam.record(gameEngine);
+            record();
+        }
+        if (gameEngine.isGameEnded() && !autoSaveDeleted) {
+            deleteAutoSave();
+            autoSaveDeleted = true;
+        }
+        if (!gameEngine.isGameEnded()) {
+            autoSave.update();
+            if (Gdx.input.isKeyJustPressed(Input.Keys.F5)) {
+                autoSave.save(QUICKSAVE);
+            } else if (Gdx.input.isKeyJustPressed(Input.Keys.F9)) {
+                quickLoad();
+                return;
+            }
         }
         if (!waiting && gameEngine.isGameEnded() && timePassedSinceEnd > 2000) {
             endGame();
             waiting = true;
         }
 
-        drawGame();
+        if (isReplaying()) {
+            drawReplay(delta);
+        } else {
+            drawGame();
+        }
         if (gameInProgress) {
             if (!gameEngine.isAtMaxShrink()) {
                 shrinkTimerLabel.setValue(String.format("%.2f", gameEngine.getSecondsUntilShrink()));
@@ -321,6 +500,8 @@ public class GameScreen implements Screen {
 
     @Override
     public void dispose() {
+        autoSave.dispose();
+        replayRenderer.dispose();
         gameEngine.dispose();
         playerNameStage.dispose();
         overlayStage.dispose();
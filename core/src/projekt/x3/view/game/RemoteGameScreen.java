@@ -0,0 +1,191 @@
+package x3.view.game;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.scenes.scene2d.ui.Label;
+import com.badlogic.gdx.scenes.scene2d.ui.Label.LabelStyle;
+import com.badlogic.gdx.scenes.scene2d.ui.Table;
+import com.badlogic.gdx.utils.ScreenUtils;
+import com.badlogic.gdx.utils.viewport.ExtendViewport;
+import com.badlogic.gdx.utils.viewport.FillViewport;
+import x3.DetonatorCircle;
+import x3.model.game.control.KeyboardController;
+import x3.model.game.objects.Player;
+import x3.model.net.MatchClient;
+import x3.model.net.MatchServer;
+import x3.model.net.WorldState;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * The screen of a game played on a {@link MatchServer match server}.
+ * <br>
+ * Unlike the {@link GameScreen}, this screen doesn't simulate anything: it sends the keyboard input of the local
+ * player to the server, and draws the latest {@link WorldState state} received from it.
+ * The local player is controlled with the keys of the first player, whichever player the server assigned.
+ */
+public class RemoteGameScreen implements Screen {
+    private static final float PPM = MatchServer.PPM;
+
+    private final DetonatorCircle game;
+    private final InetSocketAddress address;
+    private final KeyboardController keyboard = new KeyboardController();
+    private final Player keys = new Player(0);
+    private final FillViewport overlayView;
+    private final Stage overlayStage;
+    private final Label status;
+    private final StateRenderer renderer;
+    private MatchClient client;
+    private ExtendViewport gameView;
+
+    /**
+     * Only constructor.
+     * <br>
+     * Connects to the server. If the connection fails, the screen only shows the error.
+     *
+     * @param game    the object responsible for managing the game.
+     * @param address the address of the server.
+     */
+    public RemoteGameScreen(final DetonatorCircle game, final InetSocketAddress address) {
+        this.game = game;
+        this.address = address;
+        renderer = new StateRenderer(game, PPM);
+
+        overlayView = new FillViewport(game.initialWindowWidth, game.initialWindowHeight);
+        overlayStage = new Stage(overlayView);
+        Table root = new Table();
+        root.setFillParent(true);
+        root.top();
+        overlayStage.addActor(root);
+        status = new Label("Connecting to " + address + "...", new LabelStyle(game.font48, Color.BLACK));
+        status.setFontScale(0.4f);
+        root.add(status).pad(10);
+
+        try {
+            client = new MatchClient(address);
+            client.setStateListener(renderer::spawnFlames);
+        } catch (IOException e) {
+            status.setText("Can't connect to " + address + ": " + e.getMessage());
+        }
+    }
+
+    private void update(float delta) {
+        if (client == null) {
+            return;
+        }
+        try {
+            client.poll();
+            if (client.isFull()) {
+                status.setText("The match at " + address + " is full.");
+                disconnect();
+                return;
+            }
+            if (!client.isJoined()) {
+                return;
+            }
+            if (gameView == null) {
+                WorldState state = client.getState();
+                gameView = new ExtendViewport(state.getWidth() * PPM, state.getHeight() * PPM);
+                gameView.getCamera().position.set(new Vector3(state.getWidth() * PPM / 2, state.getHeight() * PPM / 2, 0));
+                gameView.update(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+            }
+            client.sendInput(keyboard.poll(keys, null));
+            updateStatus(client.getState());
+        } catch (IOException e) {
+            status.setText("Disconnected: " + e.getMessage());
+            disconnect();
+        }
+
+        renderer.updateFlames(delta);
+    }
+
+    private void updateStatus(final WorldState state) {
+        String name = game.playerNames[client.getPlayer()];
+        if (client.getStatesReceived() == 0) {
+            status.setText("Playing as " + name + ". Waiting for players...");
+        } else if (state.isGameEnded()) {
+            status.setText(state.isAlive(client.getPlayer()) ? "YOU WON THE ROUND! Press ENTER to leave." : "ROUND OVER. Press ENTER to leave.");
+            if (Gdx.input.isKeyJustPressed(Input.Keys.ENTER)) {
+                disconnect();
+                game.toMainMenu();
+            }
+        } else if (state.getMillisUntilShrink() >= 0) {
+            status.setText(name + " - Next shrink in " + String.format("%.2f", state.getMillisUntilShrink() / 1000f) + "s");
+        } else {
+            status.setText(name + " - Next shrink in -.--s");
+        }
+    }
+
+    private void disconnect() {
+        if (client != null) {
+            try {
+                client.close();
+            } catch (IOException ignored) {
+                // the connection is gone either way
+            }
+            client = null;
+        }
+    }
+
+    private void drawGame(final WorldState state) {
+        gameView.apply();
+        game.setProjectionMatrix(gameView.getCamera().combined);
+        game.beginBatch();
+
+        renderer.draw(state, client::isWall, client.getPlayerCount());
+
+        game.endBatch();
+    }
+
+    @Override
+    public void show() {
+        Gdx.input.setInputProcessor(null);
+    }
+
+    @Override
+    public void render(float delta) {
+        ScreenUtils.clear(1, 1, 1, 1);
+        update(delta);
+        if (client != null && gameView != null && client.getStatesReceived() > 0) {
+            drawGame(client.getState());
+        }
+        overlayView.apply();
+        overlayStage.act();
+        overlayStage.draw();
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        if (gameView != null) {
+            gameView.update(width, height);
+        }
+        overlayView.update(width, height, true);
+    }
+
+    @Override
+    public void pause() {
+
+    }
+
+    @Override
+    public void resume() {
+
+    }
+
+    @Override
+    public void hide() {
+
+    }
+
+    @Override
+    public void dispose() {
+        disconnect();
+        renderer.dispose();
+        overlayStage.dispose();
+    }
+}
@@ -0,0 +1,223 @@
+package x3.view.game;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.scenes.scene2d.ui.Label;
+import com.badlogic.gdx.scenes.scene2d.ui.Label.LabelStyle;
+import com.badlogic.gdx.scenes.scene2d.ui.Table;
+import com.badlogic.gdx.utils.ScreenUtils;
+import com.badlogic.gdx.utils.viewport.ExtendViewport;
+import com.badlogic.gdx.utils.viewport.FillViewport;
+import x3.DetonatorCircle;
+import x3.model.net.ReplayFile;
+import x3.model.net.WorldState;
+import x3.model.util.TickClock;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The screen playing back a {@link ReplayFile replay}.
+ * <br>
+ * SPACE pauses, LEFT and RIGHT jump 5 seconds back and forth, UP and DOWN change the speed, PAGE UP and PAGE DOWN
+ * go to the previous and next round, and ESCAPE goes back to the main menu.
+ */
+public class ReplayScreen implements Screen {
+    private static final float PPM = 5;
+    private static final int JUMP = 5 * TickClock.TICKS_PER_SECOND;
+    private static final float MIN_SPEED = 1 / 4f;
+    private static final float MAX_SPEED = 16;
+
+    private final DetonatorCircle game;
+    private final FillViewport overlayView;
+    private final Stage overlayStage;
+    private final Label status;
+    private final StateRenderer renderer;
+    private ReplayFile replay;
+    private ExtendViewport gameView;
+    private WorldState state;
+    private int round = -1;
+    private int tick = ReplayFile.NONE;
+    private float time;
+    private float speed = 1;
+    private boolean paused;
+
+    /**
+     * Only constructor.
+     * <br>
+     * Opens the replay. If it can't be opened, the screen only shows the error.
+     *
+     * @param game the object responsible for managing the game.
+     * @param file the replay file.
+     */
+    public ReplayScreen(final DetonatorCircle game, final Path file) {
+        this.game = game;
+        renderer = new StateRenderer(game, PPM);
+        overlayView = new FillViewport(game.initialWindowWidth, game.initialWindowHeight);
+        overlayStage = new Stage(overlayView);
+        Table root = new Table();
+        root.setFillParent(true);
+        root.top();
+        overlayStage.addActor(root);
+        status = new Label("", new LabelStyle(game.font48, Color.BLACK));
+        status.setFontScale(0.4f);
+        root.add(status).pad(10);
+
+        try {
+            replay = new ReplayFile(file);
+            if (replay.getRoundCount() == 0) {
+                status.setText("The replay " + file + " has no rounds.");
+            } else {
+                startRound(0);
+            }
+        } catch (IOException e) {
+            status.setText("Can't open the replay " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void startRound(int round) {
+        this.round = round;
+        int width = replay.getWidth(round);
+        int height = replay.getHeight(round);
+        state = new WorldState(width, height);
+        gameView = new ExtendViewport(width * PPM, height * PPM);
+        gameView.getCamera().position.set(new Vector3(width * PPM / 2, height * PPM / 2, 0));
+        gameView.update(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+        jumpTo(replay.getFirstTick(round));
+    }
+
+    private void jumpTo(int target) {
+        int first = replay.getFirstTick(round);
+        time = (float) (Math.max(first, Math.min(replay.getLastTick(round), target)) - first)
+            / TickClock.TICKS_PER_SECOND;
+        tick = ReplayFile.NONE;
+        renderer.clearFlames();
+    }
+
+    private void update(float delta) throws IOException {
+        if (Gdx.input.isKeyJustPressed(Input.Keys.SPACE)) {
+            paused = !paused;
+        } else if (Gdx.input.isKeyJustPressed(Input.Keys.LEFT)) {
+            jumpTo(tick - JUMP);
+        } else if (Gdx.input.isKeyJustPressed(Input.Keys.RIGHT)) {
+            jumpTo(tick + JUMP);
+        } else if (Gdx.input.isKeyJustPressed(Input.Keys.UP)) {
+            speed = Math.min(MAX_SPEED, speed * 2);
+        } else if (Gdx.input.isKeyJustPressed(Input.Keys.DOWN)) {
+            speed = Math.max(MIN_SPEED, speed / 2);
+        } else if (Gdx.input.isKeyJustPressed(Input.Keys.PAGE_UP) && round > 0) {
+            startRound(round - 1);
+        } else if (Gdx.input.isKeyJustPressed(Input.Keys.PAGE_DOWN) && round + 1 < replay.getRoundCount()) {
+            startRound(round + 1);
+        }
+
+        if (!paused) {
+            time += delta * speed;
+        }
+        int first = replay.getFirstTick(round);
+        int target = Math.min(replay.getLastTick(round), first + (int) (time * TickClock.TICKS_PER_SECOND));
+        if (tick == ReplayFile.NONE || target - tick > TickClock.TICKS_PER_SECOND) {
+            // a jump: only the flames of the target tick are started
+            tick = replay.seek(round, target, state);
+            renderer.spawnFlames(state);
+        } else {
+            for (int t = tick + 1; t <= target; ++t) {
+                int decoded = replay.seek(round, t, state);
+                if (decoded > tick) {
+                    tick = decoded;
+                    renderer.spawnFlames(state);
+                }
+            }
+        }
+        renderer.updateFlames(delta);
+
+        status.setText(String.format("Round %d/%d - %d:%05.2f / %d:%05.2f - x%s%s", round + 1,
+            replay.getRoundCount(), minutes(tick - first), seconds(tick - first),
+            minutes(replay.getLastTick(round) - first), seconds(replay.getLastTick(round) - first),
+            speed < 1 ? "1/" + (int) (1 / speed) : String.valueOf((int) speed), paused ? " - PAUSED" : ""));
+    }
+
+    private static int minutes(int ticks) {
+        return ticks / TickClock.TICKS_PER_SECOND / 60;
+    }
+
+    private static float seconds(int ticks) {
+        return ticks % (60 * TickClock.TICKS_PER_SECOND) / (float) TickClock.TICKS_PER_SECOND;
+    }
+
+    private void drawGame() {
+        gameView.apply();
+        game.setProjectionMatrix(gameView.getCamera().combined);
+        game.beginBatch();
+        renderer.draw(state, cell -> replay.isWall(round, cell), WorldState.MAX_PLAYERS);
+        game.endBatch();
+    }
+
+    @Override
+    public void show() {
+        Gdx.input.setInputProcessor(null);
+    }
+
+    @Override
+    public void render(float delta) {
+        ScreenUtils.clear(1, 1, 1, 1);
+        if (Gdx.input.isKeyJustPressed(Input.Keys.ESCAPE)) {
+            game.toMainMenu();
+            dispose();
+            return;
+        }
+        if (round != -1) {
+            try {
+                update(delta);
+                drawGame();
+            } catch (IOException e) {
+                status.setText("Can't play the replay: " + e.getMessage());
+                round = -1;
+            }
+        }
+        overlayView.apply();
+        overlayStage.act();
+        overlayStage.draw();
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        if (gameView != null) {
+            gameView.update(width, height);
+        }
+        overlayView.update(width, height, true);
+    }
+
+    @Override
+    public void pause() {
+
+    }
+
+    @Override
+    public void resume() {
+
+    }
+
+    @Override
+    public void hide() {
+
+    }
+
+    @Override
+    public void dispose() {
+        if (replay != null) {
+            try {
+                replay.close();
+            } catch (IOException ignored) {
+                // the replay was only read
+            }
+            replay = null;
+        }
+        renderer.dispose();
+        overlayStage.dispose();
+    }
+}
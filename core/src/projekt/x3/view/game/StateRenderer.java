@@ -0,0 +1,164 @@
+package x3.view.game;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
+import com.badlogic.gdx.graphics.g2d.ParticleEffectPool;
+import com.badlogic.gdx.graphics.g2d.ParticleEffectPool.PooledEffect;
+import com.badlogic.gdx.utils.Disposable;
+import x3.DetonatorCircle;
+import x3.model.net.WorldState;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Draws {@link WorldState world states}, for the screens that show a game they don't simulate: a game played on a
+ * server, or a replay.
+ * <br>
+ * Explosions are drawn as flames, spawned at the blast cells of every new state and updated with the frames.
+ */
+public class StateRenderer implements Disposable {
+    private static final float PLAYER_SCALE = 3 / 4f;
+    private static final float EFFECT_SCALE = 1 / 2f;
+    private static final int BOMB_STATE_2 = 30;
+    private static final int BOMB_STATE_3 = 15;
+    private static final String[] EFFECT_TEXTURES = {
+        "bonusbomb", "biggerbomb", "forcedbombs", "nobombs", "slow", "smallbomb"
+    };
+
+    private final DetonatorCircle game;
+    private final float PPM;
+    private final List<ParticleEffectPool> flamePools = new ArrayList<>();
+    private final List<PooledEffect> flames = new ArrayList<>();
+    private final Texture[] playerTextures;
+    private final Texture[] effectTextures = new Texture[EFFECT_TEXTURES.length];
+
+    /**
+     * Only constructor.
+     *
+     * @param game the object responsible for managing the game.
+     * @param PPM  the size of a cell, in the units of the states' positions.
+     */
+    public StateRenderer(final DetonatorCircle game, float PPM) {
+        this.game = game;
+        this.PPM = PPM;
+        playerTextures = new Texture[] {
+            game.getTexture("player1"), game.getTexture("player2"), game.getTexture("player3")
+        };
+        for (int i = 0; i < EFFECT_TEXTURES.length; ++i) {
+            effectTextures[i] = game.getTexture(EFFECT_TEXTURES[i]);
+        }
+        for (SimpleEntry<FileHandle, FileHandle> particles : game.getExplosionParticles()) {
+            ParticleEffect prototype = new ParticleEffect();
+            prototype.load(particles.getKey(), particles.getValue());
+            prototype.scaleEffect(0.13f);
+            flamePools.add(new ParticleEffectPool(prototype, 16, 256));
+        }
+    }
+
+    /**
+     * Starts the flames of the explosions of a new state.
+     *
+     * @param state the state.
+     */
+    public void spawnFlames(final WorldState state) {
+        for (int i = 0; i < state.getBlastCount(); ++i) {
+            int cell = state.getBlastCell(i);
+            float x = cell % state.getWidth() * PPM + PPM / 2;
+            float y = cell / state.getWidth() * PPM + PPM / 2;
+            for (ParticleEffectPool pool : flamePools) {
+                PooledEffect flame = pool.obtain();
+                flame.setPosition(x, y);
+                flame.start();
+                flames.add(flame);
+            }
+        }
+    }
+
+    /**
+     * Updates the flames, and frees the ones that burnt out.
+     *
+     * @param delta the time elapsed since the previous frame.
+     */
+    public void updateFlames(float delta) {
+        for (int i = flames.size() - 1; i >= 0; --i) {
+            PooledEffect flame = flames.get(i);
+            flame.update(delta);
+            if (flame.isComplete()) {
+                flame.free();
+                flames.remove(i);
+            }
+        }
+    }
+
+    /**
+     * Frees all flames, e.g. when a replay starts over.
+     */
+    public void clearFlames() {
+        flames.forEach(PooledEffect::free);
+        flames.clear();
+    }
+
+    /**
+     * Draws a state and the flames. The batch of the game must have been begun with the projection of the game's
+     * view.
+     *
+     * @param state       the state to draw.
+     * @param walls       whether a cell holds a wall, which the states don't hold.
+     * @param playerCount the number of players of the game.
+     */
+    public void draw(final WorldState state, final IntPredicate walls, int playerCount) {
+        float playerSize = PPM * PLAYER_SCALE;
+        float effectSize = PPM * EFFECT_SCALE;
+        int width = state.getWidth();
+        for (int cell = 0; cell < width * state.getHeight(); ++cell) {
+            float x = cell % width * PPM;
+            float y = cell / width * PPM;
+            game.draw(game.getTexture("tile"), x, y, PPM, PPM);
+            if (walls.test(cell)) {
+                game.draw(game.getTexture("wall"), x, y, PPM, PPM);
+            } else if (state.isBox(cell)) {
+                game.draw(game.getTexture("box"), x, y, PPM, PPM);
+            }
+        }
+        for (int i = 0; i < state.getEffectCount(); ++i) {
+            int cell = state.getEffectCell(i);
+            float offset = (PPM - effectSize) / 2;
+            game.draw(effectTextures[state.getEffectType(i)],
+                cell % width * PPM + offset, cell / width * PPM + offset, effectSize, effectSize);
+        }
+        for (int p = 0; p < playerCount; ++p) {
+            if (state.isAlive(p)) {
+                game.draw(playerTextures[p], state.getPlayerX(p), state.getPlayerY(p), playerSize, playerSize);
+            }
+        }
+        for (int i = 0; i < state.getMonsterCount(); ++i) {
+            game.draw(game.getTexture("monster"), state.getMonsterX(i), state.getMonsterY(i), playerSize, playerSize);
+        }
+        for (int col = 0; col < width; ++col) {
+            for (int row = 0; row < state.getHeight(); ++row) {
+                if (state.isBoundary(col, row)) {
+                    game.draw(game.getTexture("boundary"), col * PPM, row * PPM, PPM, PPM);
+                }
+            }
+        }
+        for (int i = 0; i < state.getBombCount(); ++i) {
+            int cell = state.getBombCell(i);
+            int fuse = state.getBombFuse(i);
+            Texture texture = game.getTexture(fuse <= BOMB_STATE_3 ? "bomb3" : fuse <= BOMB_STATE_2 ? "bomb2" : "bomb");
+            game.draw(texture, cell % width * PPM, cell / width * PPM, PPM, PPM);
+        }
+        flames.forEach(game::draw);
+    }
+
+    /**
+     * Frees the flames.
+     */
+    @Override
+    public void dispose() {
+        clearFlames();
+    }
+}
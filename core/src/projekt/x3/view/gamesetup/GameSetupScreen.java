@@ -10,6 +10,7 @@ import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import com.badlogic.gdx.utils.ScreenUtils;
 import com.badlogic.gdx.utils.viewport.FillViewport;
 import x3.DetonatorCircle;
+import x3.model.game.control.BotController;
 import x3.model.game.objects.Player;
 import x3.view.mapselect.MapSelectScreen;
 
@@ -21,6 +22,7 @@ import java.util.function.BiConsumer;
  * <br>
  * UI elements are stored for later used and the UI is rebuilt when {@link Screen#show()} is called.
  * UI elements are dynamically added to the UI based on {@link DetonatorCircle#getPlayerCount() player count} (2 or 3).
+ * Any of the players can be handed over to a {@link BotController bot}.
  */
 public class GameSetupScreen implements Screen {
     private final DetonatorCircle game;
@@ -31,6 +33,9 @@ public class GameSetupScreen implements Screen {
     private final TextField name1Field;
     private final TextField name2Field;
     private final TextField name3Field;
+    private final CheckBox bot1Box;
+    private final CheckBox bot2Box;
+    private final CheckBox bot3Box;
     private final Table nav;
     private final ImageButton lessBtn;
     private final Image roundCountImg;
@@ -65,6 +70,9 @@ public class GameSetupScreen implements Screen {
         name1Field = new TextField("Player 1", skin);
         name2Field = new TextField("Player 2", skin);
         name3Field = new TextField("Player 3", skin);
+        bot1Box = new CheckBox(" Bot", skin);
+        bot2Box = new CheckBox(" Bot", skin);
+        bot3Box = new CheckBox(" Bot", skin);
 
         nav = new Table();
 
@@ -129,6 +137,9 @@ public class GameSetupScreen implements Screen {
                 if (!name3Field.getText().isEmpty()) {
                     game.playerNames[2] = name3Field.getText();
                 }
+                game.botPlayers[0] = bot1Box.isChecked();
+                game.botPlayers[1] = bot2Box.isChecked();
+                game.botPlayers[2] = game.is3Player() && bot3Box.isChecked();
                 game.roundCount = roundCount;
                 game.remainingRounds = roundCount - 1;
                 game.wonRounds = new int[] { 0, 0, 0 };
@@ -165,6 +176,13 @@ public class GameSetupScreen implements Screen {
             nameInput.add(new Image(game.getDrawable("player3")));
         }
 
+        nameInput.row();
+        nameInput.add(bot1Box);
+        nameInput.add(bot2Box);
+        if (game.is3Player()) {
+            nameInput.add(bot3Box);
+        }
+
         root.add(nameInput);
         root.row();
 
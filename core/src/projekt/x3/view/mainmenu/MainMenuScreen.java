@@ -5,8 +5,10 @@ import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.scenes.scene2d.ui.Dialog;
 import com.badlogic.gdx.scenes.scene2d.ui.Image;
 import com.badlogic.gdx.scenes.scene2d.ui.ImageButton;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import com.badlogic.gdx.utils.ScreenUtils;
@@ -24,6 +26,7 @@ import x3.DetonatorCircle;
 public class MainMenuScreen implements Screen {
     private final FillViewport uiViewport;
     private final Stage uiStage;
+    private final Skin skin;
 
     /**
      * Only constructor.
@@ -35,6 +38,7 @@ public class MainMenuScreen implements Screen {
     public MainMenuScreen(final DetonatorCircle game) {
         uiViewport = new FillViewport(game.initialWindowWidth, game.initialWindowHeight);
         uiStage = new Stage(uiViewport);
+        skin = new Skin(Gdx.files.internal("gamesetup/metal-ui.json"));
 
         Table root = new Table();
         root.setFillParent(true);
@@ -104,6 +108,25 @@ public class MainMenuScreen implements Screen {
         });
     }
 
+    /**
+     * Asks whether to resume the game that was running when the game was last closed, in a dialog over the menu.
+     *
+     * @param resume  called if the players resume the game.
+     * @param discard called if the players discard it.
+     */
+    public void askToResume(final Runnable resume, final Runnable discard) {
+        Dialog dialog = new Dialog("", skin) {
+            @Override
+            protected void result(Object object) {
+                ((Runnable) object).run();
+            }
+        };
+        dialog.text("Resume the game that was running when the game was closed?");
+        dialog.button("Resume", resume);
+        dialog.button("Discard", discard);
+        dialog.show(uiStage);
+    }
+
     @Override
     public void show() {
         Gdx.input.setInputProcessor(uiStage);
@@ -137,5 +160,6 @@ public class MainMenuScreen implements Screen {
     @Override
     public void dispose() {
         uiStage.dispose();
+        skin.dispose();
     }
 }
\ No newline at end of file
@@ -2,21 +2,42 @@ package x3.view.mapselect;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.scenes.scene2d.Group;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.scenes.scene2d.ui.Dialog;
 import com.badlogic.gdx.scenes.scene2d.ui.Image;
 import com.badlogic.gdx.scenes.scene2d.ui.ImageButton;
+import com.badlogic.gdx.scenes.scene2d.ui.Label;
+import com.badlogic.gdx.scenes.scene2d.ui.Label.LabelStyle;
+import com.badlogic.gdx.scenes.scene2d.ui.ScrollPane;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
+import com.badlogic.gdx.scenes.scene2d.ui.TextButton;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
+import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
 import com.badlogic.gdx.utils.ScreenUtils;
 import com.badlogic.gdx.utils.viewport.FillViewport;
 import x3.DetonatorCircle;
+import x3.model.map.EditableMap;
+import x3.model.map.FileGameMap;
 import x3.model.map.GameMap;
+import x3.model.map.MapDescriptor;
+import x3.model.map.ProceduralMap;
+import x3.model.util.exception.MapConstructionException;
+import x3.view.editor.MapEditorScreen;
 import x3.view.game.GameScreen;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -24,19 +45,44 @@ import java.util.stream.IntStream;
  * A screen that handles map selection.
  * Stores the map options in a list, manages UI elements.
  * Handles map selection with buttons.
+ * <br>
+ * Besides the built-in maps, the maps of {@link #MAPS the maps directory} are listed. Every map is shown with a
+ * {@link MapThumbnail thumbnail drawn from it}, produced in the background by a {@link ThumbnailLoader}: the options
+ * show a blank thumbnail until theirs is ready, and invalid maps are taken off the list once they're found.
+ * <br>
+ * The first selected map, or a new one if none is selected, can be opened in the {@link MapEditorScreen editor}.
  */
 public class MapSelectScreen implements Screen {
+    /**
+     * The directory of the maps in the {@link FileGameMap compact map format}.
+     */
+    public static final Path MAPS = Path.of("./maps");
+    /**
+     * The directory of the cached thumbnails of the maps.
+     */
+    public static final Path THUMBNAILS = Path.of("./.thumbnails");
+    /**
+     * The most thumbnails uploaded to the GPU in a frame.
+     */
+    private static final int UPLOADS_PER_FRAME = 4;
     private static final Random RANDOM = new Random();
     private final Stage uiStage;
     private final DetonatorCircle game;
     private final List<MapOption> maps;
+    private final List<Supplier<? extends GameMap>> options;
+    private final List<Texture> thumbnails = new ArrayList<>();
+    private final ThumbnailLoader loader = new ThumbnailLoader(THUMBNAILS);
+    private final Texture placeholder;
+    private final Table fileMaps;
     private final Table root;
     private final Image background;
     private final Table ui;
     private final MapOption map1;
     private final MapOption map2;
     private final MapOption map3;
+    private final Skin skin;
     private final ImageButton backBtn;
+    private final TextButton editBtn;
     private final ImageButton nextBtn;
 
     /**
@@ -61,14 +107,32 @@ public class MapSelectScreen implements Screen {
 
         ui = new Table();
 
-        map1 = new MapOption(game.getTexture("map1"));
-        map2 = new MapOption(game.getTexture("map2"));
-        map3 = new MapOption(game.getTexture("map3"));
-        maps = List.of(map1, map2, map3);
+        Pixmap blank = new Pixmap(1, 1, Pixmap.Format.RGBA8888);
+        blank.setColor(Color.LIGHT_GRAY);
+        blank.fill();
+        placeholder = new Texture(blank);
+        blank.dispose();
+
+        map1 = new MapOption(placeholder);
+        map2 = new MapOption(placeholder);
+        map3 = new MapOption(placeholder);
+        maps = new ArrayList<>(List.of(map1, map2, map3));
+        options = new ArrayList<>();
+        for (int i = 0; i < game.maps.size(); ++i) {
+            MapDescriptor<?> descriptor = game.maps.get(i);
+            MapOption option = maps.get(i);
+            options.add(descriptor::create);
+            loader.request(descriptor::create, pixmap -> setThumbnail(option, pixmap), e -> removeOption(option));
+        }
+        fileMaps = new Table();
+        addFileMaps();
 
         backBtn = new ImageButton(game.getDrawable("back"));
         backBtn.getStyle().imageOver = game.getDrawable("backhover");
 
+        skin = new Skin(Gdx.files.internal("gamesetup/metal-ui.json"));
+        editBtn = new TextButton("Edit", skin);
+
         nextBtn = new ImageButton(game.getDrawable("play"));
         nextBtn.getStyle().imageOver = game.getDrawable("playhover");
 
@@ -80,6 +144,13 @@ public class MapSelectScreen implements Screen {
             }
         });
 
+        editBtn.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                editMap();
+            }
+        });
+
         nextBtn.addListener(new ClickListener() {
             @Override
             public void clicked(InputEvent event, float x, float y) {
@@ -88,12 +159,67 @@ public class MapSelectScreen implements Screen {
         });
     }
 
+    /**
+     * Adds an option, with its name below its thumbnail, for every map of the maps directory. Only the headers of the
+     * files are read here: the maps are loaded and checked with their thumbnails, and the invalid ones are removed.
+     */
+    private void addFileMaps() {
+        List<FileGameMap> files;
+        try {
+            files = FileGameMap.list(MAPS);
+        } catch (IOException e) {
+            // without a readable maps directory, only the built-in maps are offered
+            return;
+        }
+        LabelStyle style = new LabelStyle(game.font24, Color.BLACK);
+        for (FileGameMap file : files) {
+            MapOption option = new MapOption(placeholder);
+            maps.add(option);
+            options.add(file::load);
+            Table cell = new Table();
+            cell.add(option).size(120).pad(10).row();
+            cell.add(new Label(file.getName(), style));
+            fileMaps.add(cell);
+            // an invalid map can't be played, so it isn't offered
+            loader.request(file::load, pixmap -> setThumbnail(option, pixmap), e -> removeOption(option));
+        }
+    }
+
+    private void setThumbnail(final MapOption option, final Pixmap pixmap) {
+        Texture thumbnail = new Texture(pixmap);
+        thumbnails.add(thumbnail);
+        option.setDrawable(new TextureRegionDrawable(thumbnail));
+    }
+
+    /**
+     * Takes an invalid map off the list. A map file is removed along with its name, a built-in map only hidden, to
+     * keep the others in place. Does nothing if the map was already removed.
+     */
+    private void removeOption(final MapOption option) {
+        int index = maps.indexOf(option);
+        if (index == -1) {
+            return;
+        }
+        maps.remove(index);
+        options.remove(index);
+        Group cell = option.getParent();
+        if (cell != null && cell.getParent() == fileMaps) {
+            cell.remove();
+        } else {
+            option.setVisible(false);
+        }
+    }
+
     /**
      * Initializes the {@link GameScreen} instance and sets it as the game's screen.
      * <br>
      * This method loops over the maps displayed in the UI and filters based on which ones are selected.
-     * If none are selected, a random map is loaded from the original list.
+     * If none are selected, a random built-in map is loaded.
      * If at least one is selected, they are shuffled, and the first among them is loaded.
+     * Built-in maps are built when they're first played, and copied from then on.
+     * A map found invalid is removed from the list instead, and the screen stays.
+     * The game is recorded if the game {@link DetonatorCircle#setReplayDirectory(Path) records games}. If its replay
+     * can't be created, the players are asked whether to play without it.
      */
     private void startGame() {
         List<Integer> selected = IntStream
@@ -103,15 +229,76 @@ public class MapSelectScreen implements Screen {
                 .collect(Collectors.toList());
         GameMap map;
         if (selected.isEmpty()) {
-            map = game.maps.get(RANDOM.nextInt(0, maps.size()));
+            map = game.maps.get(RANDOM.nextInt(0, game.maps.size())).create();
         } else {
             Collections.shuffle(selected);
-            map = game.maps.get(selected.get(0));
+            try {
+                map = options.get(selected.get(0)).get();
+            } catch (MapConstructionException e) {
+                removeOption(maps.get(selected.get(0)));
+                return;
+            }
+        }
+        try {
+            game.startRecording();
+        } catch (IOException e) {
+            askToPlayUnrecorded(map, e);
+            return;
         }
+        play(map);
+    }
+
+    private void play(final GameMap map) {
         game.setScreen(new GameScreen(game, map));
         dispose();
     }
 
+    /**
+     * Tells why the game can't be recorded, in a dialog over the screen, and asks whether to play without a replay.
+     */
+    private void askToPlayUnrecorded(final GameMap map, final IOException e) {
+        Dialog dialog = new Dialog("", skin) {
+            @Override
+            protected void result(Object object) {
+                if (Boolean.TRUE.equals(object)) {
+                    play(map);
+                }
+            }
+        };
+        dialog.text("The game can't be recorded: " + e.getMessage() + "\nPlay without a replay?");
+        dialog.button("Play", true);
+        dialog.button("Cancel", false);
+        dialog.show(uiStage);
+    }
+
+    /**
+     * Opens the first selected map in the {@link MapEditorScreen editor}, or a new map of the default size if none is
+     * selected. A map file keeps its name, so saving it replaces the file. A map found invalid is removed from the
+     * list instead.
+     */
+    private void editMap() {
+        int selected = IntStream.range(0, maps.size()).filter(idx -> maps.get(idx).isSelected()).findFirst().orElse(-1);
+        EditableMap map;
+        String name = "custom";
+        if (selected == -1) {
+            map = new EditableMap(ProceduralMap.DEFAULT_SIZE, ProceduralMap.DEFAULT_SIZE);
+        } else {
+            GameMap source;
+            try {
+                source = options.get(selected).get();
+            } catch (MapConstructionException e) {
+                removeOption(maps.get(selected));
+                return;
+            }
+            map = new EditableMap(source);
+            if (source instanceof FileGameMap file) {
+                name = file.getName();
+            }
+        }
+        game.setScreen(new MapEditorScreen(game, map, name));
+        dispose();
+    }
+
     @Override
     public void show() {
         root.clearChildren();
@@ -123,8 +310,14 @@ public class MapSelectScreen implements Screen {
         ui.add(map2);
         ui.add(map3);
 
-        ui.row().width(150).height(40).space(0, 10, 0, 10).colspan(3).uniformX();
+        if (fileMaps.hasChildren()) {
+            ui.row().colspan(6).width(600).height(180).padBottom(30);
+            ui.add(new ScrollPane(fileMaps));
+        }
+
+        ui.row().width(150).height(40).space(0, 10, 0, 10).colspan(2).uniformX();
         ui.add(backBtn).right();
+        ui.add(editBtn);
         ui.add(nextBtn).left();
 
         root.add(ui);
@@ -133,6 +326,7 @@ public class MapSelectScreen implements Screen {
     @Override
     public void render(float delta) {
         ScreenUtils.clear(1, 1, 1, 1);
+        loader.update(UPLOADS_PER_FRAME);
         uiStage.getViewport().apply();
         uiStage.act(delta);
         uiStage.draw();
@@ -161,5 +355,9 @@ public class MapSelectScreen implements Screen {
     @Override
     public void dispose() {
         uiStage.dispose();
+        skin.dispose();
+        loader.dispose();
+        thumbnails.forEach(Texture::dispose);
+        placeholder.dispose();
     }
 }
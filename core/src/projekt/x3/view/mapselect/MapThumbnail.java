@@ -0,0 +1,53 @@
+package x3.view.mapselect;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import x3.model.map.GameMap;
+import x3.model.util.Pair;
+
+/**
+ * Draws the thumbnails of maps from their walls, boxes and spawns, so that they always show the map as it is played.
+ * <br>
+ * Every cell of the map is a pixel of the thumbnail, which is scaled to the size of the map options when drawn.
+ * Drawing doesn't need the render thread: the {@link ThumbnailLoader} draws thumbnails on threads of its own.
+ */
+public final class MapThumbnail {
+    private static final Color FLOOR = Color.valueOf("5d8a3a");
+    private static final Color WALL = Color.valueOf("4a4a4a");
+    private static final Color BOX = Color.valueOf("a0703c");
+    private static final Color PLAYER = Color.valueOf("3c6ee0");
+    private static final Color MONSTER = Color.valueOf("d03c3c");
+
+    private MapThumbnail() {
+    }
+
+    /**
+     * Draws the thumbnail of a map, one pixel per cell, the highest row on top.
+     *
+     * @param map the map.
+     * @return the thumbnail. It's owned by the caller, who disposes of it.
+     */
+    public static Pixmap draw(final GameMap map) {
+        int width = Math.max(1, map.getMapWidth());
+        int height = Math.max(1, map.getMapHeight());
+        Pixmap pixmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+        pixmap.setColor(FLOOR);
+        pixmap.fill();
+        for (int row = 0; row < map.getMapHeight(); ++row) {
+            for (int col = 0; col < map.getMapWidth(); ++col) {
+                if (map.isWall(col, row)) {
+                    pixmap.drawPixel(col, height - 1 - row, Color.rgba8888(WALL));
+                } else if (map.isBox(col, row)) {
+                    pixmap.drawPixel(col, height - 1 - row, Color.rgba8888(BOX));
+                }
+            }
+        }
+        map.getMonsterSpawns().forEach(spawn -> drawSpawn(pixmap, spawn, MONSTER));
+        map.getPlayerSpawns(Integer.MAX_VALUE).forEach(spawn -> drawSpawn(pixmap, spawn, PLAYER));
+        return pixmap;
+    }
+
+    private static void drawSpawn(final Pixmap pixmap, final Pair spawn, final Color color) {
+        pixmap.drawPixel(spawn.col, pixmap.getHeight() - 1 - spawn.row, Color.rgba8888(color));
+    }
+}
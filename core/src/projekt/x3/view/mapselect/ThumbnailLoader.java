@@ -0,0 +1,211 @@
+package x3.view.mapselect;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.PixmapIO;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import x3.model.map.GameMap;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A <code>ThumbnailLoader</code> produces the {@link MapThumbnail thumbnails} of maps without holding up the
+ * render thread.
+ * <br>
+ * Building or loading a map, and drawing or decoding its thumbnail, happen on worker threads. Only handing the
+ * finished {@link Pixmap} over, e.g. to upload it into a {@link Texture}, is left to the render thread, a few
+ * thumbnails per {@link #update(int) frame}, so a screen listing dozens of maps stays responsive while they come in.
+ * <br>
+ * Drawn thumbnails are kept as PNG files in a cache directory, named after the {@link GameMap#layoutHash() hash} of
+ * the map's layout, so a map is only drawn again when it changes. A cache that can't be read or written is
+ * ignored: the thumbnail is drawn instead.
+ */
+public class ThumbnailLoader implements Disposable {
+    private final Path cache;
+    private final ExecutorService workers;
+    private final Queue<Result> results = new ArrayDeque<>();
+    private final AtomicInteger cacheHits = new AtomicInteger();
+    private int pending;
+    private boolean disposed;
+
+    /**
+     * Only constructor.
+     * <br>
+     * Starts one worker per processor that the render thread doesn't need, and at least one.
+     *
+     * @param cache the directory of the cached thumbnails, created when the first one is written.
+     */
+    public ThumbnailLoader(final Path cache) {
+        this.cache = cache;
+        workers = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), task -> {
+            Thread thread = new Thread(task, "map-thumbnails");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts producing the thumbnail of a map. Returns immediately.
+     * <br>
+     * The callbacks are called on the thread calling {@link #update(int)}, once the thumbnail is ready.
+     *
+     * @param map    builds or loads the map. Called on a worker thread.
+     * @param ready  receives the thumbnail, which is disposed of when it returns.
+     * @param failed receives the exception thrown if the map is invalid, or its thumbnail can't be drawn.
+     */
+    public void request(final Supplier<? extends GameMap> map, final Consumer<Pixmap> ready,
+                        final Consumer<RuntimeException> failed) {
+        synchronized (results) {
+            ++pending;
+        }
+        workers.execute(() -> {
+            Result result;
+            try {
+                result = new Result(load(map.get()), ready, null, failed);
+            } catch (RuntimeException e) {
+                // any failure is handed over, so the request is no longer pending
+                result = new Result(null, ready, e, failed);
+            }
+            synchronized (results) {
+                if (disposed) {
+                    if (result.pixmap != null) {
+                        result.pixmap.dispose();
+                    }
+                    return;
+                }
+                results.add(result);
+            }
+        });
+    }
+
+    private Pixmap load(final GameMap map) {
+        Path file = cache.resolve(map.layoutHash() + ".png");
+        if (Files.isRegularFile(file)) {
+            try {
+                byte[] png = Files.readAllBytes(file);
+                Pixmap pixmap = new Pixmap(png, 0, png.length);
+                cacheHits.incrementAndGet();
+                return pixmap;
+            } catch (IOException | GdxRuntimeException e) {
+                // an unreadable thumbnail is drawn again, and replaces the broken file
+            }
+        }
+        Pixmap pixmap = MapThumbnail.draw(map);
+        store(pixmap, file);
+        return pixmap;
+    }
+
+    /**
+     * Writes a thumbnail next to its file, then moves it over, so that a thumbnail being written is never read.
+     */
+    private void store(final Pixmap pixmap, final Path file) {
+        Path temp = null;
+        try {
+            Files.createDirectories(cache);
+            temp = Files.createTempFile(cache, "thumbnail", ".tmp");
+            PixmapIO.writePNG(new FileHandle(temp.toFile()), pixmap);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | GdxRuntimeException e) {
+            // without a writable cache, the thumbnail is drawn again next time
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+        }
+    }
+
+    /**
+     * Hands the finished thumbnails over to their callbacks. Called on the render thread every frame.
+     *
+     * @param max the most thumbnails handed over, to spread the uploads of many thumbnails over several frames.
+     * @return the number of thumbnails handed over, including the failed ones.
+     */
+    public int update(int max) {
+        int count = 0;
+        while (count < max) {
+            Result result;
+            synchronized (results) {
+                result = results.poll();
+                if (result == null) {
+                    break;
+                }
+                --pending;
+            }
+            ++count;
+            if (result.pixmap == null) {
+                result.failed.accept(result.failure);
+                continue;
+            }
+            try {
+                result.ready.accept(result.pixmap);
+            } finally {
+                result.pixmap.dispose();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of thumbnails requested but not yet handed over.
+     *
+     * @return the number of pending thumbnails.
+     */
+    public int getPendingCount() {
+        synchronized (results) {
+            return pending;
+        }
+    }
+
+    /**
+     * Returns the number of thumbnails read from the cache instead of drawn.
+     *
+     * @return the number of cache hits.
+     */
+    public int getCacheHits() {
+        return cacheHits.get();
+    }
+
+    /**
+     * Stops the workers, and disposes of the thumbnails that were never handed over.
+     */
+    @Override
+    public void dispose() {
+        workers.shutdownNow();
+        synchronized (results) {
+            disposed = true;
+            results.forEach(result -> {
+                if (result.pixmap != null) {
+                    result.pixmap.dispose();
+                }
+            });
+            results.clear();
+        }
+    }
+
+    private static final class Result {
+        private final Pixmap pixmap;
+        private final Consumer<Pixmap> ready;
+        private final RuntimeException failure;
+        private final Consumer<RuntimeException> failed;
+
+        private Result(final Pixmap pixmap, final Consumer<Pixmap> ready, final RuntimeException failure,
+                       final Consumer<RuntimeException> failed) {
+            this.pixmap = pixmap;
+            this.ready = ready;
+            this.failure = failure;
+            this.failed = failed;
+        }
+    }
+}
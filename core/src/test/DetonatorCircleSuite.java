@@ -4,17 +4,43 @@ import model.effect.debuff.ForcedBombsEffectTest;
 import model.effect.debuff.NoBombsEffectTest;
 import model.effect.debuff.SlowEffectTest;
 import model.effect.debuff.SmallBombEffectTest;
+import model.game.LagCompensationTest;
+import model.game.SaveGameTest;
+import model.game.ChunkStreamingTest;
+import model.game.RollbackEngineTest;
+import model.game.ai.MonsterAITest;
+import model.game.control.BotPlannerTest;
+import model.game.env.VectorEnvTest;
+import model.game.grid.DangerMapTest;
+import model.game.grid.FlowFieldTest;
+import model.game.grid.WallBlocksTest;
 import model.game.objects.*;
 import model.game.suppliers.BombPoolTest;
 import model.game.suppliers.ExplosionPoolTest;
 import model.map.GameMapTest;
+import model.map.ReachabilityTest;
+import model.map.ProceduralMapTest;
+import model.map.MapFileTest;
+import model.map.MapDescriptorTest;
+import model.map.EditableMapTest;
+import model.net.AreaOfInterestTest;
+import model.net.KillCamTest;
+import model.net.ReplayTest;
+import model.net.MatchHostTest;
+import model.net.MatchServerTest;
+import model.net.SnapshotCodecTest;
+import model.net.SpectatorRelayTest;
+import model.net.WorldStateTest;
 import model.util.BattleRoyaleManagerTest;
 import model.util.KeybindManagerTest;
+import model.util.GameRandomTest;
 import model.util.PairTest;
+import org.junit.platform.suite.api.ExcludeTags;
 import org.junit.platform.suite.api.SelectClasses;
 import org.junit.platform.suite.api.Suite;
 
 @Suite
+@ExcludeTags("benchmark")
 @SelectClasses({
         BombTest.class,
         BoxTest.class,
@@ -29,9 +55,33 @@ import org.junit.platform.suite.api.Suite;
         SmallBombEffectTest.class,
         ExplosionPoolTest.class,
         BombPoolTest.class,
+        FlowFieldTest.class,
+        WallBlocksTest.class,
+        DangerMapTest.class,
+        MonsterAITest.class,
+        BotPlannerTest.class,
+        VectorEnvTest.class,
+        WorldStateTest.class,
+        MatchServerTest.class,
+        MatchHostTest.class,
+        SnapshotCodecTest.class,
+        KillCamTest.class,
+        ReplayTest.class,
+        SpectatorRelayTest.class,
+        AreaOfInterestTest.class,
+        RollbackEngineTest.class,
+        LagCompensationTest.class,
+        SaveGameTest.class,
+        ChunkStreamingTest.class,
         GameMapTest.class,
+        ReachabilityTest.class,
+        ProceduralMapTest.class,
+        MapFileTest.class,
+        MapDescriptorTest.class,
+        EditableMapTest.class,
         BattleRoyaleManagerTest.class,
         KeybindManagerTest.class,
+        GameRandomTest.class,
         PairTest.class
 })
 public class DetonatorCircleSuite {
@@ -0,0 +1,232 @@
+package model.game;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.utils.Array;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import x3.DetonatorCircle;
+import x3.model.game.EngineSnapshot;
+import x3.model.game.GameEngine;
+import x3.model.game.control.ExternalController;
+import x3.model.game.control.PlayerController;
+import x3.model.game.objects.Player;
+import x3.model.map.GameMap;
+import x3.model.map.ProceduralMap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChunkStreamingTest {
+    private static final float PPM = 5;
+    private static final float DELTA = 1 / 60f;
+    private static final int[] INPUTS = {
+        0, PlayerController.UP, PlayerController.DOWN, PlayerController.LEFT, PlayerController.RIGHT,
+        PlayerController.BOMB
+    };
+
+    private final List<GameEngine> engines = new ArrayList<>();
+    private final Map<GameEngine, ExternalController[]> controllers = new HashMap<>();
+
+    @AfterEach
+    public void afterEach() {
+        engines.forEach(GameEngine::dispose);
+    }
+
+    private GameEngine buildEngine(final GameMap map, int chunkSize, long seed) {
+        GameEngine engine = new GameEngine(buildGame(), map, PPM, new Random(seed), chunkSize);
+        ExternalController[] players = {new ExternalController(), new ExternalController()};
+        engine.setController(0, players[0]);
+        engine.setController(1, players[1]);
+        controllers.put(engine, players);
+        engines.add(engine);
+        return engine;
+    }
+
+    private static Body playerBody(final GameEngine engine, int player) {
+        Array<Body> bodies = new Array<>();
+        engine.getWorld().getBodies(bodies);
+        for (Body body : bodies) {
+            if (body.getUserData() == engine.getPlayer(player)) {
+                return body;
+            }
+        }
+        throw new AssertionError("No body for player " + player);
+    }
+
+    private static int staticBodiesAt(final GameEngine engine, int col, int row) {
+        int[] found = {0};
+        engine.getWorld().QueryAABB(fixture -> {
+            if (fixture.getBody().getType() == BodyDef.BodyType.StaticBody
+                && !fixture.isSensor()) {
+                ++found[0];
+            }
+            return true;
+        }, col * PPM + 1, row * PPM + 1, col * PPM + PPM - 1, row * PPM + PPM - 1);
+        return found[0];
+    }
+
+    @Test
+    public void testStreamingMode() {
+        GameMap large = new ProceduralMap(1, 256, 256, 0.25f, 0.3f, 4);
+        GameMap small = new ProceduralMap(1);
+        GameEngine streamed = new GameEngine(buildGame(), large, PPM);
+        GameEngine built = new GameEngine(buildGame(), small, PPM);
+        engines.add(streamed);
+        engines.add(built);
+        for (GameEngine engine : engines) {
+            engine.setController(0, new ExternalController());
+            engine.setController(1, new ExternalController());
+        }
+
+        long staticCells = large.getWalls().count() + large.getBoxes().count();
+        assertTrue(streamed.getActiveChunkCount() > 0);
+        assertTrue(streamed.getActiveChunkCount() <= (2 + 4) * 9);
+        assertTrue(streamed.getWorld().getBodyCount() < staticCells / 4);
+        assertEquals(-1, built.getActiveChunkCount());
+        // every wall and box is still drawn
+        assertEquals(staticCells, streamed.getFieldObjects().count());
+    }
+
+    /**
+     * The cells around the players have their bodies, and the ones they left lose them.
+     */
+    @Test
+    public void testBodiesFollowPlayers() {
+        GameMap map = new ProceduralMap(2, 160, 160, 0.25f, 0.3f, 0);
+        GameEngine engine = buildEngine(map, GameEngine.CHUNK_SIZE, 2);
+        Body body = playerBody(engine, 0);
+        Vector2 spawn = body.getPosition().cpy();
+        int spawnCol = Math.round(spawn.x / PPM);
+        int spawnRow = Math.round(spawn.y / PPM);
+        int border = borderCol(map, spawnCol);
+        assertEquals(1, staticBodiesAt(engine, border, spawnRow));
+
+        // the middle of the map is far from both players
+        int middle = map.getMapWidth() / 2;
+        assertEquals(0, staticBodiesAt(engine, 0, middle));
+        body.setTransform(PPM, middle * PPM, 0);
+        engine.step(DELTA);
+        assertEquals(1, staticBodiesAt(engine, 0, middle));
+        assertEquals(0, staticBodiesAt(engine, border, spawnRow));
+    }
+
+    private static int borderCol(final GameMap map, int col) {
+        return col < map.getMapWidth() / 2 ? 0 : map.getMapWidth() - 1;
+    }
+
+    /**
+     * Streaming the bodies doesn't change the game: with the same inputs, the players move the same way and blow up
+     * the same boxes as with all bodies built up front.
+     */
+    @Test
+    public void testSameGame() {
+        GameMap map = new ProceduralMap(3, 64, 64, 0.2f, 0.4f, 0);
+        GameEngine streamed = buildEngine(map, 8, 3);
+        GameEngine built = buildEngine(map, 0, 3);
+        Random random = new Random(3);
+        for (int tick = 0; tick < 900; ++tick) {
+            for (int p = 0; p < 2; ++p) {
+                int input = tick % 20 == 0 ? INPUTS[random.nextInt(INPUTS.length)] : -1;
+                if (input != -1) {
+                    controllers.get(streamed)[p].setInput(input);
+                    controllers.get(built)[p].setInput(input);
+                }
+            }
+            streamed.step(DELTA);
+            built.step(DELTA);
+        }
+        for (int p = 0; p < 2; ++p) {
+            Player a = streamed.getPlayer(p);
+            Player b = built.getPlayer(p);
+            assertEquals(b == null, a == null);
+            if (a != null) {
+                assertEquals(b.getX(), a.getX(), 0.01f);
+                assertEquals(b.getY(), a.getY(), 0.01f);
+            }
+        }
+        assertArrayEquals(grid(built), grid(streamed));
+    }
+
+    private static byte[] grid(final GameEngine engine) {
+        ByteBuffer buffer = ByteBuffer.allocate(engine.getGrid().size());
+        engine.getGrid().write(buffer);
+        return buffer.array();
+    }
+
+    @Test
+    public void testRestore() {
+        GameMap map = new ProceduralMap(4, 128, 128, 0.25f, 0.3f, 0);
+        GameEngine engine = buildEngine(map, GameEngine.CHUNK_SIZE, 4);
+        engine.step(DELTA);
+        EngineSnapshot snapshot = new EngineSnapshot(engine);
+        engine.save(snapshot);
+        int chunks = engine.getActiveChunkCount();
+        int bodies = engine.getWorld().getBodyCount();
+        Body body = playerBody(engine, 0);
+        Vector2 spawn = body.getPosition().cpy();
+
+        body.setTransform(64 * PPM, 64 * PPM, 0);
+        engine.step(DELTA);
+        assertNotEquals(bodies, engine.getWorld().getBodyCount());
+
+        engine.restore(snapshot);
+        assertEquals(spawn, body.getPosition());
+        assertEquals(chunks, engine.getActiveChunkCount());
+        assertEquals(bodies, engine.getWorld().getBodyCount());
+        assertEquals(1, staticBodiesAt(engine, borderCol(map, Math.round(spawn.x / PPM)), Math.round(spawn.y / PPM)));
+    }
+
+    /**
+     * Building and stepping a large map costs about as much as a small one. Every cost is the best of a few runs, so
+     * that a collection of the garbage of other tests doesn't count. Only run by the benchmark task.
+     */
+    @Test
+    @Tag("benchmark")
+    public void benchmarkCost() {
+        GameMap map = new ProceduralMap(5, 256, 256, 0.25f, 0.3f, 0);
+        long streamedBuild = Long.MAX_VALUE;
+        long fullBuild = Long.MAX_VALUE;
+        long streamedSteps = Long.MAX_VALUE;
+        long fullSteps = Long.MAX_VALUE;
+        for (int run = 0; run < 3; ++run) {
+            long start = System.nanoTime();
+            GameEngine streamed = buildEngine(map, GameEngine.CHUNK_SIZE, 5);
+            streamedBuild = Math.min(streamedBuild, System.nanoTime() - start);
+            start = System.nanoTime();
+            GameEngine built = buildEngine(map, 0, 5);
+            fullBuild = Math.min(fullBuild, System.nanoTime() - start);
+
+            streamedSteps = Math.min(streamedSteps, timeSteps(streamed));
+            fullSteps = Math.min(fullSteps, timeSteps(built));
+        }
+
+        assertTrue(streamedBuild < fullBuild,
+            "streamed built in " + streamedBuild / 1e6 + " ms, all bodies in " + fullBuild / 1e6 + " ms");
+        assertTrue(streamedSteps < fullSteps,
+            "streamed stepped in " + streamedSteps / 1e6 + " ms, all bodies in " + fullSteps / 1e6 + " ms");
+    }
+
+    private static long timeSteps(final GameEngine engine) {
+        long start = System.nanoTime();
+        for (int tick = 0; tick < 120; ++tick) {
+            engine.step(DELTA);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static DetonatorCircle buildGame() {
+        DetonatorCircle game = new DetonatorCircle(0, 0);
+        game.setPlayerCount2();
+        game.wonRounds = new int[3];
+        return game;
+    }
+}
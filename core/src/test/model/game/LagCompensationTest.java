@@ -0,0 +1,260 @@
+package model.game;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import x3.DetonatorCircle;
+import x3.model.game.GameEngine;
+import x3.model.game.LagCompensation;
+import x3.model.game.control.ExternalController;
+import x3.model.game.control.PlayerController;
+import x3.model.game.objects.Player;
+import x3.model.map.GameMap;
+import x3.model.map.Map1;
+import x3.model.util.Pair;
+
+import java.lang.management.ManagementFactory;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LagCompensationTest {
+    private static final float PPM = 5;
+    private static final float DELTA = 1 / 60f;
+    private static final int WIDTH = 15;
+
+    @Test
+    public void testFootprint() {
+        LagCompensation history = new LagCompensation(WIDTH, 3, 10);
+        int footprint = history.footprint(4, 6, true, false);
+        assertAll(
+            () -> assertTrue(history.covers(footprint, 6 * WIDTH + 4)),
+            () -> assertTrue(history.covers(footprint, 6 * WIDTH + 5)),
+            () -> assertFalse(history.covers(footprint, 6 * WIDTH + 6)),
+            () -> assertFalse(history.covers(footprint, 6 * WIDTH + 3)),
+            () -> assertFalse(history.covers(footprint, 7 * WIDTH + 4)),
+            () -> assertFalse(history.covers(footprint, 5 * WIDTH + 4)),
+            () -> assertFalse(history.covers(LagCompensation.NONE, 0))
+        );
+        int corner = history.footprint(WIDTH - 2, 0, true, true);
+        assertAll(
+            () -> assertTrue(history.covers(corner, WIDTH + WIDTH - 1)),
+            () -> assertFalse(history.covers(corner, WIDTH + WIDTH))
+        );
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "4, 6, true, false, 5, 6, false, false, true",
+        "4, 6, false, false, 5, 6, true, true, false",
+        "5, 6, false, false, 4, 6, true, false, true",
+        "5, 7, false, false, 4, 6, true, true, true",
+        "5, 8, false, false, 4, 6, true, true, false",
+        "4, 6, true, true, 6, 6, true, true, false"
+    })
+    public void testOverlaps(int colA, int rowA, boolean rightA, boolean upA,
+                             int colB, int rowB, boolean rightB, boolean upB, boolean expected) {
+        LagCompensation history = new LagCompensation(WIDTH, 3, 10);
+        int a = history.footprint(colA, rowA, rightA, upA);
+        int b = history.footprint(colB, rowB, rightB, upB);
+        assertAll(
+            () -> assertEquals(expected, history.overlaps(a, b)),
+            () -> assertEquals(expected, history.overlaps(b, a)),
+            () -> assertFalse(history.overlaps(a, LagCompensation.NONE))
+        );
+    }
+
+    @Test
+    public void testHistory() {
+        LagCompensation history = new LagCompensation(WIDTH, 2, 10);
+        for (int tick = 0; tick < 100; ++tick) {
+            history.record(tick, 0, tick);
+            history.record(tick, 1, 1000 + tick);
+        }
+        assertAll(
+            () -> assertEquals(99, history.getLatestTick()),
+            () -> assertEquals(99, history.getFootprint(0, 99)),
+            () -> assertEquals(1089, history.getFootprint(1, 89)),
+            () -> assertEquals(LagCompensation.NONE, history.getFootprint(0, 88)),
+            () -> assertEquals(LagCompensation.NONE, history.getFootprint(0, 100)),
+            () -> assertEquals(99, history.getRewoundFootprint(0))
+        );
+
+        history.setRewind(0, 4);
+        history.setRewind(1, 40);
+        assertAll(
+            () -> assertEquals(4, history.getRewind(0)),
+            () -> assertEquals(10, history.getRewind(1)),
+            () -> assertEquals(95, history.getRewoundFootprint(0)),
+            () -> assertEquals(1089, history.getRewoundFootprint(1))
+        );
+
+        // a rollback records the ticks again, and forgets the later ones
+        history.record(95, 0, 7);
+        assertAll(
+            () -> assertEquals(7, history.getFootprint(0, 95)),
+            () -> assertEquals(LagCompensation.NONE, history.getFootprint(1, 95)),
+            () -> assertEquals(LagCompensation.NONE, history.getFootprint(0, 96)),
+            () -> assertEquals(91, history.getRewoundFootprint(0))
+        );
+    }
+
+    @Test
+    public void testRewindBeforeTheHistory() {
+        LagCompensation history = new LagCompensation(WIDTH, 1, 20);
+        history.setRewind(0, 20);
+        assertEquals(LagCompensation.NONE, history.getRewoundFootprint(0));
+        history.record(0, 0, 3);
+        history.record(1, 0, 4);
+        assertEquals(4, history.getRewoundFootprint(0));
+    }
+
+    @Test
+    public void testRewindLimit() {
+        assertAll(
+            () -> assertThrows(IllegalArgumentException.class, () -> new LagCompensation(WIDTH, 2, -1)),
+            () -> assertThrows(IllegalArgumentException.class,
+                () -> new LagCompensation(WIDTH, 2, LagCompensation.HISTORY)),
+            () -> assertEquals(LagCompensation.HISTORY - 1,
+                new LagCompensation(WIDTH, 2, LagCompensation.HISTORY - 1).getMaxRewind())
+        );
+    }
+
+    /**
+     * Map1 without monsters.
+     */
+    private static GameEngine buildEngine() {
+        GameMap map = new Map1() {
+            @Override
+            public Stream<Pair> getMonsterSpawns() {
+                return Stream.empty();
+            }
+        };
+        DetonatorCircle game = new DetonatorCircle(0, 0);
+        game.setPlayerCount2();
+        game.wonRounds = new int[3];
+        return new GameEngine(game, map, PPM);
+    }
+
+    /**
+     * Player 0 drops a bomb at its spawn, runs away along the corridor, and runs back into the blast a number of
+     * ticks before the bomb blows up.
+     *
+     * @return the tick player 0 died at, or -1 if it survived.
+     */
+    private static int runBack(int ticksBefore, int maxRewind, int rewind) {
+        GameEngine engine = buildEngine();
+        ExternalController controller = new ExternalController();
+        engine.setController(0, controller);
+        engine.setController(1, new ExternalController());
+        if (maxRewind > 0) {
+            engine.enableLagCompensation(maxRewind);
+            engine.getLagCompensation().setRewind(0, rewind);
+        }
+        Player player = engine.getPlayer(0);
+        int cell = engine.getCell(player);
+        int away = cell % WIDTH == 1 ? PlayerController.RIGHT : PlayerController.LEFT;
+        int back = away == PlayerController.RIGHT ? PlayerController.LEFT : PlayerController.RIGHT;
+
+        controller.setInput(PlayerController.BOMB);
+        engine.step(DELTA);
+        int blowTick = engine.getDangerMap().getBombTick(cell);
+        controller.setInput(away);
+        try {
+            for (int tick = engine.getTick(); tick < blowTick + 60; ++tick) {
+                if (controller.getInput() == away && Math.abs(engine.getCell(player) - cell) >= 4) {
+                    controller.setInput(0);
+                }
+                if (tick == blowTick - ticksBefore) {
+                    controller.setInput(back);
+                }
+                engine.step(DELTA);
+                if (engine.getPlayer(0) == null) {
+                    return engine.getTick();
+                }
+            }
+            return -1;
+        } finally {
+            engine.dispose();
+        }
+    }
+
+    /**
+     * Without compensation, a player that runs back into the blast just before the bomb blows up dies. A client 30
+     * ticks behind still saw its player outside of the blast, and with compensation the player survives.
+     */
+    @Test
+    public void testRunningBackIntoTheBlast() {
+        int ticksBefore = 1;
+        while (runBack(ticksBefore, 0, 0) == -1) {
+            ++ticksBefore;
+            assertTrue(ticksBefore < 120, "the player never reaches the blast");
+        }
+        int killing = ticksBefore + 2;
+
+        assertAll(
+            () -> assertNotEquals(-1, runBack(killing, 0, 0)),
+            () -> assertNotEquals(-1, runBack(killing, 40, 0)),
+            () -> assertEquals(-1, runBack(killing, 40, 30))
+        );
+    }
+
+    /**
+     * Monsters still kill idle players when hits are resolved from the footprints.
+     */
+    @ParameterizedTest
+    @CsvSource({"0, 0", "30, 0", "30, 20"})
+    public void testMonstersKill(int maxRewind, int rewind) {
+        DetonatorCircle game = new DetonatorCircle(0, 0);
+        game.setPlayerCount2();
+        game.wonRounds = new int[3];
+        GameEngine engine = new GameEngine(game, new Map1(), PPM);
+        engine.setController(0, new ExternalController());
+        engine.setController(1, new ExternalController());
+        if (maxRewind > 0) {
+            engine.enableLagCompensation(maxRewind);
+            engine.getLagCompensation().setRewind(0, rewind);
+            engine.getLagCompensation().setRewind(1, rewind);
+        }
+        for (int tick = 0; tick < 1200 && !engine.isGameEnded(); ++tick) {
+            engine.step(DELTA);
+        }
+        assertTrue(engine.isGameEnded());
+        engine.dispose();
+    }
+
+    private static long recordAndLookUp(final LagCompensation history, int from, int to) {
+        long sum = 0;
+        for (int tick = from; tick < to; ++tick) {
+            for (int p = 0; p < 3; ++p) {
+                history.record(tick, p, (tick + p) % (WIDTH * WIDTH));
+                sum += history.getRewoundFootprint(p);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Recording and looking up the footprints doesn't allocate. The allocations are measured over batches of ticks,
+     * the least of which is unaffected by the compilation of the test itself.
+     */
+    @Test
+    public void testLookupDoesNotAllocate() {
+        LagCompensation history = new LagCompensation(WIDTH, 3, 30);
+        for (int p = 0; p < 3; ++p) {
+            history.setRewind(p, p * 10);
+        }
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int batch = 10_000;
+        long sum = recordAndLookUp(history, 0, 10 * batch);
+        long allocated = Long.MAX_VALUE;
+        for (int i = 10; i < 20; ++i) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            sum += recordAndLookUp(history, i * batch, (i + 1) * batch);
+            allocated = Math.min(allocated, threads.getCurrentThreadAllocatedBytes() - before);
+        }
+        assertTrue(sum > 0);
+        assertEquals(0, allocated);
+    }
+}
@@ -0,0 +1,64 @@
+package model.game;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import x3.DetonatorCircle;
+import x3.model.game.GameEngine;
+import x3.model.game.RollbackEngine;
+import x3.model.game.control.PlayerController;
+import x3.model.map.Map2;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Times the {@link RollbackEngine} against the length of a frame. Only run by the benchmark task.
+ */
+@Tag("benchmark")
+public class RollbackEngineBenchmark {
+    private static final int[] INPUTS = {
+        0, PlayerController.UP, PlayerController.DOWN, PlayerController.LEFT, PlayerController.RIGHT
+    };
+
+    private GameEngine engine;
+
+    @AfterEach
+    public void afterEach() {
+        engine.dispose();
+    }
+
+    /**
+     * Plays Map2 (8 monsters) with the remote player's inputs arriving 8 ticks late and always mispredicted, so every
+     * frame restores a snapshot and simulates 9 ticks, and compares the cost with the length of a frame.
+     */
+    @Test
+    public void benchmarkResimulation() {
+        DetonatorCircle game = new DetonatorCircle(0, 0);
+        game.setPlayerCount2();
+        game.wonRounds = new int[3];
+        engine = new GameEngine(game, new Map2(), 5, new Random());
+        RollbackEngine rollback = new RollbackEngine(engine, 2);
+        int latency = 8;
+        int warmup = 200;
+        int frames = 600;
+        Random random = new Random(35);
+        long total = 0;
+        for (int t = 1; t <= warmup + frames && !engine.isGameEnded(); ++t) {
+            rollback.setInput(0, INPUTS[random.nextInt(5)]);
+            if (t > latency) {
+                rollback.confirmInput(1, t - latency, INPUTS[1 + random.nextInt(4)]);
+            }
+            long start = System.nanoTime();
+            rollback.advance();
+            if (t > warmup) {
+                total += System.nanoTime() - start;
+            }
+        }
+        int measured = engine.getTick() - warmup;
+        assertTrue(measured > 0);
+        long average = total / measured;
+        assertTrue(average < 1_000_000_000L / 60, "a frame must fit in 1/60 s, took " + average / 1000 + " us");
+    }
+}
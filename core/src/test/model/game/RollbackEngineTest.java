@@ -0,0 +1,271 @@
+package model.game;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import x3.DetonatorCircle;
+import x3.model.game.EngineSnapshot;
+import x3.model.game.GameEngine;
+import x3.model.game.RollbackEngine;
+import x3.model.game.control.ExternalController;
+import x3.model.game.control.PlayerController;
+import x3.model.map.GameMap;
+import x3.model.map.Map1;
+import x3.model.map.Map2;
+import x3.model.net.WorldState;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RollbackEngineTest {
+    private static final float PPM = 5;
+    private static final float DELTA = 1 / 60f;
+    private static final int[] INPUTS = {
+        0, PlayerController.UP, PlayerController.DOWN, PlayerController.LEFT, PlayerController.RIGHT,
+        PlayerController.BOMB, PlayerController.UP | PlayerController.BOMB
+    };
+
+    private GameEngine engine;
+    private DetonatorCircle game;
+
+    @AfterEach
+    public void afterEach() {
+        engine.dispose();
+    }
+
+    private GameEngine buildEngine() {
+        return buildEngine(new Map1());
+    }
+
+    private GameEngine buildEngine(final GameMap map) {
+        return buildEngine(map, new Random());
+    }
+
+    private GameEngine buildEngine(final GameMap map, final Random random) {
+        game = new DetonatorCircle(0, 0);
+        game.setPlayerCount2();
+        game.wonRounds = new int[3];
+        engine = new GameEngine(game, map, PPM, random);
+        return engine;
+    }
+
+    private static int[][] randomInputs(int ticks, long seed) {
+        Random random = new Random(seed);
+        int[][] inputs = new int[2][ticks + 2];
+        for (int p = 0; p < 2; ++p) {
+            for (int t = 0; t < inputs[p].length; ++t) {
+                inputs[p][t] = t % 15 == 0 ? INPUTS[random.nextInt(INPUTS.length)] : inputs[p][t - 1];
+            }
+        }
+        return inputs;
+    }
+
+    private WorldState capture() {
+        return capture(engine);
+    }
+
+    private static WorldState capture(final GameEngine engine) {
+        WorldState state = new WorldState(engine.getGrid().getWidth(), engine.getGrid().getHeight());
+        state.capture(engine);
+        return state;
+    }
+
+    private static void assertSameState(final WorldState expected, final WorldState actual) {
+        assertAll(
+            () -> assertEquals(expected.getTick(), actual.getTick()),
+            () -> assertEquals(expected.isGameEnded(), actual.isGameEnded()),
+            () -> assertEquals(expected.getShrinks(), actual.getShrinks()),
+            () -> assertEquals(expected.getBombCount(), actual.getBombCount()),
+            () -> assertEquals(expected.getMonsterCount(), actual.getMonsterCount()),
+            () -> assertEquals(expected.getEffectCount(), actual.getEffectCount()),
+            () -> assertEquals(expected.getBlastCount(), actual.getBlastCount())
+        );
+        for (int p = 0; p < WorldState.MAX_PLAYERS; ++p) {
+            assertEquals(expected.isAlive(p), actual.isAlive(p));
+            if (expected.isAlive(p)) {
+                assertEquals(expected.getPlayerX(p), actual.getPlayerX(p), 0.01f);
+                assertEquals(expected.getPlayerY(p), actual.getPlayerY(p), 0.01f);
+            }
+        }
+        for (int cell = 0; cell < expected.getWidth() * expected.getHeight(); ++cell) {
+            assertEquals(expected.isBox(cell), actual.isBox(cell));
+        }
+        for (int i = 0; i < expected.getBombCount(); ++i) {
+            assertEquals(expected.getBombCell(i), actual.getBombCell(i));
+            assertEquals(expected.getBombFuse(i), actual.getBombFuse(i));
+        }
+        for (int i = 0; i < expected.getMonsterCount(); ++i) {
+            assertEquals(expected.getMonsterId(i), actual.getMonsterId(i));
+            assertEquals(expected.getMonsterX(i), actual.getMonsterX(i), 0.01f);
+            assertEquals(expected.getMonsterY(i), actual.getMonsterY(i), 0.01f);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {30, 590})
+    public void testRestoreReplaysTheSameRound(int startTick) {
+        buildEngine();
+        ExternalController[] controllers = { new ExternalController(), new ExternalController() };
+        engine.setController(0, controllers[0]);
+        engine.setController(1, controllers[1]);
+        int ticks = 180;
+        int[][] inputs = randomInputs(startTick + ticks, 33);
+        for (int t = 1; t <= startTick; ++t) {
+            controllers[0].setInput(t < 20 ? 0 : inputs[0][t]);
+            controllers[1].setInput(t < 20 ? 0 : inputs[1][t]);
+            engine.step(DELTA);
+        }
+        EngineSnapshot snapshot = new EngineSnapshot(engine);
+        engine.save(snapshot);
+
+        for (int t = startTick + 1; t <= startTick + ticks; ++t) {
+            controllers[0].setInput(inputs[0][t]);
+            controllers[1].setInput(inputs[1][t]);
+            engine.step(DELTA);
+        }
+        WorldState expected = capture();
+        int[] expectedWins = game.wonRounds.clone();
+
+        engine.restore(snapshot);
+        assertEquals(startTick, engine.getTick());
+        for (int t = startTick + 1; t <= startTick + ticks; ++t) {
+            controllers[0].setInput(inputs[0][t]);
+            controllers[1].setInput(inputs[1][t]);
+            engine.step(DELTA);
+        }
+
+        assertSameState(expected, capture());
+        assertArrayEquals(expectedWins, game.wonRounds);
+    }
+
+    @Test
+    public void testRollbackMatchesConfirmedInputs() {
+        buildEngine();
+        EngineSnapshot initial = new EngineSnapshot(engine);
+        engine.save(initial);
+        RollbackEngine rollback = new RollbackEngine(engine, 2);
+        int ticks = 300;
+        int latency = 6;
+        int[][] inputs = randomInputs(ticks, 34);
+
+        // the remote player's inputs arrive a few ticks late
+        for (int t = 1; t <= ticks; ++t) {
+            rollback.setInput(0, inputs[0][t]);
+            if (t > latency) {
+                rollback.confirmInput(1, t - latency, inputs[1][t - latency]);
+            }
+            rollback.advance();
+        }
+        for (int t = ticks - latency + 1; t <= ticks + 1; ++t) {
+            rollback.confirmInput(1, t, inputs[1][t]);
+        }
+        rollback.setInput(0, inputs[0][ticks + 1]);
+        rollback.advance();
+        WorldState predicted = capture();
+
+        engine.restore(initial);
+        ExternalController[] controllers = { new ExternalController(), new ExternalController() };
+        engine.setController(0, controllers[0]);
+        engine.setController(1, controllers[1]);
+        for (int t = 1; t <= ticks + 1; ++t) {
+            controllers[0].setInput(inputs[0][t]);
+            controllers[1].setInput(inputs[1][t]);
+            engine.step(DELTA);
+        }
+
+        assertTrue(rollback.getRollbacks() > 0);
+        assertSameState(capture(), predicted);
+    }
+
+    /**
+     * Plays Map2 and its monsters with the remote player's inputs arriving late, and compares the result with a
+     * second engine, built from the same layout and seed, that simulates the confirmed inputs straight away. The monsters only
+     * end up in the same places if their decisions and the random numbers are restored with the rest of the game.
+     */
+    @Test
+    public void testRollbackWithMonsters() {
+        Map2 map = new Map2();
+        GameEngine straight = buildEngine(new Map2(map), new Random(36));
+        try {
+            ExternalController[] controllers = { new ExternalController(), new ExternalController() };
+            straight.setController(0, controllers[0]);
+            straight.setController(1, controllers[1]);
+            buildEngine(new Map2(map), new Random(36));
+            assertEquals(8, engine.getMonsterCount());
+            RollbackEngine rollback = new RollbackEngine(engine, 2);
+            int ticks = 400;
+            int latency = 7;
+            int[][] inputs = randomInputs(ticks, 36);
+
+            for (int t = 1; t <= ticks; ++t) {
+                rollback.setInput(0, inputs[0][t]);
+                if (t > latency) {
+                    rollback.confirmInput(1, t - latency, inputs[1][t - latency]);
+                }
+                rollback.advance();
+                controllers[0].setInput(inputs[0][t]);
+                controllers[1].setInput(inputs[1][t]);
+                straight.step(DELTA);
+            }
+            for (int t = ticks - latency + 1; t <= ticks + 1; ++t) {
+                rollback.confirmInput(1, t, inputs[1][t]);
+            }
+            rollback.setInput(0, inputs[0][ticks + 1]);
+            rollback.advance();
+            controllers[0].setInput(inputs[0][ticks + 1]);
+            controllers[1].setInput(inputs[1][ticks + 1]);
+            straight.step(DELTA);
+
+            assertTrue(rollback.getRollbacks() > 0);
+            assertSameState(capture(straight), capture());
+        } finally {
+            straight.dispose();
+        }
+    }
+
+    @Test
+    public void testWindow() {
+        buildEngine();
+        RollbackEngine rollback = new RollbackEngine(engine, 2, 8);
+        for (int t = 0; t < 20; ++t) {
+            rollback.advance();
+        }
+
+        assertAll(
+            () -> assertThrows(IllegalArgumentException.class, () -> rollback.confirmInput(1, 13, 0)),
+            () -> assertDoesNotThrow(() -> rollback.confirmInput(1, 14, PlayerController.UP)),
+            () -> assertThrows(IllegalArgumentException.class, () -> rollback.confirmInput(1, 29, 0)),
+            () -> assertThrows(IllegalArgumentException.class, () -> new RollbackEngine(engine, 2, 1))
+        );
+        rollback.advance();
+        assertAll(
+            () -> assertEquals(21, rollback.getTick()),
+            () -> assertEquals(1, rollback.getRollbacks()),
+            () -> assertEquals(7, rollback.getResimulatedTicks())
+        );
+    }
+
+    /**
+     * Plays Map2 (8 monsters) with the remote player's inputs arriving 8 ticks late and always mispredicted, so every
+     * frame restores a snapshot and simulates the late ticks again.
+     */
+    @Test
+    public void testResimulationEveryFrame() {
+        buildEngine(new Map2());
+        assertEquals(8, engine.getMonsterCount());
+        RollbackEngine rollback = new RollbackEngine(engine, 2);
+        int latency = 8;
+        Random random = new Random(35);
+        for (int t = 1; t <= 200 && !engine.isGameEnded(); ++t) {
+            rollback.setInput(0, INPUTS[random.nextInt(5)]);
+            if (t > latency) {
+                rollback.confirmInput(1, t - latency, INPUTS[1 + random.nextInt(4)]);
+            }
+            rollback.advance();
+        }
+        assertTrue(rollback.getRollbacks() > 0);
+        assertTrue(rollback.getResimulatedTicks() >= (long) latency * (rollback.getRollbacks() - latency));
+    }
+}
@@ -0,0 +1,362 @@
+package model.game;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import x3.DetonatorCircle;
+import x3.model.effect.TimedEffect;
+import x3.model.effect.debuff.SlowEffect;
+import x3.model.game.AutoSave;
+import x3.model.game.GameEngine;
+import x3.model.game.SaveGame;
+import x3.model.game.control.BotController;
+import x3.model.game.control.ExternalController;
+import x3.model.game.control.PlayerController;
+import x3.model.game.objects.Player;
+import x3.model.map.GameMap;
+import x3.model.map.Map1;
+import x3.model.map.Map2;
+import x3.model.net.WorldState;
+import x3.model.util.Pair;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SaveGameTest {
+    private static final float PPM = 5;
+    private static final float DELTA = 1 / 60f;
+    private static final int[] INPUTS = {
+        0, PlayerController.UP, PlayerController.DOWN, PlayerController.LEFT, PlayerController.RIGHT,
+        PlayerController.BOMB, PlayerController.UP | PlayerController.BOMB
+    };
+
+    private final List<GameEngine> engines = new ArrayList<>();
+
+    @AfterEach
+    public void afterEach() {
+        engines.forEach(GameEngine::dispose);
+    }
+
+    /**
+     * Map1 without monsters, whose AI doesn't replay its decisions.
+     */
+    private static class CalmMap extends Map1 {
+        @Override
+        public Stream<Pair> getMonsterSpawns() {
+            return Stream.empty();
+        }
+    }
+
+    private GameEngine buildEngine(final GameMap map, final DetonatorCircle game) {
+        GameEngine engine = new GameEngine(game, map, PPM);
+        engines.add(engine);
+        return engine;
+    }
+
+    private static DetonatorCircle buildGame() {
+        DetonatorCircle game = new DetonatorCircle(0, 0);
+        game.setPlayerCount2();
+        game.wonRounds = new int[3];
+        game.roundCount = 3;
+        game.remainingRounds = 3;
+        return game;
+    }
+
+    private static int[][] randomInputs(int ticks, long seed) {
+        Random random = new Random(seed);
+        int[][] inputs = new int[2][ticks + 2];
+        for (int p = 0; p < 2; ++p) {
+            for (int t = 0; t < inputs[p].length; ++t) {
+                inputs[p][t] = t % 15 == 0 ? INPUTS[random.nextInt(INPUTS.length)] : inputs[p][t - 1];
+            }
+        }
+        return inputs;
+    }
+
+    private static ExternalController[] externalControllers(final GameEngine engine) {
+        ExternalController[] controllers = { new ExternalController(), new ExternalController() };
+        engine.setController(0, controllers[0]);
+        engine.setController(1, controllers[1]);
+        return controllers;
+    }
+
+    private static void play(final ExternalController[] controllers, final GameEngine engine, final int[][] inputs,
+                             int from, int to) {
+        for (int t = from; t <= to; ++t) {
+            controllers[0].setInput(t < 20 ? 0 : inputs[0][t]);
+            controllers[1].setInput(t < 20 ? 0 : inputs[1][t]);
+            engine.step(DELTA);
+        }
+    }
+
+    private static WorldState capture(final GameEngine engine) {
+        WorldState state = new WorldState(engine.getGrid().getWidth(), engine.getGrid().getHeight());
+        state.capture(engine);
+        return state;
+    }
+
+    private static void assertSameState(final WorldState expected, final WorldState actual) {
+        assertAll(
+            () -> assertEquals(expected.getTick(), actual.getTick()),
+            () -> assertEquals(expected.isGameEnded(), actual.isGameEnded()),
+            () -> assertEquals(expected.getShrinks(), actual.getShrinks()),
+            () -> assertEquals(expected.getBombCount(), actual.getBombCount()),
+            () -> assertEquals(expected.getEffectCount(), actual.getEffectCount()),
+            () -> assertEquals(expected.getBlastCount(), actual.getBlastCount())
+        );
+        for (int p = 0; p < WorldState.MAX_PLAYERS; ++p) {
+            assertEquals(expected.isAlive(p), actual.isAlive(p));
+            if (expected.isAlive(p)) {
+                assertEquals(expected.getPlayerX(p), actual.getPlayerX(p), 0.01f);
+                assertEquals(expected.getPlayerY(p), actual.getPlayerY(p), 0.01f);
+            }
+        }
+        for (int cell = 0; cell < expected.getWidth() * expected.getHeight(); ++cell) {
+            assertEquals(expected.isBox(cell), actual.isBox(cell));
+        }
+        for (int i = 0; i < expected.getBombCount(); ++i) {
+            assertEquals(expected.getBombCell(i), actual.getBombCell(i));
+            assertEquals(expected.getBombFuse(i), actual.getBombFuse(i));
+        }
+        for (int i = 0; i < expected.getEffectCount(); ++i) {
+            assertEquals(expected.getEffectCell(i), actual.getEffectCell(i));
+            assertEquals(expected.getEffectType(i), actual.getEffectType(i));
+        }
+    }
+
+    private static ByteBuffer copy(final ByteBuffer save) {
+        ByteBuffer copy = ByteBuffer.allocate(save.remaining());
+        copy.put(save.duplicate()).flip();
+        return copy;
+    }
+
+    /**
+     * A game saved in one engine and loaded into another, whose map was shuffled differently, goes on exactly as it
+     * would have in the first engine.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {30, 590})
+    public void testLoadedGameContinuesTheSameRound(int startTick) {
+        DetonatorCircle game = buildGame();
+        GameEngine engine = buildEngine(new CalmMap(), game);
+        ExternalController[] controllers = externalControllers(engine);
+        int ticks = 180;
+        int[][] inputs = randomInputs(startTick + ticks, 33);
+        play(controllers, engine, inputs, 1, startTick);
+        game.wonRounds[1] = 1;
+        game.remainingRounds = 2;
+        ByteBuffer save = copy(new SaveGame(engine).save());
+        play(controllers, engine, inputs, startTick + 1, startTick + ticks);
+        WorldState expected = capture(engine);
+
+        DetonatorCircle loadedGame = buildGame();
+        GameMap map = new CalmMap();
+        map.shuffle(new Random(7));
+        GameEngine loaded = buildEngine(map, loadedGame);
+        ExternalController[] loadedControllers = externalControllers(loaded);
+        new SaveGame(loaded).load(save);
+        assertAll(
+            () -> assertEquals(startTick, loaded.getTick()),
+            () -> assertFalse(save.hasRemaining()),
+            () -> assertEquals(3, loadedGame.roundCount),
+            () -> assertEquals(2, loadedGame.remainingRounds),
+            () -> assertArrayEquals(new int[] { 0, 1, 0 }, loadedGame.wonRounds)
+        );
+        play(loadedControllers, loaded, inputs, startTick + 1, startTick + ticks);
+
+        assertSameState(expected, capture(loaded));
+        assertArrayEquals(game.wonRounds, loadedGame.wonRounds);
+    }
+
+    /**
+     * Saving a loaded game gives back the same bytes, monsters, bombs, explosions and effects included.
+     */
+    @Test
+    public void testSaveOfLoadedGameIsTheSame() {
+        DetonatorCircle game = buildGame();
+        GameEngine engine = buildEngine(new Map1(), game);
+        engine.setController(0, new BotController(1, 3));
+        engine.setController(1, new BotController(1, 4));
+        SaveGame saveGame = new SaveGame(engine);
+        int checked = 0;
+        while (!engine.isGameEnded()) {
+            engine.step(DELTA);
+            if (engine.getTick() % 20 == 0) {
+                ByteBuffer save = copy(saveGame.save());
+                GameMap map = new Map1();
+                map.shuffle(new Random(engine.getTick()));
+                GameEngine loaded = new GameEngine(buildGame(), map, PPM);
+                SaveGame loadedSave = new SaveGame(loaded);
+                loadedSave.load(save.duplicate());
+                assertEquals(save, loadedSave.save());
+                assertAll(
+                    () -> assertEquals(engine.getMonsterCount(), loaded.getMonsterCount()),
+                    () -> assertEquals(engine.getBombs().count(), loaded.getBombs().count()),
+                    () -> assertEquals(engine.getEffectCount(), loaded.getEffectCount()),
+                    () -> assertEquals(engine.getBlastCount(), loaded.getBlastCount())
+                );
+                loaded.dispose();
+                ++checked;
+            }
+        }
+        assertTrue(checked > 3);
+    }
+
+    /**
+     * Timed effects keep their remaining time, and end as they would have.
+     */
+    @Test
+    public void testTimedEffectsKeepTheirRemainingTime() {
+        GameEngine engine = buildEngine(new CalmMap(), buildGame());
+        externalControllers(engine);
+        for (int t = 0; t < 120; ++t) {
+            engine.step(DELTA);
+        }
+        Player player = engine.getPlayer(0);
+        SlowEffect slow = new SlowEffect(null);
+        // applied a second ago, on the clock of the engine
+        slow.startTime = (engine.getTick() - 60) * 1000L / 60;
+        player.effectMap.put(SlowEffect.class, Optional.of(slow));
+        player.moveSpeed = slow.newMoveSpeed;
+        ByteBuffer save = copy(new SaveGame(engine).save());
+
+        GameEngine loaded = buildEngine(new CalmMap(), buildGame());
+        externalControllers(loaded);
+        new SaveGame(loaded).load(save);
+        Player loadedPlayer = loaded.getPlayer(0);
+        Optional<TimedEffect> effect = loadedPlayer.effectMap.get(SlowEffect.class);
+        assertAll(
+            () -> assertTrue(effect.isPresent()),
+            () -> assertNotSame(slow, effect.orElseThrow()),
+            () -> assertEquals(slow.startTime, effect.orElseThrow().startTime),
+            () -> assertEquals(slow.newMoveSpeed, loadedPlayer.moveSpeed),
+            () -> assertTrue(loaded.getPlayer(1).effectMap.get(SlowEffect.class).isEmpty())
+        );
+
+        int remaining = (int) ((slow.duration - 1000) * 60 / 1000);
+        for (int t = 0; t < remaining - 2; ++t) {
+            loaded.step(DELTA);
+        }
+        assertEquals(slow.newMoveSpeed, loadedPlayer.moveSpeed);
+        for (int t = 0; t < 4; ++t) {
+            loaded.step(DELTA);
+        }
+        assertEquals(loadedPlayer.defaultMoveSpeed, loadedPlayer.moveSpeed);
+    }
+
+    @Test
+    public void testPrepare() {
+        DetonatorCircle game = buildGame();
+        game.setPlayerCount3();
+        GameEngine engine = buildEngine(new Map2(), game);
+        ByteBuffer save = copy(new SaveGame(engine).save());
+
+        DetonatorCircle other = buildGame();
+        GameMap map = SaveGame.prepare(other, save);
+        assertAll(
+            () -> assertInstanceOf(Map2.class, map),
+            () -> assertTrue(Map2.DESCRIPTOR.isBuilt()),
+            () -> assertTrue(other.is3Player()),
+            () -> assertEquals(0, save.position())
+        );
+        GameEngine loaded = buildEngine(map, other);
+        assertDoesNotThrow(() -> new SaveGame(loaded).load(save));
+    }
+
+    @Test
+    public void testLoadRejectsOtherGames() {
+        GameEngine engine = buildEngine(new Map1(), buildGame());
+        ByteBuffer save = copy(new SaveGame(engine).save());
+        DetonatorCircle threePlayers = buildGame();
+        threePlayers.setPlayerCount3();
+        ByteBuffer truncated = save.duplicate().limit(save.limit() - 10);
+        ByteBuffer garbage = ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+
+        assertAll(
+            () -> assertThrows(IllegalArgumentException.class,
+                () -> new SaveGame(buildEngine(new Map2(), buildGame())).load(save.duplicate())),
+            () -> assertThrows(IllegalArgumentException.class,
+                () -> new SaveGame(buildEngine(new Map1(), threePlayers)).load(save.duplicate())),
+            () -> assertThrows(IllegalArgumentException.class,
+                () -> new SaveGame(buildEngine(new Map1(), buildGame())).load(truncated)),
+            () -> assertThrows(IllegalArgumentException.class,
+                () -> new SaveGame(buildEngine(new Map1(), buildGame())).load(garbage)),
+            () -> assertThrows(IllegalArgumentException.class, () -> SaveGame.prepare(buildGame(), garbage))
+        );
+    }
+
+    @Test
+    public void testAutoSave(@TempDir final Path dir) throws IOException, InterruptedException {
+        GameEngine engine = buildEngine(new Map1(), buildGame());
+        engine.setController(0, new BotController(1, 5));
+        engine.setController(1, new BotController(1, 6));
+        Path file = dir.resolve("autosave.dcs");
+        AutoSave autoSave = new AutoSave(engine, file, 30);
+        try {
+            for (int t = 0; t < 100 && !engine.isGameEnded(); ++t) {
+                engine.step(DELTA);
+                autoSave.update();
+                autoSave.flush();
+            }
+            assertEquals(4, autoSave.getSaveCount());
+
+            engine.step(DELTA);
+            assertTrue(autoSave.save());
+            autoSave.flush();
+            ByteBuffer expected = copy(new SaveGame(engine).save());
+            GameEngine loaded = buildEngine(new Map1(), buildGame());
+            SaveGame loadedSave = new SaveGame(loaded);
+            loadedSave.load(AutoSave.read(file));
+            assertEquals(expected, loadedSave.save());
+
+            Path quickSave = dir.resolve("quicksave.dcs");
+            assertTrue(autoSave.save(quickSave));
+            autoSave.delete();
+            assertAll(
+                () -> assertFalse(Files.exists(file)),
+                () -> assertTrue(Files.exists(quickSave)),
+                () -> assertNull(autoSave.getFailure())
+            );
+        } finally {
+            autoSave.dispose();
+        }
+    }
+
+    /**
+     * Saving a running game takes well under a millisecond, so that it can happen between two frames. Only run by the
+     * benchmark task.
+     */
+    @Test
+    @Tag("benchmark")
+    public void benchmarkSave() {
+        GameEngine engine = buildEngine(new Map1(), buildGame());
+        engine.setController(0, new BotController(1, 7));
+        engine.setController(1, new BotController(1, 8));
+        for (int t = 0; t < 120; ++t) {
+            engine.step(DELTA);
+        }
+        SaveGame saveGame = new SaveGame(engine);
+        int saves = 1000;
+        for (int i = 0; i < saves; ++i) {
+            saveGame.save();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < saves; ++i) {
+            saveGame.save();
+        }
+        long average = (System.nanoTime() - start) / saves;
+        assertTrue(average < 1_000_000, "saving must take less than a millisecond, took " + average / 1e6 + " ms");
+    }
+}
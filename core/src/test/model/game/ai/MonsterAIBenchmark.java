@@ -0,0 +1,51 @@
+package model.game.ai;
+
+import com.badlogic.gdx.math.Vector2;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import x3.model.game.ai.MonsterAI;
+import x3.model.game.grid.CellGrid;
+import x3.model.game.grid.DangerMap;
+import x3.model.game.grid.FlowField;
+import x3.model.game.objects.Monster;
+import x3.model.util.TickClock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Times the {@link MonsterAI} against the clock. Only run by the benchmark task.
+ */
+@Tag("benchmark")
+public class MonsterAIBenchmark {
+    private static final Vector2 STILL = new Vector2();
+
+    /**
+     * A tick of 100 monsters stays within the budget of the AI, whatever the number of queued path requests.
+     */
+    @Test
+    public void testThinkWithinBudget() {
+        CellGrid grid = new CellGrid(15, 15);
+        MonsterAI ai = new MonsterAI(grid, new FlowField(grid, 3), new DangerMap(grid, new TickClock()), 1f,
+            MonsterAI.DEFAULT_BUDGET);
+        List<Monster> monsters = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            Monster monster = new Monster();
+            monsters.add(monster);
+            ai.add(monster);
+        }
+        Vector2 pos = new Vector2();
+        for (int tick = 0; tick < 10 * MonsterAI.THINK_FREQUENCY; ++tick) {
+            for (int i = 0; i < monsters.size(); ++i) {
+                ai.steer(monsters.get(i), pos.set(i % 15, i / 15), STILL);
+            }
+            long start = System.nanoTime();
+            ai.think();
+            long nanos = System.nanoTime() - start;
+            // the budget is a few searches, leave room for a slow machine
+            assertTrue(nanos < 50_000_000L, "a tick took " + nanos / 1e6 + " ms");
+        }
+    }
+}
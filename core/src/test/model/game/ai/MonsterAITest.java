@@ -0,0 +1,190 @@
+package model.game.ai;
+
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.badlogic.gdx.math.Vector2;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import x3.model.game.ai.MonsterAI;
+import x3.model.game.ai.MonsterState;
+import x3.model.game.grid.*;
+import x3.model.game.objects.Monster;
+import x3.model.util.TickClock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MonsterAITest {
+    private static final Vector2 STILL = new Vector2();
+
+    private CellGrid grid;
+    private FlowField flowField;
+    private DangerMap dangerMap;
+    private MonsterAI ai;
+
+    @BeforeEach
+    public void beforeEach() {
+        grid = new CellGrid(15, 15);
+        flowField = new FlowField(grid, 3);
+        dangerMap = new DangerMap(grid, new TickClock());
+        ai = new MonsterAI(grid, flowField, dangerMap, 1f, MonsterAI.DEFAULT_BUDGET);
+    }
+
+    private void think(final Monster monster, final Vector2 pos) {
+        for (int tick = 0; tick < 2 * MonsterAI.THINK_FREQUENCY; ++tick) {
+            ai.think();
+            ai.steer(monster, pos, STILL);
+        }
+    }
+
+    @Test
+    public void testPathGoesAroundWalls() {
+        for (int row = 0; row < 14; ++row) {
+            grid.set(7, row, CellGrid.WALL);
+        }
+        CellGraph graph = new CellGraph(grid);
+        DefaultGraphPath<CellNode> path = new DefaultGraphPath<>();
+        boolean found = new IndexedAStarPathFinder<>(graph).searchNodePath(
+            graph.getNode(grid.index(0, 0)), graph.getNode(grid.index(14, 0)), graph.heuristic, path);
+
+        assertAll(
+            () -> assertTrue(found),
+            () -> assertEquals(14 + 2 * 14 + 1, path.getCount()),
+            () -> assertEquals(grid.index(7, 14), path.get(path.getCount() / 2).cell)
+        );
+        for (int i = 1; i < path.getCount(); ++i) {
+            int from = path.get(i - 1).cell;
+            int to = path.get(i).cell;
+            assertTrue(grid.isPassable(to));
+            assertEquals(1, Math.abs(grid.col(from) - grid.col(to)) + Math.abs(grid.row(from) - grid.row(to)));
+        }
+    }
+
+    @Test
+    public void testNoPathIntoClosedRoom() {
+        grid.set(1, 0, CellGrid.BOX);
+        grid.set(0, 1, CellGrid.WALL);
+        CellGraph graph = new CellGraph(grid);
+        DefaultGraphPath<CellNode> path = new DefaultGraphPath<>();
+        assertFalse(new IndexedAStarPathFinder<>(graph).searchNodePath(
+            graph.getNode(grid.index(0, 0)), graph.getNode(grid.index(5, 5)), graph.heuristic, path));
+    }
+
+    @ParameterizedTest
+    @CsvSource(textBlock = """
+            false, false, PATROL
+            false, true,  CHASE
+            true,  false, FLEE
+            true,  true,  FLEE
+            """)
+    public void testStateSelection(boolean bomb, boolean player, MonsterState expected) {
+        Monster monster = new Monster();
+        ai.add(monster);
+        if (bomb) {
+            dangerMap.addBomb(grid.index(8, 7), 2, 10);
+        }
+        if (player) {
+            flowField.setSource(0, grid.index(7, 10));
+        }
+
+        assertEquals(MonsterState.PATROL, ai.getState(monster));
+        think(monster, new Vector2(7.5f, 7.5f));
+        assertEquals(expected, ai.getState(monster));
+    }
+
+    @Test
+    public void testChaseLeadsTowardsPlayer() {
+        Monster monster = new Monster();
+        ai.add(monster);
+        flowField.setSource(0, grid.index(7, 10));
+        think(monster, new Vector2(7.5f, 7.5f));
+
+        assertAll(
+            () -> assertEquals(0, monster.direction.x, 0.001f),
+            () -> assertTrue(monster.direction.y > 0)
+        );
+    }
+
+    @Test
+    public void testFleeLeavesBlast() {
+        Monster monster = new Monster();
+        ai.add(monster);
+        dangerMap.addBomb(grid.index(7, 8), 3, 10);
+        think(monster, new Vector2(7.5f, 7.5f));
+
+        assertAll(
+            () -> assertEquals(0, monster.direction.y, 0.001f),
+            () -> assertNotEquals(0, monster.direction.x, 0.001f)
+        );
+    }
+
+    @Test
+    public void testPathRequestsDrainWithinBudget() {
+        List<Monster> monsters = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            Monster monster = new Monster();
+            monsters.add(monster);
+            ai.add(monster);
+        }
+        Vector2 pos = new Vector2();
+        for (int tick = 0; tick < 10 * MonsterAI.THINK_FREQUENCY; ++tick) {
+            for (int i = 0; i < monsters.size(); ++i) {
+                ai.steer(monsters.get(i), pos.set(i % 15, i / 15), STILL);
+            }
+            ai.think();
+            assertTrue(ai.getQueuedPaths() <= monsters.size());
+        }
+        for (int tick = 0; tick < 1000 && ai.getQueuedPaths() > 0; ++tick) {
+            ai.think();
+        }
+        assertEquals(0, ai.getQueuedPaths());
+    }
+
+    @Test
+    public void testDeadMonsterIsRemoved() {
+        Monster monster = new Monster();
+        ai.add(monster);
+        monster.markDead();
+        ai.remove(monster);
+        think(monster, new Vector2(7.5f, 7.5f));
+        assertNull(ai.getState(monster));
+    }
+
+    /**
+     * Dead monsters drop their queued path requests, and a revived monster thinks again.
+     */
+    @Test
+    public void testDeadMonstersAreUnscheduled() {
+        List<Monster> monsters = new ArrayList<>();
+        for (int i = 0; i < 40; ++i) {
+            Monster monster = new Monster();
+            monsters.add(monster);
+            ai.add(monster);
+        }
+        Vector2 pos = new Vector2();
+        for (int tick = 0; tick < MonsterAI.THINK_FREQUENCY; ++tick) {
+            for (int i = 0; i < monsters.size(); ++i) {
+                ai.steer(monsters.get(i), pos.set(i % 15 + 0.5f, i / 15 + 0.5f), STILL);
+            }
+            ai.think();
+        }
+        assertTrue(ai.getQueuedPaths() > 0);
+
+        for (Monster monster : monsters) {
+            monster.markDead();
+            ai.remove(monster);
+        }
+        assertEquals(0, ai.getQueuedPaths());
+
+        Monster revived = monsters.get(0);
+        revived.revive();
+        ai.revive(revived);
+        flowField.setSource(0, grid.index(7, 10));
+        think(revived, new Vector2(7.5f, 7.5f));
+        assertEquals(MonsterState.CHASE, ai.getState(revived));
+    }
+}
@@ -0,0 +1,151 @@
+package model.game.control;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import x3.DetonatorCircle;
+import x3.model.game.GameEngine;
+import x3.model.game.control.BotPlanner;
+import x3.model.game.control.BotView;
+import x3.model.game.control.ExternalController;
+import x3.model.game.control.PlayerController;
+import x3.model.game.grid.CellGrid;
+import x3.model.game.grid.DangerMap;
+import x3.model.game.objects.Player;
+import x3.model.map.Map2;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BotPlannerTest {
+    private static final long BUDGET = 1_000_000_000L;
+    private static final int ROLLOUTS = 600;
+    private static final int STEP = 20;
+
+    private BotView view;
+    private CellGrid grid;
+    private BotPlanner planner;
+
+    @BeforeEach
+    public void beforeEach() {
+        view = new BotView(15, 7);
+        grid = view.getGrid();
+        planner = new BotPlanner(42);
+    }
+
+    private void wallOff(int... openCells) {
+        for (int cell = 0; cell < grid.size(); ++cell) {
+            grid.set(grid.col(cell), grid.row(cell), CellGrid.WALL);
+        }
+        for (int i = 0; i < openCells.length; i += 2) {
+            grid.set(openCells[i], openCells[i + 1], CellGrid.EMPTY);
+        }
+    }
+
+    @Test
+    public void testEscapesBlast() {
+        for (int col = 0; col < grid.getWidth(); ++col) {
+            view.setBlastTicks(grid.index(col, 3), 40);
+        }
+        view.setSelf(grid.index(3, 3), 2, false, STEP);
+
+        int option = planner.plan(view, BUDGET, ROLLOUTS);
+        assertTrue(option == BotPlanner.MOVE_UP || option == BotPlanner.MOVE_DOWN, "option " + option);
+    }
+
+    @Test
+    public void testBombsBoxWithEscape() {
+        wallOff(1, 1, 1, 2, 1, 3, 2, 3);
+        grid.set(2, 1, CellGrid.BOX);
+        view.setSelf(grid.index(1, 1), 1, true, STEP);
+
+        assertEquals(BotPlanner.PLACE_BOMB, planner.plan(view, BUDGET, ROLLOUTS));
+    }
+
+    @Test
+    public void testNoBombInDeadEnd() {
+        wallOff(1, 1);
+        grid.set(2, 1, CellGrid.BOX);
+        view.setSelf(grid.index(1, 1), 1, true, STEP);
+
+        assertEquals(BotPlanner.STAY, planner.plan(view, BUDGET, ROLLOUTS));
+    }
+
+    @Test
+    public void testNoBombWhenCellHasBomb() {
+        wallOff(1, 1, 1, 2, 1, 3, 2, 3);
+        grid.set(2, 1, CellGrid.BOX);
+        view.addBomb(grid.index(1, 1));
+        view.setSelf(grid.index(1, 1), 1, true, STEP);
+
+        assertNotEquals(BotPlanner.PLACE_BOMB, planner.plan(view, BUDGET, ROLLOUTS));
+    }
+
+    @Test
+    public void testApproachesOpponent() {
+        view.addOpponent(grid.index(14, 3));
+        view.setSelf(grid.index(0, 3), 2, false, STEP);
+
+        int option = planner.plan(view, BUDGET, ROLLOUTS);
+        assertAll(
+            () -> assertEquals(BotPlanner.MOVE_RIGHT, option),
+            () -> assertEquals(grid.index(1, 3), BotPlanner.target(view, option))
+        );
+    }
+
+    @Test
+    public void testAvoidsMonster() {
+        wallOff(1, 1, 2, 1, 3, 1);
+        view.addMonster(grid.index(3, 1));
+        view.addOpponent(grid.index(3, 1));
+        view.setSelf(grid.index(1, 1), 1, false, STEP);
+
+        assertEquals(BotPlanner.STAY, planner.plan(view, BUDGET, ROLLOUTS));
+    }
+
+    @Test
+    public void testBudgetStopsSearch() {
+        view.setSelf(grid.index(7, 3), 2, true, STEP);
+        planner.plan(view, 0, Integer.MAX_VALUE);
+
+        assertAll(
+            () -> assertTrue(planner.getRollouts() > 0),
+            () -> assertTrue(planner.getRollouts() <= 6)
+        );
+    }
+
+    /**
+     * A captured view holds the bombs of the danger map, and its blasts relative to the tick it was captured in.
+     */
+    @Test
+    public void testCapture() {
+        DetonatorCircle game = new DetonatorCircle(0, 0);
+        game.setPlayerCount2();
+        game.wonRounds = new int[3];
+        GameEngine engine = new GameEngine(game, new Map2(), 5);
+        ExternalController bomber = new ExternalController();
+        engine.setController(0, bomber);
+        engine.setController(1, new ExternalController());
+        bomber.setInput(PlayerController.BOMB);
+        for (int tick = 0; tick < 30; ++tick) {
+            engine.step(1 / 60f);
+        }
+        Player player = engine.getPlayers().findFirst().orElseThrow();
+        BotView captured = new BotView(engine.getGrid().getWidth(), engine.getGrid().getHeight());
+        captured.setBlastTicks(0, 5);
+        captured.capture(engine, player);
+
+        DangerMap dangerMap = engine.getDangerMap();
+        int bombs = 0;
+        for (int cell = 0; cell < captured.getGrid().size(); ++cell) {
+            int blast = dangerMap.getBlastTick(cell);
+            assertEquals(blast == DangerMap.SAFE ? BotView.SAFE : blast - engine.getTick(), captured.getBlastTicks(cell));
+            assertEquals(dangerMap.getBombTick(cell) != DangerMap.SAFE, captured.isBomb(cell));
+            bombs += captured.isBomb(cell) ? 1 : 0;
+        }
+        assertEquals(1, bombs);
+        assertAll(
+            () -> assertEquals(1, captured.getOpponentCount()),
+            () -> assertEquals(engine.getCell(player), captured.getSelf())
+        );
+        engine.dispose();
+    }
+}
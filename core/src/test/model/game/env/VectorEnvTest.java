@@ -0,0 +1,122 @@
+package model.game.env;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import x3.model.game.GameEngine;
+import x3.model.game.control.PlayerController;
+import x3.model.game.env.VectorEnv;
+import x3.model.map.Map1;
+import x3.model.util.Pair;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VectorEnvTest {
+    private VectorEnv env;
+
+    @AfterEach
+    public void afterEach() {
+        if (env != null) {
+            env.dispose();
+        }
+    }
+
+    private int cellOf(int col, int row) {
+        return row * env.getWidth() + col;
+    }
+
+    @Test
+    public void testInitialObservation() {
+        env = new VectorEnv(2, 2, Map1::new, 1, 1000, 1);
+        short[] obs = env.getObservations();
+        Map1 map = new Map1();
+        List<Pair> walls = map.getWalls().toList();
+
+        int wallCount = 0;
+        int monsterCount = 0;
+        int playerCells = 0;
+        for (int cell = 0; cell < env.getWidth() * env.getHeight(); ++cell) {
+            wallCount += obs[env.index(1, VectorEnv.WALLS, cell)];
+            monsterCount += obs[env.index(1, VectorEnv.MONSTERS, cell)];
+            playerCells += obs[env.index(1, VectorEnv.PLAYERS, cell)] != 0 ? 1 : 0;
+        }
+        int finalWallCount = wallCount;
+        int finalMonsterCount = monsterCount;
+        int finalPlayerCells = playerCells;
+        assertAll(
+            () -> assertEquals(walls.size(), finalWallCount),
+            () -> assertEquals(1, obs[env.index(0, VectorEnv.WALLS, cellOf(0, 0))]),
+            () -> assertEquals(1, obs[env.index(0, VectorEnv.WALLS, cellOf(2, 2))]),
+            () -> assertEquals(0, obs[env.index(0, VectorEnv.WALLS, cellOf(1, 1))]),
+            () -> assertEquals(map.getMonsterCount(), finalMonsterCount),
+            () -> assertEquals(2, finalPlayerCells),
+            () -> assertEquals(1, env.getPlayerFeatures()[0]),
+            () -> assertEquals(1, env.getPlayerFeatures()[1]),
+            () -> assertEquals(2, env.getPlayerFeatures()[2])
+        );
+    }
+
+    @ParameterizedTest
+    @CsvSource(textBlock = """
+            1,
+            4
+            """)
+    public void testStepReusesBuffers(int threads) {
+        env = new VectorEnv(4, 3, Map1::new, 2, 10_000, threads);
+        short[] obs = env.getObservations();
+        float[] rewards = env.getRewards();
+        boolean[] dones = env.getDones();
+        int[] actions = new int[env.getEnvCount() * env.getPlayerCount()];
+
+        for (int step = 0; step < 50; ++step) {
+            actions[step % actions.length] = PlayerController.UP | PlayerController.RIGHT;
+            env.step(actions);
+        }
+        assertAll(
+            () -> assertSame(obs, env.getObservations()),
+            () -> assertSame(rewards, env.getRewards()),
+            () -> assertSame(dones, env.getDones()),
+            () -> assertEquals(100, env.getEngine(3).getTick())
+        );
+    }
+
+    @Test
+    public void testBombIsObserved() {
+        env = new VectorEnv(1, 2, Map1::new, 1, 1000, 1);
+        GameEngine engine = env.getEngine(0);
+        int cell = engine.getCell(engine.getPlayer(0));
+
+        env.step(new int[] { PlayerController.BOMB, 0 });
+        short[] obs = env.getObservations();
+        assertAll(
+            () -> assertTrue(obs[env.index(0, VectorEnv.BOMBS, cell)] > 100),
+            () -> assertTrue(obs[env.index(0, VectorEnv.DANGER, cell)] > 100),
+            () -> assertEquals(0, env.getPlayerFeatures()[1])
+        );
+    }
+
+    @Test
+    public void testTruncatedRoundResets() {
+        env = new VectorEnv(1, 2, Map1::new, 5, 10, 1);
+        int[] actions = new int[2];
+        env.step(actions);
+        GameEngine first = env.getEngine(0);
+        assertFalse(env.getDones()[0]);
+
+        env.step(actions);
+        assertAll(
+            () -> assertTrue(env.getDones()[0]),
+            () -> assertNotSame(first, env.getEngine(0)),
+            () -> assertEquals(0, env.getEngine(0).getTick())
+        );
+    }
+
+    @Test
+    public void testActionCountIsChecked() {
+        env = new VectorEnv(2, 2, Map1::new, 1, 1000, 1);
+        assertThrows(IllegalArgumentException.class, () -> env.step(new int[3]));
+    }
+}
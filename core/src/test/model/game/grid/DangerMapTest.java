@@ -0,0 +1,104 @@
+package model.game.grid;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import x3.model.game.grid.CellGrid;
+import x3.model.game.grid.DangerMap;
+import x3.model.util.TickClock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DangerMapTest {
+    private static final int SPREAD = 6;
+
+    private CellGrid grid;
+    private TickClock clock;
+    private DangerMap danger;
+
+    @BeforeEach
+    public void beforeEach() {
+        grid = new CellGrid(9, 9);
+        clock = new TickClock();
+        danger = new DangerMap(grid, clock);
+    }
+
+    @ParameterizedTest
+    @CsvSource(textBlock = """
+            4, 4, 100,
+            5, 4, 106,
+            6, 4, 112,
+            4, 6, 112,
+            4, 2, 112,
+            7, 4, -1,
+            5, 5, -1
+            """)
+    public void testAddBomb(int col, int row, int expected) {
+        danger.addBomb(grid.index(4, 4), 2, 100);
+        int tick = danger.getBlastTick(grid.index(col, row));
+        assertEquals(expected == -1 ? DangerMap.SAFE : expected, tick);
+    }
+
+    @Test
+    public void testWallsAndBoxesStopRays() {
+        grid.set(5, 4, CellGrid.WALL);
+        grid.set(3, 4, CellGrid.BOX);
+        danger.addBomb(grid.index(4, 4), 3, 100);
+
+        assertAll(
+            () -> assertEquals(DangerMap.SAFE, danger.getBlastTick(grid.index(5, 4))),
+            () -> assertEquals(100 + SPREAD, danger.getBlastTick(grid.index(3, 4))),
+            () -> assertEquals(DangerMap.SAFE, danger.getBlastTick(grid.index(2, 4)))
+        );
+
+        grid.clearBox(grid.index(3, 4));
+        danger.openCell(grid.index(3, 4));
+
+        assertAll(
+            () -> assertEquals(100 + 2 * SPREAD, danger.getBlastTick(grid.index(2, 4))),
+            () -> assertEquals(100 + 3 * SPREAD, danger.getBlastTick(grid.index(1, 4)))
+        );
+    }
+
+    @Test
+    public void testChainReaction() {
+        danger.addBomb(grid.index(1, 1), 2, 300);
+        danger.addBomb(grid.index(3, 1), 2, 100);
+
+        assertAll(
+            () -> assertEquals(100 + 2 * SPREAD + 1, danger.getBombTick(grid.index(1, 1))),
+            () -> assertEquals(100 + 2 * SPREAD, danger.getBlastTick(grid.index(1, 1))),
+            () -> assertEquals(100 + 2 * SPREAD + 1 + 2 * SPREAD, danger.getBlastTick(grid.index(1, 3)))
+        );
+    }
+
+    @Test
+    public void testForceBlow() {
+        danger.addBomb(grid.index(4, 4), 1, 120);
+        danger.forceBlow(grid.index(4, 4), 50);
+
+        assertAll(
+            () -> assertEquals(50, danger.getBlastTick(grid.index(4, 4))),
+            () -> assertEquals(50 + SPREAD, danger.getBlastTick(grid.index(4, 5)))
+        );
+    }
+
+    @Test
+    public void testExpiredBlastsAreSafe() {
+        danger.addBomb(grid.index(4, 4), 1, 5);
+        for (int i = 0; i < 5; ++i) {
+            clock.advance();
+        }
+        assertTrue(danger.isDangerous(grid.index(4, 4), 0));
+        assertTrue(danger.isDangerous(grid.index(4, 5), SPREAD));
+        assertFalse(danger.isDangerous(grid.index(4, 5), SPREAD - 1));
+
+        clock.advance();
+        danger.removeBomb(grid.index(4, 4));
+        assertEquals(DangerMap.SAFE, danger.getBlastTick(grid.index(4, 4)));
+
+        danger.addBomb(grid.index(4, 4), 1, 200);
+        assertEquals(200, danger.getBlastTick(grid.index(4, 4)));
+    }
+}
@@ -0,0 +1,159 @@
+package model.game.grid;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import x3.model.game.grid.CellGrid;
+import x3.model.game.grid.FlowField;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlowFieldTest {
+    private CellGrid grid;
+    private FlowField field;
+
+    @BeforeEach
+    public void beforeEach() {
+        grid = new CellGrid(7, 5);
+        field = new FlowField(grid, 3);
+    }
+
+    private int[] expectedDistances(int... sources) {
+        int[] dist = new int[grid.size()];
+        Arrays.fill(dist, FlowField.UNREACHABLE);
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int source : sources) {
+            if (source != -1) {
+                dist[source] = 0;
+                queue.add(source);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int cell = queue.remove();
+            int col = grid.col(cell);
+            int row = grid.row(cell);
+            for (int next : new int[] {
+                grid.index(col + 1, row), grid.index(col - 1, row), grid.index(col, row + 1), grid.index(col, row - 1)
+            }) {
+                if (next != -1 && grid.isPassable(next) && dist[next] > dist[cell] + 1) {
+                    dist[next] = dist[cell] + 1;
+                    queue.add(next);
+                }
+            }
+        }
+        return dist;
+    }
+
+    private int[] actualDistances() {
+        int[] dist = new int[grid.size()];
+        for (int cell = 0; cell < grid.size(); ++cell) {
+            dist[cell] = field.getDistance(cell);
+        }
+        return dist;
+    }
+
+    @Test
+    public void testEmptyField() {
+        assertAll(
+            () -> assertEquals(FlowField.UNREACHABLE, field.getDistance(0)),
+            () -> assertEquals(-1, field.nextCell(0))
+        );
+    }
+
+    @ParameterizedTest
+    @CsvSource(textBlock = """
+            0, 0, 0,
+            3, 2, 5,
+            6, 4, 10,
+            6, 0, 6,
+            0, 4, 4
+            """)
+    public void testSingleSource(int col, int row, int distanceToOrigin) {
+        field.setSource(0, grid.index(col, row));
+        assertAll(
+            () -> assertEquals(0, field.getDistance(grid.index(col, row))),
+            () -> assertEquals(distanceToOrigin, field.getDistance(grid.index(0, 0))),
+            () -> assertEquals(0, field.getOwner(grid.index(0, 0)))
+        );
+    }
+
+    @Test
+    public void testWallsBlockAndBoxOpens() {
+        for (int row = 0; row < grid.getHeight(); ++row) {
+            grid.set(3, row, CellGrid.WALL);
+        }
+        grid.set(3, 2, CellGrid.BOX);
+        field.setSource(0, grid.index(0, 2));
+
+        assertEquals(FlowField.UNREACHABLE, field.getDistance(grid.index(6, 2)));
+
+        grid.clearBox(grid.index(3, 2));
+        field.openCell(grid.index(3, 2));
+
+        assertAll(
+            () -> assertEquals(6, field.getDistance(grid.index(6, 2))),
+            () -> assertEquals(grid.index(4, 2), field.nextCell(grid.index(5, 2))),
+            () -> assertArrayEquals(expectedDistances(grid.index(0, 2)), actualDistances())
+        );
+    }
+
+    @Test
+    public void testRemoveSource() {
+        field.setSource(0, grid.index(0, 0));
+        field.setSource(1, grid.index(6, 4));
+        field.removeSource(0);
+
+        assertAll(
+            () -> assertEquals(-1, field.getSource(0)),
+            () -> assertEquals(10, field.getDistance(grid.index(0, 0))),
+            () -> assertArrayEquals(expectedDistances(grid.index(6, 4)), actualDistances())
+        );
+    }
+
+    @ParameterizedTest
+    @CsvSource(textBlock = """
+            1,
+            7,
+            42
+            """)
+    public void testIncrementalMatchesRecompute(long seed) {
+        Random random = new Random(seed);
+        grid = new CellGrid(15, 15);
+        for (int cell = 0; cell < grid.size(); ++cell) {
+            int roll = random.nextInt(10);
+            grid.set(grid.col(cell), grid.row(cell), roll < 2 ? CellGrid.WALL : roll < 4 ? CellGrid.BOX : CellGrid.EMPTY);
+        }
+        field = new FlowField(grid, 3);
+        int[] sources = { -1, -1, -1 };
+
+        for (int step = 0; step < 200; ++step) {
+            int cell = random.nextInt(grid.size());
+            int id = random.nextInt(3);
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    if (grid.isPassable(cell)) {
+                        field.setSource(id, cell);
+                        sources[id] = cell;
+                    }
+                }
+                case 1 -> {
+                    field.removeSource(id);
+                    sources[id] = -1;
+                }
+                default -> {
+                    if (grid.isBox(cell)) {
+                        grid.clearBox(cell);
+                        field.openCell(cell);
+                    }
+                }
+            }
+            assertArrayEquals(expectedDistances(sources), actualDistances(), "step " + step);
+        }
+    }
+}
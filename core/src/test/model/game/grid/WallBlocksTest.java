@@ -0,0 +1,173 @@
+package model.game.grid;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.World;
+import org.junit.jupiter.api.Test;
+import x3.DetonatorCircle;
+import x3.model.game.GameEngine;
+import x3.model.game.grid.CellGrid;
+import x3.model.game.grid.WallBlocks;
+import x3.model.game.objects.Player;
+import x3.model.game.suppliers.BodyFactory;
+import x3.model.map.GameMap;
+import x3.model.map.Map1;
+import x3.model.map.Map2;
+import x3.model.map.Map3;
+import x3.model.map.ProceduralMap;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static x3.model.util.CollisionFilters.*;
+
+public class WallBlocksTest {
+    private static final float PPM = 5;
+
+    private static CellGrid grid(final String... rows) {
+        CellGrid grid = new CellGrid(rows[0].length(), rows.length);
+        for (int r = 0; r < rows.length; ++r) {
+            for (int col = 0; col < rows[r].length(); ++col) {
+                if (rows[r].charAt(col) == '#') {
+                    // the first line is the highest row
+                    grid.set(col, rows.length - 1 - r, CellGrid.WALL);
+                }
+            }
+        }
+        return grid;
+    }
+
+    private static void assertCovered(final CellGrid grid, final List<int[]> blocks, int colMin, int rowMin, int colMax,
+                                      int rowMax) {
+        int[] covers = new int[grid.size()];
+        for (int[] block : blocks) {
+            assertTrue(block[0] >= colMin && block[0] + block[2] <= colMax);
+            assertTrue(block[1] >= rowMin && block[1] + block[3] <= rowMax);
+            for (int row = block[1]; row < block[1] + block[3]; ++row) {
+                for (int col = block[0]; col < block[0] + block[2]; ++col) {
+                    ++covers[grid.index(col, row)];
+                }
+            }
+        }
+        for (int row = rowMin; row < rowMax; ++row) {
+            for (int col = colMin; col < colMax; ++col) {
+                int cell = grid.index(col, row);
+                assertEquals(grid.isWall(cell) ? 1 : 0, covers[cell], "cell " + col + ", " + row);
+            }
+        }
+    }
+
+    @Test
+    public void testShapes() {
+        List<int[]> blocks = WallBlocks.merge(grid(
+            "#####",
+            "#...#",
+            "#...#",
+            "#####"
+        ));
+        assertEquals(4, blocks.size());
+        assertArrayEquals(new int[] {0, 0, 5, 1}, blocks.get(0));
+        assertArrayEquals(new int[] {0, 1, 1, 3}, blocks.get(1));
+
+        blocks = WallBlocks.merge(grid(
+            "##.",
+            "##.",
+            "###"
+        ));
+        assertEquals(2, blocks.size());
+        assertArrayEquals(new int[] {0, 0, 3, 1}, blocks.get(0));
+        assertArrayEquals(new int[] {0, 1, 2, 2}, blocks.get(1));
+
+        assertTrue(WallBlocks.merge(grid("...", ".B.")).isEmpty());
+    }
+
+    /**
+     * The blocks cover every wall exactly once, and nothing else, on the whole grid and on every chunk of it.
+     */
+    @Test
+    public void testCoverage() {
+        for (GameMap map : List.of(new Map1(), new Map2(), new Map3(), new ProceduralMap(4, 70, 50, 0.35f, 0.3f, 0))) {
+            CellGrid grid = new CellGrid(map);
+            assertCovered(grid, WallBlocks.merge(grid), 0, 0, grid.getWidth(), grid.getHeight());
+            for (int row = 0; row < grid.getHeight(); row += 16) {
+                for (int col = 0; col < grid.getWidth(); col += 16) {
+                    int colMax = Math.min(col + 16, grid.getWidth());
+                    int rowMax = Math.min(row + 16, grid.getHeight());
+                    assertCovered(grid, WallBlocks.merge(grid, col, row, colMax, rowMax), col, row, colMax, rowMax);
+                }
+            }
+        }
+    }
+
+    private static Body[] buildWorld(final BodyFactory factory, final GameMap map, boolean merged) {
+        if (merged) {
+            WallBlocks.merge(new CellGrid(map)).forEach(factory::buildWalls);
+        } else {
+            map.getWalls().forEach(factory::buildWall);
+        }
+        Body[] players = new Body[2];
+        int[] i = {0};
+        map.getPlayerSpawns(2).forEach(pair -> {
+            players[i[0]] = factory.buildPlayer(pair, i[0], i[0] == 0 ? PLAYER_1 : PLAYER_2, (short) (WALL | ALL_PLAYERS));
+            ++i[0];
+        });
+        return players;
+    }
+
+    /**
+     * The merged walls take a fraction of the broadphase proxies, and players walking into them with the same inputs
+     * end up in the same places as with a box per wall.
+     */
+    @Test
+    public void testCollisions() {
+        DetonatorCircle game = new DetonatorCircle(0, 0);
+        Map2 map = new Map2();
+        World cellWorld = new World(new Vector2(0, 0), true);
+        World blockWorld = new World(new Vector2(0, 0), true);
+        float size = PPM * GameEngine.MOVING_SIZE;
+        BodyFactory cellFactory = new BodyFactory(game, cellWorld, PPM, size, PPM / 2);
+        BodyFactory blockFactory = new BodyFactory(game, blockWorld, PPM, size, PPM / 2);
+        try {
+            Body[] cellPlayers = buildWorld(cellFactory, map, false);
+            Body[] blockPlayers = buildWorld(blockFactory, map, true);
+            int cellProxies = cellWorld.getProxyCount() - 2;
+            int blockProxies = blockWorld.getProxyCount() - 2;
+            assertTrue(blockProxies * 3 < cellProxies, blockProxies + " merged proxies, " + cellProxies + " per cell");
+
+            Random random = new Random(6);
+            int[] directions = new int[2];
+            for (int tick = 0; tick < 1800; ++tick) {
+                for (int p = 0; p < 2; ++p) {
+                    if (tick % 30 == 0) {
+                        directions[p] = random.nextInt(4);
+                    }
+                    push(cellPlayers[p], directions[p]);
+                    push(blockPlayers[p], directions[p]);
+                }
+                cellWorld.step(1 / 60f, 6, 2);
+                blockWorld.step(1 / 60f, 6, 2);
+            }
+            for (int p = 0; p < 2; ++p) {
+                assertEquals(cellPlayers[p].getPosition().x, blockPlayers[p].getPosition().x, PPM / 20);
+                assertEquals(cellPlayers[p].getPosition().y, blockPlayers[p].getPosition().y, PPM / 20);
+            }
+        } finally {
+            cellFactory.dispose();
+            blockFactory.dispose();
+            cellWorld.dispose();
+            blockWorld.dispose();
+        }
+    }
+
+    private static void push(final Body body, int direction) {
+        float speed = ((Player) body.getUserData()).moveSpeed;
+        Vector2 pos = body.getPosition();
+        switch (direction) {
+            case 0 -> body.applyLinearImpulse(speed, 0, pos.x, pos.y, true);
+            case 1 -> body.applyLinearImpulse(0, speed, pos.x, pos.y, true);
+            case 2 -> body.applyLinearImpulse(-speed, 0, pos.x, pos.y, true);
+            default -> body.applyLinearImpulse(0, -speed, pos.x, pos.y, true);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package model.map;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import x3.model.map.EditableMap;
+import x3.model.map.FileGameMap;
+import x3.model.map.GameMap;
+import x3.model.map.Map2;
+import x3.model.map.ProceduralMap;
+import x3.model.map.Reachability;
+import x3.model.util.Pair;
+import x3.model.util.exception.MapConstructionException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EditableMapTest {
+    /**
+     * Gives the tests the full checks of the map, to compare with the ones kept up to date.
+     */
+    private static class CheckedMap extends EditableMap {
+        CheckedMap(final GameMap map) {
+            super(map);
+        }
+
+        MapConstructionException fullCheck() {
+            try {
+                check();
+                return null;
+            } catch (MapConstructionException e) {
+                return e;
+            }
+        }
+    }
+
+    @Test
+    public void testEdits() {
+        EditableMap map = new EditableMap(9, 7);
+        assertTrue(map.isValid());
+        assertTrue(map.isWall(0, 3));
+        assertFalse(map.setWall(0, 3));
+        assertFalse(map.setWall(9, 3));
+        assertFalse(map.addPlayerSpawn(-1, 2));
+
+        map.addPlayerSpawn(1, 1);
+        map.addPlayerSpawn(7, 5);
+        assertTrue(map.isValid());
+
+        // a wall across the map seals one spawn off
+        for (int row = 1; row < 6; ++row) {
+            map.setWall(4, row);
+        }
+        assertEquals(List.of(Pair.of(7, 5)), map.getSealedSpawns());
+        assertFalse(map.isValid());
+        map.setBox(4, 3);
+        assertTrue(map.getSealedSpawns().isEmpty());
+
+        // a spawn painted over
+        map.setWall(1, 1);
+        assertEquals(List.of(Pair.of(1, 1)), map.getOverlaps());
+        assertEquals(2, map.getProblems().size());
+        map.setFloor(1, 1);
+        assertTrue(map.getOverlaps().isEmpty());
+        map.addMonsterSpawn(7, 5);
+        assertEquals(List.of(Pair.of(7, 5)), map.getOverlaps());
+        assertTrue(map.removeSpawns(7, 5));
+        assertFalse(map.isPlayerSpawn(7, 5));
+        map.addPlayerSpawn(7, 5);
+
+        map.setBuffCount(1);
+        map.setDebuffCount(1);
+        assertEquals(List.of("Not enough boxes (=1) to store all effects (=2)."), map.getProblems());
+        map.setBox(6, 5);
+        assertTrue(map.isValid());
+    }
+
+    @Test
+    public void testSave(@TempDir Path dir) throws IOException {
+        EditableMap map = new EditableMap(new Map2());
+        assertTrue(map.isValid());
+        assertEquals(new Map2().layoutHash(), map.layoutHash());
+
+        Pair box = map.getBoxes().findFirst().orElseThrow();
+        map.setFloor(box.col, box.row);
+        Path file = dir.resolve("edited" + FileGameMap.EXTENSION);
+        map.save("edited", file);
+        FileGameMap saved = new FileGameMap(file).load();
+        assertEquals(map.layoutHash(), saved.layoutHash());
+        assertEquals(map.getBuffCount(), saved.getBuffCount());
+
+        map.addPlayerSpawn(0, 0);
+        assertThrows(MapConstructionException.class, () -> map.save("broken", dir.resolve("broken.map")));
+    }
+
+    /**
+     * After any edit, the checks kept up to date agree with the full checks, and the regions with the ones of
+     * {@link Reachability}.
+     */
+    @Test
+    public void testMatchesFullCheck() {
+        Random random = new Random(50);
+        CheckedMap map = new CheckedMap(new ProceduralMap(50, 24, 20, 0.3f, 0.3f, 2));
+        for (int edit = 0; edit < 3000; ++edit) {
+            int col = random.nextInt(map.getMapWidth() + 2) - 1;
+            int row = random.nextInt(map.getMapHeight() + 2) - 1;
+            switch (random.nextInt(20)) {
+                case 0 -> map.addPlayerSpawn(col, row);
+                case 1 -> map.addMonsterSpawn(col, row);
+                case 2, 3 -> map.removeSpawns(col, row);
+                case 4, 5, 6 -> map.setBox(col, row);
+                case 7, 8, 9, 10, 11 -> map.setFloor(col, row);
+                default -> map.setWall(col, row);
+            }
+            if (edit % 10 == 0) {
+                assertMatches(map);
+            }
+        }
+    }
+
+    private static void assertMatches(final CheckedMap map) {
+        Reachability reachability = new Reachability(map);
+        Map<Integer, Integer> labels = new HashMap<>();
+        Map<Integer, Integer> reverse = new HashMap<>();
+        for (int row = 0; row < map.getMapHeight(); ++row) {
+            for (int col = 0; col < map.getMapWidth(); ++col) {
+                int region = map.getRegion(col, row);
+                int expected = reachability.getRegion(col, row);
+                assertEquals(expected == Reachability.NONE, region == Reachability.NONE);
+                assertEquals(expected, (int) labels.computeIfAbsent(region, key -> expected));
+                assertEquals(region, (int) reverse.computeIfAbsent(expected, key -> region));
+            }
+        }
+        List<Pair> spawns = map.getPlayerSpawns(Integer.MAX_VALUE).toList();
+        assertEquals(Arrays.stream(reachability.getSealedSpawns()).mapToObj(spawns::get).toList(),
+            map.getSealedSpawns());
+
+        MapConstructionException failure = map.fullCheck();
+        assertEquals(failure == null, map.isValid(), () -> failure + " / " + map.getProblems());
+        if (failure != null) {
+            assertTrue(failure.getCells().containsAll(map.getOverlaps()));
+        }
+    }
+
+    private static void edit(final CheckedMap map, final Random random) {
+        int col = random.nextInt(256);
+        int row = random.nextInt(256);
+        if (random.nextBoolean()) {
+            map.setWall(col, row);
+        } else {
+            map.setFloor(col, row);
+        }
+        map.getProblems();
+    }
+
+    /**
+     * After many random edits of a 256x256 map, the checks still match a full check.
+     */
+    @Test
+    public void testLargeMap() {
+        CheckedMap map = new CheckedMap(new ProceduralMap(51, 256, 256, 0.25f, 0.3f, 4));
+        Random random = new Random(51);
+        for (int edit = 0; edit < 20000; ++edit) {
+            edit(map, random);
+        }
+        assertMatches(map);
+    }
+
+    /**
+     * Edits of a 256x256 map take a fraction of the time of checking it in full. Only run by the benchmark task.
+     */
+    @Test
+    @Tag("benchmark")
+    public void benchmarkEdits() {
+        CheckedMap map = new CheckedMap(new ProceduralMap(51, 256, 256, 0.25f, 0.3f, 4));
+        Random random = new Random(51);
+        long fullCheck = Long.MAX_VALUE;
+        for (int run = 0; run < 3; ++run) {
+            long start = System.nanoTime();
+            map.fullCheck();
+            fullCheck = Math.min(fullCheck, System.nanoTime() - start);
+        }
+
+        int edits = 20000;
+        long start = System.nanoTime();
+        for (int edit = 0; edit < edits; ++edit) {
+            edit(map, random);
+        }
+        long total = System.nanoTime() - start;
+        assertTrue(total / edits * 20 < fullCheck,
+            total / 1e6 / edits + " ms per edit and its checks, full check " + fullCheck / 1e6 + " ms");
+    }
+}
@@ -1,5 +1,6 @@
 package model.map;
 
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -8,8 +9,11 @@ import x3.model.map.GameMap;
 import x3.model.util.Pair;
 import x3.model.util.exception.MapConstructionException;
 
-import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -23,34 +27,11 @@ public class GameMapTest {
             2, 0, 0, 0, 1,
             9, 0, 0, 2, 2,
             """)
-    public void testAreaFillList(int expected, int rowMin, int colMin, int rowMax, int colMax) {
-        List<Pair> output = new ArrayList<>();
+    public void testAreaFill(int expected, int rowMin, int colMin, int rowMax, int colMax) {
+        LayerMap map = new LayerMap(100, 100);
+        map.fill(rowMin, colMin, rowMax, colMax);
 
-        new GameMap() {
-            {
-                areaFill(output, Pair.of(colMin, rowMin), Pair.of(colMax, rowMax));
-            }
-
-            @Override
-            public int getBuffCount() { return 0; }
-
-            @Override
-            public int getDebuffCount() { return 0; }
-
-            @Override
-            public int getMonsterCount() { return 0; }
-
-            @Override
-            public int getMaxShrinks() { return 0; }
-
-            @Override
-            public int getMapWidth() { return 0; }
-
-            @Override
-            public int getMapHeight() { return 0; }
-        };
-
-        assertEquals(expected, output.size());
+        assertEquals(expected, map.getWalls().count());
     }
 
     @ParameterizedTest
@@ -61,66 +42,20 @@ public class GameMapTest {
             2, 0, 0, 0, 1,
             9, 0, 0, 2, 2,
             """)
-    public void testAreaFillListDouble(int expected, int rowMin, int colMin, int rowMax, int colMax) {
-        List<Pair> output = new ArrayList<>();
-
-        new GameMap() {
-            {
-                areaFill(output, Pair.of(colMin, rowMin), Pair.of(colMax, rowMax));
-                areaFill(output, Pair.of(colMin, rowMin), Pair.of(colMax, rowMax));
-            }
-
-            @Override
-            public int getBuffCount() { return 0; }
-
-            @Override
-            public int getDebuffCount() { return 0; }
-
-            @Override
-            public int getMonsterCount() { return 0; }
-
-            @Override
-            public int getMaxShrinks() { return 0; }
+    public void testAreaFillDouble(int expected, int rowMin, int colMin, int rowMax, int colMax) {
+        LayerMap map = new LayerMap(100, 100);
+        map.fill(rowMin, colMin, rowMax, colMax);
+        map.fill(rowMin, colMin, rowMax, colMax);
 
-            @Override
-            public int getMapWidth() { return 0; }
-
-            @Override
-            public int getMapHeight() { return 0; }
-        };
-
-        assertEquals(2*expected, output.size());
+        assertEquals(2 * expected, map.getWalls().count());
     }
 
     @Test
     public void testAreaClearEmpty() {
-        List<Pair> output = new ArrayList<>();
-
-        new GameMap() {
-            {
-                areaClear(output, Pair.of(0, 0), Pair.of(100, 100));
-            }
-
-            @Override
-            public int getBuffCount() { return 0; }
-
-            @Override
-            public int getDebuffCount() { return 0; }
-
-            @Override
-            public int getMonsterCount() { return 0; }
-
-            @Override
-            public int getMaxShrinks() { return 0; }
-
-            @Override
-            public int getMapWidth() { return 0; }
-
-            @Override
-            public int getMapHeight() { return 0; }
-        };
+        LayerMap map = new LayerMap(100, 100);
+        map.clear(0, 0, 100, 100);
 
-        assertEquals(0, output.size());
+        assertEquals(0, map.getWalls().count());
     }
 
     @ParameterizedTest
@@ -135,35 +70,12 @@ public class GameMapTest {
             10000, 0, 0, 99, 99
             """)
     public void testAreaClear(int expected, int rowMin, int colMin, int rowMax, int colMax) {
-        List<Pair> output = new ArrayList<>();
         int max = 10_000;
+        LayerMap map = new LayerMap(100, 100);
+        map.fill(0, 0, 99, 99);
+        map.clear(rowMin, colMin, rowMax, colMax);
 
-        new GameMap() {
-            {
-                areaFill(output, Pair.of(0, 0), Pair.of(99, 99));
-                areaClear(output, Pair.of(colMin, rowMin), Pair.of(colMax, rowMax));
-            }
-
-            @Override
-            public int getBuffCount() { return 0; }
-
-            @Override
-            public int getDebuffCount() { return 0; }
-
-            @Override
-            public int getMonsterCount() { return 0; }
-
-            @Override
-            public int getMaxShrinks() { return 0; }
-
-            @Override
-            public int getMapWidth() { return 0; }
-
-            @Override
-            public int getMapHeight() { return 0; }
-        };
-
-        assertEquals(max-expected, output.size());
+        assertEquals(max - expected, map.getWalls().count());
     }
 
     @ParameterizedTest
@@ -515,4 +427,226 @@ public class GameMapTest {
             public int getMapHeight() { return 0; }
         });
     }
+
+    /**
+     * A map of the given size whose walls are built by the tests.
+     */
+    private static class LayerMap extends GameMap {
+        private final int width;
+        private final int height;
+
+        LayerMap(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        void fill(int rowMin, int colMin, int rowMax, int colMax) {
+            areaFill(walls, Pair.of(rowMin, colMin), Pair.of(rowMax, colMax));
+        }
+
+        void fillBoxes(int rowMin, int colMin, int rowMax, int colMax) {
+            areaFill(boxes, Pair.of(rowMin, colMin), Pair.of(rowMax, colMax));
+        }
+
+        void clear(int rowMin, int colMin, int rowMax, int colMax) {
+            areaClear(walls, Pair.of(rowMin, colMin), Pair.of(rowMax, colMax));
+        }
+
+        void runChecks() {
+            check();
+        }
+
+        void checkOverlapsOnly() {
+            checkOverlaps();
+        }
+
+        @Override
+        public int getBuffCount() { return 0; }
+
+        @Override
+        public int getDebuffCount() { return 0; }
+
+        @Override
+        public int getMonsterCount() { return 0; }
+
+        @Override
+        public int getMaxShrinks() { return 0; }
+
+        @Override
+        public int getMapWidth() { return width; }
+
+        @Override
+        public int getMapHeight() { return height; }
+    }
+
+    /**
+     * Rectangles filled and cleared a word at a time match the same rectangles applied a cell at a time, also across
+     * word boundaries and map edges.
+     */
+    @Test
+    public void testLayerAreas() {
+        Random random = new Random(41);
+        for (int round = 0; round < 50; ++round) {
+            int width = 1 + random.nextInt(150);
+            int height = 1 + random.nextInt(20);
+            LayerMap map = new LayerMap(width, height);
+            Set<Pair> expected = new HashSet<>();
+            for (int op = 0; op < 20; ++op) {
+                int rowMin = random.nextInt(height);
+                int colMin = random.nextInt(width);
+                int rowMax = rowMin + random.nextInt(height - rowMin);
+                int colMax = colMin + random.nextInt(width - colMin);
+                boolean fill = random.nextBoolean();
+                if (fill) {
+                    map.clear(rowMin, colMin, rowMax, colMax);
+                    map.fill(rowMin, colMin, rowMax, colMax);
+                } else {
+                    map.clear(rowMin, colMin, rowMax, colMax);
+                }
+                for (int row = rowMin; row <= rowMax; ++row) {
+                    for (int col = colMin; col <= colMax; ++col) {
+                        if (fill) {
+                            expected.add(Pair.of(col, row));
+                        } else {
+                            expected.remove(Pair.of(col, row));
+                        }
+                    }
+                }
+            }
+            assertEquals(expected, map.getWalls().collect(Collectors.toSet()));
+            assertEquals(expected.size(), map.getWalls().count());
+            for (int row = 0; row < height; ++row) {
+                for (int col = 0; col < width; ++col) {
+                    assertEquals(expected.contains(Pair.of(col, row)), map.isWall(col, row));
+                }
+            }
+            assertDoesNotThrow(map::runChecks);
+        }
+    }
+
+    /**
+     * Cells filled twice, and cells outside the map, are still found by the checks.
+     */
+    @Test
+    public void testLayerInvalidCells() {
+        LayerMap overlapping = new LayerMap(100, 10);
+        overlapping.fill(0, 0, 2, 70);
+        overlapping.fill(2, 60, 3, 99);
+        assertEquals(71 * 3 + 40 * 2, overlapping.getWalls().count());
+        assertThrows(MapConstructionException.class, overlapping::runChecks);
+        overlapping.clear(2, 60, 2, 70);
+        assertEquals(71 * 3 + 40 * 2 - 11 * 2, overlapping.getWalls().count());
+        assertDoesNotThrow(overlapping::runChecks);
+
+        LayerMap hanging = new LayerMap(10, 10);
+        hanging.fill(-1, 8, 0, 10);
+        assertEquals(6, hanging.getWalls().count());
+        assertThrows(MapConstructionException.class, hanging::runChecks);
+        hanging.clear(-5, -5, 0, 20);
+        assertEquals(0, hanging.getWalls().count());
+        assertDoesNotThrow(hanging::runChecks);
+    }
+
+    @Test
+    public void testLayerShuffle() {
+        LayerMap map = new LayerMap(30, 30);
+        map.fillBoxes(0, 0, 29, 29);
+        List<Pair> ordered = map.getBoxes().toList();
+        map.shuffle(new Random(1));
+        List<Pair> shuffled = map.getBoxes().toList();
+        map.shuffle(new Random(1));
+        assertEquals(shuffled, map.getBoxes().toList());
+        assertNotEquals(ordered, shuffled);
+        assertEquals(new HashSet<>(ordered), new HashSet<>(shuffled));
+    }
+
+    /**
+     * Builds a map of nested rings, the way Map2 builds its rings.
+     */
+    private static LayerMap buildRings(int size) {
+        LayerMap map = new LayerMap(size, size);
+        for (int ring = 0; ring < size / 2; ring += 2) {
+            map.fill(ring, ring, size - 1 - ring, size - 1 - ring);
+            map.clear(ring + 1, ring + 1, size - 2 - ring, size - 2 - ring);
+        }
+        map.runChecks();
+        return map;
+    }
+
+    @Test
+    public void testLargeMap() {
+        int size = 512;
+        int expected = 0;
+        for (int ring = 0; ring < size / 2; ring += 2) {
+            expected += 4 * (size - 2 * ring - 1);
+        }
+        assertEquals(expected, buildRings(size).getWalls().count());
+    }
+
+    /**
+     * A 512x512 map of nested rings takes a few milliseconds to build. Only run by the benchmark task.
+     */
+    @Test
+    @Tag("benchmark")
+    public void benchmarkLargeMap() {
+        long start = System.nanoTime();
+        buildRings(512);
+        long nanos = System.nanoTime() - start;
+        assertTrue(nanos < 500_000_000, "building took " + nanos / 1e6 + " ms");
+    }
+
+    /**
+     * A single check finds every hanging and overlapping position, along with the failed counts.
+     */
+    @Test
+    public void testCheckReportsAllCells() {
+        LayerMap map = new LayerMap(20, 20) {
+            {
+                fill(0, 0, 0, 19);
+                walls.add(Pair.of(3, 0));
+                walls.add(Pair.of(25, 5));
+                areaFill(boxes, Pair.of(5, 5), Pair.of(5, 6));
+                walls.add(Pair.of(6, 5));
+                playerSpawns.addAll(List.of(Pair.of(1, 1), Pair.of(1, 1), Pair.of(-1, 2)));
+                monsterSpawns.add(Pair.of(5, 5));
+            }
+
+            @Override
+            public int getBuffCount() { return 5; }
+        };
+
+        MapConstructionException e = assertThrows(MapConstructionException.class, map::runChecks);
+        assertEquals(List.of(Pair.of(25, 5), Pair.of(-1, 2)), e.getCells().subList(0, 2));
+        assertEquals(
+            List.of(Pair.of(6, 5), Pair.of(3, 0), Pair.of(1, 1), Pair.of(5, 5)),
+            e.getCells().stream().filter(pair -> map.isWall(pair.col, pair.row) || map.isBox(pair.col, pair.row)
+                || pair.equals(Pair.of(1, 1))).toList());
+        assertTrue(e.getMessage().contains("Not enough boxes"));
+        assertTrue(e.getMessage().contains("overhanging"));
+        assertTrue(e.getMessage().contains("overlap"));
+        assertEquals(6, e.getCells().size());
+
+        MapConstructionException overlaps = assertThrows(MapConstructionException.class, map::checkOverlapsOnly);
+        assertEquals(4, overlaps.getCells().size());
+    }
+
+    /**
+     * Checking a 2048x2048 map full of walls, boxes and spawns takes linear time. Only run by the benchmark task.
+     */
+    @Test
+    @Tag("benchmark")
+    public void benchmarkCheckLargeMap() {
+        int size = 2048;
+        LayerMap map = new LayerMap(size, size) {
+            {
+                fill(0, 0, size / 2 - 1, size - 1);
+                areaFill(boxes, Pair.of(size / 2, 0), Pair.of(size - 2, size - 1));
+                IntStream.range(0, size).forEach(col -> monsterSpawns.add(Pair.of(col, size - 1)));
+            }
+        };
+        long start = System.nanoTime();
+        map.runChecks();
+        long nanos = System.nanoTime() - start;
+        assertTrue(nanos < 1_000_000_000, "checking took " + nanos / 1e6 + " ms");
+    }
 }
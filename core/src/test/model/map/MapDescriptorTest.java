@@ -0,0 +1,96 @@
+package model.map;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import x3.DetonatorCircle;
+import x3.model.map.Map1;
+import x3.model.map.Map2;
+import x3.model.map.Map3;
+import x3.model.map.MapDescriptor;
+import x3.model.util.Pair;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MapDescriptorTest {
+    @Test
+    public void testLazy() {
+        AtomicInteger builds = new AtomicInteger();
+        MapDescriptor<Map1> descriptor = new MapDescriptor<>(Map1.class, () -> {
+            builds.incrementAndGet();
+            return new Map1();
+        }, Map1::new);
+        assertFalse(descriptor.isBuilt());
+        assertEquals(Map1.class, descriptor.getType());
+
+        Map1 first = descriptor.create();
+        Map1 second = descriptor.create();
+        assertTrue(descriptor.isBuilt());
+        assertEquals(1, builds.get());
+        assertNotSame(first, second);
+        assertEquals(Map1.class, first.getClass());
+    }
+
+    /**
+     * The game registers the built-in maps by their descriptors, shared by every game.
+     */
+    @Test
+    public void testRegistered() {
+        DetonatorCircle game = new DetonatorCircle(0, 0);
+        assertEquals(List.of(Map1.class, Map2.class, Map3.class),
+            game.maps.stream().map(MapDescriptor::getType).toList());
+        assertSame(Map1.DESCRIPTOR, game.maps.get(0));
+    }
+
+    /**
+     * Copies have the positions of the layout, and shuffling or changing one doesn't change the others.
+     */
+    @Test
+    public void testCopies() {
+        MapDescriptor<Map3> descriptor = new MapDescriptor<>(Map3.class, Map3::new, Map3::new);
+        Map3 built = new Map3();
+        Map3 first = descriptor.create(new Random(1));
+        Map3 second = descriptor.create(new Random(1));
+        assertEquals(built.getWalls().collect(Collectors.toSet()), first.getWalls().collect(Collectors.toSet()));
+        assertEquals(built.getBoxes().collect(Collectors.toSet()), first.getBoxes().collect(Collectors.toSet()));
+        assertEquals(built.getPlayerSpawns(4).collect(Collectors.toSet()),
+            first.getPlayerSpawns(4).collect(Collectors.toSet()));
+        // the same seed gives the same round
+        assertEquals(first.getBoxes().toList(), second.getBoxes().toList());
+        assertEquals(first.getPlayerSpawns(4).toList(), second.getPlayerSpawns(4).toList());
+
+        List<Pair> boxes = second.getBoxes().toList();
+        first.shuffle(new Random(2));
+        assertNotEquals(first.getBoxes().toList(), second.getBoxes().toList());
+        assertEquals(boxes, second.getBoxes().toList());
+        assertEquals(boxes.size(), descriptor.create().getBoxes().count());
+    }
+
+    /**
+     * A copy takes far less time than building and checking the map. Only run by the benchmark task.
+     */
+    @Test
+    @Tag("benchmark")
+    public void benchmarkCopyCost() {
+        MapDescriptor<Map1> descriptor = new MapDescriptor<>(Map1.class, Map1::new, Map1::new);
+        for (int i = 0; i < 2000; ++i) {
+            new Map1();
+            descriptor.create();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < 2000; ++i) {
+            new Map1();
+        }
+        long built = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < 2000; ++i) {
+            descriptor.create();
+        }
+        long copied = System.nanoTime() - start;
+        assertTrue(copied < built, "built in " + built / 2000 / 1e3 + " us, copied in " + copied / 2000 / 1e3 + " us");
+    }
+}
@@ -0,0 +1,280 @@
+package model.map;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import x3.model.map.AsciiMap;
+import x3.model.map.FileGameMap;
+import x3.model.map.GameMap;
+import x3.model.map.Map1;
+import x3.model.map.Map2;
+import x3.model.map.Map3;
+import x3.model.map.ProceduralMap;
+import x3.model.util.Pair;
+import x3.model.util.exception.MapConstructionException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MapFileTest {
+    private static final List<String> ASCII = List.of(
+        "; a small test map",
+        "buffs = 2",
+        "debuffs = 1",
+        "",
+        "#########",
+        "#1.....3#",
+        "#.#B#B#.#",
+        "#...M...#",
+        "#.#B#B#.#",
+        "#4.....2#",
+        "#########"
+    );
+
+    private static void assertSameMap(final GameMap expected, final GameMap actual) {
+        assertEquals(expected.getMapWidth(), actual.getMapWidth());
+        assertEquals(expected.getMapHeight(), actual.getMapHeight());
+        assertEquals(expected.getBuffCount(), actual.getBuffCount());
+        assertEquals(expected.getDebuffCount(), actual.getDebuffCount());
+        assertEquals(expected.getMonsterCount(), actual.getMonsterCount());
+        assertEquals(expected.getMaxShrinks(), actual.getMaxShrinks());
+        assertEquals(expected.getWalls().collect(Collectors.toSet()), actual.getWalls().collect(Collectors.toSet()));
+        assertEquals(expected.getBoxes().collect(Collectors.toSet()), actual.getBoxes().collect(Collectors.toSet()));
+        assertEquals(expected.getBoxes().count(), actual.getBoxes().count());
+        assertEquals(expected.getPlayerSpawns(Integer.MAX_VALUE).collect(Collectors.toSet()),
+            actual.getPlayerSpawns(Integer.MAX_VALUE).collect(Collectors.toSet()));
+        assertEquals(expected.getMonsterSpawns().collect(Collectors.toSet()),
+            actual.getMonsterSpawns().collect(Collectors.toSet()));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        for (GameMap map : List.of(new Map1(), new Map2(), new Map3(), new ProceduralMap(7),
+            new ProceduralMap(8, 33, 19, 0.4f, 0.6f, 6))) {
+            FileGameMap read = new FileGameMap(FileGameMap.encode(map, "test"));
+            assertEquals("test", read.getName());
+            assertSameMap(map, read);
+        }
+    }
+
+    @Test
+    public void testFile(@TempDir final Path dir) throws IOException {
+        Map2 map = new Map2();
+        Path file = dir.resolve("arena" + FileGameMap.EXTENSION);
+        FileGameMap.write(map, "Arena", file);
+        Files.write(dir.resolve("broken" + FileGameMap.EXTENSION), new byte[] {1, 2, 3});
+        Files.write(dir.resolve("notes.txt"), List.of("not a map"));
+
+        List<FileGameMap> maps = FileGameMap.list(dir);
+        assertEquals(1, maps.size());
+        assertEquals("Arena", maps.get(0).getName());
+        assertSameMap(map, maps.get(0));
+        assertTrue(FileGameMap.list(dir.resolve("missing")).isEmpty());
+    }
+
+    @Test
+    public void testAscii() {
+        AsciiMap map = new AsciiMap(ASCII);
+        assertEquals(9, map.getMapWidth());
+        assertEquals(7, map.getMapHeight());
+        assertEquals(2, map.getBuffCount());
+        assertEquals(1, map.getDebuffCount());
+        assertEquals(1, map.getMonsterCount());
+        assertEquals(1, map.getMaxShrinks());
+        // the top line is the highest row, and the spawns are in the order of their numbers
+        assertEquals(List.of(Pair.of(1, 5), Pair.of(7, 1), Pair.of(7, 5), Pair.of(1, 1)),
+            map.getPlayerSpawns(4).toList());
+        assertEquals(List.of(Pair.of(4, 3)), map.getMonsterSpawns().toList());
+        assertEquals(Set.of(Pair.of(3, 4), Pair.of(5, 4), Pair.of(3, 2), Pair.of(5, 2)),
+            map.getBoxes().collect(Collectors.toSet()));
+        assertTrue(map.isWall(2, 4));
+        assertEquals(9 * 2 + 5 * 2 + 6, map.getWalls().count());
+    }
+
+    @Test
+    public void testImport(@TempDir final Path dir) throws IOException {
+        Path text = dir.resolve("small.txt");
+        Files.write(text, ASCII);
+        Path file = dir.resolve("small.map");
+        AsciiMap map = AsciiMap.importFile(text, file);
+        FileGameMap read = new FileGameMap(file);
+        assertEquals("small", read.getName());
+        assertSameMap(map, read);
+    }
+
+    @Test
+    public void testInvalidAscii() {
+        assertThrows(MapConstructionException.class, () -> new AsciiMap(List.of("#X#")));
+        assertThrows(MapConstructionException.class, () -> new AsciiMap(List.of("size = 3", "###")));
+        assertThrows(MapConstructionException.class, () -> new AsciiMap(List.of("buffs = many", "###")));
+        assertThrows(MapConstructionException.class, () -> new AsciiMap(List.of("#1.1#")));
+        // not enough boxes for the effects
+        assertThrows(MapConstructionException.class, () -> new AsciiMap(List.of("buffs = 1", "#1.2#")));
+        // the wall seals the spawns off from each other
+        MapConstructionException e = assertThrows(MapConstructionException.class,
+            () -> new AsciiMap(List.of("#####", "#1#2#", "#####")));
+        assertEquals(1, e.getCells().size());
+    }
+
+    @Test
+    public void testCorrupt() {
+        byte[] valid = FileGameMap.encode(new Map1(), "map").array();
+        assertThrows(IOException.class, () -> new FileGameMap(ByteBuffer.wrap(new byte[0])));
+        for (int length : new int[] {4, 20, valid.length / 2, valid.length - 1}) {
+            assertThrows(IOException.class, () -> new FileGameMap(ByteBuffer.wrap(Arrays.copyOf(valid, length))));
+        }
+        byte[] magic = valid.clone();
+        magic[0] = 'X';
+        assertThrows(IOException.class, () -> new FileGameMap(ByteBuffer.wrap(magic)));
+        byte[] version = valid.clone();
+        version[5] = 9;
+        IOException e = assertThrows(IOException.class, () -> new FileGameMap(ByteBuffer.wrap(version)));
+        assertTrue(e.getMessage().contains("version"));
+    }
+
+    /**
+     * A corrupt layer is only found when the map is loaded, and the same failure is reported on every use.
+     */
+    @Test
+    public void testCorruptLayer() throws IOException {
+        GameMap map = new AsciiMap(List.of("#".repeat(100), "#1" + ".".repeat(96) + "2#", "#".repeat(100)));
+        ByteBuffer buffer = FileGameMap.encode(map, "");
+        // the boxes are the last layer, and their last run is cut short
+        buffer.put(buffer.limit() - 1, (byte) 0x80);
+        FileGameMap read = new FileGameMap(buffer);
+        MapConstructionException first = assertThrows(MapConstructionException.class, read::load);
+        assertSame(first, assertThrows(MapConstructionException.class, read::load));
+        assertThrows(MapConstructionException.class, () -> read.isWall(0, 0));
+    }
+
+    /**
+     * A run whose length doesn't end within five bytes is as corrupt as one cut short.
+     */
+    @Test
+    public void testCorruptRunLength() throws IOException {
+        GameMap map = new AsciiMap(List.of("#".repeat(200), "#1" + "BBBB....".repeat(24) + "..2#", "#".repeat(200)));
+        ByteBuffer buffer = FileGameMap.encode(map, "");
+        for (int i = 1; i <= 6; ++i) {
+            buffer.put(buffer.limit() - i, (byte) 0xFF);
+        }
+        FileGameMap read = new FileGameMap(buffer);
+        MapConstructionException e = assertThrows(MapConstructionException.class, read::load);
+        assertEquals("Corrupt map layer", e.getMessage());
+        assertSame(e, assertThrows(MapConstructionException.class, read::load));
+    }
+
+    /**
+     * Threads loading the same map wait for the one decoding it, instead of reading half decoded layers.
+     */
+    @Test
+    public void testConcurrentLoad() throws Exception {
+        ProceduralMap map = new ProceduralMap(6, 512, 512, 0.25f, 0.3f, 4);
+        long walls = map.getWalls().count();
+        FileGameMap read = new FileGameMap(FileGameMap.encode(map, "shared"));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Long>> counts = new ArrayList<>();
+            for (int i = 0; i < 4; ++i) {
+                counts.add(executor.submit(() -> {
+                    start.await();
+                    return read.load().getWalls().count();
+                }));
+            }
+            start.countDown();
+            for (Future<Long> count : counts) {
+                assertEquals(walls, count.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Maps that look the same have the same layout hash, however their positions are ordered or wherever they come
+     * from, and moving anything changes it.
+     */
+    @Test
+    public void testLayoutHash() throws IOException {
+        String hash = new Map2().layoutHash();
+        assertEquals(64, hash.length());
+        assertEquals(hash, Map2.DESCRIPTOR.create(new Random(1)).layoutHash());
+        assertEquals(hash, Map2.DESCRIPTOR.create(new Random(2)).layoutHash());
+        assertEquals(hash, new FileGameMap(FileGameMap.encode(new Map2(), "copy")).layoutHash());
+        assertNotEquals(hash, new Map1().layoutHash());
+
+        String ascii = new AsciiMap(ASCII).layoutHash();
+        List<String> effects = new ArrayList<>(ASCII);
+        effects.set(1, "buffs = 0");
+        assertEquals(ascii, new AsciiMap(effects).layoutHash());
+        List<String> moved = new ArrayList<>(ASCII);
+        moved.set(6, "#.#.#B#B#");
+        assertNotEquals(ascii, new AsciiMap(moved).layoutHash());
+        List<String> spawns = new ArrayList<>(ASCII);
+        spawns.set(5, "#1....3.#");
+        assertNotEquals(ascii, new AsciiMap(spawns).layoutHash());
+    }
+
+    /**
+     * Grouped cells are written as runs, a few bytes per run, and scattered cells as a bitset.
+     */
+    @Test
+    public void testEncodingSize() {
+        ProceduralMap scattered = new ProceduralMap(3, 256, 256, 0.3f, 0.5f, 0);
+        int bitset = 256 * 256 / 8;
+        assertTrue(FileGameMap.encode(scattered, "").remaining() < 2 * bitset + 200);
+
+        GameMap open = new AsciiMap(List.of(
+            "#".repeat(256),
+            ("#1" + ".".repeat(252) + "2#")
+        ));
+        assertTrue(FileGameMap.encode(open, "").remaining() < 200);
+    }
+
+    @Test
+    public void testLargeMap(@TempDir final Path dir) throws IOException {
+        ProceduralMap map = new ProceduralMap(5, 1024, 1024, 0.25f, 0.3f, 16);
+        Path file = dir.resolve("large.map");
+        FileGameMap.write(map, "large", file);
+
+        FileGameMap read = new FileGameMap(file).load();
+        assertEquals(map.getWalls().count(), read.getWalls().count());
+        assertEquals(new HashSet<>(map.getBoxes().toList()), new HashSet<>(read.getBoxes().toList()));
+    }
+
+    /**
+     * Opening a 1024x1024 map file only reads its header, and decoding and checking it takes well under a second.
+     * Only run by the benchmark task.
+     */
+    @Test
+    @Tag("benchmark")
+    public void benchmarkLargeMap(@TempDir final Path dir) throws IOException {
+        Path file = dir.resolve("large.map");
+        FileGameMap.write(new ProceduralMap(5, 1024, 1024, 0.25f, 0.3f, 16), "large", file);
+
+        long start = System.nanoTime();
+        FileGameMap read = new FileGameMap(file);
+        long open = System.nanoTime() - start;
+        start = System.nanoTime();
+        read.load();
+        long load = System.nanoTime() - start;
+
+        assertTrue(open < 20_000_000, "the header is read without decoding the layers, took " + open / 1e6 + " ms");
+        assertTrue(load < 1_000_000_000, "decoding and checking took " + load / 1e6 + " ms");
+    }
+}
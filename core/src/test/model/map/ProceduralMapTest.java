@@ -0,0 +1,125 @@
+package model.map;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import x3.DetonatorCircle;
+import x3.model.game.GameEngine;
+import x3.model.game.control.ExternalController;
+import x3.model.map.ProceduralMap;
+import x3.model.map.Reachability;
+import x3.model.util.Pair;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProceduralMapTest {
+    @Test
+    public void testReproducible() {
+        for (long seed = 0; seed < 20; ++seed) {
+            ProceduralMap first = new ProceduralMap(seed);
+            ProceduralMap second = new ProceduralMap(seed);
+            assertEquals(seed, first.getSeed());
+            assertEquals(first.getWalls().toList(), second.getWalls().toList());
+            assertEquals(first.getBoxes().toList(), second.getBoxes().toList());
+            assertEquals(first.getPlayerSpawns(4).toList(), second.getPlayerSpawns(4).toList());
+            assertEquals(first.getMonsterSpawns().toList(), second.getMonsterSpawns().toList());
+            assertEquals(first.getBuffCount(), second.getBuffCount());
+        }
+        assertNotEquals(new ProceduralMap(1).getWalls().toList(), new ProceduralMap(2).getWalls().toList());
+    }
+
+    @Test
+    public void testSymmetric() {
+        for (ProceduralMap map : ProceduralMap.generate(100, 50, 21, 17, 0.3f, 0.4f, 6)) {
+            int width = map.getMapWidth();
+            int height = map.getMapHeight();
+            for (int row = 0; row < height; ++row) {
+                for (int col = 0; col < width; ++col) {
+                    assertEquals(map.isWall(col, row), map.isWall(width - 1 - col, row));
+                    assertEquals(map.isWall(col, row), map.isWall(col, height - 1 - row));
+                    assertEquals(map.isBox(col, row), map.isBox(width - 1 - col, row));
+                    assertEquals(map.isBox(col, row), map.isBox(col, height - 1 - row));
+                }
+            }
+            Set<Pair> spawns = map.getPlayerSpawns(4).collect(Collectors.toSet());
+            assertEquals(Set.of(Pair.of(1, 1), Pair.of(width - 2, 1), Pair.of(1, height - 2),
+                Pair.of(width - 2, height - 2)), spawns);
+        }
+    }
+
+    /**
+     * Every generated map is valid: the constructor checks it. All of its floor can be reached by the players, and
+     * they get the same territory.
+     */
+    @Test
+    public void testValid() {
+        for (float density : new float[] {0, 0.25f, 0.5f, 0.9f, 1}) {
+            for (ProceduralMap map : ProceduralMap.generate(1000, 100, 15, 15, density, 0.5f, 8)) {
+                Reachability reachability = new Reachability(map);
+                assertTrue(reachability.isConnected());
+                assertEquals(1, reachability.getRegionCount());
+                assertEquals(0, reachability.getIsolatedRegions().length);
+                int territory = reachability.getTerritory(0);
+                for (int spawn = 1; spawn < 4; ++spawn) {
+                    assertEquals(territory, reachability.getTerritory(spawn));
+                }
+                map.getMonsterSpawns().forEach(spawn -> {
+                    assertFalse(map.isWall(spawn.col, spawn.row));
+                    assertFalse(map.isBox(spawn.col, spawn.row));
+                });
+                assertTrue(map.getMonsterCount() <= 8);
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new ProceduralMap(0, 5, 21, 0.2f, 0.2f, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ProceduralMap(0, 21, 21, 1.5f, 0.2f, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ProceduralMap(0, 21, 21, 0.2f, -1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ProceduralMap(0, 21, 21, 0.2f, 0.2f, -1));
+    }
+
+    @Test
+    public void testPlayable() {
+        DetonatorCircle game = new DetonatorCircle(0, 0);
+        game.setPlayerCount3();
+        game.wonRounds = new int[3];
+        GameEngine engine = new GameEngine(game, new ProceduralMap(44), 5);
+        for (int player = 0; player < 3; ++player) {
+            engine.setController(player, new ExternalController());
+        }
+        for (int tick = 0; tick < 120; ++tick) {
+            engine.step(1 / 60f);
+        }
+        assertEquals(120, engine.getTick());
+        engine.dispose();
+    }
+
+    /**
+     * Thousands of 21x21 maps are generated per second, and a 256x256 map in well under 100 ms. Only run by the
+     * benchmark task.
+     */
+    @Test
+    @Tag("benchmark")
+    public void benchmarkThroughput() {
+        ProceduralMap.generate(0, 500, 21, 21, 0.25f, 0.3f, 4);
+        long start = System.nanoTime();
+        List<ProceduralMap> maps = ProceduralMap.generate(0, 3000, 21, 21, 0.25f, 0.3f, 4);
+        long nanos = System.nanoTime() - start;
+        assertEquals(3000, maps.size());
+        assertTrue(nanos < 1_500_000_000, "at least 2000 maps per second, took " + nanos / 1e6 + " ms");
+
+        new ProceduralMap(1, 256, 256, 0.25f, 0.3f, 64);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; ++i) {
+            start = System.nanoTime();
+            new ProceduralMap(i, 256, 256, 0.25f, 0.3f, 64);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        assertTrue(best < 100_000_000, "a 256x256 map took " + best / 1e6 + " ms");
+    }
+}
@@ -0,0 +1,171 @@
+package model.map;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import x3.model.map.GameMap;
+import x3.model.map.Map1;
+import x3.model.map.Map2;
+import x3.model.map.Map3;
+import x3.model.map.Reachability;
+import x3.model.util.Pair;
+import x3.model.util.exception.MapConstructionException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReachabilityTest {
+    /**
+     * A 10x10 map surrounded with walls, with a wall across its given column, and player spawns in the corners.
+     */
+    private static class SplitMap extends GameMap {
+        SplitMap(int splitCol, int gapRow, boolean boxInGap) {
+            surroundWithWalls();
+            if (splitCol > 0) {
+                areaFill(walls, Pair.of(1, splitCol), Pair.of(8, splitCol));
+                if (gapRow > 0) {
+                    walls.remove(Pair.of(splitCol, gapRow));
+                    if (boxInGap) {
+                        boxes.add(Pair.of(splitCol, gapRow));
+                    }
+                }
+            }
+            playerSpawns.addAll(List.of(Pair.of(1, 1), Pair.of(8, 8), Pair.of(8, 1), Pair.of(1, 8)));
+            check();
+        }
+
+        @Override
+        public int getBuffCount() { return 0; }
+
+        @Override
+        public int getDebuffCount() { return 0; }
+
+        @Override
+        public int getMonsterCount() { return 0; }
+
+        @Override
+        public int getMaxShrinks() { return 0; }
+
+        @Override
+        public int getMapWidth() { return 10; }
+
+        @Override
+        public int getMapHeight() { return 10; }
+    }
+
+    @Test
+    public void testMapsAreConnected() {
+        for (GameMap map : List.of(new Map1(), new Map2(), new Map3())) {
+            Reachability reachability = new Reachability(map);
+            assertTrue(reachability.isConnected(), map.getClass().getSimpleName());
+            assertEquals(0, reachability.getSealedSpawns().length);
+            int area = reachability.getReachableArea(0);
+            for (int spawn = 0; spawn < reachability.getSpawnCount(); ++spawn) {
+                assertEquals(area, reachability.getReachableArea(spawn));
+            }
+        }
+    }
+
+    /**
+     * The built-in maps are symmetric, so every player gets the same territory.
+     */
+    @Test
+    public void testSymmetricTerritories() {
+        for (GameMap map : List.of(new Map1(), new Map2(), new Map3())) {
+            Reachability reachability = new Reachability(map);
+            int territory = reachability.getTerritory(0);
+            assertTrue(territory > 0);
+            for (int spawn = 1; spawn < reachability.getSpawnCount(); ++spawn) {
+                assertEquals(territory, reachability.getTerritory(spawn), map.getClass().getSimpleName());
+            }
+        }
+    }
+
+    @Test
+    public void testBoxesArePassable() {
+        Reachability reachability = new Reachability(new SplitMap(4, 3, true));
+        assertTrue(reachability.isConnected());
+        assertEquals(1, reachability.getRegionCount());
+        assertEquals(8 * 8 - 7, reachability.getReachableArea(0));
+        assertEquals(Reachability.NONE, reachability.getRegion(4, 1));
+        assertEquals(Reachability.NONE, reachability.getRegion(-1, 0));
+    }
+
+    @Test
+    public void testSealedSpawns() {
+        MapConstructionException e = assertThrows(MapConstructionException.class, () -> new SplitMap(3, 0, false));
+        // the two spawns left of the wall are sealed off from the two on the right
+        assertEquals(2, e.getCells().size());
+        assertTrue(e.getMessage().contains("sealed"));
+    }
+
+    @Test
+    public void testRegions() {
+        GameMap map = new GameMap() {
+            {
+                surroundWithWalls();
+                areaFill(walls, Pair.of(1, 5), Pair.of(8, 5));
+                areaFill(walls, Pair.of(5, 6), Pair.of(5, 8));
+                playerSpawns.addAll(List.of(Pair.of(1, 1), Pair.of(4, 8)));
+                checkOverlaps();
+            }
+
+            @Override
+            public int getBuffCount() { return 0; }
+
+            @Override
+            public int getDebuffCount() { return 0; }
+
+            @Override
+            public int getMonsterCount() { return 0; }
+
+            @Override
+            public int getMaxShrinks() { return 0; }
+
+            @Override
+            public int getMapWidth() { return 10; }
+
+            @Override
+            public int getMapHeight() { return 10; }
+        };
+
+        Reachability reachability = new Reachability(map);
+        assertAll(
+            () -> assertEquals(3, reachability.getRegionCount()),
+            () -> assertTrue(reachability.isConnected()),
+            () -> assertEquals(8 * 4, reachability.getReachableArea(0)),
+            () -> assertArrayEquals(new int[] {
+                reachability.getRegion(6, 1), reachability.getRegion(6, 6)
+            }, reachability.getIsolatedRegions()),
+            () -> assertEquals(3 * 4, reachability.getRegionSize(reachability.getRegion(6, 1))),
+            () -> assertEquals(3 * 3, reachability.getRegionSize(reachability.getRegion(6, 6)))
+        );
+    }
+
+    @Test
+    public void testBatch() {
+        List<GameMap> maps = List.of(new Map1(), new Map2(), new Map3());
+        List<Reachability> results = Reachability.analyze(maps);
+        assertEquals(maps.size(), results.size());
+        assertTrue(results.stream().allMatch(Reachability::isConnected));
+    }
+
+    /**
+     * Thousands of maps are analyzed per second. Only run by the benchmark task.
+     */
+    @Test
+    @Tag("benchmark")
+    public void benchmarkThroughput() {
+        List<GameMap> maps = new ArrayList<>();
+        IntStream.range(0, 1000).forEach(i -> maps.addAll(List.of(new Map1(), new Map2(), new Map3())));
+        Reachability.analyze(maps);
+
+        long start = System.nanoTime();
+        List<Reachability> results = Reachability.analyze(maps);
+        long nanos = System.nanoTime() - start;
+        assertEquals(maps.size(), results.size());
+        assertTrue(nanos < 1_000_000_000, "at least 3000 maps per second, took " + nanos / 1e6 + " ms");
+    }
+}
@@ -0,0 +1,233 @@
+package model.net;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import x3.DetonatorCircle;
+import x3.model.game.GameEngine;
+import x3.model.game.control.ExternalController;
+import x3.model.game.control.PlayerController;
+import x3.model.map.Map2;
+import x3.model.net.AreaOfInterest;
+import x3.model.net.EntityIndex;
+import x3.model.net.InterestListener;
+import x3.model.net.WorldState;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AreaOfInterestTest {
+    private static final float PPM = 5;
+    private static final int[] INPUTS = {
+        PlayerController.UP, PlayerController.DOWN, PlayerController.LEFT, PlayerController.RIGHT, PlayerController.BOMB
+    };
+
+    private static int cellOf(float x, float y, int width) {
+        float offset = PPM * GameEngine.MOVING_SIZE / 2;
+        return (int) Math.floor((y + offset) / PPM) * width + (int) Math.floor((x + offset) / PPM);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 20})
+    public void testFilterMatchesTheWorld(int radius) {
+        DetonatorCircle game = new DetonatorCircle(0, 0);
+        game.setPlayerCount2();
+        game.wonRounds = new int[3];
+        GameEngine engine = new GameEngine(game, new Map2(), PPM);
+        ExternalController[] controllers = {new ExternalController(), new ExternalController()};
+        engine.setController(0, controllers[0]);
+        engine.setController(1, controllers[1]);
+        int width = engine.getGrid().getWidth();
+        int height = engine.getGrid().getHeight();
+        WorldState world = new WorldState(width, height);
+        WorldState view = new WorldState(width, height);
+        EntityIndex index = new EntityIndex(width, height, PPM);
+        AreaOfInterest area = new AreaOfInterest(width, height, PPM, 0, radius);
+        List<Set<Integer>> inView = List.of(new HashSet<>(), new HashSet<>(), new HashSet<>());
+        area.setListener(new InterestListener() {
+            @Override
+            public void entered(int kind, int key) {
+                assertTrue(inView.get(kind).add(key));
+            }
+
+            @Override
+            public void left(int kind, int key) {
+                assertTrue(inView.get(kind).remove(key));
+            }
+        });
+        Random random = new Random(35);
+
+        for (int tick = 0; tick < 600 && !engine.isGameEnded(); ++tick) {
+            if (tick % 20 == 0) {
+                for (ExternalController controller : controllers) {
+                    controller.setInput(INPUTS[random.nextInt(INPUTS.length)]);
+                }
+            }
+            engine.step(1 / 60f);
+            world.capture(engine);
+            index.build(world);
+            area.filter(world, index, view);
+
+            List<Set<Integer>> expected = List.of(new HashSet<>(), new HashSet<>(), new HashSet<>());
+            for (int i = 0; i < world.getMonsterCount(); ++i) {
+                int cell = cellOf(world.getMonsterX(i), world.getMonsterY(i), width);
+                if (area.contains(cell % width, cell / width)) {
+                    expected.get(InterestListener.MONSTER).add(world.getMonsterId(i));
+                }
+            }
+            for (int i = 0; i < world.getBombCount(); ++i) {
+                int cell = world.getBombCell(i);
+                if (area.contains(cell % width, cell / width)) {
+                    expected.get(InterestListener.BOMB).add(cell);
+                }
+            }
+            for (int i = 0; i < world.getEffectCount(); ++i) {
+                int cell = world.getEffectCell(i);
+                if (area.contains(cell % width, cell / width)) {
+                    expected.get(InterestListener.EFFECT).add(cell);
+                }
+            }
+            int blasts = 0;
+            for (int i = 0; i < world.getBlastCount(); ++i) {
+                int cell = world.getBlastCell(i);
+                blasts += area.contains(cell % width, cell / width) ? 1 : 0;
+            }
+            for (int cell = 0; cell < width * height; ++cell) {
+                if (area.contains(cell % width, cell / width)) {
+                    assertEquals(world.isBox(cell), view.isBox(cell));
+                }
+            }
+            Set<Integer> monsters = new HashSet<>();
+            for (int i = 0; i < view.getMonsterCount(); ++i) {
+                monsters.add(view.getMonsterId(i));
+            }
+
+            assertEquals(expected.get(InterestListener.MONSTER), monsters);
+            assertEquals(expected.get(InterestListener.BOMB).size(), view.getBombCount());
+            assertEquals(expected.get(InterestListener.EFFECT).size(), view.getEffectCount());
+            assertEquals(blasts, view.getBlastCount());
+            assertEquals(world.isAlive(1), view.isAlive(1));
+            assertEquals(expected, inView);
+        }
+        if (radius >= width) {
+            assertEquals(engine.getMonsterCount(), area.getTracker().getVisibleCount(InterestListener.MONSTER));
+        }
+        engine.dispose();
+    }
+
+    @Test
+    public void testBoxesOutsideKeepTheirLastValue() {
+        WorldState world = randomWorld(32, 1, new Random(36));
+        WorldState view = new WorldState(32, 32);
+        EntityIndex index = new EntityIndex(32, 32, PPM);
+        AreaOfInterest area = new AreaOfInterest(32, 32, PPM, 0, 2);
+        index.build(world);
+        area.filter(world, index, view);
+        for (int cell = 0; cell < 32 * 32; ++cell) {
+            boolean inside = area.contains(cell % 32, cell / 32);
+            assertEquals(inside && world.isBox(cell), view.isBox(cell));
+        }
+    }
+
+    /**
+     * Builds a state of a square map with player 0 in the middle, and monsters, bombs, effects and boxes spread at
+     * the same density whatever the size of the map.
+     */
+    private static WorldState randomWorld(int size, int tick, Random random) {
+        int cells = size * size;
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        buffer.putInt(tick);
+        buffer.put((byte) 0);
+        buffer.put((byte) -1);
+        buffer.putInt(-1);
+        for (int p = 0; p < WorldState.MAX_PLAYERS; ++p) {
+            buffer.put((byte) (p == 0 ? 1 : 0));
+            buffer.putFloat(size / 2f * PPM);
+            buffer.putFloat(size / 2f * PPM);
+        }
+        buffer.putShort((short) (cells / 8));
+        for (int i = 0; i < cells / 8; ++i) {
+            buffer.putShort((short) i);
+            buffer.putFloat(random.nextFloat() * size * PPM);
+            buffer.putFloat(random.nextFloat() * size * PPM);
+        }
+        for (int i = 0; i < (cells + 63) / 64; ++i) {
+            buffer.putLong(random.nextLong());
+        }
+        buffer.putShort((short) (cells / 16));
+        for (int i = 0; i < cells / 16; ++i) {
+            buffer.putShort((short) random.nextInt(cells));
+            buffer.putShort((short) random.nextInt(120));
+        }
+        buffer.putShort((short) (cells / 32));
+        for (int i = 0; i < cells / 32; ++i) {
+            buffer.putShort((short) random.nextInt(cells));
+            buffer.put((byte) random.nextInt(6));
+        }
+        buffer.putShort((short) (cells / 16));
+        for (int i = 0; i < cells / 16; ++i) {
+            buffer.putShort((short) random.nextInt(cells));
+        }
+        buffer.flip();
+        WorldState state = new WorldState(size, size);
+        state.read(buffer);
+        return state;
+    }
+
+    /**
+     * Filters the view of 16 clients from states of a 32x32 map and of a 128x128 map (16 times the entities), at the
+     * same density. The time per client depends on the entities in its area, not on the size of the map. Only run by
+     * the benchmark task.
+     */
+    @Test
+    @Tag("benchmark")
+    public void benchmarkMapSize() {
+        int radius = 8;
+        int clients = 16;
+        int ticks = 2000;
+        long[] filterNanos = new long[2];
+        int[] sizes = {32, 128};
+        int[] seen = new int[2];
+        for (int s = 0; s < sizes.length; ++s) {
+            int size = sizes[s];
+            Random random = new Random(37);
+            List<WorldState> worlds = new ArrayList<>();
+            for (int i = 0; i < 8; ++i) {
+                worlds.add(randomWorld(size, i + 1, random));
+            }
+            EntityIndex index = new EntityIndex(size, size, PPM);
+            AreaOfInterest[] areas = new AreaOfInterest[clients];
+            WorldState[] views = new WorldState[clients];
+            for (int c = 0; c < clients; ++c) {
+                areas[c] = new AreaOfInterest(size, size, PPM, 0, radius);
+                views[c] = new WorldState(size, size);
+            }
+            for (int tick = 0; tick < 2 * ticks; ++tick) {
+                WorldState world = worlds.get(tick % worlds.size());
+                index.build(world);
+                long start = System.nanoTime();
+                for (int c = 0; c < clients; ++c) {
+                    areas[c].filter(world, index, views[c]);
+                }
+                long end = System.nanoTime();
+                // the first half warms up
+                if (tick >= ticks) {
+                    filterNanos[s] += end - start;
+                }
+            }
+            seen[s] = views[0].getMonsterCount() + views[0].getBombCount() + views[0].getEffectCount();
+        }
+        double small = (double) filterNanos[0] / ticks / clients;
+        double large = (double) filterNanos[1] / ticks / clients;
+        assertTrue(seen[0] > 0 && seen[1] > 0);
+        assertTrue(large < small * 3, "filtering must not grow with the map: " + small / 1000 + " us on 32x32, "
+            + large / 1000 + " us on 128x128");
+    }
+}
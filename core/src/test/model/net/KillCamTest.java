@@ -0,0 +1,259 @@
+package model.net;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import x3.DetonatorCircle;
+import x3.model.game.EngineSnapshot;
+import x3.model.game.GameEngine;
+import x3.model.game.control.ExternalController;
+import x3.model.game.control.PlayerController;
+import x3.model.map.GameMap;
+import x3.model.map.Map1;
+import x3.model.map.Map2;
+import x3.model.net.KillCam;
+import x3.model.net.SnapshotCodec;
+import x3.model.net.WorldState;
+import x3.model.util.Pair;
+import x3.model.util.TickClock;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KillCamTest {
+    private static final float PPM = 5;
+    private static final float PRECISION = PPM / SnapshotCodec.SUBCELLS / 2 + 1e-4f;
+    private static final int[] MOVES = {
+        0, PlayerController.UP, PlayerController.DOWN, PlayerController.LEFT, PlayerController.RIGHT
+    };
+
+    private GameEngine engine;
+    private ExternalController[] controllers;
+    private final Random random = new Random(39);
+    private final Map<Integer, ByteBuffer> states = new HashMap<>();
+
+    @AfterEach
+    public void afterEach() {
+        engine.dispose();
+    }
+
+    /**
+     * Map1 without monsters, whose players only die when they're told to.
+     */
+    private static GameMap calmMap() {
+        return new Map1() {
+            @Override
+            public Stream<Pair> getMonsterSpawns() {
+                return Stream.empty();
+            }
+        };
+    }
+
+    private KillCam newRound(final GameMap map, int seconds, int size) {
+        DetonatorCircle game = new DetonatorCircle(0, 0);
+        game.setPlayerCount2();
+        game.wonRounds = new int[3];
+        engine = new GameEngine(game, map, PPM);
+        controllers = new ExternalController[] {new ExternalController(), new ExternalController()};
+        engine.setController(0, controllers[0]);
+        engine.setController(1, controllers[1]);
+        return new KillCam(engine.getGrid().getWidth(), engine.getGrid().getHeight(), PPM, seconds, size);
+    }
+
+    /**
+     * Steps the engine with random moves and records the tick, keeping the state of every tick to compare the
+     * playback with.
+     */
+    private void record(final KillCam killCam, int ticks) {
+        WorldState state = new WorldState(engine.getGrid().getWidth(), engine.getGrid().getHeight());
+        for (int t = 0; t < ticks && !engine.isGameEnded(); ++t) {
+            if (engine.getTick() % 20 == 0) {
+                for (ExternalController controller : controllers) {
+                    controller.setInput(MOVES[random.nextInt(MOVES.length)]);
+                }
+            }
+            engine.step(1 / 60f);
+            killCam.record(engine);
+            state.capture(engine);
+            ByteBuffer bytes = ByteBuffer.allocate(8192);
+            state.write(bytes);
+            states.put(state.getTick(), bytes.flip());
+        }
+    }
+
+    private void assertPlayedBack(int tick, final WorldState actual) {
+        WorldState expected = new WorldState(actual.getWidth(), actual.getHeight());
+        expected.read(states.get(tick).duplicate());
+        assertEquals(tick, actual.getTick());
+        for (int p = 0; p < WorldState.MAX_PLAYERS; ++p) {
+            assertEquals(expected.isAlive(p), actual.isAlive(p));
+            if (expected.isAlive(p)) {
+                assertEquals(expected.getPlayerX(p), actual.getPlayerX(p), PRECISION);
+                assertEquals(expected.getPlayerY(p), actual.getPlayerY(p), PRECISION);
+            }
+        }
+        assertEquals(expected.getMonsterCount(), actual.getMonsterCount());
+        for (int i = 0; i < expected.getMonsterCount(); ++i) {
+            assertEquals(expected.getMonsterX(i), actual.getMonsterX(i), PRECISION);
+            assertEquals(expected.getMonsterY(i), actual.getMonsterY(i), PRECISION);
+        }
+        assertEquals(expected.getBombCount(), actual.getBombCount());
+        assertEquals(expected.getBlastCount(), actual.getBlastCount());
+        for (int cell = 0; cell < expected.getWidth() * expected.getHeight(); ++cell) {
+            assertEquals(expected.isBox(cell), actual.isBox(cell));
+        }
+    }
+
+    @Test
+    public void testPlayback() {
+        KillCam killCam = newRound(calmMap(), KillCam.DEFAULT_SECONDS, KillCam.DEFAULT_BYTES);
+        assertEquals(KillCam.NONE, killCam.seek(0, new WorldState(1, 1)));
+        int ticks = 15 * TickClock.TICKS_PER_SECOND;
+        record(killCam, ticks);
+        int last = engine.getTick();
+        int first = killCam.getFirstTick();
+        int capacity = KillCam.DEFAULT_SECONDS * TickClock.TICKS_PER_SECOND;
+        assertAll(
+            () -> assertEquals(ticks, last),
+            () -> assertEquals(last, killCam.getLastTick()),
+            () -> assertEquals(capacity, killCam.getTickCount()),
+            () -> assertTrue(first > last - capacity && first <= last - capacity + KillCam.KEYFRAME_INTERVAL),
+            () -> assertEquals(KillCam.NONE, killCam.getKillTick())
+        );
+
+        WorldState played = new WorldState(engine.getGrid().getWidth(), engine.getGrid().getHeight());
+        for (int tick = first; tick <= last; ++tick) {
+            assertEquals(tick, killCam.seek(tick, played));
+            assertPlayedBack(tick, played);
+        }
+        // rewinding, skipping ahead, and ticks out of the recording
+        for (int i = 0; i < 100; ++i) {
+            int tick = first + random.nextInt(last - first + 1);
+            assertEquals(tick, killCam.seek(tick, played));
+            assertPlayedBack(tick, played);
+        }
+        assertEquals(first, killCam.seek(0, played));
+        assertPlayedBack(first, played);
+        assertEquals(last, killCam.seek(last + 100, played));
+        assertPlayedBack(last, played);
+        assertEquals(last, killCam.seek(last, played));
+        assertPlayedBack(last, played);
+    }
+
+    @Test
+    public void testKill() {
+        KillCam killCam = newRound(calmMap(), KillCam.DEFAULT_SECONDS, KillCam.DEFAULT_BYTES);
+        controllers[0].setInput(PlayerController.BOMB);
+        int died = KillCam.NONE;
+        for (int t = 0; t < 10 * TickClock.TICKS_PER_SECOND && died == KillCam.NONE; ++t) {
+            engine.step(1 / 60f);
+            killCam.record(engine);
+            if (engine.getPlayer(0) == null) {
+                died = engine.getTick();
+            }
+        }
+        assertNotEquals(KillCam.NONE, died);
+        assertEquals(died, killCam.getKillTick());
+        assertEquals(0, killCam.getVictim());
+
+        WorldState played = new WorldState(engine.getGrid().getWidth(), engine.getGrid().getHeight());
+        // the player is hit by the explosion in one tick, and removed in the next
+        assertEquals(died - 1, killCam.seek(died - 1, played));
+        assertTrue(played.isAlive(0));
+        assertTrue(played.getBlastCount() > 0);
+        assertEquals(died, killCam.seek(died, played));
+        assertFalse(played.isAlive(0));
+    }
+
+    /**
+     * A ring too small for the seconds asked for keeps as many of the last ticks as fit in it.
+     */
+    @Test
+    public void testByteBudget() {
+        int size = 2048;
+        KillCam killCam = newRound(new Map2(), KillCam.DEFAULT_SECONDS, size);
+        record(killCam, 5 * TickClock.TICKS_PER_SECOND);
+        int last = engine.getTick();
+        int first = killCam.getFirstTick();
+        assertTrue(killCam.getBytesUsed() <= size);
+        assertTrue(killCam.getTickCount() < last);
+        assertTrue(first > 0);
+
+        WorldState played = new WorldState(engine.getGrid().getWidth(), engine.getGrid().getHeight());
+        for (int tick = first; tick <= last; ++tick) {
+            assertEquals(tick, killCam.seek(tick, played));
+            assertPlayedBack(tick, played);
+        }
+    }
+
+    @Test
+    public void testRecordingStartsOverAfterRestore() {
+        KillCam killCam = newRound(calmMap(), KillCam.DEFAULT_SECONDS, KillCam.DEFAULT_BYTES);
+        EngineSnapshot snapshot = new EngineSnapshot(engine);
+        record(killCam, 30);
+        engine.save(snapshot);
+        record(killCam, 30);
+        engine.restore(snapshot);
+        states.clear();
+        record(killCam, 10);
+
+        WorldState played = new WorldState(engine.getGrid().getWidth(), engine.getGrid().getHeight());
+        assertAll(
+            () -> assertEquals(10, killCam.getTickCount()),
+            () -> assertEquals(31, killCam.getFirstTick()),
+            () -> assertEquals(40, killCam.getLastTick())
+        );
+        for (int tick = 31; tick <= 40; ++tick) {
+            assertEquals(tick, killCam.seek(tick, played));
+            assertPlayedBack(tick, played);
+        }
+    }
+
+    /**
+     * Ten seconds of Map2 (8 monsters) fit well within the ring.
+     */
+    @Test
+    public void testFootprint() {
+        KillCam killCam = newRound(new Map2(), KillCam.DEFAULT_SECONDS, KillCam.DEFAULT_BYTES);
+        record(killCam, 2 * TickClock.TICKS_PER_SECOND);
+        for (int ticks = 0; ticks < 5000; ++ticks) {
+            if (engine.isGameEnded()) {
+                engine.dispose();
+                killCam = newRound(new Map2(), KillCam.DEFAULT_SECONDS, KillCam.DEFAULT_BYTES);
+            }
+            engine.step(1 / 60f);
+            killCam.record(engine);
+        }
+        assertTrue(killCam.getFootprint() < 200 * 1024, "footprint: " + killCam.getFootprint() + " bytes");
+        assertTrue(killCam.getBytesUsed() < KillCam.DEFAULT_BYTES / 2, "bytes used: " + killCam.getBytesUsed());
+    }
+
+    /**
+     * Recording a tick of Map2 takes a few microseconds. Only run by the benchmark task.
+     */
+    @Test
+    @Tag("benchmark")
+    public void benchmarkRecording() {
+        KillCam killCam = newRound(new Map2(), KillCam.DEFAULT_SECONDS, KillCam.DEFAULT_BYTES);
+        record(killCam, 2 * TickClock.TICKS_PER_SECOND);
+        int ticks = 0;
+        long nanos = 0;
+        while (ticks < 5000) {
+            if (engine.isGameEnded()) {
+                engine.dispose();
+                killCam = newRound(new Map2(), KillCam.DEFAULT_SECONDS, KillCam.DEFAULT_BYTES);
+            }
+            engine.step(1 / 60f);
+            long start = System.nanoTime();
+            killCam.record(engine);
+            nanos += System.nanoTime() - start;
+            ++ticks;
+        }
+        assertTrue(nanos / ticks < 200_000, "recording must not slow down the ticks: " + nanos / 1e3 / ticks + " us");
+    }
+}
@@ -0,0 +1,92 @@
+package model.net;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import x3.model.map.Map1;
+import x3.model.map.Map2;
+import x3.model.net.MatchHost;
+
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs a {@link MatchHost} at full load for over a minute, against the clock. Only run by the benchmark task.
+ */
+@Tag("benchmark")
+public class MatchHostBenchmark {
+    private MatchHost host;
+
+    @AfterEach
+    public void afterEach() {
+        host.dispose();
+    }
+
+    /**
+     * Keeps 500 matches of bots running for a while, starting new ones as rounds end. The tick rate is scaled to the
+     * processors of the machine, so that the pool can keep up: every second, the matches must tick at their rate, and
+     * in a typical second the ticks must start well within a tick period. Garbage collection pauses make the odd
+     * second late, so only a few ticks may start more than a period late over the whole soak.
+     */
+    @Test
+    public void soakTest() throws InterruptedException {
+        int matches = 500;
+        int processors = Runtime.getRuntime().availableProcessors();
+        int tickRate = Math.min(60, 10 * processors);
+        host = new MatchHost(processors, matches, tickRate, MatchHost.DEFAULT_BOT_BUDGET);
+        long seed = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (host.getMatchCount() < matches && System.nanoTime() < deadline) {
+            try {
+                host.host(++seed % 2 == 0 ? new Map1() : new Map2(), 2, seed);
+            } catch (RejectedExecutionException e) {
+                Thread.sleep(10);
+            }
+        }
+        assertEquals(matches, host.getMatchCount(), "the host admitted too few matches");
+
+        int seconds = 10;
+        long[] lateness = new long[seconds];
+        long[] ticks = new long[seconds];
+        long[] late = new long[seconds];
+        int lowest = matches;
+        for (int s = 0; s < seconds; ++s) {
+            long ticksBefore = host.getTicks();
+            long latenessBefore = host.getLatenessTotal();
+            long lateBefore = host.getLateTicks();
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+            while (System.nanoTime() < end) {
+                lowest = Math.min(lowest, host.getMatchCount());
+                while (host.getMatchCount() < matches) {
+                    try {
+                        host.host(++seed % 2 == 0 ? new Map1() : new Map2(), 2, seed);
+                    } catch (RejectedExecutionException e) {
+                        break;
+                    }
+                }
+                Thread.sleep(50);
+            }
+            ticks[s] = host.getTicks() - ticksBefore;
+            lateness[s] = host.getLatenessTotal() - latenessBefore;
+            late[s] = host.getLateTicks() - lateBefore;
+        }
+
+        long[] averages = new long[seconds];
+        long totalTicks = 0;
+        long totalLate = 0;
+        for (int s = 0; s < seconds; ++s) {
+            assertTrue(ticks[s] > matches * tickRate / 2, "the matches must tick at their rate: " + ticks[s]);
+            averages[s] = lateness[s] / ticks[s];
+            totalTicks += ticks[s];
+            totalLate += late[s];
+        }
+        Arrays.sort(averages);
+        long median = averages[seconds / 2];
+        assertTrue(median < host.getTickNanos() / 10, "ticks must start on time: " + median / 1e6 + " ms late");
+        assertTrue(totalLate < totalTicks / 10, "few ticks may start a period late: " + totalLate);
+        assertTrue(lowest > matches * 9 / 10, "too few matches were running: " + lowest);
+    }
+}
@@ -0,0 +1,111 @@
+package model.net;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import x3.model.map.GameMap;
+import x3.model.map.Map1;
+import x3.model.net.HostedMatch;
+import x3.model.net.MatchHost;
+import x3.model.util.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MatchHostTest {
+    private MatchHost host;
+
+    @AfterEach
+    public void afterEach() {
+        host.dispose();
+    }
+
+    /**
+     * Map1 without monsters, whose rounds last until the bots blow each other up or the map has shrunk.
+     */
+    private static GameMap calmMap() {
+        return new Map1() {
+            @Override
+            public Stream<Pair> getMonsterSpawns() {
+                return Stream.empty();
+            }
+        };
+    }
+
+    @Test
+    public void testMatchesEnd() throws InterruptedException {
+        host = new MatchHost(2, 8, 250, MatchHost.DEFAULT_BOT_BUDGET);
+        List<HostedMatch> matches = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            matches.add(host.host(new Map1(), 2 + i % 2, i));
+        }
+        for (HostedMatch match : matches) {
+            assertTrue(match.awaitFinished(30, TimeUnit.SECONDS));
+        }
+        for (HostedMatch match : matches) {
+            assertAll(
+                () -> assertTrue(match.isFinished()),
+                () -> assertFalse(match.isStopped()),
+                () -> assertNull(match.getFailure()),
+                () -> assertTrue(match.getStats().getTicks() > 0),
+                () -> assertEquals(match.getStats().getTicks(), match.getLateness().getTicks())
+            );
+        }
+        assertAll(
+            () -> assertEquals(0, host.getMatchCount()),
+            () -> assertEquals(4, host.getFinishedCount()),
+            () -> assertEquals(matches.stream().mapToLong(m -> m.getStats().getTicks()).sum(), host.getTicks())
+        );
+    }
+
+    @Test
+    public void testAdmission() throws InterruptedException {
+        host = new MatchHost(1, 2, 60, MatchHost.DEFAULT_BOT_BUDGET);
+        HostedMatch first = host.host(calmMap(), 2, 1);
+        HostedMatch second = host.host(calmMap(), 2, 2);
+        assertThrows(RejectedExecutionException.class, () -> host.host(calmMap(), 2, 3));
+        assertEquals(2, host.getMatchCount());
+        assertEquals(1, host.getRejectedCount());
+
+        assertEquals(2, host.drain(0, TimeUnit.SECONDS));
+        assertAll(
+            () -> assertTrue(host.isDraining()),
+            () -> assertTrue(first.isFinished() && first.isStopped()),
+            () -> assertTrue(second.isFinished() && second.isStopped()),
+            () -> assertEquals(0, host.getMatchCount()),
+            () -> assertThrows(RejectedExecutionException.class, () -> host.host(calmMap(), 2, 4))
+        );
+    }
+
+    /**
+     * A match whose ticks can't keep up with its rate keeps the host from admitting others, once it is past its
+     * first ticks.
+     */
+    @Test
+    public void testRejectedWhenBehind() throws InterruptedException {
+        host = new MatchHost(1, 4, 100_000, MatchHost.DEFAULT_BOT_BUDGET);
+        host.host(calmMap(), 2, 6);
+        assertEquals(0, host.getBacklogNanos());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (host.getTicks() < MatchHost.WARM_UP_TICKS + 100 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(host.getBacklogNanos() >= host.getTickNanos());
+        RejectedExecutionException e = assertThrows(RejectedExecutionException.class,
+            () -> host.host(calmMap(), 2, 7));
+        assertEquals("The host is behind its ticks", e.getMessage());
+    }
+
+    @Test
+    public void testDrainWaitsForTheRunningMatches() throws InterruptedException {
+        host = new MatchHost(2, 4, 250, MatchHost.DEFAULT_BOT_BUDGET);
+        HostedMatch match = host.host(new Map1(), 2, 5);
+        assertEquals(0, host.drain(30, TimeUnit.SECONDS));
+        assertTrue(match.isFinished());
+        assertFalse(match.isStopped());
+    }
+}
@@ -0,0 +1,207 @@
+package model.net;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import x3.model.game.control.PlayerController;
+import x3.model.map.Map1;
+import x3.model.net.InterestListener;
+import x3.model.net.MatchClient;
+import x3.model.net.MatchServer;
+import x3.model.net.WorldState;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MatchServerTest {
+    private static final long TIMEOUT = 10_000;
+
+    private MatchServer server;
+    private final List<MatchClient> clients = new ArrayList<>();
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        server = new MatchServer(new Map1(), 2, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        for (MatchClient client : clients) {
+            client.close();
+        }
+        server.dispose();
+    }
+
+    private MatchClient connect() throws IOException {
+        MatchClient client = new MatchClient(server.getAddress());
+        clients.add(client);
+        return client;
+    }
+
+    private void pollUntil(BooleanSupplier condition) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            for (MatchClient client : clients) {
+                client.poll();
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testJoin() throws IOException, InterruptedException {
+        MatchClient first = connect();
+        pollUntil(first::isJoined);
+        assertFalse(server.isStarted());
+
+        MatchClient second = connect();
+        pollUntil(() -> second.isJoined() && first.getStatesReceived() > 0 && second.getStatesReceived() > 0);
+        assertAll(
+            () -> assertEquals(0, first.getPlayer()),
+            () -> assertEquals(1, second.getPlayer()),
+            () -> assertEquals(2, first.getPlayerCount()),
+            () -> assertTrue(server.isStarted()),
+            () -> assertEquals(2, server.getConnectedCount()),
+            () -> assertEquals(15, first.getState().getWidth()),
+            () -> assertTrue(first.isWall(0)),
+            () -> assertFalse(first.isWall(15 + 1))
+        );
+    }
+
+    @Test
+    public void testFullServerRefuses() throws IOException, InterruptedException {
+        MatchClient first = connect();
+        MatchClient second = connect();
+        pollUntil(() -> first.isJoined() && second.isJoined());
+        MatchClient third = connect();
+        pollUntil(third::isFull);
+        assertAll(
+            () -> assertFalse(third.isJoined()),
+            () -> assertEquals(2, server.getConnectedCount())
+        );
+    }
+
+    @Test
+    public void testInputsMovePlayer() throws IOException, InterruptedException {
+        MatchClient first = connect();
+        MatchClient second = connect();
+        pollUntil(() -> first.getStatesReceived() > 0 && second.getStatesReceived() > 0);
+        WorldState state = first.getState();
+        float startX = state.getPlayerX(0);
+        float startY = state.getPlayerY(1);
+        int direction = startX < state.getWidth() * MatchServer.PPM / 2 ? PlayerController.RIGHT : PlayerController.LEFT;
+
+        int sequence = first.sendInput(direction);
+        pollUntil(() -> first.getAckedSequence() == sequence);
+        int ackTick = first.getState().getTick();
+        pollUntil(() -> first.getState().getTick() > ackTick + 20);
+
+        assertAll(
+            () -> assertNotEquals(startX, first.getState().getPlayerX(0)),
+            () -> assertEquals(direction == PlayerController.RIGHT, first.getState().getPlayerX(0) > startX),
+            () -> assertEquals(startY, first.getState().getPlayerY(1), 0.01f),
+            () -> assertTrue(second.getState().getTick() > ackTick),
+            () -> assertTrue(server.getStats().getTicks() > 20),
+            () -> assertTrue(server.getStats().getAverageNanos() > 0)
+        );
+    }
+
+    @Test
+    public void testSpectator() throws IOException, InterruptedException {
+        MatchClient spectator = new MatchClient(server.getAddress(), true);
+        clients.add(spectator);
+        pollUntil(spectator::isSpectating);
+        MatchClient first = connect();
+        MatchClient second = connect();
+        pollUntil(() -> spectator.getStatesReceived() > 10 && first.getStatesReceived() > 10);
+        assertAll(
+            () -> assertFalse(spectator.isJoined()),
+            () -> assertEquals(-1, spectator.getPlayer()),
+            () -> assertEquals(2, spectator.getPlayerCount()),
+            () -> assertEquals(2, server.getConnectedCount()),
+            () -> assertEquals(1, server.getSpectatorCount()),
+            () -> assertEquals(1, second.getPlayer()),
+            () -> assertTrue(spectator.isWall(0))
+        );
+    }
+
+    @Test
+    public void testInterestRadius() throws IOException, InterruptedException {
+        int radius = 2;
+        server.dispose();
+        server = new MatchServer(new Map1(), 2, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), radius);
+        server.start();
+        MatchClient first = connect();
+        MatchClient second = connect();
+        Set<Integer> monsters = new HashSet<>();
+        first.setInterestListener(new InterestListener() {
+            @Override
+            public void entered(int kind, int key) {
+                if (kind == InterestListener.MONSTER) {
+                    monsters.add(key);
+                }
+            }
+
+            @Override
+            public void left(int kind, int key) {
+                if (kind == InterestListener.MONSTER) {
+                    monsters.remove(key);
+                }
+            }
+        });
+        pollUntil(() -> first.getStatesReceived() > 10 && second.getStatesReceived() > 10);
+
+        WorldState state = first.getState();
+        float reach = (radius + 1) * MatchServer.PPM;
+        for (int i = 0; i < state.getMonsterCount(); ++i) {
+            assertTrue(Math.abs(state.getMonsterX(i) - state.getPlayerX(0)) <= reach);
+            assertTrue(Math.abs(state.getMonsterY(i) - state.getPlayerY(0)) <= reach);
+            assertTrue(monsters.contains(state.getMonsterId(i)));
+        }
+        assertAll(
+            () -> assertEquals(radius, server.getInterestRadius()),
+            () -> assertEquals(state.getMonsterCount(), monsters.size()),
+            () -> assertTrue(state.isAlive(1))
+        );
+    }
+
+    @Test
+    public void testLagCompensation() throws IOException, InterruptedException {
+        server.dispose();
+        server = new MatchServer(new Map1(), 2, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0, 20);
+        server.start();
+        MatchClient first = connect();
+        MatchClient second = connect();
+        pollUntil(() -> first.getStatesReceived() > 10 && second.getStatesReceived() > 10);
+
+        assertAll(
+            () -> assertEquals(20, server.getMaxRewind()),
+            () -> assertEquals(0, server.getInterestRadius()),
+            () -> assertTrue(first.getState().getTick() > 10)
+        );
+    }
+
+    @Test
+    public void testDisconnectFreesSlot() throws IOException, InterruptedException {
+        MatchClient first = connect();
+        MatchClient second = connect();
+        pollUntil(() -> first.isJoined() && second.isJoined());
+        second.close();
+        clients.remove(second);
+        pollUntil(() -> server.getConnectedCount() == 1);
+
+        MatchClient third = connect();
+        pollUntil(third::isJoined);
+        assertEquals(1, third.getPlayer());
+    }
+}
@@ -0,0 +1,335 @@
+package model.net;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import x3.DetonatorCircle;
+import x3.model.game.EngineSnapshot;
+import x3.model.game.GameEngine;
+import x3.model.game.control.ExternalController;
+import x3.model.game.control.PlayerController;
+import x3.model.map.GameMap;
+import x3.model.map.Map1;
+import x3.model.map.Map2;
+import x3.model.net.ReplayFile;
+import x3.model.net.ReplayWriter;
+import x3.model.net.SnapshotCodec;
+import x3.model.net.WorldState;
+import x3.model.util.TickClock;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplayTest {
+    private static final float PPM = 5;
+    private static final float PRECISION = PPM / SnapshotCodec.SUBCELLS / 2 + 1e-4f;
+    private static final int[] MOVES = {
+        0, PlayerController.UP, PlayerController.DOWN, PlayerController.LEFT, PlayerController.RIGHT
+    };
+
+    private Path file;
+    private GameEngine engine;
+    private ExternalController[] controllers;
+    private final Random random = new Random(40);
+    /**
+     * The recorded states of every round, by tick.
+     */
+    private final List<Map<Integer, ByteBuffer>> rounds = new ArrayList<>();
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        file = Files.createTempFile("replay", ".bin");
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        if (engine != null) {
+            engine.dispose();
+        }
+        Files.deleteIfExists(file);
+    }
+
+    private void newRound(final ReplayWriter writer, final GameMap map) throws IOException {
+        if (engine != null) {
+            engine.dispose();
+        }
+        DetonatorCircle game = new DetonatorCircle(0, 0);
+        game.setPlayerCount2();
+        game.wonRounds = new int[3];
+        engine = new GameEngine(game, map, PPM);
+        controllers = new ExternalController[] {new ExternalController(), new ExternalController()};
+        engine.setController(0, controllers[0]);
+        engine.setController(1, controllers[1]);
+        writer.startRound(engine);
+        rounds.add(new HashMap<>());
+    }
+
+    /**
+     * Steps the engine with random moves and records the ticks, keeping the state of every tick to compare the
+     * playback with.
+     */
+    private void record(final ReplayWriter writer, int ticks) throws IOException {
+        WorldState state = new WorldState(engine.getGrid().getWidth(), engine.getGrid().getHeight());
+        for (int t = 0; t < ticks && !engine.isGameEnded(); ++t) {
+            if (engine.getTick() % 20 == 0) {
+                for (ExternalController controller : controllers) {
+                    controller.setInput(MOVES[random.nextInt(MOVES.length)]);
+                }
+            }
+            engine.step(1 / 60f);
+            writer.record(engine);
+            state.capture(engine);
+            ByteBuffer bytes = ByteBuffer.allocate(8192);
+            state.write(bytes);
+            rounds.get(rounds.size() - 1).put(state.getTick(), bytes.flip());
+        }
+    }
+
+    private void assertPlayedBack(int round, int tick, final WorldState actual) {
+        WorldState expected = new WorldState(actual.getWidth(), actual.getHeight());
+        expected.read(rounds.get(round).get(tick).duplicate());
+        assertEquals(tick, actual.getTick());
+        for (int p = 0; p < WorldState.MAX_PLAYERS; ++p) {
+            assertEquals(expected.isAlive(p), actual.isAlive(p));
+            if (expected.isAlive(p)) {
+                assertEquals(expected.getPlayerX(p), actual.getPlayerX(p), PRECISION);
+                assertEquals(expected.getPlayerY(p), actual.getPlayerY(p), PRECISION);
+            }
+        }
+        assertEquals(expected.getMonsterCount(), actual.getMonsterCount());
+        for (int i = 0; i < expected.getMonsterCount(); ++i) {
+            assertEquals(expected.getMonsterX(i), actual.getMonsterX(i), PRECISION);
+            assertEquals(expected.getMonsterY(i), actual.getMonsterY(i), PRECISION);
+        }
+        assertEquals(expected.getBombCount(), actual.getBombCount());
+        assertEquals(expected.getBlastCount(), actual.getBlastCount());
+        for (int cell = 0; cell < expected.getWidth() * expected.getHeight(); ++cell) {
+            assertEquals(expected.isBox(cell), actual.isBox(cell));
+        }
+    }
+
+    @Test
+    public void testRounds() throws IOException {
+        try (ReplayWriter writer = new ReplayWriter(file, PPM)) {
+            newRound(writer, new Map1());
+            record(writer, 5 * TickClock.TICKS_PER_SECOND);
+            newRound(writer, new Map2());
+            record(writer, 3 * TickClock.TICKS_PER_SECOND);
+            assertEquals(2, writer.getRoundCount());
+        }
+
+        try (ReplayFile replay = new ReplayFile(file)) {
+            assertEquals(2, replay.getRoundCount());
+            for (int r = 0; r < 2; ++r) {
+                GameMap map = r == 0 ? new Map1() : new Map2();
+                int round = r;
+                assertAll(
+                    () -> assertEquals(map.getMapWidth(), replay.getWidth(round)),
+                    () -> assertEquals(map.getMapHeight(), replay.getHeight(round)),
+                    () -> assertEquals(1, replay.getFirstTick(round)),
+                    () -> assertEquals(rounds.get(round).size(), replay.getLastTick(round)),
+                    () -> assertEquals((rounds.get(round).size() - 1) / ReplayWriter.DEFAULT_KEYFRAME_INTERVAL + 1,
+                        replay.getKeyframeCount(round))
+                );
+                map.getWalls().forEach(wall ->
+                    assertTrue(replay.isWall(round, wall.row * map.getMapWidth() + wall.col)));
+
+                WorldState played = new WorldState(replay.getWidth(r), replay.getHeight(r));
+                for (int tick = 1; tick <= replay.getLastTick(r); ++tick) {
+                    assertEquals(tick, replay.seek(r, tick, played));
+                    assertPlayedBack(r, tick, played);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSeek() throws IOException {
+        try (ReplayWriter writer = new ReplayWriter(file, PPM)) {
+            newRound(writer, new Map2());
+            record(writer, 10 * TickClock.TICKS_PER_SECOND);
+        }
+
+        try (ReplayFile replay = new ReplayFile(file)) {
+            int last = replay.getLastTick(0);
+            WorldState played = new WorldState(replay.getWidth(0), replay.getHeight(0));
+            // rewinding, skipping ahead, and the same tick again
+            for (int i = 0; i < 200; ++i) {
+                int tick = 1 + random.nextInt(last);
+                assertEquals(tick, replay.seek(0, tick, played));
+                assertPlayedBack(0, tick, played);
+                assertEquals(tick, replay.seek(0, tick, played));
+                assertPlayedBack(0, tick, played);
+            }
+            assertEquals(1, replay.seek(0, -5, played));
+            assertPlayedBack(0, 1, played);
+            assertEquals(last, replay.seek(0, last + 100, played));
+            assertPlayedBack(0, last, played);
+        }
+    }
+
+    /**
+     * A round restored to an earlier tick continues in a new round of the replay.
+     */
+    @Test
+    public void testRestoreStartsNewRound() throws IOException {
+        try (ReplayWriter writer = new ReplayWriter(file, PPM, 10)) {
+            newRound(writer, new Map1());
+            EngineSnapshot snapshot = new EngineSnapshot(engine);
+            record(writer, 30);
+            engine.save(snapshot);
+            record(writer, 30);
+            engine.restore(snapshot);
+            rounds.add(new HashMap<>());
+            record(writer, 10);
+        }
+
+        try (ReplayFile replay = new ReplayFile(file)) {
+            assertAll(
+                () -> assertEquals(2, replay.getRoundCount()),
+                () -> assertEquals(60, replay.getLastTick(0)),
+                () -> assertEquals(31, replay.getFirstTick(1)),
+                () -> assertEquals(40, replay.getLastTick(1)),
+                () -> assertEquals(6, replay.getKeyframeCount(0)),
+                () -> assertEquals(1, replay.getKeyframeCount(1))
+            );
+            WorldState played = new WorldState(replay.getWidth(1), replay.getHeight(1));
+            for (int tick = 31; tick <= 40; ++tick) {
+                assertEquals(tick, replay.seek(1, tick, played));
+                assertPlayedBack(1, tick, played);
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyRound() throws IOException {
+        try (ReplayWriter writer = new ReplayWriter(file, PPM)) {
+            newRound(writer, new Map1());
+        }
+        try (ReplayFile replay = new ReplayFile(file)) {
+            assertEquals(1, replay.getRoundCount());
+            assertEquals(ReplayFile.NONE, replay.getFirstTick(0));
+            assertEquals(ReplayFile.NONE, replay.seek(0, 0, new WorldState(replay.getWidth(0), replay.getHeight(0))));
+        }
+    }
+
+    @Test
+    public void testRecordWithoutRound() throws IOException {
+        try (ReplayWriter writer = new ReplayWriter(file, PPM)) {
+            DetonatorCircle game = new DetonatorCircle(0, 0);
+            game.setPlayerCount2();
+            game.wonRounds = new int[3];
+            engine = new GameEngine(game, new Map1(), PPM);
+            assertThrows(IllegalStateException.class, () -> writer.record(engine));
+        }
+    }
+
+    /**
+     * Files that aren't complete replays are rejected when opened, and corrupt frames when they're played back.
+     */
+    @Test
+    public void testCorruptFile() throws IOException {
+        try (ReplayWriter writer = new ReplayWriter(file, PPM)) {
+            newRound(writer, new Map1());
+            record(writer, 3 * TickClock.TICKS_PER_SECOND);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+
+        // a game that crashed while it was recorded has no index
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+        assertThrows(IOException.class, () -> new ReplayFile(file).close());
+        Files.write(file, new byte[3]);
+        assertThrows(IOException.class, () -> new ReplayFile(file).close());
+
+        byte[] badVersion = bytes.clone();
+        badVersion[5] = 99;
+        Files.write(file, badVersion);
+        assertThrows(IOException.class, () -> new ReplayFile(file).close());
+
+        byte[] badIndex = bytes.clone();
+        ByteBuffer.wrap(badIndex).putLong(bytes.length - 12, bytes.length);
+        Files.write(file, badIndex);
+        assertThrows(IOException.class, () -> new ReplayFile(file).close());
+
+        // the length of the first frame, after the header and the walls of the round
+        Files.write(file, bytes);
+        int frame;
+        try (ReplayFile replay = new ReplayFile(file)) {
+            frame = 10 + 4 + (replay.getWidth(0) * replay.getHeight(0) + 63) / 64 * Long.BYTES;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(2).putShort(0, (short) 3), frame);
+        }
+        try (ReplayFile replay = new ReplayFile(file)) {
+            WorldState played = new WorldState(replay.getWidth(0), replay.getHeight(0));
+            assertThrows(IOException.class, () -> replay.seek(0, 1, played));
+        }
+    }
+
+    /**
+     * The last replay of a directory is the one whose name, the time it was recorded, comes last.
+     */
+    @Test
+    public void testLatest(@TempDir final Path dir) throws IOException {
+        assertNull(ReplayFile.latest(dir.resolve("missing")));
+        assertNull(ReplayFile.latest(dir));
+        Files.createFile(dir.resolve("2026-10-19_08-00-00-000" + ReplayFile.EXTENSION));
+        Files.createFile(dir.resolve("2026-10-19_09-30-00-000" + ReplayFile.EXTENSION));
+        Files.createFile(dir.resolve("2026-10-19_09-00-00-000" + ReplayFile.EXTENSION));
+        Files.createFile(dir.resolve("notes.txt"));
+        assertEquals(dir.resolve("2026-10-19_09-30-00-000" + ReplayFile.EXTENSION), ReplayFile.latest(dir));
+    }
+
+    /**
+     * Seeking any tick of a long recording decodes at most one keyframe interval, so it takes about as long as near
+     * its start. Only run by the benchmark task.
+     */
+    @Test
+    @Tag("benchmark")
+    public void benchmarkSeek() throws IOException {
+        int target = 20 * 60 * TickClock.TICKS_PER_SECOND;
+        try (ReplayWriter writer = new ReplayWriter(file, PPM)) {
+            newRound(writer, new Map2());
+            WorldState state = new WorldState(engine.getGrid().getWidth(), engine.getGrid().getHeight());
+            while (engine.getTick() < target) {
+                engine.step(1 / 60f);
+                writer.record(engine);
+                if (engine.getTick() % 1000 == 0) {
+                    state.capture(engine);
+                    ByteBuffer bytes = ByteBuffer.allocate(8192);
+                    state.write(bytes);
+                    rounds.get(0).put(state.getTick(), bytes.flip());
+                }
+            }
+        }
+
+        try (ReplayFile replay = new ReplayFile(file)) {
+            WorldState played = new WorldState(replay.getWidth(0), replay.getHeight(0));
+            int seeks = 200;
+            long nanos = 0;
+            for (int i = 0; i < seeks; ++i) {
+                int tick = (1 + random.nextInt(target / 1000)) * 1000;
+                long start = System.nanoTime();
+                assertEquals(tick, replay.seek(0, tick, played));
+                nanos += System.nanoTime() - start;
+                assertPlayedBack(0, tick, played);
+            }
+            assertTrue(nanos / seeks < 20_000_000,
+                "seeking must not decode the whole recording: " + nanos / 1e6 / seeks + " ms per seek");
+        }
+    }
+}
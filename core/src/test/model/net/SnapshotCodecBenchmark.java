@@ -0,0 +1,130 @@
+package model.net;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import x3.DetonatorCircle;
+import x3.model.game.GameEngine;
+import x3.model.game.control.ExternalController;
+import x3.model.game.control.PlayerController;
+import x3.model.map.Map2;
+import x3.model.net.SnapshotCodec;
+import x3.model.net.WorldState;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Times the {@link SnapshotCodec} on Map2 (8 monsters), and reports the size of its snapshots. Only run by the
+ * benchmark task.
+ */
+@Tag("benchmark")
+public class SnapshotCodecBenchmark {
+    private static final float PPM = 5;
+    private static final int[] INPUTS = {
+        PlayerController.UP, PlayerController.DOWN, PlayerController.LEFT, PlayerController.RIGHT, PlayerController.BOMB
+    };
+
+    private GameEngine engine;
+    private ExternalController[] controllers;
+    private WorldState state;
+    private final Random random = new Random(32);
+
+    private void newRound() {
+        DetonatorCircle game = new DetonatorCircle(0, 0);
+        game.setPlayerCount2();
+        game.wonRounds = new int[3];
+        engine = new GameEngine(game, new Map2(), PPM);
+        controllers = new ExternalController[] {new ExternalController(), new ExternalController()};
+        engine.setController(0, controllers[0]);
+        engine.setController(1, controllers[1]);
+        state = new WorldState(engine.getGrid().getWidth(), engine.getGrid().getHeight());
+    }
+
+    @AfterEach
+    public void afterEach() {
+        engine.dispose();
+    }
+
+    /**
+     * Plays rounds of Map2 with random inputs, and encodes every state as a keyframe and as a delta against the state
+     * a round trip ago. The bytes per snapshot and the encode and decode times are published to the test report, and
+     * encoding and decoding a state must take a small fraction of a tick.
+     */
+    @Test
+    public void benchmarkMap2(final TestReporter reporter) throws ProtocolException {
+        newRound();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+        WorldState decoded = new WorldState(state.getWidth(), state.getHeight());
+        int warmup = 2000;
+        int ticks = 5000;
+        int rtt = 6;
+        long rawBytes = 0;
+        long keyframeBytes = 0;
+        long deltaBytes = 0;
+        long encodeNanos = 0;
+        long decodeNanos = 0;
+        int measured = 0;
+        for (int tick = 0; tick < warmup + ticks; ) {
+            // the random players blow themselves up quickly: play as many rounds as needed
+            if (engine.isGameEnded()) {
+                engine.dispose();
+                newRound();
+            }
+            SnapshotCodec server = new SnapshotCodec(state.getWidth(), state.getHeight(), PPM);
+            SnapshotCodec client = new SnapshotCodec(state.getWidth(), state.getHeight(), PPM);
+            for (; tick < warmup + ticks && !engine.isGameEnded(); ++tick) {
+                if (engine.getTick() % 20 == 0) {
+                    for (ExternalController controller : controllers) {
+                        controller.setInput(INPUTS[random.nextInt(INPUTS.length)]);
+                    }
+                }
+                engine.step(1 / 60f);
+                state.capture(engine);
+                buffer.clear();
+                state.write(buffer);
+                int raw = buffer.position();
+
+                long start = System.nanoTime();
+                server.capture(state);
+                buffer.clear();
+                server.encode(SnapshotCodec.NO_BASELINE, buffer);
+                int keyframe = buffer.position();
+                buffer.clear();
+                // the client acknowledged the state sent a round trip ago
+                server.encode(state.getTick() - rtt, buffer);
+                int delta = buffer.position();
+                long encoded = System.nanoTime();
+                buffer.flip();
+                client.decode(buffer, decoded);
+                long end = System.nanoTime();
+
+                if (tick >= warmup) {
+                    ++measured;
+                    rawBytes += raw;
+                    keyframeBytes += keyframe;
+                    deltaBytes += delta;
+                    encodeNanos += encoded - start;
+                    decodeNanos += end - encoded;
+                }
+            }
+        }
+        assertTrue(measured > 0);
+        reporter.publishEntry(Map.of(
+            "ticks", Integer.toString(measured),
+            "raw bytes", Long.toString(rawBytes / measured),
+            "keyframe bytes", Long.toString(keyframeBytes / measured),
+            "delta bytes", Long.toString(deltaBytes / measured),
+            "encode ns (keyframe + delta)", Long.toString(encodeNanos / measured),
+            "decode ns", Long.toString(decodeNanos / measured)
+        ));
+        long perTick = (encodeNanos + decodeNanos) / measured;
+        assertTrue(perTick < 1_000_000_000L / 60 / 100,
+            "encoding and decoding must take under 1% of a tick, took " + perTick + " ns");
+    }
+}
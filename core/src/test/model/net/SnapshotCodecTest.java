@@ -0,0 +1,230 @@
+package model.net;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import x3.DetonatorCircle;
+import x3.model.game.GameEngine;
+import x3.model.game.control.ExternalController;
+import x3.model.game.control.PlayerController;
+import x3.model.map.Map2;
+import x3.model.net.SnapshotCodec;
+import x3.model.net.WorldState;
+
+import java.lang.management.ManagementFactory;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotCodecTest {
+    private static final float PPM = 5;
+    private static final float PRECISION = PPM / SnapshotCodec.SUBCELLS / 2 + 1e-4f;
+    private static final int[] INPUTS = {
+        PlayerController.UP, PlayerController.DOWN, PlayerController.LEFT, PlayerController.RIGHT, PlayerController.BOMB
+    };
+
+    private GameEngine engine;
+    private ExternalController[] controllers;
+    private WorldState state;
+    private final Random random = new Random(32);
+
+    @BeforeEach
+    public void beforeEach() {
+        newRound();
+    }
+
+    private void newRound() {
+        DetonatorCircle game = new DetonatorCircle(0, 0);
+        game.setPlayerCount2();
+        game.wonRounds = new int[3];
+        engine = new GameEngine(game, new Map2(), PPM);
+        controllers = new ExternalController[] {new ExternalController(), new ExternalController()};
+        engine.setController(0, controllers[0]);
+        engine.setController(1, controllers[1]);
+        state = new WorldState(engine.getGrid().getWidth(), engine.getGrid().getHeight());
+    }
+
+    @AfterEach
+    public void afterEach() {
+        engine.dispose();
+    }
+
+    private void step() {
+        if (engine.getTick() % 20 == 0) {
+            for (ExternalController controller : controllers) {
+                controller.setInput(INPUTS[random.nextInt(INPUTS.length)]);
+            }
+        }
+        engine.step(1 / 60f);
+        state.capture(engine);
+    }
+
+    private static void assertDecoded(final WorldState expected, final WorldState actual) {
+        assertAll(
+            () -> assertEquals(expected.getTick(), actual.getTick()),
+            () -> assertEquals(expected.isGameEnded(), actual.isGameEnded()),
+            () -> assertEquals(expected.getShrinks(), actual.getShrinks()),
+            () -> assertEquals(expected.getMillisUntilShrink() / 10, actual.getMillisUntilShrink() / 10),
+            () -> assertEquals(expected.getMonsterCount(), actual.getMonsterCount()),
+            () -> assertEquals(expected.getBombCount(), actual.getBombCount()),
+            () -> assertEquals(expected.getEffectCount(), actual.getEffectCount()),
+            () -> assertEquals(expected.getBlastCount(), actual.getBlastCount())
+        );
+        for (int p = 0; p < WorldState.MAX_PLAYERS; ++p) {
+            assertEquals(expected.isAlive(p), actual.isAlive(p));
+            if (expected.isAlive(p)) {
+                assertEquals(expected.getPlayerX(p), actual.getPlayerX(p), PRECISION);
+                assertEquals(expected.getPlayerY(p), actual.getPlayerY(p), PRECISION);
+            }
+        }
+        for (int i = 0; i < expected.getMonsterCount(); ++i) {
+            assertEquals(expected.getMonsterX(i), actual.getMonsterX(i), PRECISION);
+            assertEquals(expected.getMonsterY(i), actual.getMonsterY(i), PRECISION);
+        }
+        for (int cell = 0; cell < expected.getWidth() * expected.getHeight(); ++cell) {
+            assertEquals(expected.isBox(cell), actual.isBox(cell));
+        }
+        for (int i = 0; i < expected.getBombCount(); ++i) {
+            assertEquals(expected.getBombCell(i), actual.getBombCell(i));
+            assertEquals(Math.min(expected.getBombFuse(i), (1 << SnapshotCodec.FUSE_BITS) - 1), actual.getBombFuse(i));
+        }
+        for (int i = 0; i < expected.getBlastCount(); ++i) {
+            assertEquals(expected.getBlastCell(i), actual.getBlastCell(i));
+        }
+    }
+
+    @Test
+    public void testKeyframe() throws ProtocolException {
+        controllers[0].setInput(PlayerController.BOMB);
+        step();
+        SnapshotCodec server = new SnapshotCodec(state.getWidth(), state.getHeight(), PPM);
+        SnapshotCodec client = new SnapshotCodec(state.getWidth(), state.getHeight(), PPM);
+        server.capture(state);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+        server.encode(SnapshotCodec.NO_BASELINE, buffer);
+        buffer.flip();
+        WorldState decoded = new WorldState(state.getWidth(), state.getHeight());
+
+        assertEquals(state.getTick(), client.decode(buffer, decoded));
+        assertFalse(buffer.hasRemaining());
+        assertTrue(client.hasSnapshot(state.getTick()));
+        assertDecoded(state, decoded);
+    }
+
+    @Test
+    public void testDeltas() throws ProtocolException {
+        SnapshotCodec server = new SnapshotCodec(state.getWidth(), state.getHeight(), PPM);
+        SnapshotCodec client = new SnapshotCodec(state.getWidth(), state.getHeight(), PPM);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+        WorldState decoded = new WorldState(state.getWidth(), state.getHeight());
+        int acked = SnapshotCodec.NO_BASELINE;
+        for (int tick = 0; tick < 1200; ++tick) {
+            step();
+            server.capture(state);
+            buffer.clear();
+            server.encode(acked, buffer);
+            buffer.flip();
+            // the client acknowledges every third state, as if the others were still on their way
+            int decodedTick = client.decode(buffer, decoded);
+            if (tick % 3 == 0) {
+                acked = decodedTick;
+            }
+            assertDecoded(state, decoded);
+        }
+    }
+
+    @Test
+    public void testLostBaseline() throws ProtocolException {
+        SnapshotCodec server = new SnapshotCodec(state.getWidth(), state.getHeight(), PPM);
+        SnapshotCodec client = new SnapshotCodec(state.getWidth(), state.getHeight(), PPM);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+        WorldState decoded = new WorldState(state.getWidth(), state.getHeight());
+        step();
+        server.capture(state);
+        server.encode(SnapshotCodec.NO_BASELINE, buffer);
+        buffer.flip();
+        int first = client.decode(buffer, decoded);
+        for (int tick = 0; tick < SnapshotCodec.HISTORY; ++tick) {
+            step();
+            server.capture(state);
+        }
+        buffer.clear();
+        server.encode(first, buffer);
+        buffer.flip();
+
+        assertFalse(server.hasSnapshot(first));
+        assertEquals(state.getTick(), client.decode(buffer, decoded));
+        assertDecoded(state, decoded);
+
+        // a delta against a state the client never decoded can't be decoded
+        step();
+        server.capture(state);
+        buffer.clear();
+        server.encode(state.getTick() - 2, buffer);
+        buffer.flip();
+        assertThrows(ProtocolException.class, () -> client.decode(buffer, decoded));
+    }
+
+    /**
+     * Plays rounds of Map2 (8 monsters) with random inputs, and compares the size of the snapshots with the
+     * uncompressed {@link WorldState} format. Encoding and decoding them mustn't allocate.
+     */
+    @Test
+    public void testMap2Snapshots() throws ProtocolException {
+        assertEquals(8, engine.getMonsterCount());
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+        WorldState decoded = new WorldState(state.getWidth(), state.getHeight());
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int warmup = 2000;
+        int ticks = 5000;
+        int rtt = 6;
+        long rawBytes = 0;
+        long keyframeBytes = 0;
+        long deltaBytes = 0;
+        long allocated = 0;
+        int measured = 0;
+        for (int tick = 0; tick < warmup + ticks; ) {
+            // the random players blow themselves up quickly: play as many rounds as needed
+            if (engine.isGameEnded()) {
+                engine.dispose();
+                newRound();
+            }
+            SnapshotCodec server = new SnapshotCodec(state.getWidth(), state.getHeight(), PPM);
+            SnapshotCodec client = new SnapshotCodec(state.getWidth(), state.getHeight(), PPM);
+            for (; tick < warmup + ticks && !engine.isGameEnded(); ++tick) {
+                step();
+                buffer.clear();
+                state.write(buffer);
+                int raw = buffer.position();
+
+                long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+                server.capture(state);
+                buffer.clear();
+                server.encode(SnapshotCodec.NO_BASELINE, buffer);
+                int keyframe = buffer.position();
+                buffer.clear();
+                // the client acknowledged the state sent a round trip ago
+                server.encode(state.getTick() - rtt, buffer);
+                int delta = buffer.position();
+                buffer.flip();
+                client.decode(buffer, decoded);
+                long allocatedAfter = threads.getCurrentThreadAllocatedBytes();
+
+                if (tick >= warmup) {
+                    ++measured;
+                    rawBytes += raw;
+                    keyframeBytes += keyframe;
+                    deltaBytes += delta;
+                    allocated += allocatedAfter - allocatedBefore;
+                }
+            }
+        }
+        assertTrue(measured > 0);
+        assertTrue(keyframeBytes < rawBytes);
+        assertTrue(deltaBytes < keyframeBytes / 2);
+        assertEquals(0, allocated);
+    }
+}
@@ -0,0 +1,209 @@
+package model.net;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import x3.model.map.GameMap;
+import x3.model.map.Map1;
+import x3.model.net.MatchClient;
+import x3.model.net.MatchServer;
+import x3.model.net.SpectatorRelay;
+import x3.model.net.TickStats;
+import x3.model.util.Pair;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpectatorRelayTest {
+    private static final long TIMEOUT = 10_000;
+    private static final int KEYFRAME_INTERVAL = 30;
+
+    private MatchServer server;
+    private SpectatorRelay relay;
+    private final List<MatchClient> clients = new ArrayList<>();
+    private final List<MatchClient> players = new ArrayList<>();
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        // without monsters, the idle players survive until the arena shrinks
+        GameMap map = new Map1() {
+            @Override
+            public Stream<Pair> getMonsterSpawns() {
+                return Stream.empty();
+            }
+        };
+        server = new MatchServer(map, 2, loopback);
+        server.start();
+        relay = new SpectatorRelay(server.getAddress(), loopback, KEYFRAME_INTERVAL);
+        relay.start();
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        for (MatchClient client : clients) {
+            client.close();
+        }
+        relay.dispose();
+        server.dispose();
+    }
+
+    private MatchClient watch() throws IOException {
+        MatchClient viewer = new MatchClient(relay.getAddress(), true);
+        clients.add(viewer);
+        return viewer;
+    }
+
+    private void startMatch() throws IOException, InterruptedException {
+        for (int i = 0; i < 2; ++i) {
+            MatchClient player = new MatchClient(server.getAddress());
+            clients.add(player);
+            players.add(player);
+        }
+        pollUntil(server::isStarted);
+    }
+
+    private void pollUntil(BooleanSupplier condition) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            for (MatchClient client : clients) {
+                client.poll();
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testViewersFollowTheMatch() throws IOException, InterruptedException {
+        Map<Integer, float[]> positions = new HashMap<>();
+        startMatch();
+        players.get(0).setStateListener(state -> positions.put(state.getTick(),
+            new float[] {state.getPlayerX(0), state.getPlayerY(0), state.getPlayerX(1), state.getPlayerY(1)}));
+        pollUntil(() -> relay.getTick() > 0);
+
+        // joining mid-match, the viewers start from a keyframe
+        List<MatchClient> viewers = new ArrayList<>();
+        int[] firstTicks = new int[3];
+        int[] compared = new int[3];
+        for (int i = 0; i < 3; ++i) {
+            int index = i;
+            MatchClient viewer = watch();
+            viewer.setStateListener(state -> {
+                if (firstTicks[index] == 0) {
+                    firstTicks[index] = state.getTick();
+                }
+                float[] expected = positions.get(state.getTick());
+                if (expected != null) {
+                    assertEquals(expected[0], state.getPlayerX(0));
+                    assertEquals(expected[1], state.getPlayerY(0));
+                    assertEquals(expected[2], state.getPlayerX(1));
+                    assertEquals(expected[3], state.getPlayerY(1));
+                    ++compared[index];
+                }
+            });
+            viewers.add(viewer);
+        }
+        pollUntil(() -> viewers.stream().allMatch(viewer -> viewer.getStatesReceived() > 2 * KEYFRAME_INTERVAL));
+
+        for (int i = 0; i < 3; ++i) {
+            MatchClient viewer = viewers.get(i);
+            assertTrue(viewer.isSpectating());
+            assertEquals(2, viewer.getPlayerCount());
+            assertTrue(viewer.isWall(0));
+            assertEquals(0, firstTicks[i] % KEYFRAME_INTERVAL);
+            assertTrue(compared[i] > KEYFRAME_INTERVAL);
+        }
+        assertAll(
+            () -> assertEquals(3, relay.getViewerCount()),
+            () -> assertEquals(1, server.getSpectatorCount()),
+            () -> assertEquals(0, relay.getResyncs())
+        );
+    }
+
+    @Test
+    public void testRefusesPlayers() throws IOException, InterruptedException {
+        MatchClient player = new MatchClient(relay.getAddress());
+        clients.add(player);
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        assertThrows(IOException.class, () -> {
+            while (System.currentTimeMillis() < deadline) {
+                player.poll();
+                Thread.sleep(1);
+            }
+        });
+        assertFalse(player.isJoined());
+    }
+
+    /**
+     * Relays a match to dozens of viewers, and checks that the number of encoded frames doesn't grow with them.
+     */
+    @Test
+    public void testManyViewers() throws IOException, InterruptedException {
+        int viewers = 30;
+        startMatch();
+        for (int i = 0; i < viewers; ++i) {
+            watch();
+        }
+        pollUntil(() -> clients.stream().allMatch(client -> client.getStatesReceived() > 0));
+        double[] many = measure(KEYFRAME_INTERVAL * 2);
+
+        assertEquals(viewers, relay.getViewerCount());
+        // a delta per state, and a keyframe every interval for the viewers that just joined
+        assertTrue(many[1] <= 1 + 1.0 / KEYFRAME_INTERVAL + 0.01);
+    }
+
+    /**
+     * Measures the relay's time per state with a single viewer, then with hundreds of viewers, all on the loopback
+     * interface. Only run by the benchmark task.
+     */
+    @Test
+    @Tag("benchmark")
+    public void benchmarkViewers() throws IOException, InterruptedException {
+        int viewers = 300;
+        int window = 120;
+        startMatch();
+        MatchClient first = watch();
+        pollUntil(() -> first.getStatesReceived() > KEYFRAME_INTERVAL);
+        double[] single = measure(window);
+
+        for (int i = 1; i < viewers; ++i) {
+            watch();
+        }
+        pollUntil(() -> clients.stream().allMatch(client -> client.getStatesReceived() > 0));
+        double[] many = measure(window);
+
+        assertEquals(viewers, relay.getViewerCount());
+        assertTrue(many[1] <= 1 + 1.0 / KEYFRAME_INTERVAL + 0.01);
+        assertTrue(many[0] < MatchServer.TICK_NANOS, "a state took " + many[0] / 1000 + " us with " + viewers
+            + " viewers, " + single[0] / 1000 + " us with one");
+    }
+
+    /**
+     * Polls the clients for the given number of relayed states.
+     *
+     * @return the average time the relay spent per state in nanoseconds, and the frames it encoded per state.
+     */
+    private double[] measure(int states) throws IOException, InterruptedException {
+        TickStats stats = relay.getStats();
+        long ticks = stats.getTicks();
+        double nanos = (double) stats.getAverageNanos() * ticks;
+        long frames = relay.getFramesEncoded();
+        pollUntil(() -> stats.getTicks() >= ticks + states);
+        long measured = stats.getTicks() - ticks;
+        return new double[] {
+            ((double) stats.getAverageNanos() * stats.getTicks() - nanos) / measured,
+            (double) (relay.getFramesEncoded() - frames) / measured
+        };
+    }
+}
@@ -0,0 +1,116 @@
+package model.net;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import x3.DetonatorCircle;
+import x3.model.game.GameEngine;
+import x3.model.game.control.ExternalController;
+import x3.model.game.control.PlayerController;
+import x3.model.game.grid.CellGrid;
+import x3.model.map.Map2;
+import x3.model.net.WorldState;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorldStateTest {
+    private GameEngine engine;
+    private ExternalController controller;
+
+    @BeforeEach
+    public void beforeEach() {
+        DetonatorCircle game = new DetonatorCircle(0, 0);
+        game.setPlayerCount2();
+        game.wonRounds = new int[3];
+        engine = new GameEngine(game, new Map2(), 5);
+        controller = new ExternalController();
+        engine.setController(0, controller);
+        engine.setController(1, new ExternalController());
+    }
+
+    @AfterEach
+    public void afterEach() {
+        engine.dispose();
+    }
+
+    @Test
+    public void testCapture() {
+        controller.setInput(PlayerController.BOMB);
+        engine.step(1 / 60f);
+        WorldState state = new WorldState(engine.getGrid().getWidth(), engine.getGrid().getHeight());
+        state.capture(engine);
+        CellGrid grid = engine.getGrid();
+
+        int boxes = 0;
+        for (int cell = 0; cell < grid.size(); ++cell) {
+            assertEquals(grid.isBox(cell), state.isBox(cell));
+            boxes += state.isBox(cell) ? 1 : 0;
+        }
+        int finalBoxes = boxes;
+        assertAll(
+            () -> assertTrue(finalBoxes > 0),
+            () -> assertEquals(1, state.getTick()),
+            () -> assertTrue(state.isAlive(0)),
+            () -> assertTrue(state.isAlive(1)),
+            () -> assertFalse(state.isAlive(2)),
+            () -> assertEquals(engine.getPlayer(1).getX(), state.getPlayerX(1)),
+            () -> assertEquals(engine.getMonsterCount(), state.getMonsterCount()),
+            () -> assertEquals(1, state.getBombCount()),
+            () -> assertEquals(engine.getCell(engine.getPlayer(0)), state.getBombCell(0)),
+            () -> assertTrue(state.getBombFuse(0) > 100),
+            () -> assertEquals(-1, state.getShrinks()),
+            () -> assertFalse(state.isBoundary(0, 0))
+        );
+    }
+
+    @Test
+    public void testWriteRead() {
+        for (int tick = 0; tick < 10; ++tick) {
+            controller.setInput(tick == 0 ? PlayerController.BOMB : PlayerController.UP);
+            engine.step(1 / 60f);
+        }
+        WorldState state = new WorldState(engine.getGrid().getWidth(), engine.getGrid().getHeight());
+        state.capture(engine);
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        state.write(buffer);
+        int size = buffer.position();
+        buffer.flip();
+        WorldState copy = new WorldState(state.getWidth(), state.getHeight());
+        copy.read(buffer);
+
+        assertAll(
+            () -> assertEquals(size, buffer.position()),
+            () -> assertEquals(state.getTick(), copy.getTick()),
+            () -> assertEquals(state.getPlayerX(0), copy.getPlayerX(0)),
+            () -> assertEquals(state.getPlayerY(0), copy.getPlayerY(0)),
+            () -> assertEquals(state.getMonsterCount(), copy.getMonsterCount()),
+            () -> assertEquals(state.getMonsterX(3), copy.getMonsterX(3)),
+            () -> assertEquals(state.getBombCount(), copy.getBombCount()),
+            () -> assertEquals(state.getBombFuse(0), copy.getBombFuse(0)),
+            () -> assertEquals(state.getMillisUntilShrink(), copy.getMillisUntilShrink())
+        );
+        for (int cell = 0; cell < engine.getGrid().size(); ++cell) {
+            assertEquals(state.isBox(cell), copy.isBox(cell));
+        }
+    }
+
+    @Test
+    public void testBoundary() {
+        WorldState state = new WorldState(9, 9);
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        state.write(buffer);
+        buffer.put(5, (byte) 1);
+        buffer.flip();
+        state.read(buffer);
+
+        assertAll(
+            () -> assertEquals(1, state.getShrinks()),
+            () -> assertTrue(state.isBoundary(1, 4)),
+            () -> assertTrue(state.isBoundary(7, 4)),
+            () -> assertFalse(state.isBoundary(2, 2)),
+            () -> assertFalse(state.isBoundary(4, 4))
+        );
+    }
+}
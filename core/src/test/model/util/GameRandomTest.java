@@ -0,0 +1,33 @@
+package model.util;
+
+import org.junit.jupiter.api.Test;
+import x3.model.util.GameRandom;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class GameRandomTest {
+    @Test
+    public void testSameNumbersAsRandom() {
+        Random expected = new Random(42);
+        GameRandom actual = new GameRandom(42);
+        for (int i = 0; i < 100; ++i) {
+            assertEquals(expected.nextInt(-6, 7), actual.nextInt(-6, 7));
+            assertEquals(expected.nextLong(), actual.nextLong());
+            assertEquals(expected.nextFloat(), actual.nextFloat());
+        }
+    }
+
+    @Test
+    public void testRestoreState() {
+        GameRandom random = new GameRandom(43);
+        random.nextInt();
+        long state = random.getState();
+        int[] first = random.ints(20, 0, 4).toArray();
+        random.setState(state);
+        for (int value : first) {
+            assertEquals(value, random.nextInt(0, 4));
+        }
+    }
+}
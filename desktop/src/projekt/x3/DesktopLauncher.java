@@ -4,18 +4,110 @@ import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Application;
 import com.badlogic.gdx.backends.lwjgl3.Lwjgl3ApplicationConfiguration;
 import com.badlogic.gdx.physics.box2d.Box2D;
 import x3.DetonatorCircle;
+import x3.model.map.AsciiMap;
+import x3.model.map.FileGameMap;
+import x3.model.map.GameMap;
+import x3.model.map.Map1;
+import x3.model.map.Map2;
+import x3.model.map.Map3;
+import x3.model.net.MatchServer;
+import x3.model.net.NetProtocol;
+import x3.model.net.ReplayFile;
+import x3.view.game.GameScreen;
+import x3.view.mapselect.MapSelectScreen;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 // Please note that on macOS your application needs to be started with the -XstartOnFirstThread JVM argument
+//
+// Arguments:
+//   (none)                                   play locally
+//   --server [port] [map 1-3] [players 2-3]  run a headless match server
+//   --connect host[:port]                    join a match server
+//   --record [directory]                     play locally, recording every game to a new replay in the directory
+//   --replay [file]                          play back a replay, by default the last one recorded
+//   --import-map text [file]                 convert a text map, by default into the maps directory
 public class DesktopLauncher {
     public static final int WINDOW_WIDTH = 800;
     public static final int WINDOW_HEIGHT = 450;
+    private static final long STATS_INTERVAL = 5000;
 
-    public static void main (String[] arg) {
+    public static void main (String[] arg) throws IOException, InterruptedException {
         Box2D.init();
+        if (arg.length > 0 && arg[0].equals("--server")) {
+            runServer(arg);
+            return;
+        }
+        if (arg.length > 1 && arg[0].equals("--import-map")) {
+            importMap(arg);
+            return;
+        }
+
         Lwjgl3ApplicationConfiguration config = new Lwjgl3ApplicationConfiguration();
         config.setForegroundFPS(60);
         config.setTitle("Detonator Circle");
         config.setWindowedMode(WINDOW_WIDTH, WINDOW_HEIGHT);
-        new Lwjgl3Application(new DetonatorCircle(WINDOW_WIDTH, WINDOW_HEIGHT), config);
+        DetonatorCircle game = new DetonatorCircle(WINDOW_WIDTH, WINDOW_HEIGHT);
+        if (arg.length > 1 && arg[0].equals("--connect")) {
+            game.setServerAddress(parseAddress(arg[1]));
+        } else if (arg.length > 0 && arg[0].equals("--record")) {
+            game.setReplayDirectory(arg.length > 1 ? Path.of(arg[1]) : GameScreen.REPLAYS);
+        } else if (arg.length > 0 && arg[0].equals("--replay")) {
+            Path replay = arg.length > 1 ? Path.of(arg[1]) : ReplayFile.latest(GameScreen.REPLAYS);
+            if (replay == null) {
+                System.out.println("No replay in " + GameScreen.REPLAYS + ": record games with --record");
+                return;
+            }
+            game.setReplayFile(replay);
+        }
+        new Lwjgl3Application(game, config);
+    }
+
+    private static InetSocketAddress parseAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon == -1) {
+            return new InetSocketAddress(address, NetProtocol.DEFAULT_PORT);
+        }
+        return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    private static void importMap(String[] arg) throws IOException {
+        Path text = Path.of(arg[1]);
+        Path file;
+        if (arg.length > 2) {
+            file = Path.of(arg[2]);
+        } else {
+            String name = text.getFileName().toString();
+            int dot = name.lastIndexOf('.');
+            Files.createDirectories(MapSelectScreen.MAPS);
+            file = MapSelectScreen.MAPS.resolve((dot > 0 ? name.substring(0, dot) : name) + FileGameMap.EXTENSION);
+        }
+        AsciiMap map = AsciiMap.importFile(text, file);
+        System.out.println("Imported a " + map.getMapWidth() + "x" + map.getMapHeight() + " map into " + file
+            + " (" + Files.size(file) + " bytes)");
+    }
+
+    private static void runServer(String[] arg) throws IOException, InterruptedException {
+        int port = arg.length > 1 ? Integer.parseInt(arg[1]) : NetProtocol.DEFAULT_PORT;
+        List<GameMap> maps = List.of(new Map1(), new Map2(), new Map3());
+        GameMap map = maps.get(arg.length > 2 ? Integer.parseInt(arg[2]) - 1 : 0);
+        int players = arg.length > 3 ? Integer.parseInt(arg[3]) : 2;
+
+        MatchServer server = new MatchServer(map, players, new InetSocketAddress(port));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::dispose));
+        server.start();
+        System.out.println("Match server listening on " + server.getAddress() + ", waiting for " + players + " players");
+        while (!server.isFinished()) {
+            Thread.sleep(STATS_INTERVAL);
+            if (server.isStarted()) {
+                System.out.println("Tick cost: " + server.getStats());
+            }
+        }
+        System.out.println("Round over. Tick cost: " + server.getStats());
+        server.dispose();
     }
 }